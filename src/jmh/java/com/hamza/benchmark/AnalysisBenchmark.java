@@ -0,0 +1,123 @@
+package com.hamza.benchmark;
+
+import com.hamza.TfIdfProcessor;
+import com.hamza.nlp.CachingStemmer;
+import com.hamza.nlp.TextAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Débit de la chaîne d'analyse (voir TextAnalyzer), en mots par seconde (compteur tokens) : un document du corpus
+// synthétique à la fois, vocalisé (harakat, hamza sur l'alef) pour que les normalisations aient du travail.
+// Les mots vides sont les racines des mots les plus fréquents du vocabulaire, comme dans un vrai corpus.
+// regexBaseline reproduit l'analyse d'avant la chaîne (liste des racines, nombres écartés par expression
+// régulière, mots vides dans un HashSet) : elle ne dépend pas du paramètre filters.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AnalysisBenchmark {
+
+    private static final int DOCUMENTS = 1000;
+    private static final int STOP_WORDS = 100;
+
+    @Param({"stop-words,numbers", "diacritics,letters,stop-words,numbers"})
+    private String filters;
+
+    private List<String> texts;
+    private int[] wordCounts;
+    private Set<String> stopWords;
+    private TextAnalyzer analyzer;
+    private CachingStemmer baselineStemmer;
+    private int nextDocument;
+
+    // Mots analysés depuis le début de l'itération, rapportés par JMH en mots par seconde
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Tokens {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        texts = new ArrayList<>(DOCUMENTS);
+        wordCounts = new int[DOCUMENTS];
+        for (String text : new BenchmarkCorpus(DOCUMENTS).getTexts()) {
+            wordCounts[texts.size()] = text.split(" ").length;
+            texts.add(vocalise(text));
+        }
+        StubStemmer stubStemmer = new StubStemmer();
+        String[] vocabulary = new SyntheticCorpus(BenchmarkCorpus.VOCABULARY_SIZE, DOCUMENTS).getVocabulary();
+        stopWords = new HashSet<>();
+        for (int rank = 0; rank < STOP_WORDS; rank++) {
+            stopWords.add(stubStemmer.apply(vocabulary[rank]));
+        }
+        analyzer = BenchmarkCorpus.createAnalyzer(filters, stopWords);
+        baselineStemmer = BenchmarkCorpus.createStemmer();
+    }
+
+    @Benchmark
+    public Map<String, Long> analyze(Tokens tokens) {
+        nextDocument = (nextDocument + 1) % DOCUMENTS;
+        tokens.tokens += wordCounts[nextDocument];
+        return TfIdfProcessor.analyzeDocument(texts.get(nextDocument), analyzer);
+    }
+
+    @Benchmark
+    public Map<String, Long> regexBaseline(Tokens tokens) {
+        nextDocument = (nextDocument + 1) % DOCUMENTS;
+        tokens.tokens += wordCounts[nextDocument];
+        Map<String, Long> counts = new HashMap<>();
+        for (String stem : baselineStemmer.stemWords(texts.get(nextDocument))) {
+            if (stem != null && !stem.isBlank() && !stopWords.contains(stem) && !stem.matches("\\d+")
+                    && stem.length() > 1) {
+                counts.merge(stem, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    // Texte vocalisé de façon déterministe : une haraka après la première lettre d'un mot sur deux, une shadda
+    // sur un mot sur cinq, et la hamza sur l'alef initial.
+    private static String vocalise(String text) {
+        StringBuilder vocalised = new StringBuilder(text.length() * 2);
+        int word = 0;
+        boolean wordStart = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '.') {
+                vocalised.append(c);
+                if (!wordStart) {
+                    word++;
+                }
+                wordStart = true;
+                continue;
+            }
+            vocalised.append(wordStart && c == '\u0627' ? '\u0623' : c);
+            if (wordStart) {
+                if (word % 2 == 0) {
+                    vocalised.append('\u064E');
+                }
+                if (word % 5 == 0) {
+                    vocalised.append('\u0651');
+                }
+            }
+            wordStart = false;
+        }
+        return vocalised.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.hamza.benchmark;
+
+import com.hamza.TfIdfProcessor;
+import com.hamza.nlp.ArabicFilters;
+import com.hamza.nlp.CachingStemmer;
+import com.hamza.nlp.DocumentSearcher;
+import com.hamza.nlp.InvertedIndex;
+import com.hamza.nlp.SearchMetrics;
+import com.hamza.nlp.SegmentedIndex;
+import com.hamza.nlp.StemCache;
+import com.hamza.nlp.StreamingIndexBuilder;
+import com.hamza.nlp.TextAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Corpus synthétique partagé par les benchmarks JMH : textes "arabes" (loi de Zipf, voir SyntheticCorpus),
+// racinisés par le StubStemmer, et le moteur construit dessus comme en production (index inversé, un seul shard).
+// La génération est déterministe : deux exécutions mesurent exactement les mêmes données.
+
+public class BenchmarkCorpus {
+
+    static final int VOCABULARY_SIZE = 50_000;
+    static final int AVERAGE_TOKENS = 200;
+    static final int QUERY_COUNT = 256;
+
+    private final List<String> texts;
+    private final List<String> queries;
+    private final TextAnalyzer analyzer;
+
+    public BenchmarkCorpus(int documentCount) {
+        SyntheticCorpus corpus = new SyntheticCorpus(VOCABULARY_SIZE, documentCount);
+        this.texts = new ArrayList<>(documentCount);
+        for (int d = 0; d < documentCount; d++) {
+            texts.add(corpus.nextText(AVERAGE_TOKENS / 2 + d % (AVERAGE_TOKENS + 1)));
+        }
+        this.queries = new ArrayList<>(QUERY_COUNT);
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            queries.add(corpus.nextQuery(1 + q % 5));
+        }
+        this.analyzer = createAnalyzer(ArabicFilters.DEFAULT_CHAIN, Set.of());
+    }
+
+    public static CachingStemmer createStemmer() {
+        return CachingStemmer.withAnalyser(StubStemmer::new, new StemCache(100_000));
+    }
+
+    // Chaîne d'analyse de filtres donnés autour du StubStemmer, avec son propre cache.
+    public static TextAnalyzer createAnalyzer(String filters, Set<String> stopWords) {
+        return TextAnalyzer.of(createStemmer(), stopWords, filters);
+    }
+
+    public List<String> getTexts() {
+        return texts;
+    }
+
+    public List<String> getQueries() {
+        return queries;
+    }
+
+    public TextAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    // Occurrences des racines de chaque document, au format de TfIdfProcessor.buildOccurrenceMap.
+    public List<Map<String, Long>> analyze() {
+        List<Map<String, Long>> documents = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            documents.add(TfIdfProcessor.analyzeDocument(text, analyzer));
+        }
+        return documents;
+    }
+
+    public InvertedIndex buildIndex(List<Map<String, Long>> documents) {
+        StreamingIndexBuilder builder = new StreamingIndexBuilder();
+        for (int d = 0; d < documents.size(); d++) {
+            builder.addDocument("doc" + (d + 1), documents.get(d));
+        }
+        return builder.build();
+    }
+
+    public DocumentSearcher createSearcher(InvertedIndex index) {
+        return new DocumentSearcher(new SegmentedIndex(index, 1, 10, 0.1), analyzer, null, SearchMetrics.disabled());
+    }
+}
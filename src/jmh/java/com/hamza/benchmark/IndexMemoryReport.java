@@ -0,0 +1,81 @@
+package com.hamza.benchmark;
+
+import com.hamza.nlp.CsrMatrix;
+import com.hamza.nlp.InvertedIndex;
+import com.hamza.nlp.TermDictionary;
+import com.hamza.nlp.TfIdfUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compare l'empreinte mémoire de la matrice TF-IDF en Map imbriquées (Map<String, Map<String, Double>> + idfMap)
+// à celle de l'index primitif (dictionnaire de termes + matrice CSR + postings + normes) sur le corpus synthétique
+// des benchmarks (BenchmarkCorpus). Rapport ponctuel hors JMH : le tas est mesuré après des GC explicites.
+// Usage : mvn -Pbenchmarks compile exec:exec -Djmh.main=com.hamza.benchmark.IndexMemoryReport -Djmh.args=20000
+
+public class IndexMemoryReport {
+
+    public static void main(String[] args) {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        System.out.println("📏 Corpus synthétique : " + documentCount + " documents, ~"
+                + BenchmarkCorpus.AVERAGE_TOKENS + " tokens/document, vocabulaire de "
+                + BenchmarkCorpus.VOCABULARY_SIZE + " mots");
+        Map<String, Map<String, Long>> occurrenceMap = new LinkedHashMap<>();
+        List<Map<String, Long>> documents = new BenchmarkCorpus(documentCount).analyze();
+        for (int d = 0; d < documents.size(); d++) {
+            occurrenceMap.put("doc" + (d + 1), documents.get(d));
+        }
+        documents = null;
+        Map<String, Double> idfMap = TfIdfUtils.computeIDF(occurrenceMap);
+
+        // 1. Représentation historique : Map imbriquées de Double boxés
+        long before = usedHeap();
+        Map<String, Map<String, Double>> tfMap = new LinkedHashMap<>();
+        for (var entry : occurrenceMap.entrySet()) {
+            tfMap.put(entry.getKey(), TfIdfUtils.computeTF(entry.getValue()));
+        }
+        Map<String, Map<String, Double>> tfidfMatrix = TfIdfUtils.computeTfIdf(tfMap, idfMap);
+        tfMap = null;
+        Map<String, Double> idfCopy = new LinkedHashMap<>(idfMap);
+        long mapBytes = usedHeap() - before;
+        long nonZeros = tfidfMatrix.values().stream().mapToLong(Map::size).sum();
+        tfidfMatrix = null;
+        idfCopy = null;
+
+        // 2. Représentation primitive : dictionnaire + CSR + postings + normes
+        before = usedHeap();
+        TermDictionary dictionary = new TermDictionary(idfMap.size());
+        CsrMatrix matrix = TfIdfUtils.computeTfIdfMatrix(occurrenceMap, idfMap, dictionary);
+        int[] documentLengths = occurrenceMap.values().stream()
+                .mapToInt(counts -> (int) counts.values().stream().mapToLong(Long::longValue).sum())
+                .toArray();
+        InvertedIndex index = InvertedIndex.build(new ArrayList<>(occurrenceMap.keySet()), dictionary,
+                matrix, TfIdfUtils.toIdfArray(idfMap, dictionary), documentLengths);
+        long indexBytes = usedHeap() - before;
+
+        System.out.println("\n--- EMPREINTE MÉMOIRE (tas mesuré après GC) ---");
+        System.out.println(String.format("  Paires (document, terme)        : %,d", nonZeros));
+        System.out.println(String.format("  Map imbriquées + idfMap         : %,.1f Mo (%.1f octets/paire)",
+                mapBytes / 1e6, (double) mapBytes / nonZeros));
+        System.out.println(String.format("  Index primitif (CSR + postings) : %,.1f Mo (%.1f octets/paire)",
+                indexBytes / 1e6, (double) indexBytes / nonZeros));
+        System.out.println(String.format("  dont tableaux primitifs         : %,.1f Mo", index.estimateArraysBytes() / 1e6));
+        System.out.println(String.format("  Gain                            : x%.1f", (double) mapBytes / Math.max(1, indexBytes)));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
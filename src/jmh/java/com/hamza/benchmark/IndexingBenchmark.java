@@ -0,0 +1,48 @@
+package com.hamza.benchmark;
+
+import com.hamza.TfIdfProcessor;
+import com.hamza.nlp.InvertedIndex;
+import com.hamza.nlp.TextAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Chemin d'indexation : analyse d'un document (découpage en mots, racinisation à travers le cache, comptage)
+// et construction de l'index inversé du corpus complet à partir des occurrences.
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IndexingBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int documents;
+
+    private BenchmarkCorpus corpus;
+    private TextAnalyzer analyzer;
+    private List<Map<String, Long>> occurrences;
+    private int nextDocument;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        corpus = new BenchmarkCorpus(documents);
+        analyzer = corpus.getAnalyzer();
+        occurrences = corpus.analyze();
+    }
+
+    @Benchmark
+    public Map<String, Long> analyzeDocument() {
+        nextDocument = (nextDocument + 1) % documents;
+        return TfIdfProcessor.analyzeDocument(corpus.getTexts().get(nextDocument), analyzer);
+    }
+
+    @Benchmark
+    public InvertedIndex buildIndex() {
+        return corpus.buildIndex(occurrences);
+    }
+}
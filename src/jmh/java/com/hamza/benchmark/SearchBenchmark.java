@@ -0,0 +1,77 @@
+package com.hamza.benchmark;
+
+import com.hamza.nlp.DocumentSearcher;
+import com.hamza.nlp.TfIdfUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Chemin d'une requête dans DocumentSearcher, à plusieurs échelles de corpus : analyse de la requête
+// (racinisation + pondération TF-IDF), norme de la requête, sélection du top-K (MaxScore), similarité cosinus
+// de tous les documents (seuil nul : parcours exhaustif), et recherche complète depuis le texte.
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+
+    private static final int MAX_RESULTS = 10;
+
+    @Param({"1000", "10000", "100000"})
+    private int documents;
+
+    private DocumentSearcher searcher;
+    private List<String> queries;
+    private List<Map<String, Double>> queryVectors;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(documents);
+        searcher = corpus.createSearcher(corpus.buildIndex(corpus.analyze()));
+        queries = corpus.getQueries();
+        queryVectors = new ArrayList<>(queries.size());
+        for (String query : queries) {
+            queryVectors.add(searcher.processQuery(query));
+        }
+    }
+
+    private int next() {
+        nextQuery = (nextQuery + 1) % queries.size();
+        return nextQuery;
+    }
+
+    @Benchmark
+    public Map<String, Double> processQuery() {
+        return searcher.processQuery(queries.get(next()));
+    }
+
+    @Benchmark
+    public double queryNorm() {
+        return TfIdfUtils.computeNorm(queryVectors.get(next()));
+    }
+
+    // Top-K d'une requête déjà analysée, avec le seuil par défaut de l'application
+    @Benchmark
+    public List<DocumentSearcher.DocumentSearchResult> searchTopK() {
+        return searcher.searchDocuments(queryVectors.get(next()), 0.01, MAX_RESULTS);
+    }
+
+    // Seuil nul : la similarité cosinus est calculée pour chaque document, sans élagage
+    @Benchmark
+    public List<DocumentSearcher.DocumentSearchResult> cosineAllDocuments() {
+        return searcher.searchDocuments(queryVectors.get(next()), 0.0, MAX_RESULTS);
+    }
+
+    // Recherche complète depuis le texte de la requête
+    @Benchmark
+    public List<DocumentSearcher.DocumentSearchResult> searchDocuments() {
+        return searcher.searchDocuments(searcher.processQuery(queries.get(next())), 0.01, MAX_RESULTS);
+    }
+}
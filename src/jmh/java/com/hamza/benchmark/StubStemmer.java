@@ -0,0 +1,31 @@
+package com.hamza.benchmark;
+
+import java.util.function.UnaryOperator;
+
+// Stemmer de substitution pour les benchmarks, indépendant du jar SAFAR : une racinisation "légère" déterministe
+// qui retire l'article et quelques préfixes et suffixes courants, sans jamais descendre sous trois lettres.
+// Les mesures portent ainsi sur le code du moteur, et non sur le coût ou la version de l'analyseur SAFAR.
+
+public class StubStemmer implements UnaryOperator<String> {
+
+    private static final String[] PREFIXES = {"وال", "بال", "كال", "فال", "لل", "ال", "و"};
+    private static final String[] SUFFIXES = {"ها", "ان", "ات", "ون", "ين", "يه", "ية", "ه", "ة", "ي"};
+
+    @Override
+    public String apply(String word) {
+        String stem = word;
+        for (String prefix : PREFIXES) {
+            if (stem.startsWith(prefix) && stem.length() - prefix.length() >= 3) {
+                stem = stem.substring(prefix.length());
+                break;
+            }
+        }
+        for (String suffix : SUFFIXES) {
+            if (stem.endsWith(suffix) && stem.length() - suffix.length() >= 3) {
+                stem = stem.substring(0, stem.length() - suffix.length());
+                break;
+            }
+        }
+        return stem;
+    }
+}
@@ -0,0 +1,71 @@
+package com.hamza.benchmark;
+
+import java.util.*;
+
+// Générateur de corpus synthétique "arabe" pour les mesures de performance : un vocabulaire de racines
+// pseudo-arabes et des documents dont les fréquences de termes suivent une loi de Zipf, comme un vrai corpus.
+// La génération est déterministe (graine fixe) pour rendre les mesures comparables d'une exécution à l'autre.
+
+public class SyntheticCorpus {
+
+    private static final String ARABIC_LETTERS = "ابتثجحخدذرزسشصضطظعغفقكلمنهوي";
+
+    private final String[] vocabulary;
+    private final double[] cumulativeWeights;
+    private final Random random;
+
+    public SyntheticCorpus(int vocabularySize, long seed) {
+        this.random = new Random(seed);
+        this.vocabulary = generateVocabulary(vocabularySize);
+        this.cumulativeWeights = new double[vocabularySize];
+        double sum = 0.0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulativeWeights[rank] = sum;
+        }
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            cumulativeWeights[rank] /= sum;
+        }
+    }
+
+    // Tire un terme du vocabulaire selon la loi de Zipf.
+    public String nextTerm() {
+        int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        return vocabulary[index >= 0 ? index : Math.min(-index - 1, vocabulary.length - 1)];
+    }
+
+    // Texte d'un document de tokenCount mots, séparés par des espaces.
+    public String nextText(int tokenCount) {
+        StringBuilder text = new StringBuilder(tokenCount * 6);
+        for (int i = 0; i < tokenCount; i++) {
+            text.append(nextTerm()).append(i % 15 == 14 ? ". " : " ");
+        }
+        return text.toString();
+    }
+
+    // Requête de termCount termes tirés du vocabulaire.
+    public String nextQuery(int termCount) {
+        StringJoiner query = new StringJoiner(" ");
+        for (int i = 0; i < termCount; i++) {
+            query.add(nextTerm());
+        }
+        return query.toString();
+    }
+
+    public String[] getVocabulary() {
+        return vocabulary;
+    }
+
+    private String[] generateVocabulary(int size) {
+        Set<String> terms = new LinkedHashSet<>();
+        while (terms.size() < size) {
+            int length = 3 + random.nextInt(5);
+            StringBuilder term = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                term.append(ARABIC_LETTERS.charAt(random.nextInt(ARABIC_LETTERS.length())));
+            }
+            terms.add(term.toString());
+        }
+        return terms.toArray(new String[0]);
+    }
+}
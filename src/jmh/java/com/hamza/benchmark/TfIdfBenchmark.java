@@ -0,0 +1,82 @@
+package com.hamza.benchmark;
+
+import com.hamza.nlp.TfIdfUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Calculs TF-IDF de TfIdfUtils sur le corpus complet (IDF, matrice TF-IDF) ou un document (TF), à plusieurs échelles.
+// computeIDFLegacy mesure l'ancien calcul IDF (un containsKey par terme et par document) comme référence.
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TfIdfBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int documents;
+
+    private List<Map<String, Long>> occurrences;
+    private Map<String, Map<String, Long>> occurrenceMap;
+    private Map<String, Map<String, Double>> tfMap;
+    private Map<String, Double> idfMap;
+    private int nextDocument;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        occurrences = new BenchmarkCorpus(documents).analyze();
+        occurrenceMap = new LinkedHashMap<>();
+        tfMap = new LinkedHashMap<>();
+        for (int d = 0; d < occurrences.size(); d++) {
+            occurrenceMap.put("doc" + (d + 1), occurrences.get(d));
+            tfMap.put("doc" + (d + 1), TfIdfUtils.computeTF(occurrences.get(d)));
+        }
+        idfMap = TfIdfUtils.computeIDF(occurrenceMap);
+    }
+
+    // TF d'un document (les documents du corpus à tour de rôle)
+    @Benchmark
+    public Map<String, Double> computeTF() {
+        nextDocument = (nextDocument + 1) % occurrences.size();
+        return TfIdfUtils.computeTF(occurrences.get(nextDocument));
+    }
+
+    @Benchmark
+    public Map<String, Double> computeIDF() {
+        return TfIdfUtils.computeIDF(occurrenceMap);
+    }
+
+    // Référence : ancienne implémentation de TfIdfUtils.computeIDF, en O(termes x documents)
+    @Benchmark
+    public Map<String, Double> computeIDFLegacy() {
+        Map<String, Double> idf = new LinkedHashMap<>();
+        double totalDocs = occurrenceMap.size();
+        Set<String> allTerms = occurrenceMap.values().stream().flatMap(m -> m.keySet().stream())
+                .collect(Collectors.toSet());
+
+        for (String term : allTerms) {
+            long docsWithTerm = occurrenceMap.values().stream().filter(m -> m.containsKey(term)).count();
+            idf.put(term, Math.log(totalDocs / (1.0 + docsWithTerm)) + 1.0);
+        }
+        return idf;
+    }
+
+    // Variante partitionnée, une partition par cœur disponible
+    @Benchmark
+    public Map<String, Double> computeIDFPartitioned() {
+        return TfIdfUtils.computeIDF(occurrenceMap, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Double>> computeTfIdf() {
+        return TfIdfUtils.computeTfIdf(tfMap, idfMap);
+    }
+}
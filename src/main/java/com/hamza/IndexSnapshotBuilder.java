@@ -0,0 +1,26 @@
+package com.hamza;
+
+import com.hamza.config.SearchEngineConfig;
+import com.hamza.nlp.DocumentSearchUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// Construction hors ligne de l'instantané binaire de l'index, projeté en mémoire par l'application au démarrage.
+// Usage : IndexSnapshotBuilder cheminDeL'instantané répertoireDuCorpus
+// (sans répertoire du corpus, la construction échoue : il n'y a pas de corpus par défaut)
+
+public class IndexSnapshotBuilder {
+
+    public static void main(String[] args) throws IOException {
+        String snapshotPath = args.length > 0 ? args[0] : "index/search-index.snap";
+        System.out.println("🚀 Construction hors ligne de l'instantané d'index...");
+
+        SearchEngineConfig.SearchConfig config = SearchEngineConfig.getDefaultConfig();
+        config.setIngestionThreads(0);
+        if (args.length > 1) {
+            config.setCorpusDirectory(args[1]);
+        }
+        DocumentSearchUtils.writeSnapshot(config, Paths.get(snapshotPath));
+    }
+}
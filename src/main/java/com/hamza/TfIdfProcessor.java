@@ -1,17 +1,19 @@
 package com.hamza;
 
 import com.hamza.config.SearchEngineConfig;
-import com.hamza.nlp.DocumentSearchUtils;
+import com.hamza.nlp.CachingStemmer;
+import com.hamza.nlp.CorpusSource;
+import com.hamza.nlp.StemCache;
+import com.hamza.nlp.SurfaceForms;
+import com.hamza.nlp.TermPositions;
+import com.hamza.nlp.TextAnalyzer;
 import com.hamza.nlp.TfIdfUtils;
 import safar.basic.morphology.stemmer.factory.StemmerFactory;
-import safar.basic.morphology.stemmer.interfaces.IStemmer;
-import safar.basic.morphology.stemmer.model.StemmerAnalysis;
-import safar.basic.morphology.stemmer.model.WordStemmerAnalysis;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -25,15 +27,30 @@ public class TfIdfProcessor {
     public static void main(String[] args) throws IOException {
         System.out.println("🚀 Démarrage du pipeline TF-IDF modulaire...");
 
+        // Usage : TfIdfProcessor répertoireDuCorpus (obligatoire : il n'y a pas de corpus par défaut)
+        SearchEngineConfig.SearchConfig config = SearchEngineConfig.getDefaultConfig();
+        if (args.length > 0) {
+            config.setCorpusDirectory(args[0]);
+        }
+
         System.out.println("[ÉTAPE 1/6] Chargement des données...");
-        Set<String> stopWords = loadStopWords(SearchEngineConfig.getDefaultConfig().getStopWordsPath());
-        Map<String, String> documents = loadDocuments(SearchEngineConfig.getDefaultConfig().getDocumentPaths());
+        Set<String> stopWords = loadStopWords(config.getStopWordsPath());
+        CorpusSource corpus = CorpusSource.of(config);
+        System.out.println("  ✅ " + corpus.size() + " documents à traiter en flux.");
 
         System.out.println("\n[ÉTAPE 2/6] Initialisation du Stemmer SAFAR...");
-        IStemmer stemmer = initializeStemmer();
+        CachingStemmer stemmer = initializeStemmer(config.getStemCacheSize());
+        TextAnalyzer analyzer = TextAnalyzer.of(stemmer, stopWords, config.getAnalysisFilters());
+        System.out.println("  ✅ Chaîne d'analyse : " + analyzer);
 
+        // Documents analysés en parallèle (SearchConfig.ingestionThreads), transmis dans l'ordre du corpus
         System.out.println("\n[ÉTAPE 3/6] Traitement du corpus...");
-        Map<String, Map<String, Long>> occurrenceMap = buildOccurrenceMap(documents, stemmer, stopWords);
+        Map<String, Map<String, Long>> occurrenceMap = new LinkedHashMap<>();
+        corpus.analyze(analyzer, config.resolveIngestionThreads(), (docName, counts) -> {
+            occurrenceMap.put(docName, counts);
+            System.out.println("  ✅ '" + docName + "' traité (" + counts.size() + " racines uniques).");
+        });
+        System.out.println("  -> " + stemmer.getCache().getStatistics());
 
         System.out.println("\n[ÉTAPE 4/6] Calcul des scores TF et IDF...");
         Map<String, Map<String, Double>> tfMap = computeTfMap(occurrenceMap);
@@ -60,27 +77,15 @@ public class TfIdfProcessor {
         return stopWords;
     }
 
-    private static Map<String, String> loadDocuments(List<String> filePaths) throws IOException {
-        Map<String, String> documents = new LinkedHashMap<>();
-        for (int i = 0; i < filePaths.size(); i++) {
-            String docName = "doc" + (i + 1);
-            String path = filePaths.get(i);
-            documents.put(docName, Files.readString(Paths.get(path), StandardCharsets.UTF_8));
-            System.out.println("  -> Document '" + docName + "' chargé (" + path + ")");
-        }
-        return documents;
-    }
-
-    private static IStemmer initializeStemmer() {
-        IStemmer stemmer = StemmerFactory.getLight10Implementation();
-        System.out.println("  ✅ Raciniseur (Light10) initialisé !");
+    private static CachingStemmer initializeStemmer(int cacheSize) {
+        CachingStemmer stemmer = new CachingStemmer(StemmerFactory::getLight10Implementation, new StemCache(cacheSize));
+        System.out.println("  ✅ Raciniseur (Light10) initialisé, cache de " + cacheSize + " mots !");
         return stemmer;
     }
 
     private static Map<String, Map<String, Long>> buildOccurrenceMap(
             Map<String, String> documents,
-            IStemmer stemmer,
-            Set<String> stopWords) {
+            TextAnalyzer analyzer) {
 
         Map<String, Map<String, Long>> occurrenceMap = new LinkedHashMap<>();
 
@@ -89,7 +94,7 @@ public class TfIdfProcessor {
             String docText = docEntry.getValue();
             System.out.println("\n  --- Traitement de '" + docName + "' ---");
 
-            List<String> docStems = processText(docText, stemmer, stopWords);
+            List<String> docStems = processText(docText, analyzer);
 
             Set<String> uniqueStems = new HashSet<>(docStems);
             System.out.println("  3. Racines (stems) uniques trouvées: " + uniqueStems.size());
@@ -97,43 +102,35 @@ public class TfIdfProcessor {
             uniqueStems.forEach(s -> System.out.print(s + " "));
             System.out.println("]");
 
-            Map<String, Long> freqMap = docStems.stream()
-                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-
-            occurrenceMap.put(docName, freqMap);
+            occurrenceMap.put(docName, countStems(docStems));
             System.out.println("  ✅ '" + docName + "' traité.");
         }
         return occurrenceMap;
     }
 
-    private static List<String> processText(String text, IStemmer stemmer, Set<String> stopWords) {
+    private static Map<String, Long> countStems(List<String> stems) {
+        return stems.stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+
+    private static List<String> processText(String text, TextAnalyzer analyzer) {
         System.out.println("  1. Racinisation du texte (stemming)...");
-        List<WordStemmerAnalysis> analyses = stemmer.stem(text);
-        List<String> docStems = new ArrayList<>();
         System.out.println("  2. Extraction des morphèmes et filtrage...");
+        return extractStems(text, analyzer);
+    }
 
-        for (WordStemmerAnalysis wordAnalysis : analyses) {
-            var analysisList = wordAnalysis.getListStemmerAnalysis();
-            if (analysisList != null && !analysisList.isEmpty()) {
-                StemmerAnalysis firstAnalysis = analysisList.get(0);
-                String stem = firstAnalysis.getMorpheme();
-
-                if (isValidStem(stem, stopWords)) {
-                    docStems.add(stem);
-                }
+    // Racinise un texte et ne garde que les racines retenues par la chaîne d'analyse (sans trace console,
+    // utilisable depuis plusieurs threads).
+    private static List<String> extractStems(String text, TextAnalyzer analyzer) {
+        List<String> docStems = new ArrayList<>();
+        analyzer.analyze(text, (word, stem) -> {
+            if (stem != null) {
+                docStems.add(stem);
             }
-        }
+        });
         return docStems;
     }
 
-    private static boolean isValidStem(String stem, Set<String> stopWords) {
-        return stem != null &&           // Ne doit pas être nul
-                !stem.isBlank() &&        // Ne doit pas être vide
-                !stopWords.contains(stem) && // Ne doit pas être un mot vide
-                !stem.matches("\\d+") &&  // Ne doit pas être un nombre
-                stem.length() > 1;        // Ne doit pas être une seule lettre
-    }
-
     private static Map<String, Map<String, Double>> computeTfMap(Map<String, Map<String, Long>> occurrenceMap) {
         Map<String, Map<String, Double>> tfMap = new LinkedHashMap<>();
         for (var entry : occurrenceMap.entrySet()) {
@@ -161,10 +158,34 @@ public class TfIdfProcessor {
         System.out.println("  ...");
     }
 
+    // Occurrences des racines valides d'un seul document (indexation incrémentale), sans trace console.
+    public static Map<String, Long> analyzeDocument(String text, TextAnalyzer analyzer) {
+        Map<String, Long> counts = new HashMap<>();
+        analyzer.analyze(text, (word, stem) -> {
+            if (stem != null) {
+                counts.merge(stem, 1L, Long::sum);
+            }
+        });
+        return counts;
+    }
+
+    // Variante positionnelle : enregistre la position de chaque mot du texte dans positions (à la suite des mots
+    // déjà comptés) et, pour chaque racine retenue, le mot dont elle est issue dans surfaceForms.
+    public static void analyzeDocument(String text, TextAnalyzer analyzer,
+                                       TermPositions positions, SurfaceForms surfaceForms) {
+        analyzer.analyze(text, (word, stem) -> {
+            if (stem != null) {
+                positions.addWord(stem);
+                surfaceForms.add(stem, word, 1);
+            } else {
+                positions.skipWord();
+            }
+        });
+    }
+
     public static Map<String, Map<String, Long>> buildOccurrenceMapStatic(
             Map<String, String> documents,
-            IStemmer stemmer,
-            Set<String> stopWords) {
-        return buildOccurrenceMap(documents, stemmer, stopWords);
+            TextAnalyzer analyzer) {
+        return buildOccurrenceMap(documents, analyzer);
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.hamza.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Composant d'un nœud qui sert un index local (app.cluster.role = standalone ou shard) : absent du coordinateur,
+// qui ne charge aucun corpus et interroge les shards par HTTP.
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@ConditionalOnExpression("'${app.cluster.role:standalone}' != 'coordinator'")
+public @interface LocalIndexNode {
+}
@@ -1,44 +1,213 @@
 package com.hamza.config;
 
+import com.hamza.nlp.ArabicFilters;
 import com.hamza.nlp.DocumentSearchUtils;
-import lombok.AllArgsConstructor;
+import com.hamza.nlp.SearchMetrics;
+import com.hamza.nlp.WeightQuantization;
+import com.hamza.service.SearchResultCache;
 import lombok.Data;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 @Configuration
 public class SearchEngineConfig {
 
+    // Mots vides livrés avec le projet (app.corpus.stop-words-path vide), chemin relatif au répertoire du projet
+    public static final String DEFAULT_STOP_WORDS_PATH = "src/main/resources/stop_words_arabic.txt";
+
+    @Value("${app.indexing.threads:1}")
+    private int ingestionThreads;
+
+    @Value("${app.stemming.cache-size:100000}")
+    private int stemCacheSize;
+
+    @Value("${app.analysis.filters:" + ArabicFilters.DEFAULT_CHAIN + "}")
+    private String analysisFilters;
+
+    @Value("${app.index.snapshot-path:}")
+    private String snapshotPath;
+
+    @Value("${app.corpus.directory:}")
+    private String corpusDirectory;
+
+    @Value("${app.corpus.glob:**.txt}")
+    private String corpusGlob;
+
+    @Value("${app.corpus.stop-words-path:}")
+    private String stopWordsPath;
+
+    @Value("${app.index.shards:1}")
+    private int shards;
+
+    @Value("${app.index.max-segments:10}")
+    private int maxSegments;
+
+    @Value("${app.index.refresh-ratio:0.1}")
+    private double refreshRatio;
+
+    @Value("${app.index.quantization:float32}")
+    private String quantization;
+
+    @Value("${app.index.prune-ratio:0}")
+    private double pruneRatio;
+
+    @Value("${app.search.bm25.k1:1.2}")
+    private double bm25K1;
+
+    @Value("${app.search.bm25.b:0.75}")
+    private double bm25B;
+
+    @Value("${app.search.snippet-words:30}")
+    private int snippetWords;
+
+    @Value("${app.duplicates.threshold:0.8}")
+    private double duplicateThreshold;
+
+    @Value("${app.similar.tables:24}")
+    private int similarTables;
+
+    @Value("${app.similar.bits:12}")
+    private int similarBits;
+
+    @Value("${app.similar.probes:4}")
+    private int similarProbes;
+
+    @Value("${app.similar.rerank:100}")
+    private int similarRerank;
+
     @Bean
-    public DocumentSearchUtils.SearchEngine searchEngine() throws Exception {
+    @LocalIndexNode
+    public DocumentSearchUtils.SearchEngine searchEngine(MeterRegistry meterRegistry) throws Exception {
         System.out.println("🔧 Configuration du moteur de recherche Spring Bean...");
         SearchConfig config = SearchEngineConfig.getDefaultConfig();
-        DocumentSearchUtils.SearchEngine engine = DocumentSearchUtils.createSearchEngine(config);
+        if (!stopWordsPath.isBlank()) {
+            config = new SearchConfig(stopWordsPath, config.getDocumentPaths());
+        }
+        config.setCorpusDirectory(corpusDirectory);
+        config.requireCorpus();
+        config.setCorpusGlob(corpusGlob);
+        config.setIngestionThreads(ingestionThreads);
+        config.setStemCacheSize(stemCacheSize);
+        config.setAnalysisFilters(analysisFilters);
+        config.setSnapshotPath(snapshotPath);
+        config.setShards(shards);
+        config.setMaxSegments(maxSegments);
+        config.setRefreshRatio(refreshRatio);
+        config.setQuantization(WeightQuantization.of(quantization));
+        config.setPruneRatio(pruneRatio);
+        config.setBm25K1(bm25K1);
+        config.setBm25B(bm25B);
+        config.setSnippetWords(snippetWords);
+        config.setDuplicateThreshold(duplicateThreshold);
+        config.setSimilarTables(similarTables);
+        config.setSimilarBits(similarBits);
+        config.setSimilarProbes(similarProbes);
+        config.setSimilarRerank(similarRerank);
+        config.setMetrics(new SearchMetrics(meterRegistry));
+        DocumentSearchUtils.SearchEngine engine = DocumentSearchUtils.openSearchEngine(config);
         System.out.println("✅ Moteur de recherche configuré comme Bean Spring");
         return engine;
     }
 
 
+    // Cache des résultats de recherche (app.search.cache-*)
+    @Bean
+    public SearchResultCache searchResultCache(@Value("${app.search.cache-enabled:true}") boolean enabled,
+                                               @Value("${app.search.cache-size:1000}") int size,
+                                               @Value("${app.search.cache-ttl-seconds:600}") long ttlSeconds) {
+        return enabled ? new SearchResultCache(size, ttlSeconds) : SearchResultCache.disabled();
+    }
+
+
+    // Exécuteur des recherches de l'API JSON (app.search.async-*) : le thread Tomcat est libéré pendant
+    // l'analyse et le scoring, et la file bornée rejette les requêtes en excès (503) au lieu de les accumuler.
+    @Bean(destroyMethod = "shutdown")
+    @LocalIndexNode
+    public ExecutorService searchExecutor(@Value("${app.search.async-threads:0}") int threads,
+                                          @Value("${app.search.async-queue-capacity:10000}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+
     @Data
-    @AllArgsConstructor
+    @RequiredArgsConstructor
     public static class SearchConfig {
         private final String stopWordsPath;
         private final List<String> documentPaths;
+        // Répertoire du corpus, parcouru récursivement (remplace documentPaths s'il est défini)
+        private String corpusDirectory;
+        // Motif glob des fichiers du répertoire à indexer, relatif au répertoire
+        private String corpusGlob = "**.txt";
+        // Nombre de threads de racinisation à l'indexation (1 = séquentiel, 0 = nombre de cœurs disponibles)
+        private int ingestionThreads = 1;
+        // Nombre maximal de mots dans le cache mot -> racine (0 = cache désactivé)
+        private int stemCacheSize = 100_000;
+        // Filtres de la chaîne d'analyse, partagée par l'indexation et les requêtes (voir ArabicFilters)
+        private String analysisFilters = ArabicFilters.DEFAULT_CHAIN;
+        // Instantané binaire de l'index, projeté en mémoire au démarrage (null ou vide = index construit en mémoire)
+        private String snapshotPath;
+        // Nombre de shards de l'index, interrogés en parallèle (1 = pas de découpage, 0 = nombre de cœurs disponibles)
+        private int shards = 1;
+        // Nombre de segments au-delà duquel les plus petits sont fusionnés (indexation incrémentale)
+        private int maxSegments = 10;
+        // Fraction du corpus modifiée au-delà de laquelle les normes sont recalculées avec l'IDF courant
+        private double refreshRatio = 0.1;
+        // Codage des poids de l'index (FLOAT32 = exacts) et part des postings de plus faible poids élagués dans
+        // chaque document (0 = aucun), voir IndexCompression
+        private WeightQuantization quantization = WeightQuantization.FLOAT32;
+        private double pruneRatio = 0.0;
+        // Paramètres de la fonction de score BM25 : saturation de la fréquence (k1) et normalisation par la longueur (b)
+        private double bm25K1 = 1.2;
+        private double bm25B = 0.75;
+        // Longueur en mots des extraits des résultats (0 = ni magasin de documents, ni extraits)
+        private int snippetWords = 30;
+        // Similarité de Jaccard estimée à partir de laquelle deux documents sont des quasi-doublons (0 = détection
+        // désactivée)
+        private double duplicateThreshold = 0.8;
+        // Documents similaires : tables LSH (0 = désactivé), bits par table, seaux voisins sondés par table et
+        // candidats reclassés par cosinus exact
+        private int similarTables = 24;
+        private int similarBits = 12;
+        private int similarProbes = 4;
+        private int similarRerank = 100;
+        // Instrumentation de la recherche (registre Micrometer de l'application ; désactivée hors Spring)
+        private SearchMetrics metrics = SearchMetrics.disabled();
+
+        public int resolveIngestionThreads() {
+            return ingestionThreads > 0 ? ingestionThreads : Runtime.getRuntime().availableProcessors();
+        }
+
+        public int resolveShards() {
+            return shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        }
+
+        // Un corpus doit être configuré (répertoire ou fichiers explicites) : sans lui, le démarrage échoue tout de
+        // suite plutôt que d'indexer des chemins par défaut.
+        public void requireCorpus() {
+            boolean directory = corpusDirectory != null && !corpusDirectory.isBlank();
+            if (!directory && (documentPaths == null || documentPaths.isEmpty())) {
+                throw new IllegalStateException("Aucun corpus configuré : définir app.corpus.directory "
+                        + "(ou le répertoire en argument des outils en ligne de commande)");
+            }
+        }
     }
 
+    // Configuration sans corpus (à compléter par app.corpus.directory ou setCorpusDirectory), avec les mots vides
+    // livrés dans les ressources, relatifs au répertoire du projet.
     public static SearchConfig getDefaultConfig() {
-        return new SearchConfig(
-                "/Users/mac/Documents/Projects/TextMinig_v2/src/main/resources/stop_words_arabic.txt",
-                Arrays.asList(
-                        "/Users/mac/Documents/Projects/TextMinig_v2/src/main/resources/doc1.txt",
-                        "/Users/mac/Documents/Projects/TextMinig_v2/src/main/resources/doc2.txt",
-                        "/Users/mac/Documents/Projects/TextMinig_v2/src/main/resources/doc3.txt"
-                )
-        );
+        return new SearchConfig(DEFAULT_STOP_WORDS_PATH, List.of());
     }
 
 }
@@ -0,0 +1,44 @@
+package com.hamza.controller;
+
+import com.hamza.dto.SearchRequestDto;
+import com.hamza.dto.SearchResponseDto;
+import com.hamza.service.ClusterCoordinator;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+
+// API REST du coordinateur (app.cluster.role=coordinator) : recherche répartie sur les shards et IDF global
+
+@RestController
+@ConditionalOnProperty(name = "app.cluster.role", havingValue = "coordinator")
+public class ClusterController {
+
+    private final ClusterCoordinator coordinator;
+
+    @Autowired
+    public ClusterController(ClusterCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    // Recherche sur tous les shards (partial = true si certains n'ont pas répondu à temps)
+    @PostMapping("/api/cluster/search")
+    public SearchResponseDto search(@Valid @RequestBody SearchRequestDto request) {
+        return coordinator.search(request);
+    }
+
+    // Synchronisation immédiate de l'IDF global
+    @PostMapping("/api/cluster/sync")
+    public ClusterCoordinator.ClusterStatus synchronize() {
+        return coordinator.synchronize();
+    }
+
+    // État de la dernière synchronisation (204 avant la première)
+    @GetMapping("/api/cluster/status")
+    public ResponseEntity<ClusterCoordinator.ClusterStatus> getStatus() {
+        ClusterCoordinator.ClusterStatus status = coordinator.getStatus();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.hamza.controller;
+
+import com.hamza.config.LocalIndexNode;
+import com.hamza.dto.DocumentRequestDto;
+import com.hamza.nlp.DocumentSearchUtils;
+import com.hamza.service.DocumentIndexService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+
+// API REST d'indexation incrémentale : ajout, remplacement et suppression de documents sans reconstruire l'index
+
+@RestController
+@LocalIndexNode
+public class DocumentIndexController {
+
+    private final DocumentIndexService indexService;
+
+    @Autowired
+    public DocumentIndexController(DocumentIndexService indexService) {
+        this.indexService = indexService;
+    }
+
+    // Ajout d'un document (409 si le nom existe déjà)
+    @PostMapping("/api/documents")
+    public ResponseEntity<DocumentSearchUtils.IndexStatus> addDocument(@Valid @RequestBody DocumentRequestDto request) {
+        if (request.getName() == null || request.getName().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!indexService.addDocument(request)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(indexService.getIndexStatus());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(indexService.getIndexStatus());
+    }
+
+    // Remplacement d'un document (ou ajout s'il n'existe pas)
+    @PutMapping("/api/documents/{name}")
+    public ResponseEntity<DocumentSearchUtils.IndexStatus> replaceDocument(@PathVariable String name,
+                                                                            @Valid @RequestBody DocumentRequestDto request) {
+        boolean replaced = indexService.replaceDocument(name, request);
+        return ResponseEntity.status(replaced ? HttpStatus.OK : HttpStatus.CREATED).body(indexService.getIndexStatus());
+    }
+
+    // Suppression d'un document
+    @DeleteMapping("/api/documents/{name}")
+    public ResponseEntity<DocumentSearchUtils.IndexStatus> removeDocument(@PathVariable String name) {
+        if (!indexService.removeDocument(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(indexService.getIndexStatus());
+    }
+
+    // État de l'index (documents, segments, modifications en attente)
+    @GetMapping("/api/index")
+    public DocumentSearchUtils.IndexStatus getIndexStatus() {
+        return indexService.getIndexStatus();
+    }
+
+    // Rafraîchissement immédiat des normes avec l'IDF courant
+    @PostMapping("/api/index/refresh")
+    public DocumentSearchUtils.IndexStatus refreshIndex() {
+        return indexService.refreshIndex();
+    }
+}
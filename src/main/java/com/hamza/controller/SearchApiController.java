@@ -0,0 +1,69 @@
+package com.hamza.controller;
+
+import com.hamza.config.LocalIndexNode;
+import com.hamza.dto.BatchSearchRequestDto;
+import com.hamza.dto.BatchSearchResponseDto;
+import com.hamza.dto.SearchRequestDto;
+import com.hamza.dto.SearchResponseDto;
+import com.hamza.service.DocumentSearchService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+
+// API REST JSON de recherche, pour les services qui n'utilisent pas l'interface Thymeleaf.
+// Les réponses sont asynchrones : la recherche s'exécute sur l'exécuteur searchExecutor, et le thread Tomcat
+// retourne au pool dès que la requête est acceptée (503 si la file d'attente est pleine).
+
+@RestController
+@LocalIndexNode
+public class SearchApiController {
+
+    private final DocumentSearchService searchService;
+    private final ExecutorService searchExecutor;
+
+    @Autowired
+    public SearchApiController(DocumentSearchService searchService,
+                               @Qualifier("searchExecutor") ExecutorService searchExecutor) {
+        this.searchService = searchService;
+        this.searchExecutor = searchExecutor;
+    }
+
+    // Recherche d'une requête
+    @PostMapping("/api/search")
+    public CompletableFuture<ResponseEntity<SearchResponseDto>> search(@Valid @RequestBody SearchRequestDto request) {
+        return CompletableFuture.supplyAsync(() -> toResponse(searchService.searchDocuments(request)), searchExecutor);
+    }
+
+    // Même recherche en GET : les paramètres (query, threshold, maxResults, scorer, collapseDuplicates) sont liés au
+    // DTO et validés comme le corps du POST (400 si invalides), les valeurs par défaut étant celles du DTO
+    @GetMapping("/api/search")
+    public CompletableFuture<ResponseEntity<SearchResponseDto>> searchGet(@Valid @ModelAttribute SearchRequestDto request) {
+        return search(request);
+    }
+
+    // Recherche groupée : toutes les requêtes sont scorées ensemble, en une traversée des postings
+    @PostMapping("/api/search/batch")
+    public CompletableFuture<BatchSearchResponseDto> searchBatch(@Valid @RequestBody BatchSearchRequestDto request) {
+        return CompletableFuture.supplyAsync(() -> searchService.searchBatch(request.getQueries()), searchExecutor);
+    }
+
+    // File des recherches pleine : le client doit réessayer plus tard
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<SearchResponseDto> rejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(SearchResponseDto.error(null, "Trop de recherches en cours, réessayez plus tard"));
+    }
+
+    private static ResponseEntity<SearchResponseDto> toResponse(SearchResponseDto response) {
+        return response.isSuccess() ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+}
@@ -1,21 +1,33 @@
 package com.hamza.controller;
 
+import com.hamza.config.LocalIndexNode;
 import com.hamza.dto.SearchRequestDto;
 import com.hamza.dto.SearchResponseDto;
 import com.hamza.nlp.DocumentSearchUtils;
+import com.hamza.nlp.IndexCompression;
+import com.hamza.nlp.NearDuplicateIndex;
+import com.hamza.nlp.SimilarDocumentIndex;
+import com.hamza.nlp.SnippetGenerator;
+import com.hamza.nlp.StemCache;
 import com.hamza.service.DocumentSearchService;
+import com.hamza.service.SearchResultCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 
 // Contrôleur Web pour l'interface utilisateur Thymeleaf
 
 @Controller
+@LocalIndexNode
 public class SearchWebController {
     
     private final DocumentSearchService searchService;
@@ -30,7 +42,7 @@ public class SearchWebController {
         return new SearchRequestDto();
     }
 
-    // Les statistiques
+    // Les statistiques, calculées à chaque page : compteurs maintenus par l'index, sans parcours du corpus
     @ModelAttribute("statistics")
     public DocumentSearchUtils.SearchStatistics getStatistics() {
         return searchService.getSearchStatistics();
@@ -59,33 +71,101 @@ public class SearchWebController {
         return "index";
     }
 
-    // Resultas de recherhce
+    // Resultas de recherhce : paramètres validés comme ceux du formulaire (page renvoyée avec le statut 400 sinon)
     @GetMapping("/results")
-    public String results(@RequestParam String query, 
-                         @RequestParam(defaultValue = "0.01") double threshold,
-                         @RequestParam(defaultValue = "5") int maxResults,
-                         Model model) {
-        
-        SearchRequestDto request = new SearchRequestDto(query, threshold, maxResults);
+    public String results(@Valid @ModelAttribute("searchRequest") SearchRequestDto request,
+                         BindingResult bindingResult,
+                         Model model,
+                         HttpServletResponse servletResponse) {
+
+        if (bindingResult.hasErrors()) {
+            servletResponse.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return "index";
+        }
+
         SearchResponseDto response = searchService.searchDocuments(request);
-        
-        model.addAttribute("searchRequest", request);
         model.addAttribute("searchResponse", response);
 
         return "index";
     }
 
+
+    // Statistiques du corpus (compteurs maintenus par l'index) et ses termes les plus fréquents
+    @GetMapping("/api/statistics")
+    @ResponseBody
+    public DocumentSearchUtils.SearchStatistics getCorpusStatistics(@RequestParam(defaultValue = "10") int topTerms) {
+        return searchService.getSearchStatistics(Math.max(0, Math.min(topTerms, 1000)));
+    }
+
+    // Compteurs du cache des résultats de recherche
+    @GetMapping("/api/search/cache")
+    @ResponseBody
+    public SearchResultCache.CacheStatistics getResultCacheStatistics() {
+        return searchService.getResultCacheStatistics();
+    }
+
+    // Compteurs du cache mot -> racine
+    @GetMapping("/api/stemming/cache")
+    @ResponseBody
+    public StemCache.StemCacheStatistics getStemCacheStatistics() {
+        return searchService.getStemCacheStatistics();
+    }
+
+    // Groupes de quasi-doublons du corpus, les plus grands d'abord (404 si la détection est désactivée)
+    @GetMapping("/api/duplicates")
+    @ResponseBody
+    public ResponseEntity<NearDuplicateIndex.DuplicateReport> getDuplicateReport(
+            @RequestParam(defaultValue = "20") int limit) {
+        NearDuplicateIndex.DuplicateReport report = searchService.getDuplicateReport(Math.max(0, Math.min(limit, 1000)));
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.notFound().build();
+    }
+
+    // Documents les plus similaires à un document indexé : approchés (LSH) ou exacts avec exact=true (404 si le
+    // document n'existe pas ou si la recherche de documents similaires est désactivée)
+    @GetMapping("/api/documents/{name}/similar")
+    @ResponseBody
+    public ResponseEntity<SimilarDocumentIndex.SimilarDocuments> getSimilarDocuments(
+            @PathVariable String name,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        SimilarDocumentIndex.SimilarDocuments similar =
+                searchService.getSimilarDocuments(name, Math.max(1, Math.min(limit, 100)), exact);
+        return similar != null ? ResponseEntity.ok(similar) : ResponseEntity.notFound().build();
+    }
+
+    // Rappel de la recherche approchée de documents similaires contre la recherche exacte, et latences des deux
+    @GetMapping("/api/similar/evaluate")
+    @ResponseBody
+    public ResponseEntity<SimilarDocumentIndex.SimilarityEvaluation> evaluateSimilarDocuments(
+            @RequestParam(defaultValue = "50") int samples,
+            @RequestParam(defaultValue = "10") int limit) {
+        SimilarDocumentIndex.SimilarityEvaluation evaluation = searchService.evaluateSimilarDocuments(
+                Math.max(1, Math.min(samples, 1000)), Math.max(1, Math.min(limit, 100)));
+        return evaluation != null ? ResponseEntity.ok(evaluation) : ResponseEntity.notFound().build();
+    }
+
+    // Gain mémoire et perte de qualité de l'index compressé, mesurés à sa construction (404 si l'index est exact ou
+    // a été chargé depuis un instantané déjà compressé)
+    @GetMapping("/api/index/compression")
+    @ResponseBody
+    public ResponseEntity<IndexCompression.Report> getCompressionReport() {
+        IndexCompression.Report report = searchService.getCompressionReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.notFound().build();
+    }
+
+    // Taille du magasin de documents compressé et coût de décompression des extraits (404 si désactivés)
+    @GetMapping("/api/documents/store")
+    @ResponseBody
+    public ResponseEntity<SnippetGenerator.StoreStatistics> getDocumentStoreStatistics() {
+        SnippetGenerator.StoreStatistics statistics = searchService.getDocumentStoreStatistics();
+        return statistics != null ? ResponseEntity.ok(statistics) : ResponseEntity.notFound().build();
+    }
     
-    // Les suggestions
+    // Les suggestions : complétion du dernier mot saisi par les termes les plus fréquents de l'index
     @GetMapping("/api/suggestions")
     @ResponseBody
-    public String[] getSuggestions(@RequestParam String term) {
-        return new String[]{
-                "بغداد",
-                "الإمبراطورية",
-                "العلوم",
-                "دمشق",
-                "الأندلس"
-        };
+    public List<String> getSuggestions(@RequestParam String term,
+                                       @RequestParam(defaultValue = "5") int limit) {
+        return searchService.getSuggestions(term, limit);
     }
 }
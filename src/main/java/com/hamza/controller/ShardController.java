@@ -0,0 +1,73 @@
+package com.hamza.controller;
+
+import com.hamza.dto.SearchRequestDto;
+import com.hamza.dto.SearchResponseDto;
+import com.hamza.dto.ShardStatisticsDto;
+import com.hamza.nlp.DocumentSearchUtils;
+import com.hamza.service.ClusterCoordinator;
+import com.hamza.service.DocumentSearchService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+
+// API interne d'un nœud shard (app.cluster.role=shard), appelée uniquement par le coordinateur :
+// statistiques d'IDF locales, réception de celles des autres shards, et top-K local d'une requête.
+// Chaque appel doit porter le secret partagé du cluster (app.cluster.secret) dans l'en-tête
+// ClusterCoordinator.SECRET_HEADER : sans lui, n'importe quel client du port public pourrait fausser l'IDF.
+
+@RestController
+@ConditionalOnProperty(name = "app.cluster.role", havingValue = "shard")
+public class ShardController {
+
+    private final DocumentSearchUtils.SearchEngine searchEngine;
+    private final DocumentSearchService searchService;
+    private final byte[] secret;
+
+    @Autowired
+    public ShardController(DocumentSearchUtils.SearchEngine searchEngine, DocumentSearchService searchService,
+                           @Value("${app.cluster.secret:}") String secret) {
+        if (secret.isBlank()) {
+            throw new IllegalStateException("app.cluster.secret doit être défini sur les shards et le coordinateur");
+        }
+        this.searchEngine = searchEngine;
+        this.searchService = searchService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Exécuté avant chaque requête de ce contrôleur : 401 si le secret est absent ou faux (comparaison en temps
+    // constant)
+    @ModelAttribute
+    public void authenticate(@RequestHeader(name = ClusterCoordinator.SECRET_HEADER, required = false) String provided) {
+        if (provided == null || !MessageDigest.isEqual(secret, provided.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Secret du cluster absent ou invalide");
+        }
+    }
+
+    // Nombre de documents et fréquences documentaires de ce shard
+    @GetMapping("/internal/shard/statistics")
+    public ShardStatisticsDto getStatistics() {
+        return new ShardStatisticsDto(searchEngine.getLocalDocumentCount(), searchEngine.getLocalDocumentFrequencies(),
+                searchEngine.getLocalDocumentLength());
+    }
+
+    // Statistiques cumulées des autres shards, envoyées par le coordinateur
+    @PutMapping("/internal/shard/statistics")
+    public void setRemoteStatistics(@RequestBody ShardStatisticsDto remote) {
+        searchEngine.setRemoteStatistics(remote.getDocumentCount(), remote.getDocumentFrequencies(),
+                remote.getDocumentLength());
+    }
+
+    // Top-K local d'une requête, scoré avec l'IDF global
+    @PostMapping("/internal/shard/search")
+    public SearchResponseDto search(@Valid @RequestBody SearchRequestDto request) {
+        return searchService.searchDocuments(request);
+    }
+}
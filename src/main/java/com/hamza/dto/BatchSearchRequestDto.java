@@ -0,0 +1,20 @@
+package com.hamza.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Requête groupée de l'API JSON : plusieurs recherches, chacune avec son seuil et son nombre de résultats.
+
+@Data
+@NoArgsConstructor
+public class BatchSearchRequestDto {
+
+    @NotEmpty(message = "يرجى إدخال طلب بحث واحد على الأقل")
+    @Size(max = 1000, message = "عدد الطلبات يجب ألا يتجاوز 1000")
+    private List<@Valid SearchRequestDto> queries;
+}
@@ -0,0 +1,17 @@
+package com.hamza.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Réponse groupée : une réponse par requête, dans l'ordre de la demande, et la durée totale du lot.
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchSearchResponseDto {
+    private List<SearchResponseDto> responses;
+    private double executionTime;
+}
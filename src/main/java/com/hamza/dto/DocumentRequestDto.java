@@ -0,0 +1,20 @@
+package com.hamza.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Document à ajouter ou à remplacer dans l'index (texte brut, racinisé côté serveur).
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentRequestDto {
+
+    // Obligatoire pour un ajout (POST) ; ignoré pour un remplacement, où le nom est dans le chemin (PUT)
+    private String name;
+
+    @NotBlank(message = "يرجى إدخال نص الوثيقة")
+    private String content;
+}
@@ -3,6 +3,7 @@ package com.hamza.dto;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
 @Data
@@ -16,6 +17,13 @@ public class SearchRequestDto {
 
     @Min(value = 1, message = "عدد النتائج يجب أن يكون أكبر من 0")
     private int maxResults = 5;
+
+    // Fonction de score : "tfidf" (similarité cosinus, par défaut) ou "bm25"
+    @Pattern(regexp = "tfidf|bm25", message = "دالة الترتيب يجب أن تكون tfidf أو bm25")
+    private String scorer = "tfidf";
+
+    // Replie les quasi-doublons d'un résultat sous lui (voir SearchResponseDto.DocumentResult.duplicates)
+    private boolean collapseDuplicates = false;
     
     // Constructeurs
     public SearchRequestDto() {}
@@ -33,7 +41,7 @@ public class SearchRequestDto {
     
     @Override
     public String toString() {
-        return String.format("SearchRequest{query='%s', threshold=%.3f, maxResults=%d}", 
-                query, threshold, maxResults);
+        return String.format("SearchRequest{query='%s', threshold=%.3f, maxResults=%d, scorer=%s, collapseDuplicates=%s}", 
+                query, threshold, maxResults, scorer, collapseDuplicates);
     }
 }
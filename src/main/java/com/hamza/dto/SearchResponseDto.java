@@ -17,6 +17,9 @@ public class SearchResponseDto {
     private double executionTime;
     private boolean success;
     private String message;
+    // Recherche distribuée : true si des shards n'ont pas répondu à temps (null hors coordinateur)
+    private Boolean partial;
+    private List<String> failedShards;
 
 
     public SearchResponseDto(String query, List<DocumentResult> results, double executionTime) {
@@ -44,6 +47,10 @@ public class SearchResponseDto {
         private String documentName;
         private double similarityScore;
         private List<String> matchingTerms;
+        // Extrait HTML du document, mots correspondants entre <mark> (absent si les extraits sont désactivés)
+        private String snippet;
+        // Quasi-doublons repliés sous ce résultat (absent sans repli)
+        private List<String> duplicates;
         
         public String getFormattedScore() {
             return String.format("%.4f", similarityScore);
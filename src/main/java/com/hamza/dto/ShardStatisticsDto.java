@@ -0,0 +1,20 @@
+package com.hamza.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Statistiques d'IDF échangées entre le coordinateur et un shard : nombre de documents, fréquence documentaire
+// de chaque racine et longueur totale des documents (BM25). Un shard publie les siennes ; le coordinateur lui
+// renvoie celles des autres shards.
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShardStatisticsDto {
+    private int documentCount;
+    private Map<String, Integer> documentFrequencies;
+    private long documentLength;
+}
@@ -0,0 +1,181 @@
+package com.hamza.nlp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Filtres de la chaîne d'analyse arabe, désignés par leur nom dans app.analysis.filters :
+//  - diacritics : retire les signes diacritiques (harakat, tanwin, shadda, soukoun, alef suscrit, marques
+//    coraniques) et le tatweel ;
+//  - letters : normalise les formes de l'alef (أ إ آ ٱ -> ا), le alef maqsoura (ى -> ي) et le taa marbouta (ة -> ه) ;
+//  - stop-words : écarte les racines qui sont des mots vides, dans un ensemble compact (StopWords) ;
+//  - numbers : écarte les racines faites uniquement de chiffres (latins ou arabes-indiens).
+// Les normalisations s'appliquent aux mots avant la racinisation, dans l'ordre de la chaîne ; les mots vides
+// passent par toutes les normalisations de la chaîne, quelle que soit la place de stop-words, comme les mots
+// dont les racines leur sont comparées (voir TextAnalyzer.normalize).
+
+public final class ArabicFilters {
+
+    public static final TokenFilter DIACRITICS = new TokenFilter() {
+        @Override
+        public int normalize(char[] word, int length) {
+            int kept = 0;
+            for (int i = 0; i < length; i++) {
+                char c = word[i];
+                if (!isDiacritic(c)) {
+                    word[kept++] = c;
+                }
+            }
+            return kept;
+        }
+    };
+
+    public static final TokenFilter LETTERS = new TokenFilter() {
+        @Override
+        public int normalize(char[] word, int length) {
+            for (int i = 0; i < length; i++) {
+                switch (word[i]) {
+                    case '\u0622', '\u0623', '\u0625', '\u0671' -> word[i] = '\u0627';
+                    case '\u0649' -> word[i] = '\u064A';
+                    case '\u0629' -> word[i] = '\u0647';
+                    default -> {
+                    }
+                }
+            }
+            return length;
+        }
+    };
+
+    public static final TokenFilter NUMBERS = new TokenFilter() {
+        @Override
+        public boolean accept(String stem) {
+            for (int i = 0; i < stem.length(); i++) {
+                if (!Character.isDigit(stem.charAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    // Chaîne par défaut : celle de l'indexation historique (mots vides et nombres écartés, mots inchangés)
+    public static final String DEFAULT_CHAIN = "stop-words,numbers";
+
+    private ArabicFilters() {
+    }
+
+    // Filtres désignés par une liste de noms séparés par des virgules (vide = aucun filtre).
+    // Les mots vides ne sont construits qu'une fois la chaîne entière connue (null à leur place jusque-là).
+    public static List<TokenFilter> chain(String names, Set<String> stopWords) {
+        List<TokenFilter> filters = new ArrayList<>();
+        for (String name : names.split(",")) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "" -> {
+                }
+                case "diacritics" -> filters.add(DIACRITICS);
+                case "letters" -> filters.add(LETTERS);
+                case "numbers" -> filters.add(NUMBERS);
+                case "stop-words" -> filters.add(null);
+                default -> throw new IllegalArgumentException("Filtre d'analyse inconnu : " + name.trim()
+                        + " (attendus : diacritics, letters, stop-words, numbers)");
+            }
+        }
+        if (filters.contains(null)) {
+            StopWords stopWordFilter = new StopWords(normalizeAll(stopWords, filters));
+            filters.replaceAll(filter -> filter != null ? filter : stopWordFilter);
+        }
+        return filters;
+    }
+
+    // Diacritiques arabes (catégorie Mn) et tatweel.
+    static boolean isDiacritic(char c) {
+        return (c >= '\u064B' && c <= '\u065F') || c == '\u0670' || c == '\u0640'
+                || (c >= '\u0610' && c <= '\u061A') || (c >= '\u06D6' && c <= '\u06DC')
+                || (c >= '\u06DF' && c <= '\u06E4') || c == '\u06E7' || c == '\u06E8'
+                || (c >= '\u06EA' && c <= '\u06ED');
+    }
+
+    private static Set<String> normalizeAll(Set<String> words, List<TokenFilter> filters) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String word : words) {
+            char[] chars = word.toCharArray();
+            int length = chars.length;
+            for (TokenFilter filter : filters) {
+                if (filter != null) {
+                    length = filter.normalize(chars, length);
+                }
+            }
+            normalized.add(new String(chars, 0, length));
+        }
+        return normalized;
+    }
+
+    // Mots vides dans un ensemble à adressage ouvert : caractères des mots bout à bout dans un seul tableau,
+    // table de hachage d'indices de mots (sonde linéaire). Une recherche réutilise le hashCode de la racine,
+    // mis en cache par String, et compare les caractères sans allouer.
+
+    static final class StopWords implements TokenFilter {
+
+        private final char[] chars;
+        private final int[] starts;
+        // Indice du mot + 1 (0 = case vide), taille puissance de deux au moins double du nombre de mots
+        private final int[] slots;
+        private final int mask;
+
+        StopWords(Collection<String> words) {
+            int capacity = Integer.highestOneBit(Math.max(4, words.size() * 2 - 1)) << 1;
+            this.slots = new int[capacity];
+            this.mask = capacity - 1;
+            this.starts = new int[words.size() + 1];
+            int totalLength = 0;
+            for (String word : words) {
+                totalLength += word.length();
+            }
+            this.chars = new char[totalLength];
+            int count = 0;
+            for (String word : words) {
+                word.getChars(0, word.length(), chars, starts[count]);
+                starts[count + 1] = starts[count] + word.length();
+                int slot = mix(word.hashCode()) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = ++count;
+            }
+        }
+
+        @Override
+        public boolean accept(String stem) {
+            return !contains(stem);
+        }
+
+        boolean contains(String word) {
+            for (int slot = mix(word.hashCode()) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (matches(slots[slot] - 1, word)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(int index, String word) {
+            int start = starts[index];
+            if (starts[index + 1] - start != word.length()) {
+                return false;
+            }
+            for (int i = 0; i < word.length(); i++) {
+                if (chars[start + i] != word.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
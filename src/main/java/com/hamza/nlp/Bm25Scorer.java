@@ -0,0 +1,78 @@
+package com.hamza.nlp;
+
+import java.util.Map;
+
+// Okapi BM25 : score(d) = somme, sur les termes t de la requête, de idf(t) x tf x (k1 + 1) / (tf + K(d)),
+// avec K(d) = k1 x (1 - b + b x |d| / avgdl), idf(t) = ln(1 + (N - df + 0.5) / (df + 0.5)) sur le corpus complet,
+// |d| la longueur du document (occurrences de ses racines indexées) et avgdl la longueur moyenne courante.
+// Les postings stockent w = tf / |d| x IDF du segment, d'où tf / (tf + K(d)) = w / (w + IDF du segment x K(d) / |d|) :
+// le facteur K(d) / |d|, qui ne dépend que du document, est précalculé par segment (IndexSegment.lengthFactors),
+// et une contribution coûte une multiplication, une addition et une division.
+// Chaque terme de la requête compte une fois (sa fréquence dans la requête est ignorée) ; sa contribution est
+// bornée par idf(t) x (k1 + 1), limite de la saturation.
+
+public final class Bm25Scorer implements Scorer {
+
+    public static final String NAME = "bm25";
+
+    private final double k1;
+    private final double b;
+
+    public Bm25Scorer(double k1, double b) {
+        if (k1 < 0.0 || b < 0.0 || b > 1.0) {
+            throw new IllegalArgumentException("Paramètres BM25 invalides : k1 = " + k1 + ", b = " + b
+                    + " (attendus : k1 >= 0, 0 <= b <= 1)");
+        }
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public SegmentScorer prepare(Map<String, Double> queryTfIdf, double queryNorm, IndexSegment segment,
+                                 SegmentedIndex index) {
+        Prepared terms = new Prepared(queryTfIdf.size(),
+                segment.lengthFactors(k1, b, index.averageDocumentLength()));
+        int documentCount = index.corpusDocumentCount();
+        for (String term : queryTfIdf.keySet()) {
+            int termId = segment.getIndex().getTermId(term);
+            int documentFrequency = index.corpusDocumentFrequency(term);
+            if (termId < 0 || documentFrequency == 0) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            double weight = idf * (k1 + 1.0);
+            terms.add(termId, weight, segment.getIndex().getIdf(termId), weight);
+        }
+        return terms;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(k1=" + k1 + ", b=" + b + ")";
+    }
+
+    private static final class Prepared extends SegmentScorer {
+
+        private final double[] lengthFactors;
+
+        private Prepared(int capacity, double[] lengthFactors) {
+            super(capacity);
+            this.lengthFactors = lengthFactors;
+        }
+
+        @Override
+        double contribution(int term, float postingWeight, int docId) {
+            return weights[term] * postingWeight / (postingWeight + termFactors[term] * lengthFactors[docId]);
+        }
+
+        @Override
+        double finish(double sum, int docId) {
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.hamza.nlp;
+
+import safar.basic.morphology.stemmer.interfaces.IStemmer;
+import safar.basic.morphology.stemmer.model.StemmerAnalysis;
+import safar.basic.morphology.stemmer.model.WordStemmerAnalysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Racinisation mot à mot à travers un StemCache partagé : le texte est découpé en mots, et seuls les mots
+// absents du cache sont envoyés au stemmer SAFAR. Utilisable depuis plusieurs threads : chaque thread obtient
+// sa propre instance de stemmer, seul le cache est partagé. Sert à la fois à l'indexation et aux requêtes.
+// Un analyseur mot -> racine quelconque peut remplacer SAFAR (voir withAnalyser), par exemple dans les benchmarks.
+// Changement de comportement par rapport à l'analyse d'origine (stemmer.stem(texte entier)) : le découpage en mots
+// est celui d'isWordChar, et non plus le tokeniseur de SAFAR, et chaque mot reçoit la première analyse SAFAR du
+// mot seul. Les racines peuvent donc différer là où les deux découpages divergent (ponctuation collée à un mot,
+// mélanges de lettres et de chiffres, caractères hors alphabet). L'ancien chemin n'est pas conservé en option :
+// les positions de l'index (phrases, NEAR), les extraits, le magasin de documents et la lecture par blocs
+// reposent tous sur ce même découpage, que le tokeniseur de SAFAR ne garantit pas.
+
+public class CachingStemmer {
+
+    // Marqueur en cache des mots pour lesquels SAFAR ne propose aucune analyse
+    private static final String NO_STEM = "";
+
+    private final ThreadLocal<UnaryOperator<String>> analysers;
+    private final StemCache cache;
+
+    public CachingStemmer(Supplier<IStemmer> stemmerFactory, StemCache cache) {
+        this.analysers = ThreadLocal.withInitial(() -> {
+            IStemmer stemmer = stemmerFactory.get();
+            return word -> firstStem(stemmer, word);
+        });
+        this.cache = cache;
+    }
+
+    private CachingStemmer(StemCache cache, Supplier<UnaryOperator<String>> analyserFactory) {
+        this.analysers = ThreadLocal.withInitial(analyserFactory);
+        this.cache = cache;
+    }
+
+    // Racinisation par un analyseur mot -> racine (null si aucune racine) créé pour chaque thread.
+    public static CachingStemmer withAnalyser(Supplier<UnaryOperator<String>> analyserFactory, StemCache cache) {
+        return new CachingStemmer(cache, analyserFactory);
+    }
+
+    // Racines des mots du texte, dans l'ordre (null pour un mot sans analyse).
+    public List<String> stemWords(String text) {
+        List<String> stems = new ArrayList<>();
+        stemWords(text, (word, stem) -> stems.add(stem));
+        return stems;
+    }
+
+    // Transmet chaque mot du texte et sa racine (null si aucune) au consommateur, dans l'ordre du texte.
+    public void stemWords(String text, BiConsumer<String, String> consumer) {
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && isWordChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                String word = text.substring(start, i);
+                consumer.accept(word, stemWord(word));
+                start = -1;
+            }
+        }
+    }
+
+    // Racine d'un mot (première analyse SAFAR), ou null si le stemmer n'en propose aucune.
+    public String stemWord(String word) {
+        String stem = cache.get(word, this::analyse);
+        return stem.equals(NO_STEM) ? null : stem;
+    }
+
+    public StemCache getCache() {
+        return cache;
+    }
+
+    private String analyse(String word) {
+        String stem = analysers.get().apply(word);
+        return stem != null ? stem : NO_STEM;
+    }
+
+    // Première analyse SAFAR du mot.
+    private static String firstStem(IStemmer stemmer, String word) {
+        for (WordStemmerAnalysis wordAnalysis : stemmer.stem(word)) {
+            var analysisList = wordAnalysis.getListStemmerAnalysis();
+            if (analysisList != null && !analysisList.isEmpty()) {
+                StemmerAnalysis firstAnalysis = analysisList.get(0);
+                return firstAnalysis.getMorpheme();
+            }
+        }
+        return null;
+    }
+
+    // Lettres, chiffres et marques diacritiques (harakat) appartiennent au mot.
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+}
@@ -0,0 +1,225 @@
+package com.hamza.nlp;
+
+import com.hamza.TfIdfProcessor;
+import com.hamza.config.SearchEngineConfig;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Source du corpus : la liste des fichiers à indexer (chemins explicites, ou répertoire parcouru avec un motif glob),
+// sans leur contenu. Les documents sont lus en flux au moment de l'analyse, par blocs de CHUNK_CHARS caractères
+// coupés entre deux mots : le texte brut d'un bloc est abandonné dès qu'il est racinisé, et seules les occurrences
+// des racines du document sont transmises. Le texte lu en mémoire est ainsi borné par le nombre de documents
+// analysés en parallèle, quelle que soit la taille du corpus ou d'un fichier. Ce qui est transmis ne l'est pas :
+// les occurrences d'un document croissent avec son vocabulaire et, pour l'index positionnel, ses TermPositions
+// gardent une position (un int) par mot, soit environ 4 octets par mot du plus long document en cours d'analyse.
+
+public class CorpusSource {
+
+    // Taille d'un bloc de lecture, en caractères (2 Mo en UTF-16)
+    static final int CHUNK_CHARS = 1 << 20;
+
+    private final List<CorpusDocument> documents;
+
+    private CorpusSource(List<CorpusDocument> documents) {
+        this.documents = documents;
+    }
+
+    // Corpus de la configuration : le répertoire app.corpus.directory s'il est défini, sinon les fichiers listés.
+    public static CorpusSource of(SearchEngineConfig.SearchConfig config) throws IOException {
+        config.requireCorpus();
+        if (config.getCorpusDirectory() != null && !config.getCorpusDirectory().isBlank()) {
+            return scan(Paths.get(config.getCorpusDirectory()), config.getCorpusGlob());
+        }
+        return ofFiles(config.getDocumentPaths());
+    }
+
+    // Fichiers explicites, nommés doc1, doc2, ... dans l'ordre de la liste.
+    public static CorpusSource ofFiles(List<String> filePaths) {
+        List<CorpusDocument> documents = new ArrayList<>();
+        for (int i = 0; i < filePaths.size(); i++) {
+            documents.add(new CorpusDocument("doc" + (i + 1), Paths.get(filePaths.get(i))));
+        }
+        return new CorpusSource(documents);
+    }
+
+    // Fichiers réguliers du répertoire (récursivement) dont le chemin relatif correspond au motif glob,
+    // nommés par ce chemin relatif et triés pour que les identifiants de documents soient reproductibles.
+    public static CorpusSource scan(Path directory, String glob) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        List<CorpusDocument> documents = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(directory.relativize(file)))
+                    .sorted()
+                    .forEach(file -> documents.add(new CorpusDocument(
+                            directory.relativize(file).toString().replace('\\', '/'), file)));
+        }
+        return new CorpusSource(documents);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public List<CorpusDocument> getDocuments() {
+        return documents;
+    }
+
+    // Fichiers dont dépend l'index (voir IndexSnapshot.fingerprint).
+    public List<Path> getFiles() {
+        List<Path> files = new ArrayList<>(documents.size());
+        for (CorpusDocument document : documents) {
+            files.add(document.getPath());
+        }
+        return files;
+    }
+
+    // Analyse les documents sur threads threads et transmet les occurrences de leurs racines au consommateur,
+    // dans l'ordre du corpus et depuis le thread appelant. Au plus 2 x threads documents sont en cours d'analyse
+    // ou en attente de consommation.
+    public void analyze(TextAnalyzer analyzer, int threads,
+                        BiConsumer<String, Map<String, Long>> consumer) throws IOException {
+        analyze(threads, path -> analyzeFile(path, analyzer),
+                (document, counts) -> consumer.accept(document.getName(), counts));
+    }
+
+    // Variante positionnelle : transmet les positions des racines de chaque document (voir TermPositions) et
+    // compte leurs formes de surface (voir SurfaceForms). Chaque document est compté par son worker, puis ses
+    // formes sont fusionnées dans surfaceForms dans l'ordre du corpus, depuis le thread appelant.
+    public void analyze(TextAnalyzer analyzer, int threads, SurfaceForms surfaceForms,
+                        BiConsumer<String, TermPositions> consumer) throws IOException {
+        analyze(threads, path -> {
+            SurfaceForms documentForms = new SurfaceForms();
+            return new AnalyzedDocument(analyzeFile(path, analyzer, documentForms), documentForms);
+        }, (document, analyzed) -> {
+            surfaceForms.addAll(analyzed.surfaceForms);
+            consumer.accept(document.getName(), analyzed.positions);
+        });
+    }
+
+    private <T> void analyze(int threads, DocumentAnalyser<T> analyser, BiConsumer<CorpusDocument, T> consumer)
+            throws IOException {
+        if (threads <= 1) {
+            for (CorpusDocument document : documents) {
+                consumer.accept(document, analyser.analyze(document.getPath()));
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+            int next = 0;
+            for (CorpusDocument document : documents) {
+                if (pending.size() == 2 * threads) {
+                    consumer.accept(documents.get(next++), pending.removeFirst().get());
+                }
+                pending.addLast(executor.submit(() -> analyser.analyze(document.getPath())));
+            }
+            while (!pending.isEmpty()) {
+                consumer.accept(documents.get(next++), pending.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analyse du corpus interrompue", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Échec de l'analyse du corpus: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Occurrences des racines valides d'un fichier, lu par blocs coupés après le dernier caractère hors mot.
+    public static Map<String, Long> analyzeFile(Path path, TextAnalyzer analyzer) throws IOException {
+        Map<String, Long> counts = new HashMap<>();
+        readChunks(path, text -> TfIdfProcessor.analyzeDocument(text, analyzer)
+                .forEach((stem, count) -> counts.merge(stem, count, Long::sum)));
+        return counts;
+    }
+
+    // Positions des racines valides d'un fichier, numérotées de façon continue d'un bloc à l'autre ; les formes de
+    // surface des racines sont comptées dans surfaceForms.
+    public static TermPositions analyzeFile(Path path, TextAnalyzer analyzer, SurfaceForms surfaceForms)
+            throws IOException {
+        TermPositions positions = new TermPositions();
+        readChunks(path, text -> TfIdfProcessor.analyzeDocument(text, analyzer, positions, surfaceForms));
+        return positions;
+    }
+
+    // Lit un fichier par blocs de CHUNK_CHARS caractères au plus, coupés après le dernier caractère hors mot.
+    private static void readChunks(Path path, Consumer<String> chunkConsumer) throws IOException {
+        // Un fichier UTF-8 a au plus autant de caractères que d'octets : pas de bloc complet pour un petit fichier
+        char[] buffer = new char[(int) Math.min(CHUNK_CHARS, Files.size(path) + 1)];
+        int length = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            while (true) {
+                int read = reader.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+                if (length < buffer.length) {
+                    continue;
+                }
+                // Bloc plein : analyser jusqu'au dernier séparateur, reporter le mot coupé au bloc suivant
+                int cut = length;
+                while (cut > 0 && CachingStemmer.isWordChar(buffer[cut - 1])) {
+                    cut--;
+                }
+                if (cut == 0) {
+                    cut = length; // un "mot" plus long qu'un bloc : coupé arbitrairement
+                }
+                chunkConsumer.accept(new String(buffer, 0, cut));
+                System.arraycopy(buffer, cut, buffer, 0, length - cut);
+                length -= cut;
+            }
+        }
+        chunkConsumer.accept(new String(buffer, 0, length));
+    }
+
+    // Document du corpus : son nom dans l'index et son fichier.
+
+    @AllArgsConstructor
+    @Data
+    public static class CorpusDocument {
+        private final String name;
+        private final Path path;
+    }
+
+    // Résultat de l'analyse positionnelle d'un document par un worker.
+
+    @AllArgsConstructor
+    private static class AnalyzedDocument {
+        private final TermPositions positions;
+        private final SurfaceForms surfaceForms;
+    }
+
+    @FunctionalInterface
+    private interface DocumentAnalyser<T> {
+        T analyze(Path path) throws IOException;
+    }
+}
@@ -0,0 +1,69 @@
+package com.hamza.nlp;
+
+import java.util.Map;
+
+// Similarité cosinus entre le vecteur TF-IDF de la requête et celui du document (fonction de score par défaut).
+// Le poids d'un terme est celui de la requête multiplié par le rapport IDF courant / IDF du segment, ce qui
+// ramène les poids des postings du segment à l'IDF courant du corpus ; la norme du document est précalculée
+// (voir IndexSegment.getDocumentNorm) et n'est appliquée qu'une fois par document.
+
+public final class CosineScorer implements Scorer {
+
+    public static final String NAME = "tfidf";
+    public static final CosineScorer INSTANCE = new CosineScorer();
+
+    private CosineScorer() {
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+
+    @Override
+    public SegmentScorer prepare(Map<String, Double> queryTfIdf, double queryNorm, IndexSegment segment,
+                                 SegmentedIndex index) {
+        Prepared terms = new Prepared(queryTfIdf.size(), queryNorm, segment);
+        for (Map.Entry<String, Double> queryEntry : queryTfIdf.entrySet()) {
+            int termId = segment.getIndex().getTermId(queryEntry.getKey());
+            if (termId < 0) {
+                continue;
+            }
+            double weight = queryEntry.getValue() * segment.idfRatio(termId, index.currentIdf(queryEntry.getKey()));
+            terms.add(termId, weight, 0.0, weight * segment.getMaxImpact(termId) / queryNorm);
+        }
+        return terms;
+    }
+
+    private static final class Prepared extends SegmentScorer {
+
+        private final double queryNorm;
+        private final IndexSegment segment;
+
+        private Prepared(int capacity, double queryNorm, IndexSegment segment) {
+            super(capacity);
+            this.queryNorm = queryNorm;
+            this.segment = segment;
+        }
+
+        @Override
+        double contribution(int term, float postingWeight, int docId) {
+            return weights[term] * postingWeight;
+        }
+
+        // Similarité cosinus à partir du produit scalaire creux et des normes précalculées des deux vecteurs.
+        @Override
+        double finish(double dotProduct, int docId) {
+            double documentNorm = segment.getDocumentNorm(docId);
+            if (dotProduct == 0.0 || queryNorm == 0.0 || documentNorm == 0.0) {
+                return 0.0;
+            }
+            return dotProduct / (queryNorm * documentNorm);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.hamza.nlp;
+
+import java.util.Arrays;
+
+// Matrice creuse au format CSR (Compressed Sparse Row) : une ligne par document, une colonne par terme.
+// Les termes de la ligne r occupent les positions [rowOffsets[r], rowOffsets[r + 1]) des tableaux columns/values,
+// triés par identifiant de terme croissant.
+// Les valeurs sont des flottants, ou des poids codés (quantize) : la matrice est alors en lecture seule.
+
+public class CsrMatrix {
+
+    private final int[] rowOffsets;
+    private final int[] columns;
+    private final float[] values;
+    private final QuantizedWeights quantized;
+    private final int columnCount;
+
+    public CsrMatrix(int[] rowOffsets, int[] columns, float[] values, int columnCount) {
+        this(rowOffsets, columns, values, null, columnCount);
+    }
+
+    private CsrMatrix(int[] rowOffsets, int[] columns, float[] values, QuantizedWeights quantized, int columnCount) {
+        this.rowOffsets = rowOffsets;
+        this.columns = columns;
+        this.values = values;
+        this.quantized = quantized;
+        this.columnCount = columnCount;
+    }
+
+    public int getRowCount() {
+        return rowOffsets.length - 1;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getNonZeroCount() {
+        return rowOffsets[rowOffsets.length - 1];
+    }
+
+    public int rowStart(int row) {
+        return rowOffsets[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowOffsets[row + 1];
+    }
+
+    public int columnAt(int index) {
+        return columns[index];
+    }
+
+    public float valueAt(int index) {
+        return values != null ? values[index] : quantized.get(index);
+    }
+
+    public boolean isQuantized() {
+        return quantized != null;
+    }
+
+    // Position de la colonne dans la ligne (recherche dichotomique), ou -1 si la cellule est vide.
+    public int find(int row, int column) {
+        int index = Arrays.binarySearch(columns, rowOffsets[row], rowOffsets[row + 1], column);
+        return index >= 0 ? index : -1;
+    }
+
+    // Première position de [from, to) dont la colonne est >= column (recherche exponentielle puis dichotomique),
+    // ou to si aucune. Sert à faire avancer un curseur dans une ligne triée.
+    public int lowerBound(int from, int to, int column) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && columns[high] < column) {
+            low = high + 1;
+            high = Math.min(to, high + step);
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(columns, low, Math.min(high + 1, to), column);
+        if (index >= 0) {
+            // Colonnes uniques dans une ligne : la position trouvée est la première
+            return index;
+        }
+        return -index - 1;
+    }
+
+    // Même structure creuse (mêmes lignes et colonnes) avec d'autres valeurs, dans l'ordre des cellules.
+    public CsrMatrix withValues(float[] newValues) {
+        if (newValues.length != getNonZeroCount()) {
+            throw new IllegalArgumentException("Attendu " + getNonZeroCount() + " valeurs, reçu " + newValues.length);
+        }
+        return new CsrMatrix(rowOffsets, columns, newValues, columnCount);
+    }
+
+    // Transposée au format CSR (équivalent CSC de cette matrice) : une ligne par terme, une colonne par document.
+    // Les documents de chaque ligne restent triés par identifiant croissant.
+    public CsrMatrix transpose() {
+        int[] transposedOffsets = new int[columnCount + 1];
+        for (int i = 0; i < getNonZeroCount(); i++) {
+            transposedOffsets[columns[i] + 1]++;
+        }
+        for (int column = 0; column < columnCount; column++) {
+            transposedOffsets[column + 1] += transposedOffsets[column];
+        }
+
+        int[] transposedColumns = new int[getNonZeroCount()];
+        float[] transposedValues = new float[getNonZeroCount()];
+        int[] cursor = Arrays.copyOf(transposedOffsets, columnCount);
+        for (int row = 0; row < getRowCount(); row++) {
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                int target = cursor[columns[i]]++;
+                transposedColumns[target] = row;
+                transposedValues[target] = valueAt(i);
+            }
+        }
+        return new CsrMatrix(transposedOffsets, transposedColumns, transposedValues, getRowCount());
+    }
+
+    // Même matrice avec les valeurs codées selon quantization (FLOAT32 : la matrice elle-même).
+    public CsrMatrix quantize(WeightQuantization quantization) {
+        if (quantization == WeightQuantization.FLOAT32) {
+            return this;
+        }
+        if (values == null) {
+            throw new IllegalStateException("Matrice déjà quantifiée");
+        }
+        return new CsrMatrix(rowOffsets, columns, null, QuantizedWeights.encode(values, quantization), columnCount);
+    }
+
+    // Matrice réduite aux cellules i telles que keep[i] (élagage), lignes et colonnes inchangées.
+    public CsrMatrix keepCells(boolean[] keep) {
+        int[] keptOffsets = new int[rowOffsets.length];
+        int kept = 0;
+        for (int row = 0; row < getRowCount(); row++) {
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                if (keep[i]) {
+                    kept++;
+                }
+            }
+            keptOffsets[row + 1] = kept;
+        }
+        int[] keptColumns = new int[kept];
+        float[] keptValues = new float[kept];
+        int target = 0;
+        for (int i = 0; i < getNonZeroCount(); i++) {
+            if (keep[i]) {
+                keptColumns[target] = columns[i];
+                keptValues[target++] = valueAt(i);
+            }
+        }
+        return new CsrMatrix(keptOffsets, keptColumns, keptValues, columnCount);
+    }
+
+    // Position de chaque cellule de la matrice dans sa transposée (même parcours que transpose), pour réordonner
+    // des données associées aux cellules (voir PositionIndex).
+    public int[] transposedIndexes() {
+        int[] cursor = new int[columnCount + 1];
+        for (int i = 0; i < getNonZeroCount(); i++) {
+            cursor[columns[i] + 1]++;
+        }
+        for (int column = 0; column < columnCount; column++) {
+            cursor[column + 1] += cursor[column];
+        }
+        int[] targets = new int[getNonZeroCount()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = cursor[columns[i]]++;
+        }
+        return targets;
+    }
+
+    // Empreinte mémoire des tableaux de la matrice, en octets.
+    public long estimateArraysBytes() {
+        return 4L * rowOffsets.length + 4L * columns.length
+                + (values != null ? 4L * values.length : quantized.estimateBytes());
+    }
+
+    // Construit une matrice CSR ligne par ligne.
+
+    public static class Builder {
+
+        private int[] rowOffsets = new int[17];
+        private int[] columns = new int[64];
+        private float[] values = new float[64];
+        private int rowCount;
+        private int columnCount;
+
+        // Ajoute une ligne ; les colonnes sont triées par identifiant croissant (les tableaux passés sont modifiés).
+        public Builder addRow(int[] rowColumns, float[] rowValues, int length) {
+            sortByColumn(rowColumns, rowValues, length);
+
+            int start = rowOffsets[rowCount];
+            ensureCapacity(start + length);
+            System.arraycopy(rowColumns, 0, columns, start, length);
+            System.arraycopy(rowValues, 0, values, start, length);
+            for (int i = 0; i < length; i++) {
+                columnCount = Math.max(columnCount, rowColumns[i] + 1);
+            }
+
+            if (rowCount + 2 > rowOffsets.length) {
+                rowOffsets = Arrays.copyOf(rowOffsets, rowOffsets.length * 2);
+            }
+            rowOffsets[++rowCount] = start + length;
+            return this;
+        }
+
+        public CsrMatrix build(int columnCount) {
+            int nonZeros = rowOffsets[rowCount];
+            return new CsrMatrix(Arrays.copyOf(rowOffsets, rowCount + 1), Arrays.copyOf(columns, nonZeros),
+                    Arrays.copyOf(values, nonZeros), Math.max(columnCount, this.columnCount));
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > columns.length) {
+                int newCapacity = Math.max(capacity, columns.length * 2);
+                columns = Arrays.copyOf(columns, newCapacity);
+                values = Arrays.copyOf(values, newCapacity);
+            }
+        }
+
+        // Trie les colonnes d'une ligne en triant des paires (colonne, bits du poids) compactées dans des long.
+        private static void sortByColumn(int[] rowColumns, float[] rowValues, int length) {
+            long[] packed = new long[length];
+            for (int i = 0; i < length; i++) {
+                packed[i] = ((long) rowColumns[i] << 32) | (Float.floatToRawIntBits(rowValues[i]) & 0xFFFFFFFFL);
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < length; i++) {
+                rowColumns[i] = (int) (packed[i] >>> 32);
+                rowValues[i] = Float.intBitsToFloat((int) packed[i]);
+            }
+        }
+    }
+}
@@ -6,13 +6,13 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import safar.basic.morphology.stemmer.factory.StemmerFactory;
-import safar.basic.morphology.stemmer.interfaces.IStemmer;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 // Classe utilitaire pour la recherche de documents avec TF-IDF et SAFAR stemmer
@@ -23,7 +23,21 @@ public class DocumentSearchUtils {
     @AllArgsConstructor
     public static class SearchEngine {
         private DocumentSearcher searcher;
-        private Map<String, Map<String, Double>> tfidfMatrix;
+        private SegmentedIndex index;
+        // Chaîne d'analyse de l'index, partagée par les requêtes, les extraits et les documents ajoutés
+        private TextAnalyzer analyzer;
+        private SearchMetrics metrics;
+        private SuggestionIndex suggestions;
+        // Fonctions de score disponibles, par nom (SearchRequestDto.scorer)
+        private Map<String, Scorer> scorers;
+        // Extraits des résultats (null si app.search.snippet-words = 0)
+        private SnippetGenerator snippets;
+        // Quasi-doublons (null si app.duplicates.threshold = 0)
+        private NearDuplicateIndex duplicates;
+        // Documents similaires (null si app.similar.tables = 0)
+        private SimilarDocumentIndex similar;
+        // Gain mémoire et perte de qualité de l'index compressé (null si l'index n'a pas été compressé au démarrage)
+        private IndexCompression.Report compression;
 
         // Recherche des documents pertinents pour une requête.
         public List<DocumentSearcher.DocumentSearchResult> search(String query) {
@@ -34,14 +48,252 @@ public class DocumentSearchUtils {
             return searcher.searchDocuments(query, threshold, maxResults);
         }
 
+        // Analyse une requête (racinisation + pondération TF-IDF) sans la scorer.
+        public Map<String, Double> analyzeQuery(String query) {
+            return searcher.processQuery(query);
+        }
+
+        public List<DocumentSearcher.DocumentSearchResult> search(Map<String, Double> queryVector, double threshold, int maxResults) {
+            return searcher.searchDocuments(queryVector, threshold, maxResults);
+        }
+
+        // Contraintes positionnelles d'une requête (phrases entre guillemets, NEAR/k), vide pour une requête simple.
+        public List<PositionalQuery.Constraint> analyzeConstraints(String query) {
+            return searcher.processConstraints(query);
+        }
+
+        public List<DocumentSearcher.DocumentSearchResult> search(Map<String, Double> queryVector,
+                                                                  List<PositionalQuery.Constraint> constraints,
+                                                                  double threshold, int maxResults) {
+            return searcher.searchDocuments(queryVector, constraints, threshold, maxResults);
+        }
+
+        // Fonction de score de nom donné (null = similarité cosinus TF-IDF, par défaut).
+        public Scorer getScorer(String name) {
+            if (name == null) {
+                return CosineScorer.INSTANCE;
+            }
+            Scorer scorer = scorers.get(name);
+            if (scorer == null) {
+                throw new IllegalArgumentException("Fonction de score inconnue : " + name + " (disponibles : "
+                        + scorers.keySet() + ")");
+            }
+            return scorer;
+        }
+
+        public List<DocumentSearcher.DocumentSearchResult> search(Map<String, Double> queryVector,
+                                                                  List<PositionalQuery.Constraint> constraints,
+                                                                  Scorer scorer, double threshold, int maxResults) {
+            return searcher.searchDocuments(queryVector, constraints, scorer, threshold, maxResults);
+        }
+
+        // Recherche groupée de requêtes déjà analysées, en une seule traversée des postings par segment.
+        public List<List<DocumentSearcher.DocumentSearchResult>> search(List<Map<String, Double>> queryVectors,
+                                                                        double[] thresholds, int[] maxResults) {
+            return searcher.searchDocuments(queryVectors, thresholds, maxResults);
+        }
+
+        // Recherche groupée avec les contraintes positionnelles de chaque requête (les requêtes contraintes sont
+        // évaluées seules).
+        public List<List<DocumentSearcher.DocumentSearchResult>> search(List<Map<String, Double>> queryVectors,
+                                                                        List<List<PositionalQuery.Constraint>> constraints,
+                                                                        double[] thresholds, int[] maxResults) {
+            return searcher.searchDocuments(queryVectors, constraints,
+                    Collections.nCopies(queryVectors.size(), CosineScorer.INSTANCE), thresholds, maxResults);
+        }
+
+        // Recherche groupée avec la fonction de score de chaque requête (seules celles scorées par similarité
+        // cosinus sont groupées).
+        public List<List<DocumentSearcher.DocumentSearchResult>> search(List<Map<String, Double>> queryVectors,
+                                                                        List<List<PositionalQuery.Constraint>> constraints,
+                                                                        List<? extends Scorer> scorers,
+                                                                        double[] thresholds, int[] maxResults) {
+            return searcher.searchDocuments(queryVectors, constraints, scorers, thresholds, maxResults);
+        }
+
+        // Suggestions pour la saisie en cours : le dernier mot est complété par les termes de l'index les plus
+        // fréquents qui commencent par lui, les mots qui le précèdent sont conservés tels quels.
+        public List<String> suggest(String input, int limit) {
+            int lastWordStart = input.length();
+            while (lastWordStart > 0 && CachingStemmer.isWordChar(input.charAt(lastWordStart - 1))) {
+                lastWordStart--;
+            }
+            String head = input.substring(0, lastWordStart);
+            List<String> completions = suggestions.suggest(input.substring(lastWordStart), limit);
+            if (head.isEmpty()) {
+                return completions;
+            }
+            List<String> phrases = new ArrayList<>(completions.size());
+            for (String completion : completions) {
+                phrases.add(head + completion);
+            }
+            return phrases;
+        }
+
+        // Génération de l'index courant : change dès que l'index est reconstruit ou modifié.
+        public long getIndexGeneration() {
+            return index.getGeneration();
+        }
+
 
         public SearchStatistics getStatistics() {
-            int totalDocuments = tfidfMatrix.size();
-            int totalUniqueTerms = tfidfMatrix.values().stream()
-                    .flatMap(doc -> doc.keySet().stream())
-                    .collect(Collectors.toSet()).size();
+            return getStatistics(0);
+        }
+
+        // Statistiques du corpus et ses topTerms termes les plus fréquents. Aucun parcours du corpus : les
+        // compteurs sont maintenus par l'index à chaque modification, et les termes les plus fréquents sont lus
+        // dans la structure de l'autocomplétion (reconstruite en arrière-plan après une modification).
+        public SearchStatistics getStatistics(int topTerms) {
+            // Documents vivants, termes présents dans au moins l'un d'eux et occurrences de ces termes
+            int totalDocuments = index.getDocumentCount();
+            int totalUniqueTerms = index.getVocabularySize();
+            long totalTokens = index.getLocalDocumentLength();
+            double averageDocumentLength = totalDocuments > 0 ? (double) totalTokens / totalDocuments : 0.0;
+
+            return new SearchStatistics(totalDocuments, totalUniqueTerms, totalTokens, averageDocumentLength,
+                    topTerms > 0 ? suggestions.topTerms(topTerms) : Collections.emptyList());
+        }
+
+        // Ajoute un document à l'index, ou remplace celui de même nom ; retourne true s'il a été remplacé.
+        public boolean addDocument(String name, String text) {
+            TermPositions positions = new TermPositions();
+            SurfaceForms surfaceForms = new SurfaceForms();
+            TfIdfProcessor.analyzeDocument(text, analyzer, positions, surfaceForms);
+            boolean replaced = index.addDocument(name, positions, surfaceForms);
+            addSecondaryIndexes(name, text, positions);
+            return replaced;
+        }
+
+        // Ajoute un document seulement si aucun document ne porte ce nom (vérification atomique, voir
+        // SegmentedIndex.addDocumentIfAbsent) ; retourne true s'il a été ajouté.
+        public boolean addDocumentIfAbsent(String name, String text) {
+            TermPositions positions = new TermPositions();
+            SurfaceForms surfaceForms = new SurfaceForms();
+            TfIdfProcessor.analyzeDocument(text, analyzer, positions, surfaceForms);
+            if (!index.addDocumentIfAbsent(name, positions, surfaceForms)) {
+                return false;
+            }
+            addSecondaryIndexes(name, text, positions);
+            return true;
+        }
+
+        // Extraits, quasi-doublons et documents similaires d'un document ajouté ou remplacé.
+        private void addSecondaryIndexes(String name, String text, TermPositions positions) {
+            if (snippets != null) {
+                snippets.put(name, text);
+            }
+            if (duplicates != null) {
+                duplicates.add(name, positions);
+            }
+            if (similar != null) {
+                similar.add(name);
+            }
+        }
+
+        // Supprime un document de l'index ; retourne false s'il n'existe pas.
+        public boolean removeDocument(String name) {
+            boolean removed = index.removeDocument(name);
+            if (removed && snippets != null) {
+                snippets.remove(name);
+            }
+            if (removed && duplicates != null) {
+                duplicates.remove(name);
+            }
+            if (removed && similar != null) {
+                similar.remove(name);
+            }
+            return removed;
+        }
+
+        // Rafraîchit les normes des documents avec l'IDF courant sans attendre le seuil de modifications.
+        public boolean refreshIndex() {
+            return index.refresh();
+        }
+
+        public IndexStatus getIndexStatus() {
+            return new IndexStatus(index.getDocumentCount(), index.getVocabularySize(), index.getSegmentCount(),
+                    index.getPendingChanges(), index.getGeneration());
+        }
+
+        // Statistiques locales de ce nœud (documents vivants, fréquences documentaires et longueur totale des
+        // documents), agrégées par le coordinateur d'un déploiement distribué.
+        public int getLocalDocumentCount() {
+            return index.getDocumentCount();
+        }
+
+        public Map<String, Integer> getLocalDocumentFrequencies() {
+            return index.getLocalDocumentFrequencies();
+        }
+
+        public long getLocalDocumentLength() {
+            return index.getLocalDocumentLength();
+        }
+
+        // Statistiques des autres shards du cluster : l'IDF et la longueur moyenne des documents (BM25) deviennent
+        // ceux du corpus complet.
+        public void setRemoteStatistics(int documentCount, Map<String, Integer> documentFrequencies,
+                                        long documentLength) {
+            index.setRemoteStatistics(documentCount, documentFrequencies, documentLength);
+        }
+
+        public SearchMetrics getMetrics() {
+            return metrics;
+        }
+
+        // Extrait HTML d'un résultat autour de ses mots correspondants (null si les extraits sont désactivés).
+        public String snippet(DocumentSearcher.DocumentSearchResult result) {
+            return snippets != null ? snippets.snippet(result) : null;
+        }
+
+        // Nombre de résultats à demander au chercheur pour en garder maxResults une fois les doublons repliés
+        // (sans dépasser le nombre de documents vivants, ni déborder pour un maxResults très grand).
+        public int duplicateFetchSize(int maxResults) {
+            if (duplicates == null) {
+                return maxResults;
+            }
+            long fetchSize = Math.min(Integer.MAX_VALUE, (long) maxResults * NearDuplicateIndex.COLLAPSE_OVERFETCH);
+            return (int) Math.min(fetchSize, Math.max(maxResults, index.getDocumentCount()));
+        }
+
+        // Replie les quasi-doublons des résultats sous le premier d'entre eux, puis garde maxResults résultats.
+        public List<DocumentSearcher.DocumentSearchResult> collapseDuplicates(
+                List<DocumentSearcher.DocumentSearchResult> results, int maxResults) {
+            if (duplicates == null) {
+                return results.size() > maxResults ? results.subList(0, maxResults) : results;
+            }
+            return duplicates.collapse(results, maxResults);
+        }
+
+        // Groupes de quasi-doublons du corpus (null si la détection est désactivée).
+        public NearDuplicateIndex.DuplicateReport getDuplicateReport(int maxGroups) {
+            return duplicates != null ? duplicates.report(maxGroups) : null;
+        }
+
+        // Documents les plus similaires à un document indexé, approchés ou exacts (null si le document n'existe pas
+        // ou si la recherche de documents similaires est désactivée).
+        public SimilarDocumentIndex.SimilarDocuments similarDocuments(String name, int limit, boolean exact) {
+            return similar != null ? similar.similar(name, limit, exact) : null;
+        }
+
+        // Rappel et latences de la recherche approchée contre la recherche exacte (null si elle est désactivée).
+        public SimilarDocumentIndex.SimilarityEvaluation evaluateSimilarDocuments(int samples, int limit) {
+            return similar != null ? similar.evaluate(samples, limit) : null;
+        }
 
-            return new SearchStatistics(totalDocuments, totalUniqueTerms);
+        // Compression de l'index chargé, mesurée contre l'index exact lors de sa construction (null si l'index est
+        // exact ou servi depuis un instantané déjà compressé).
+        public IndexCompression.Report getCompressionReport() {
+            return compression;
+        }
+
+        // Taille et coût de décompression du magasin de documents (null si les extraits sont désactivés).
+        public SnippetGenerator.StoreStatistics getDocumentStoreStatistics() {
+            return snippets != null ? snippets.getStatistics() : null;
+        }
+
+        // Compteurs du cache mot -> racine, pour le dimensionner en production.
+        public StemCache.StemCacheStatistics getStemCacheStatistics() {
+            return analyzer.getStemmer().getCache().getStatistics();
         }
     }
 
@@ -50,43 +302,264 @@ public class DocumentSearchUtils {
     public static class SearchStatistics {
         private final int totalDocuments;
         private final int totalUniqueTerms;
+        private final long totalTokens;
+        private final double averageDocumentLength;
+        private final List<TermStatistics> topTerms;
 
         @Override
         public String toString() {
-            return String.format("Documents: %d, Termes uniques: %d", totalDocuments, totalUniqueTerms);
+            return String.format("Documents: %d, Termes uniques: %d, Occurrences: %d, Longueur moyenne: %.1f",
+                    totalDocuments, totalUniqueTerms, totalTokens, averageDocumentLength);
         }
     }
+
+    // Terme du vocabulaire (forme de surface la plus fréquente, à défaut la racine) et sa fréquence documentaire.
+
+    @AllArgsConstructor
+    @Data
+    public static class TermStatistics {
+        private final String term;
+        private final int documentFrequency;
+    }
+    // État de l'index modifiable : taille, nombre de segments et modifications en attente de rafraîchissement.
+
+    @AllArgsConstructor
+    @Data
+    public static class IndexStatus {
+        private final int totalDocuments;
+        private final int totalUniqueTerms;
+        private final int segments;
+        private final int pendingChanges;
+        private final long generation;
+    }
+
     // Crée un moteur de recherche à partir d'une configuration.
 
     public static SearchEngine createSearchEngine(SearchEngineConfig.SearchConfig config) throws IOException {
         System.out.println("🏗️  Initialisation du moteur de recherche...");
         
         // 1. Chargement des données
-        Set<String> stopWords = loadStopWords(config.getStopWordsPath());
-        Map<String, String> documents = loadDocuments(config.getDocumentPaths());
-        IStemmer stemmer = StemmerFactory.getLight10Implementation();
-        
-        // 2. Génération TF-IDF
-        System.out.println("📊 Génération de la matrice TF-IDF...");
-        Map<String, Map<String, Long>> occurrenceMap = TfIdfProcessor.buildOccurrenceMapStatic(documents, stemmer, stopWords);
+        TextAnalyzer analyzer = createAnalyzer(config);
         
-        Map<String, Map<String, Double>> tfMap = new LinkedHashMap<>();
-        for (var entry : occurrenceMap.entrySet()) {
-            tfMap.put(entry.getKey(), TfIdfUtils.computeTF(entry.getValue()));
+        // 2. Index en mémoire construit depuis le texte brut, éventuellement compressé
+        InvertedIndex exact = buildIndex(config, analyzer);
+        IndexCompression compression = new IndexCompression(config.getQuantization(), config.getPruneRatio());
+        InvertedIndex index = compression.apply(exact);
+        IndexCompression.Report report = compression.isEnabled() ? evaluate(compression, exact, index) : null;
+        DocumentStore store = null;
+        if (config.getSnippetWords() > 0) {
+            System.out.println("🗜️  Compression du texte des documents...");
+            try {
+                store = DocumentStore.build(CorpusSource.of(config));
+            } catch (DocumentStore.TooLargeException e) {
+                System.out.println("⚠️  " + e.getMessage() + " -> extraits désactivés");
+            }
         }
+        return createSearchEngine(config, index, report, store, analyzer);
+    }
+
+    // Crée un moteur de recherche servi depuis l'instantané binaire de la configuration, projeté en mémoire.
+    // Un instantané absent, d'une autre version de format, corrompu ou construit sur un autre corpus est
+    // reconstruit depuis le texte brut puis réécrit ; de même pour le magasin de documents (<instantané>.docs).
+    // Un instantané compressé avec d'autres réglages que app.index.quantization / prune-ratio, ou indexé par une
+    // autre chaîne d'analyse (app.analysis.filters), est aussi reconstruit.
+    // Un index ou un magasin trop volumineux pour une projection mémoire (2 Go) n'empêche pas le démarrage : l'index
+    // est servi depuis le tas, et les extraits sont désactivés.
+    // Sans instantané configuré, l'index est construit en mémoire.
+
+    public static SearchEngine openSearchEngine(SearchEngineConfig.SearchConfig config) throws IOException {
+        if (config.getSnapshotPath() == null || config.getSnapshotPath().isBlank()) {
+            return createSearchEngine(config);
+        }
+        System.out.println("🏗️  Ouverture de l'instantané d'index " + config.getSnapshotPath() + "...");
+
+        TextAnalyzer analyzer = createAnalyzer(config);
+        Path snapshotPath = Paths.get(config.getSnapshotPath());
+        long fingerprint = IndexSnapshot.fingerprint(sourceFiles(config), analyzer.getDescription());
+
+        IndexCompression compression = new IndexCompression(config.getQuantization(), config.getPruneRatio());
+        IndexCompression.Report report = null;
+        SearchIndex index;
+        try {
+            index = MappedIndex.open(snapshotPath, fingerprint, compression.getQuantization(),
+                    compression.getPruneRatio());
+            System.out.println("🗺️  Instantané projeté en mémoire: " + index.getDocumentCount() + " documents, "
+                    + index.getTermCount() + " termes");
+        } catch (MappedIndex.InvalidSnapshotException e) {
+            System.out.println("⚠️  " + e.getMessage() + " -> reconstruction de l'instantané...");
+            InvertedIndex exact = buildIndex(config, analyzer);
+            InvertedIndex compressed = compression.apply(exact);
+            if (compression.isEnabled()) {
+                report = evaluate(compression, exact, compressed);
+            }
+            index = writeAndOpen(compressed, fingerprint, snapshotPath);
+        }
+
+        DocumentStore store = null;
+        if (config.getSnippetWords() > 0) {
+            Path storePath = storePath(snapshotPath);
+            try {
+                store = DocumentStore.open(storePath, fingerprint);
+            } catch (DocumentStore.InvalidStoreException e) {
+                System.out.println("⚠️  " + e.getMessage() + " -> reconstruction du magasin...");
+                try {
+                    store = DocumentStore.write(CorpusSource.of(config), fingerprint, storePath);
+                } catch (DocumentStore.TooLargeException tooLarge) {
+                    System.out.println("⚠️  " + tooLarge.getMessage() + " -> extraits désactivés");
+                    Files.deleteIfExists(storePath);
+                }
+            }
+        }
+        return createSearchEngine(config, index, report, store, analyzer);
+    }
+
+    // Écrit l'instantané de l'index reconstruit puis le projette en mémoire. Un index trop volumineux pour une
+    // seule projection (IndexSnapshot.MAX_SIZE) reste servi depuis le tas, sans instantané.
+
+    private static SearchIndex writeAndOpen(InvertedIndex index, long fingerprint, Path snapshotPath)
+            throws IOException {
+        try {
+            IndexSnapshot.write(index, fingerprint, snapshotPath);
+        } catch (IndexSnapshot.TooLargeException e) {
+            System.out.println("⚠️  " + e.getMessage() + " -> index servi depuis le tas");
+            Files.deleteIfExists(snapshotPath);
+            return index;
+        }
+        MappedIndex mapped = MappedIndex.open(snapshotPath, fingerprint);
+        System.out.println("🗺️  Instantané projeté en mémoire: " + mapped.getDocumentCount() + " documents, "
+                + mapped.getTermCount() + " termes");
+        return mapped;
+    }
+
+    // Construction hors ligne : indexe le corpus de la configuration et écrit l'instantané binaire.
+
+    public static void writeSnapshot(SearchEngineConfig.SearchConfig config, Path snapshotPath) throws IOException {
+        TextAnalyzer analyzer = createAnalyzer(config);
+        InvertedIndex exact = buildIndex(config, analyzer);
+        IndexCompression compression = new IndexCompression(config.getQuantization(), config.getPruneRatio());
+        InvertedIndex index = compression.apply(exact);
+        if (compression.isEnabled()) {
+            evaluate(compression, exact, index);
+        }
+        System.out.println("💾 Écriture de l'instantané " + snapshotPath + "...");
+        long fingerprint = IndexSnapshot.fingerprint(sourceFiles(config), analyzer.getDescription());
+        IndexSnapshot.write(index, fingerprint, snapshotPath);
+        System.out.println("✅ Instantané écrit (" + Files.size(snapshotPath) + " octets)");
+        if (config.getSnippetWords() > 0) {
+            System.out.println("💾 Écriture du magasin de documents " + storePath(snapshotPath) + "...");
+            DocumentStore.write(CorpusSource.of(config), fingerprint, storePath(snapshotPath));
+            System.out.println("✅ Magasin écrit (" + Files.size(storePath(snapshotPath)) + " octets)");
+        }
+    }
+
+    // Magasin de documents associé à un instantané : même empreinte de corpus, fichier voisin.
+    public static Path storePath(Path snapshotPath) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".docs");
+    }
+
+    // Racinisation et pondération TF-IDF du corpus, puis construction de l'index inversé en mémoire.
+
+    public static InvertedIndex buildIndex(SearchEngineConfig.SearchConfig config, TextAnalyzer analyzer)
+            throws IOException {
+        CorpusSource corpus = CorpusSource.of(config);
+
+        // 1. Génération TF-IDF en flux : chaque document est lu par blocs, racinisé puis ajouté à la matrice
+        System.out.println("📊 Génération de la matrice TF-IDF (" + corpus.size() + " documents)...");
+        StreamingIndexBuilder builder = new StreamingIndexBuilder();
+        SurfaceForms surfaceForms = new SurfaceForms();
+        corpus.analyze(analyzer, config.resolveIngestionThreads(), surfaceForms, builder::addDocument);
         
-        Map<String, Double> idfMap = TfIdfUtils.computeIDF(occurrenceMap);
-        Map<String, Map<String, Double>> tfidfMatrix = TfIdfUtils.computeTfIdf(tfMap, idfMap);
-        
-        // 3. Création du chercheur
-        DocumentSearcher searcher = new DocumentSearcher(tfidfMatrix, idfMap, stopWords, stemmer);;
+        // 2. Construction de l'index inversé (stem -> postings) avec les normes précalculées
+        System.out.println("🗂️  Construction de l'index inversé...");
+        InvertedIndex index = builder.build(surfaceForms);
+        System.out.println("  -> " + analyzer.getStemmer().getCache().getStatistics());
+        return index;
+    }
+
+    // Mesure l'index compressé contre l'index exact (voir IndexCompression) et affiche le bilan.
+    private static IndexCompression.Report evaluate(IndexCompression compression, InvertedIndex exact,
+                                                    InvertedIndex compressed) {
+        IndexCompression.Report report = compression.evaluate(exact, compressed);
+        System.out.println(String.format(Locale.ROOT, "🗜️  Index compressé (%s, élagage %.0f %%): %d Ko -> %d Ko "
+                        + "(x%.2f), %d/%d postings, overlap@%d %.3f, erreur de score %.4f (max %.4f) sur %d requêtes",
+                report.getQuantization(), 100.0 * report.getPruneRatio(), report.getExactBytes() / 1024,
+                report.getCompressedBytes() / 1024, report.getMemoryRatio(), report.getKeptPostings(),
+                report.getExactPostings(), report.getK(), report.getOverlapAtK(), report.getMeanScoreError(),
+                report.getMaxScoreError(), report.getQueries()));
+        return report;
+    }
+
+    private static SearchEngine createSearchEngine(SearchEngineConfig.SearchConfig config, SearchIndex baseIndex,
+                                                   IndexCompression.Report compression, DocumentStore store,
+                                                   TextAnalyzer analyzer) {
+        // L'index chargé est découpé en shards, premiers segments de l'index modifiable
+        int shards = config.resolveShards();
+        SegmentedIndex index = new SegmentedIndex(baseIndex, shards, config.getMaxSegments(), config.getRefreshRatio());
+
+        // Création du chercheur : une requête est répartie sur les shards en parallèle dès qu'il y en a plusieurs
+        ForkJoinPool searchPool = shards > 1 ? new ForkJoinPool(shards) : null;
+        DocumentSearcher searcher = new DocumentSearcher(index, analyzer, searchPool, config.getMetrics());
+        System.out.println("🧩 Index réparti sur " + index.getSegmentCount() + " shard(s)");
+
+        // Autocomplétion construite dès le chargement de l'index, puis suivie à chaque modification
+        SuggestionIndex suggestions = new SuggestionIndex(index);
+        suggestions.current();
         
+        // Fonctions de score sélectionnables par requête
+        Map<String, Scorer> scorers = new LinkedHashMap<>();
+        scorers.put(CosineScorer.NAME, CosineScorer.INSTANCE);
+        scorers.put(Bm25Scorer.NAME, new Bm25Scorer(config.getBm25K1(), config.getBm25B()));
+        System.out.println("📐 Fonctions de score : " + scorers.values());
+
+        // Extraits des résultats, lus dans le magasin compressé du texte des documents
+        SnippetGenerator snippets = null;
+        if (store != null) {
+            snippets = new SnippetGenerator(store, config.getSnippetWords(), analyzer);
+            System.out.println("🗜️  Magasin de documents: " + store.getDocumentCount() + " documents, "
+                    + store.getTextLength() / 1024 + " Ko -> " + store.getStoredLength() / 1024 + " Ko");
+        }
+
+        // Signatures MinHash des documents, pour replier et signaler les quasi-doublons
+        NearDuplicateIndex duplicates = null;
+        if (config.getDuplicateThreshold() > 0) {
+            long start = System.nanoTime();
+            duplicates = NearDuplicateIndex.build(index, config.getDuplicateThreshold());
+            System.out.println("🧬 Quasi-doublons: " + duplicates.getDocumentCount() + " documents signés en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+
+        // Signatures SimHash des vecteurs TF-IDF, pour la recherche de documents similaires
+        SimilarDocumentIndex similar = null;
+        if (config.getSimilarTables() > 0) {
+            long start = System.nanoTime();
+            similar = SimilarDocumentIndex.build(index, searcher, config.getSimilarTables(), config.getSimilarBits(),
+                    config.getSimilarProbes(), config.getSimilarRerank());
+            System.out.println("🧭 Documents similaires: " + similar.getDocumentCount() + " documents signés en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+
         System.out.println("✅ Moteur de recherche initialisé avec succès!");
-        return new SearchEngine(searcher, tfidfMatrix);
+        return new SearchEngine(searcher, index, analyzer, config.getMetrics(), suggestions, scorers,
+                snippets, duplicates, similar, compression);
     }
 
+    // Chaîne d'analyse de la configuration (app.analysis.filters) autour du stemmer SAFAR et de son cache.
+    private static TextAnalyzer createAnalyzer(SearchEngineConfig.SearchConfig config) throws IOException {
+        CachingStemmer stemmer = new CachingStemmer(StemmerFactory::getLight10Implementation,
+                new StemCache(config.getStemCacheSize()));
+        TextAnalyzer analyzer = TextAnalyzer.of(stemmer, loadStopWords(config.getStopWordsPath()),
+                config.getAnalysisFilters());
+        System.out.println("🧹 Chaîne d'analyse : " + analyzer);
+        return analyzer;
+    }
 
-
+    // Fichiers dont dépend l'index : un changement de l'un d'eux rend l'instantané périmé.
+    private static List<Path> sourceFiles(SearchEngineConfig.SearchConfig config) throws IOException {
+        List<Path> files = new ArrayList<>();
+        files.add(Paths.get(config.getStopWordsPath()));
+        files.addAll(CorpusSource.of(config).getFiles());
+        return files;
+    }
 
     private static Set<String> loadStopWords(String path) throws IOException {
         try (var lines = Files.lines(Paths.get(path))) {
@@ -96,14 +569,4 @@ public class DocumentSearchUtils {
                     .collect(Collectors.toSet());
         }
     }
-    
-    private static Map<String, String> loadDocuments(List<String> filePaths) throws IOException {
-        Map<String, String> documents = new LinkedHashMap<>();
-        for (int i = 0; i < filePaths.size(); i++) {
-            String docName = "doc" + (i + 1);
-            String path = filePaths.get(i);
-            documents.put(docName, Files.readString(Paths.get(path), StandardCharsets.UTF_8));
-        }
-        return documents;
-    }
 }
@@ -2,160 +2,702 @@ package com.hamza.nlp;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import safar.basic.morphology.stemmer.interfaces.IStemmer;
-import safar.basic.morphology.stemmer.model.StemmerAnalysis;
-import safar.basic.morphology.stemmer.model.WordStemmerAnalysis;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
 
 // Classe pour rechercher et comparer les documents basés sur des requêtes utilisateur en utilisant la similarité cosinus avec les matrices TF-IDF.
+// La fonction de score est choisie par requête (voir Scorer) : similarité cosinus par défaut, ou BM25.
+// Chaque étape est mesurée par SearchMetrics ; les traces par requête sont au niveau DEBUG (sans coût une fois désactivées).
 
+@Slf4j
 @AllArgsConstructor
 public class DocumentSearcher {
 
-    private final Map<String, Map<String, Double>> tfidfMatrix;
-    private final Map<String, Double> idfMap;
-    private final Set<String> stopWords;
-    private final IStemmer stemmer;
+    private final SegmentedIndex index;
+    // Chaîne d'analyse partagée avec l'indexation (null : requêtes déjà analysées seulement)
+    private final TextAnalyzer analyzer;
+    // Pool des recherches parallèles dans les shards (null = segments parcourus sur le thread appelant)
+    private final ForkJoinPool searchPool;
+    private final SearchMetrics metrics;
+
+    // En dessous de cette taille, un segment est parcouru sur le thread appelant plutôt que dans une tâche
+    private static final int PARALLEL_MIN_DOCUMENTS = 1024;
+
+    // Nombre de produits scalaires (requêtes x documents) d'un bloc de recherche groupée (voir collectBatch)
+    private static final int BATCH_BLOCK_SLOTS = 1 << 16;
+
+    private static final ThreadLocal<ScoreAccumulator> ACCUMULATORS = ThreadLocal.withInitial(ScoreAccumulator::new);
 
     public List<DocumentSearchResult> searchDocuments(String query, 
                                                     double similarityThreshold, 
                                                     int maxResults) {
-        System.out.println("🔍 Recherche pour la requête: \"" + query + "\"");
+        log.debug("🔍 Recherche pour la requête: \"{}\"", query);
         
         // 1. Traiter la requête utilisateur
-        Map<String, Double> queryTfIdf = processQuery(query);
-        
+        return searchDocuments(processQuery(query), processConstraints(query), similarityThreshold, maxResults);
+    }
+
+    // Recherche à partir du vecteur TF-IDF d'une requête déjà analysée (voir processQuery).
+    public List<DocumentSearchResult> searchDocuments(Map<String, Double> queryTfIdf,
+                                                    double similarityThreshold,
+                                                    int maxResults) {
+        return searchDocuments(queryTfIdf, Collections.emptyList(), CosineScorer.INSTANCE, similarityThreshold,
+                maxResults);
+    }
+
+    public List<DocumentSearchResult> searchDocuments(Map<String, Double> queryTfIdf,
+                                                    List<PositionalQuery.Constraint> constraints,
+                                                    double similarityThreshold,
+                                                    int maxResults) {
+        return searchDocuments(queryTfIdf, constraints, CosineScorer.INSTANCE, similarityThreshold, maxResults);
+    }
+
+    // Recherche avec une fonction de score donnée et d'éventuelles contraintes positionnelles (phrases, NEAR, voir
+    // PositionalQuery) : seuls les documents qui satisfont toutes les contraintes sont alors classés.
+    // Le seuil s'applique au score de la fonction choisie.
+    public List<DocumentSearchResult> searchDocuments(Map<String, Double> queryTfIdf,
+                                                    List<PositionalQuery.Constraint> constraints,
+                                                    Scorer scorer,
+                                                    double similarityThreshold,
+                                                    int maxResults) {
+        if (constraints.isEmpty()) {
+            return searchDocuments(queryTfIdf, similarityThreshold, maxResults,
+                    (segment, position, queryNorm, topK) -> collect(segment, position,
+                            scorer.prepare(queryTfIdf, queryNorm, segment, index), similarityThreshold, topK));
+        }
+        log.debug("  -> Contraintes positionnelles: {}", constraints);
+        return searchDocuments(queryTfIdf, similarityThreshold, maxResults,
+                (segment, position, queryNorm, topK) -> collectPositional(segment, position,
+                        scorer.prepare(queryTfIdf, queryNorm, segment, index), constraints, similarityThreshold, topK));
+    }
+
+    private List<DocumentSearchResult> searchDocuments(Map<String, Double> queryTfIdf,
+                                                     double similarityThreshold,
+                                                     int maxResults,
+                                                     SegmentCollector collector) {
         if (queryTfIdf.isEmpty()) {
-            System.out.println("⚠️  Aucun terme valide trouvé dans la requête.");
+            log.debug("⚠️  Aucun terme valide trouvé dans la requête.");
+            metrics.results(0);
             return Collections.emptyList();
         }
         
-        // 2. Calculer la similarité avec chaque document
-        List<DocumentSearchResult> results = new ArrayList<>();
+        // 2. Norme de la requête, calculée une seule fois (les normes des documents sont précalculées dans l'index)
+        double queryNorm = TfIdfUtils.computeNorm(queryTfIdf);
+
+        List<DocumentSearchResult> results = index.read(() -> {
+            long scoringStart = System.nanoTime();
+            LongAdder candidates = new LongAdder();
+            // 3. Sélection du top-K (scatter-gather) : les gros segments (shards) sont parcourus en parallèle,
+            // chacun dans son propre tas, les petits segments sur le thread appelant ; les tas sont ensuite fusionnés.
+            // Un document sans terme commun a une similarité nulle : avec un seuil <= 0, il peut figurer dans les
+            // résultats, ce qui impose le parcours exhaustif de tous les documents.
+            List<IndexSegment> segments = index.getSegments();
+            int capacity = Math.max(0, Math.min(maxResults, index.getDocumentCount()));
+            if (capacity == 0) {
+                return Collections.<DocumentSearchResult>emptyList();
+            }
+            List<ForkJoinTask<TopKHeap>> shardSearches = new ArrayList<>();
+            TopKHeap topK = new TopKHeap(capacity);
+            for (int position = 0; position < segments.size(); position++) {
+                IndexSegment segment = segments.get(position);
+                int segmentPosition = position;
+                if (searchPool != null && segment.getLiveDocumentCount() >= PARALLEL_MIN_DOCUMENTS) {
+                    shardSearches.add(searchPool.submit(() -> {
+                        TopKHeap shardTopK = new TopKHeap(capacity);
+                        candidates.add(collector.collect(segment, segmentPosition, queryNorm, shardTopK));
+                        return shardTopK;
+                    }));
+                } else {
+                    candidates.add(collector.collect(segment, segmentPosition, queryNorm, topK));
+                }
+            }
+            for (ForkJoinTask<TopKHeap> shardSearch : shardSearches) {
+                topK.offerAll(shardSearch.join());
+            }
+            metrics.record(SearchMetrics.Stage.SCORING, scoringStart);
+            metrics.candidatesScored(candidates.sum());
+
+            // 4. Trier les gagnants par score décroissant ; les termes correspondants ne sont calculés que pour eux
+            long topKStart = System.nanoTime();
+            List<DocumentSearchResult> winnerResults = winnerResults(topK, segments, queryTfIdf);
+            metrics.record(SearchMetrics.Stage.TOP_K, topKStart);
+            return winnerResults;
+        });
         
-        for (Map.Entry<String, Map<String, Double>> docEntry : tfidfMatrix.entrySet()) {
-            String docName = docEntry.getKey();
-            Map<String, Double> docTfIdf = docEntry.getValue();
-            
-            double similarity = computeCosineSimilarity(queryTfIdf, docTfIdf);
-            
-            if (similarity >= similarityThreshold) {
-                results.add(new DocumentSearchResult(docName, similarity, 
-                    findMatchingTerms(queryTfIdf, docTfIdf)));
+        metrics.results(results.size());
+        log.debug("✅ {} document(s) trouvé(s).", results.size());
+        return results;
+    }
+
+    // Recherche groupée : les requêtes (déjà analysées) sont scorées ensemble, en une seule traversée des postings
+    // de l'union de leurs termes par segment, au lieu d'une traversée par requête. Chaque requête garde son seuil,
+    // son nombre de résultats et son propre top-K ; les résultats sont identiques à ceux de searchDocuments.
+    // Une requête de seuil <= 0 (parcours exhaustif de tous les documents), sans résultat demandé, avec des
+    // contraintes positionnelles ou avec une autre fonction de score que la similarité cosinus est traitée seule.
+    public List<List<DocumentSearchResult>> searchDocuments(List<Map<String, Double>> queryTfIdfs,
+                                                            double[] similarityThresholds,
+                                                            int[] maxResults) {
+        return searchDocuments(queryTfIdfs, Collections.nCopies(queryTfIdfs.size(), Collections.emptyList()),
+                Collections.nCopies(queryTfIdfs.size(), CosineScorer.INSTANCE), similarityThresholds, maxResults);
+    }
+
+    public List<List<DocumentSearchResult>> searchDocuments(List<Map<String, Double>> queryTfIdfs,
+                                                            List<List<PositionalQuery.Constraint>> constraints,
+                                                            List<? extends Scorer> scorers,
+                                                            double[] similarityThresholds,
+                                                            int[] maxResults) {
+        List<List<DocumentSearchResult>> results = new ArrayList<>(Collections.nCopies(queryTfIdfs.size(), null));
+        List<Integer> batched = new ArrayList<>();
+        for (int q = 0; q < queryTfIdfs.size(); q++) {
+            if (queryTfIdfs.get(q).isEmpty() || similarityThresholds[q] <= 0.0 || maxResults[q] <= 0
+                    || !constraints.get(q).isEmpty()
+                    || scorers.get(q) != CosineScorer.INSTANCE) {
+                results.set(q, searchDocuments(queryTfIdfs.get(q), constraints.get(q), scorers.get(q),
+                        similarityThresholds[q], maxResults[q]));
+            } else {
+                batched.add(q);
             }
         }
-        
-        // 3. Trier par score de similarité décroissant
-        results.sort((a, b) -> Double.compare(b.getSimilarityScore(), a.getSimilarityScore()));
-        
-        // 4. Limiter les résultats
-        if (results.size() > maxResults) {
-            results = results.subList(0, maxResults);
+        if (batched.isEmpty()) {
+            return results;
         }
-        
-        System.out.println("✅ " + results.size() + " document(s) trouvé(s).");
+
+        int batchSize = batched.size();
+        double[] queryNorms = new double[batchSize];
+        double[] thresholds = new double[batchSize];
+        for (int b = 0; b < batchSize; b++) {
+            queryNorms[b] = TfIdfUtils.computeNorm(queryTfIdfs.get(batched.get(b)));
+            thresholds[b] = similarityThresholds[batched.get(b)];
+        }
+
+        index.read(() -> {
+            long scoringStart = System.nanoTime();
+            LongAdder candidates = new LongAdder();
+            List<IndexSegment> segments = index.getSegments();
+            int[] capacities = new int[batchSize];
+            TopKHeap[] topKs = new TopKHeap[batchSize];
+            for (int b = 0; b < batchSize; b++) {
+                capacities[b] = Math.max(0, Math.min(maxResults[batched.get(b)], index.getDocumentCount()));
+                topKs[b] = new TopKHeap(capacities[b]);
+            }
+
+            List<ForkJoinTask<TopKHeap[]>> shardSearches = new ArrayList<>();
+            for (int position = 0; position < segments.size(); position++) {
+                IndexSegment segment = segments.get(position);
+                int segmentPosition = position;
+                BatchTerms terms = BatchTerms.of(batched, queryTfIdfs, segment, index);
+                if (searchPool != null && segment.getLiveDocumentCount() >= PARALLEL_MIN_DOCUMENTS) {
+                    shardSearches.add(searchPool.submit(() -> {
+                        TopKHeap[] shardTopKs = new TopKHeap[batchSize];
+                        for (int b = 0; b < batchSize; b++) {
+                            shardTopKs[b] = new TopKHeap(capacities[b]);
+                        }
+                        candidates.add(collectBatch(segment, segmentPosition, terms, queryNorms, thresholds, shardTopKs));
+                        return shardTopKs;
+                    }));
+                } else {
+                    candidates.add(collectBatch(segment, segmentPosition, terms, queryNorms, thresholds, topKs));
+                }
+            }
+            for (ForkJoinTask<TopKHeap[]> shardSearch : shardSearches) {
+                TopKHeap[] shardTopKs = shardSearch.join();
+                for (int b = 0; b < batchSize; b++) {
+                    topKs[b].offerAll(shardTopKs[b]);
+                }
+            }
+            metrics.record(SearchMetrics.Stage.SCORING, scoringStart);
+            metrics.candidatesScored(candidates.sum());
+
+            long topKStart = System.nanoTime();
+            for (int b = 0; b < batchSize; b++) {
+                int q = batched.get(b);
+                results.set(q, winnerResults(topKs[b], segments, queryTfIdfs.get(q)));
+                metrics.results(results.get(q).size());
+            }
+            metrics.record(SearchMetrics.Stage.TOP_K, topKStart);
+            return null;
+        });
+        log.debug("✅ Recherche groupée de {} requête(s).", queryTfIdfs.size());
         return results;
     }
-    
-    // Traite une requête utilisateur pour créer son vecteur TF-IDF.
 
-    private Map<String, Double> processQuery(String query) {
-        System.out.println("  -> Traitement de la requête...");
-        
-        // 1. Stemming de la requête
-        List<WordStemmerAnalysis> analyses = stemmer.stem(query);
-        List<String> queryStems = new ArrayList<>();
-        
-        for (WordStemmerAnalysis wordAnalysis : analyses) {
-            var analysisList = wordAnalysis.getListStemmerAnalysis();
-            if (analysisList != null && !analysisList.isEmpty()) {
-                StemmerAnalysis firstAnalysis = analysisList.get(0);
-                String stem = firstAnalysis.getMorpheme();
-                
-                if (isValidStem(stem)) {
-                    queryStems.add(stem);
+    // Trie les gagnants d'un top-K par score décroissant ; les termes correspondants et leurs positions (extraits)
+    // ne sont calculés que pour eux.
+    private List<DocumentSearchResult> winnerResults(TopKHeap topK, List<IndexSegment> segments,
+                                                     Map<String, Double> queryTfIdf) {
+        double[] scores = new double[topK.size()];
+        long[] winners = topK.drainSorted(scores);
+        List<DocumentSearchResult> winnerResults = new ArrayList<>(winners.length);
+        for (int i = 0; i < winners.length; i++) {
+            SearchIndex segmentIndex = segments.get(segmentOf(winners[i])).getIndex();
+            int docId = docIdOf(winners[i]);
+            List<String> matchingTerms = findMatchingTerms(queryTfIdf, segmentIndex, docId);
+            winnerResults.add(new DocumentSearchResult(segmentIndex.getDocumentName(docId), scores[i],
+                    matchingTerms, findMatchPositions(matchingTerms, segmentIndex, docId), null));
+        }
+        return winnerResults;
+    }
+
+    // Parcours commun à un groupe de requêtes, par blocs de documents : dans chaque bloc, les postings
+    // de l'union des termes sont lus terme par terme (TAAT), chacun une seule fois quel que soit le nombre de
+    // requêtes qui partagent son terme, et ajoutés aux produits scalaires de ces requêtes. Chaque requête propose
+    // ensuite les documents touchés du bloc à son propre top-K. La taille des blocs est choisie pour que la mémoire
+    // de travail (taille du groupe x taille du bloc) reste de l'ordre de BATCH_BLOCK_SLOTS, quel que soit le segment.
+    private int collectBatch(IndexSegment segment, int position, BatchTerms terms, double[] queryNorms,
+                             double[] thresholds, TopKHeap[] topKs) {
+        SearchIndex segmentIndex = segment.getIndex();
+        int termCount = terms.termIds.length;
+        int batchSize = queryNorms.length;
+        int block = Math.max(64, Integer.highestOneBit(Math.max(1, BATCH_BLOCK_SLOTS / batchSize)));
+        int[] cursors = new int[termCount];
+        int[] ends = new int[termCount];
+        for (int t = 0; t < termCount; t++) {
+            cursors[t] = segmentIndex.postingStart(terms.termIds[t]);
+            ends[t] = segmentIndex.postingEnd(terms.termIds[t]);
+        }
+
+        double[] dotProducts = new double[batchSize * block];
+        int[] touched = new int[batchSize * block];
+        int[] touchedCounts = new int[batchSize];
+        BitSet scoredDocuments = new BitSet(block);
+        int scored = 0;
+        for (int blockStart = 0; blockStart < segmentIndex.getDocumentCount(); blockStart += block) {
+            int blockEnd = blockStart + block;
+            for (int t = 0; t < termCount; t++) {
+                int cursor = cursors[t];
+                int docId;
+                while (cursor < ends[t] && (docId = segmentIndex.postingDocId(cursor)) < blockEnd) {
+                    int offset = docId - blockStart;
+                    double postingWeight = segmentIndex.postingWeight(cursor);
+                    for (int i = terms.queryStarts[t]; i < terms.queryStarts[t + 1]; i++) {
+                        int slot = terms.queries[i] * block + offset;
+                        if (dotProducts[slot] == 0.0) {
+                            touched[terms.queries[i] * block + touchedCounts[terms.queries[i]]++] = offset;
+                        }
+                        dotProducts[slot] += terms.weights[i] * postingWeight;
+                    }
+                    cursor++;
                 }
+                cursors[t] = cursor;
             }
+
+            for (int b = 0; b < batchSize; b++) {
+                for (int i = 0; i < touchedCounts[b]; i++) {
+                    int offset = touched[b * block + i];
+                    int docId = blockStart + offset;
+                    int slot = b * block + offset;
+                    if (!segment.isDeleted(docId)) {
+                        double similarity = computeCosineSimilarity(dotProducts[slot], queryNorms[b],
+                                segment.getDocumentNorm(docId));
+                        if (similarity >= thresholds[b]) {
+                            topKs[b].offer(hitId(position, docId), similarity);
+                        }
+                        scoredDocuments.set(offset);
+                    }
+                    dotProducts[slot] = 0.0;
+                }
+                touchedCounts[b] = 0;
+            }
+            scored += scoredDocuments.cardinality();
+            scoredDocuments.clear();
+        }
+        return scored;
+    }
+    // Top-K d'un segment : MaxScore avec un seuil strictement positif, parcours exhaustif sinon.
+    // Retourne le nombre de documents dont la similarité a été calculée.
+    private int collect(IndexSegment segment, int position, SegmentScorer terms, double similarityThreshold,
+                        TopKHeap topK) {
+        if (similarityThreshold > 0.0) {
+            return collectTopK(segment, position, terms, similarityThreshold, topK);
+        }
+        return collectAll(segment, position, terms, similarityThreshold, topK);
+    }
+
+    // Documents d'un segment qui satisfont les contraintes positionnelles : intersection des listes de postings de
+    // leurs racines (chaque curseur saute au document le plus avancé par postingAdvance), vérification des
+    // positions des documents communs, puis score complet (les postings des termes de la requête sont eux aussi
+    // avancés, les documents étant visités par identifiant croissant).
+    // Un segment sans positions (instantané écrit sans elles) ne propose aucun document.
+    private int collectPositional(IndexSegment segment, int position, SegmentScorer terms,
+                                  List<PositionalQuery.Constraint> constraints, double similarityThreshold,
+                                  TopKHeap topK) {
+        SearchIndex segmentIndex = segment.getIndex();
+        if (!segmentIndex.hasPositions()) {
+            return 0;
         }
+
+        // Racines distinctes des contraintes et, pour chaque contrainte, les indices de ses racines parmi elles
+        List<String> stems = new ArrayList<>();
+        int[][] constraintStems = new int[constraints.size()][];
+        for (int c = 0; c < constraints.size(); c++) {
+            List<String> constraintStemList = constraints.get(c).getStems();
+            constraintStems[c] = new int[constraintStemList.size()];
+            for (int i = 0; i < constraintStemList.size(); i++) {
+                int stem = stems.indexOf(constraintStemList.get(i));
+                if (stem < 0) {
+                    stem = stems.size();
+                    stems.add(constraintStemList.get(i));
+                }
+                constraintStems[c][i] = stem;
+            }
+        }
+        int[] cursors = new int[stems.size()];
+        int[] ends = new int[stems.size()];
+        for (int i = 0; i < stems.size(); i++) {
+            int termId = segmentIndex.getTermId(stems.get(i));
+            if (termId < 0) {
+                return 0;
+            }
+            cursors[i] = segmentIndex.postingStart(termId);
+            ends[i] = segmentIndex.postingEnd(termId);
+        }
+
+        int[] termCursors = new int[terms.size];
+        int[] termEnds = new int[terms.size];
+        for (int t = 0; t < terms.size; t++) {
+            termCursors[t] = segmentIndex.postingStart(terms.termIds[t]);
+            termEnds[t] = segmentIndex.postingEnd(terms.termIds[t]);
+        }
+
+        int[][] stemPositions = new int[stems.size()][];
+        int scored = 0;
+        int docId = 0;
+        while (true) {
+            // Aligner tous les curseurs sur docId ; un curseur plus avancé devient le prochain candidat
+            int next = docId;
+            for (int i = 0; i < cursors.length; i++) {
+                cursors[i] = segmentIndex.postingAdvance(cursors[i], ends[i], docId);
+                if (cursors[i] >= ends[i]) {
+                    return scored;
+                }
+                next = Math.max(next, segmentIndex.postingDocId(cursors[i]));
+            }
+            if (next != docId) {
+                docId = next;
+                continue;
+            }
+
+            if (!segment.isDeleted(docId)) {
+                for (int i = 0; i < cursors.length; i++) {
+                    stemPositions[i] = segmentIndex.postingPositions(cursors[i]);
+                }
+                if (matchesAll(constraints, constraintStems, stemPositions)) {
+                    scored++;
+                    double dotProduct = 0.0;
+                    for (int t = 0; t < terms.size; t++) {
+                        termCursors[t] = segmentIndex.postingAdvance(termCursors[t], termEnds[t], docId);
+                        if (termCursors[t] < termEnds[t] && segmentIndex.postingDocId(termCursors[t]) == docId) {
+                            dotProduct += terms.contribution(t, segmentIndex.postingWeight(termCursors[t]), docId);
+                        }
+                    }
+                    double similarity = terms.finish(dotProduct, docId);
+                    if (similarity >= similarityThreshold) {
+                        topK.offer(hitId(position, docId), similarity);
+                    }
+                }
+            }
+            docId++;
+        }
+    }
+
+    private static boolean matchesAll(List<PositionalQuery.Constraint> constraints, int[][] constraintStems,
+                                      int[][] stemPositions) {
+        for (int c = 0; c < constraints.size(); c++) {
+            int[][] positions = new int[constraintStems[c].length][];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = stemPositions[constraintStems[c][i]];
+            }
+            if (!constraints.get(c).matches(positions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Identifiant d'un document dans le tas : position du segment dans les 32 bits de poids fort, document du
+    // segment dans les 32 bits de poids faible (les égalités de score sont départagées dans cet ordre).
+    private static long hitId(int segmentPosition, int docId) {
+        return ((long) segmentPosition << 32) | docId;
+    }
+
+    private static int segmentOf(long hitId) {
+        return (int) (hitId >>> 32);
+    }
+
+    private static int docIdOf(long hitId) {
+        return (int) hitId;
+    }
+
+    // Top-K par MaxScore, en parcourant les postings document par document (DAAT).
+    // Les termes sont triés par borne supérieure croissante : tant que la somme des bornes des premiers termes
+    // ne permet pas d'atteindre le score à battre (seuil, puis moins bon score du top-K), ces termes sont
+    // "non essentiels" : ils ne proposent pas de candidats et ne sont consultés que pour compléter le score
+    // d'un document tant que sa borne reste suffisante.
+    private int collectTopK(IndexSegment segment, int position, SegmentScorer terms, double similarityThreshold,
+                            TopKHeap topK) {
+        SearchIndex segmentIndex = segment.getIndex();
+        int termCount = terms.size;
+        int[] termIds = terms.termIds;
+
+        // Bornes cumulées et curseurs dans les listes de postings
+        double[] cumulativeBounds = new double[termCount];
+        int[] cursors = new int[termCount];
+        int[] ends = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            cumulativeBounds[i] = terms.upperBounds[i] + (i > 0 ? cumulativeBounds[i - 1] : 0.0);
+            cursors[i] = segmentIndex.postingStart(termIds[i]);
+            ends[i] = segmentIndex.postingEnd(termIds[i]);
+        }
+
+        int firstEssential = 0;
+        int scored = 0;
+        while (true) {
+            while (firstEssential < termCount && cannotEnter(cumulativeBounds[firstEssential], similarityThreshold, topK)) {
+                firstEssential++;
+            }
+            if (firstEssential == termCount) {
+                return scored;
+            }
+
+            // Prochain candidat : le plus petit document parmi les curseurs des termes essentiels
+            int docId = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < termCount; i++) {
+                if (cursors[i] < ends[i]) {
+                    docId = Math.min(docId, segmentIndex.postingDocId(cursors[i]));
+                }
+            }
+            if (docId == Integer.MAX_VALUE) {
+                return scored;
+            }
+
+            double dotProduct = 0.0;
+            for (int i = firstEssential; i < termCount; i++) {
+                if (cursors[i] < ends[i] && segmentIndex.postingDocId(cursors[i]) == docId) {
+                    dotProduct += terms.contribution(i, segmentIndex.postingWeight(cursors[i]), docId);
+                    cursors[i]++;
+                }
+            }
+            if (segment.isDeleted(docId)) {
+                continue;
+            }
+            scored++;
+
+            // Compléter avec les termes non essentiels, du plus prometteur au moins prometteur
+            double similarity = terms.finish(dotProduct, docId);
+            boolean pruned = false;
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (cannotEnter(similarity + cumulativeBounds[i], similarityThreshold, topK)) {
+                    pruned = true;
+                    break;
+                }
+                cursors[i] = segmentIndex.postingAdvance(cursors[i], ends[i], docId);
+                if (cursors[i] < ends[i] && segmentIndex.postingDocId(cursors[i]) == docId) {
+                    dotProduct += terms.contribution(i, segmentIndex.postingWeight(cursors[i]), docId);
+                    similarity = terms.finish(dotProduct, docId);
+                }
+            }
+
+            if (!pruned && similarity >= similarityThreshold) {
+                topK.offer(hitId(position, docId), similarity);
+            }
+        }
+    }
+
+    // Un document dont la similarité ne peut dépasser upperBound peut-il être écarté ?
+    // Les documents étant visités par identifiant croissant, une égalité avec le moins bon du top-K ne suffit pas.
+    // La marge relative couvre les écarts d'arrondi entre la borne et le score réellement calculé.
+    // Un tas de capacité nulle est plein et vide à la fois : aucun document ne peut y entrer.
+    private static boolean cannotEnter(double upperBound, double similarityThreshold, TopKHeap topK) {
+        double bound = upperBound * (1.0 + 1e-9);
+        return bound < similarityThreshold
+                || (topK.isFull() && (topK.size() == 0 || bound <= topK.minScore()));
+    }
+
+    // Parcours exhaustif (seuil <= 0) : contributions accumulées terme par terme sur les postings, puis tous les
+    // documents vivants du segment sont classés.
+    private int collectAll(IndexSegment segment, int position, SegmentScorer terms, double similarityThreshold,
+                           TopKHeap topK) {
+        SearchIndex segmentIndex = segment.getIndex();
+        ScoreAccumulator accumulator = ACCUMULATORS.get();
+        accumulator.reset(segmentIndex.getDocumentCount());
+        for (int t = 0; t < terms.size; t++) {
+            int termId = terms.termIds[t];
+            int end = segmentIndex.postingEnd(termId);
+            for (int i = segmentIndex.postingStart(termId); i < end; i++) {
+                int docId = segmentIndex.postingDocId(i);
+                accumulator.add(docId, terms.contribution(t, segmentIndex.postingWeight(i), docId));
+            }
+        }
+
+        for (int docId = 0; docId < segmentIndex.getDocumentCount(); docId++) {
+            if (segment.isDeleted(docId)) {
+                continue;
+            }
+            double similarity = terms.finish(accumulator.get(docId), docId);
+            if (similarity >= similarityThreshold) {
+                topK.offer(hitId(position, docId), similarity);
+            }
+        }
+        return segment.getLiveDocumentCount();
+    }
+
+    // Union des termes d'un groupe de requêtes présents dans un segment : pour chaque terme, les requêtes qui le
+    // contiennent (queries[queryStarts[t]..queryStarts[t + 1]), indices dans le groupe) et leurs poids, ramenés
+    // à l'IDF courant du corpus comme dans CosineScorer.
+
+    private static final class BatchTerms {
+        private final int[] termIds;
+        private final int[] queryStarts;
+        private final int[] queries;
+        private final double[] weights;
+
+        private BatchTerms(int[] termIds, int[] queryStarts, int[] queries, double[] weights) {
+            this.termIds = termIds;
+            this.queryStarts = queryStarts;
+            this.queries = queries;
+            this.weights = weights;
+        }
+
+        static BatchTerms of(List<Integer> batched, List<Map<String, Double>> queryTfIdfs, IndexSegment segment,
+                             SegmentedIndex index) {
+            Map<Integer, List<double[]>> postingsByTerm = new LinkedHashMap<>();
+            int pairs = 0;
+            for (int b = 0; b < batched.size(); b++) {
+                for (Map.Entry<String, Double> queryEntry : queryTfIdfs.get(batched.get(b)).entrySet()) {
+                    int termId = segment.getIndex().getTermId(queryEntry.getKey());
+                    if (termId < 0) {
+                        continue;
+                    }
+                    double weight = queryEntry.getValue()
+                            * segment.idfRatio(termId, index.currentIdf(queryEntry.getKey()));
+                    postingsByTerm.computeIfAbsent(termId, id -> new ArrayList<>()).add(new double[]{b, weight});
+                    pairs++;
+                }
+            }
+
+            int[] termIds = new int[postingsByTerm.size()];
+            int[] queryStarts = new int[termIds.length + 1];
+            int[] queries = new int[pairs];
+            double[] weights = new double[pairs];
+            int t = 0;
+            int i = 0;
+            for (Map.Entry<Integer, List<double[]>> termEntry : postingsByTerm.entrySet()) {
+                termIds[t] = termEntry.getKey();
+                queryStarts[t] = i;
+                for (double[] queryWeight : termEntry.getValue()) {
+                    queries[i] = (int) queryWeight[0];
+                    weights[i++] = queryWeight[1];
+                }
+                t++;
+            }
+            queryStarts[t] = i;
+            return new BatchTerms(termIds, queryStarts, queries, weights);
+        }
+    }
+
+    // Traite une requête utilisateur pour créer son vecteur TF-IDF.
+
+    public Map<String, Double> processQuery(String query) {
+        // 1. Stemming de la requête (même chaîne d'analyse et même cache mot -> racine que l'indexation)
+        long stemmingStart = System.nanoTime();
+        Map<String, Long> queryFreq = new HashMap<>();
+        analyzer.analyze(PositionalQuery.textOf(query), (word, stem) -> {
+            if (stem != null) {
+                queryFreq.merge(stem, 1L, Long::sum);
+            }
+        });
         
-        System.out.println("  -> Termes extraits de la requête: " + queryStems);
+        metrics.record(SearchMetrics.Stage.STEMMING, stemmingStart);
+        log.debug("  -> Termes extraits de la requête: {}", queryFreq.keySet());
         
-        if (queryStems.isEmpty()) {
+        if (queryFreq.isEmpty()) {
+            metrics.emptyQuery();
             return Collections.emptyMap();
         }
         
         // 2. Calculer TF pour la requête
-        Map<String, Long> queryFreq = queryStems.stream()
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-        
+        long vectorisationStart = System.nanoTime();
         Map<String, Double> queryTf = TfIdfUtils.computeTF(queryFreq);
         
-        // 3. Calculer TF-IDF pour la requête en utilisant l'IDF global
+        // 3. Calculer TF-IDF pour la requête en utilisant l'IDF global courant
         Map<String, Double> queryTfIdf = new LinkedHashMap<>();
-        for (Map.Entry<String, Double> entry : queryTf.entrySet()) {
-            String term = entry.getKey();
-            Double tfScore = entry.getValue();
-            Double idfScore = idfMap.getOrDefault(term, 0.0);
-            
-            // Si le terme n'existe pas dans le corpus, lui donner un IDF par défaut
-            if (idfScore == 0.0) {
-                // IDF pour un terme nouveau = log(N) où N est le nombre total de documents
-                idfScore = Math.log(tfidfMatrix.size()) + 1.0;
-            }
-            
-            queryTfIdf.put(term, tfScore * idfScore);
-        }
+        index.read(() -> {
+            for (Map.Entry<String, Double> entry : queryTf.entrySet()) {
+                String term = entry.getKey();
+                Double tfScore = entry.getValue();
+                Double idfScore = index.currentIdf(term);
+
+                // Si le terme n'existe pas dans le corpus, lui donner un IDF par défaut
+                if (idfScore == 0.0) {
+                    // IDF pour un terme nouveau = log(N) où N est le nombre total de documents
+                    idfScore = Math.log(index.getCorpusDocumentCount()) + 1.0;
+                }
+
+                queryTfIdf.put(term, tfScore * idfScore);
+            }
+            return null;
+        });
+        metrics.record(SearchMetrics.Stage.VECTORISATION, vectorisationStart);
         
         return queryTfIdf;
     }
     
-    // Calcule la similarité cosinus entre deux vecteurs TF-IDF.
-    private double computeCosineSimilarity(Map<String, Double> vector1, Map<String, Double> vector2) {
-        // Obtenir tous les termes communs
-        Set<String> commonTerms = new HashSet<>(vector1.keySet());
-        commonTerms.retainAll(vector2.keySet());
-        
-        if (commonTerms.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Calculer le produit scalaire
-        double dotProduct = 0.0;
-        for (String term : commonTerms) {
-            dotProduct += vector1.get(term) * vector2.get(term);
-        }
-        
-        // Calculer les normes
-        double norm1 = Math.sqrt(vector1.values().stream().mapToDouble(v -> v * v).sum());
-        double norm2 = Math.sqrt(vector2.values().stream().mapToDouble(v -> v * v).sum());
-        
-        if (norm1 == 0.0 || norm2 == 0.0) {
+    // Contraintes positionnelles d'une requête (phrases entre guillemets, NEAR/k), vide pour une requête simple.
+    public List<PositionalQuery.Constraint> processConstraints(String query) {
+        return PositionalQuery.parse(query, analyzer);
+    }
+
+    // Similarité cosinus à partir du produit scalaire creux et des normes précalculées des deux vecteurs TF-IDF.
+    private double computeCosineSimilarity(double dotProduct, double queryNorm, double documentNorm) {
+        if (dotProduct == 0.0 || queryNorm == 0.0 || documentNorm == 0.0) {
             return 0.0;
         }
-        
-        return dotProduct / (norm1 * norm2);
+        return dotProduct / (queryNorm * documentNorm);
     }
     
     // Trouve les termes correspondants entre la requête et un document.
 
-    private List<String> findMatchingTerms(Map<String, Double> queryTfIdf, Map<String, Double> docTfIdf) {
-        Set<String> commonTerms = new HashSet<>(queryTfIdf.keySet());
-        commonTerms.retainAll(docTfIdf.keySet());
-        return new ArrayList<>(commonTerms);
+    private List<String> findMatchingTerms(Map<String, Double> queryTfIdf, SearchIndex segmentIndex, int docId) {
+        List<String> commonTerms = new ArrayList<>();
+        for (String term : queryTfIdf.keySet()) {
+            int termId = segmentIndex.getTermId(term);
+            if (termId >= 0 && segmentIndex.containsTerm(docId, termId)) {
+                commonTerms.add(term);
+            }
+        }
+        return commonTerms;
     }
-    
-    // Valide si une racine (stem) est acceptable.
-    private boolean isValidStem(String stem) {
-        return stem != null &&
-                !stem.isBlank() &&
-                !stopWords.contains(stem) &&
-                !stem.matches("\\d+") &&
-                stem.length() > 1;
+
+    // Positions croissantes des termes correspondants dans le document, ou null si le segment n'a pas de positions.
+    private int[] findMatchPositions(List<String> matchingTerms, SearchIndex segmentIndex, int docId) {
+        if (!segmentIndex.hasPositions()) {
+            return null;
+        }
+        int[] matchPositions = new int[0];
+        for (String term : matchingTerms) {
+            int termId = segmentIndex.getTermId(term);
+            int end = segmentIndex.postingEnd(termId);
+            int index = segmentIndex.postingAdvance(segmentIndex.postingStart(termId), end, docId);
+            int[] termPositions = segmentIndex.postingPositions(index);
+            int length = matchPositions.length;
+            matchPositions = Arrays.copyOf(matchPositions, length + termPositions.length);
+            System.arraycopy(termPositions, 0, matchPositions, length, termPositions.length);
+        }
+        Arrays.sort(matchPositions);
+        return matchPositions;
     }
     
+    // Parcours d'un segment par une recherche : propose ses documents au tas et retourne le nombre de documents
+    // dont la similarité a été calculée.
+    @FunctionalInterface
+    private interface SegmentCollector {
+        int collect(IndexSegment segment, int position, double queryNorm, TopKHeap topK);
+    }
+
     // Classe pour représenter un résultat de recherche.
 
     @AllArgsConstructor
@@ -164,6 +706,15 @@ public class DocumentSearcher {
         private final String documentName;
         private final double similarityScore;
         private final List<String> matchingTerms;
+        // Positions des mots correspondants dans le document (null si l'index n'a pas de positions)
+        private final int[] matchPositions;
+        // Quasi-doublons repliés sous ce résultat (null si les doublons ne sont pas repliés)
+        private final List<String> duplicates;
+
+        // Même résultat, avec les quasi-doublons repliés sous lui (voir NearDuplicateIndex.collapse).
+        public DocumentSearchResult withDuplicates(List<String> duplicates) {
+            return new DocumentSearchResult(documentName, similarityScore, matchingTerms, matchPositions, duplicates);
+        }
 
         @Override
         public String toString() {
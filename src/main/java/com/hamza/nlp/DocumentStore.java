@@ -0,0 +1,737 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Magasin compressé du texte des documents, d'où sont tirés les extraits des résultats (voir SnippetGenerator).
+// Le texte UTF-8 de tous les documents est concaténé puis découpé en blocs de BLOCK_SIZE octets, compressés chacun
+// séparément (zlib) : lire un passage ne décompresse que le ou les blocs qui le contiennent, et seulement jusqu'à
+// la fin du passage. Pour retrouver un mot d'après sa position (son rang dans le document, comme dans
+// TermPositions) sans relire le document depuis le début, l'écriture enregistre l'offset d'un mot sur
+// CHECKPOINT_WORDS ; un passage est lu à partir du point de reprise qui le précède.
+//
+// Format (little-endian), projeté en mémoire comme l'instantané d'index :
+//   en-tête (HEADER_SIZE octets) : magic, version du format, empreinte du corpus, CRC32 de l'index, nombre de
+//   documents, nombre de blocs, longueur totale du texte, puis la position de début de chaque section ;
+//   blocs compressés, puis l'index (sections alignées sur 8 octets) : positions des blocs (long[blocs + 1]),
+//   début de chaque document dans le texte concaténé (long[documents + 1]), points de reprise : offsets
+//   (int[documents + 1]) et positions en octets relatives au document (int[points]), noms des documents triés
+//   par ordre des octets UTF-8 (recherche dichotomique dans le fichier projeté) : document de chaque rang
+//   (int[documents]), offsets (int[documents + 1]) et octets.
+// Seul l'index est couvert par le CRC32 de l'en-tête, vérifié à l'ouverture ; la somme Adler-32 d'un bloc n'est
+// vérifiée que lorsqu'il est décompressé jusqu'au bout.
+// Un magasin tient dans un seul tampon (projection mémoire ou tableau d'octets) : au-delà de MAX_SIZE octets
+// compressés, ou pour un document de plus de 2 Go de texte, l'écriture s'arrête sur TooLargeException.
+
+public final class DocumentStore {
+
+    static final int MAGIC = 0x53444654; // "TFDS"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 128;
+    static final int BLOCK_SIZE = 8 * 1024;
+    static final int CHECKPOINT_WORDS = 32;
+    static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    static final int SECTION_BLOCK_OFFSETS = 0;
+    static final int SECTION_DOCUMENT_STARTS = 1;
+    static final int SECTION_CHECKPOINT_OFFSETS = 2;
+    static final int SECTION_CHECKPOINTS = 3;
+    static final int SECTION_NAME_ORDER = 4;
+    static final int SECTION_NAME_OFFSETS = 5;
+    static final int SECTION_NAME_BYTES = 6;
+    static final int SECTION_END = 7;
+
+    static final int OFFSET_FINGERPRINT = 8;
+    static final int OFFSET_CHECKSUM = 16;
+    static final int OFFSET_DOCUMENT_COUNT = 24;
+    static final int OFFSET_BLOCK_COUNT = 28;
+    static final int OFFSET_TEXT_LENGTH = 32;
+    static final int OFFSET_SECTIONS = 40;
+
+    // Décompresseur et tampon de décompression de chaque thread, partagés par tous les magasins
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[]> BLOCKS = ThreadLocal.withInitial(() -> new byte[BLOCK_SIZE]);
+
+    private final ByteBuffer buffer;
+    private final int documentCount;
+    private final long textLength;
+    private final LongBuffer blockOffsets;
+    private final LongBuffer documentStarts;
+    private final IntBuffer checkpointOffsets;
+    private final IntBuffer checkpoints;
+    private final IntBuffer nameOrder;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer nameBytes;
+
+    // Coût des lectures : passages lus, octets décompressés et temps passé à décompresser
+    private final LongAdder passagesRead = new LongAdder();
+    private final LongAdder bytesDecompressed = new LongAdder();
+    private final LongAdder decompressionNanos = new LongAdder();
+
+    private DocumentStore(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.documentCount = buffer.getInt(OFFSET_DOCUMENT_COUNT);
+        this.textLength = buffer.getLong(OFFSET_TEXT_LENGTH);
+        this.blockOffsets = section(buffer, SECTION_BLOCK_OFFSETS).asLongBuffer();
+        this.documentStarts = section(buffer, SECTION_DOCUMENT_STARTS).asLongBuffer();
+        this.checkpointOffsets = section(buffer, SECTION_CHECKPOINT_OFFSETS).asIntBuffer();
+        this.checkpoints = section(buffer, SECTION_CHECKPOINTS).asIntBuffer();
+        this.nameOrder = section(buffer, SECTION_NAME_ORDER).asIntBuffer();
+        this.nameOffsets = section(buffer, SECTION_NAME_OFFSETS).asIntBuffer();
+        this.nameBytes = section(buffer, SECTION_NAME_BYTES);
+    }
+
+    // Projette un magasin en mémoire après avoir vérifié son en-tête, sa version, son empreinte et le CRC32 de son
+    // index. Lève InvalidStoreException si le magasin est absent, périmé ou corrompu.
+    public static DocumentStore open(Path path, long expectedFingerprint) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new InvalidStoreException(path, "taille de fichier invalide (" + channel.size() + " octets)");
+            }
+            if (channel.size() > MAX_SIZE) {
+                throw new InvalidStoreException(path, "trop volumineux pour une seule projection mémoire ("
+                        + channel.size() + " octets)");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (java.nio.file.NoSuchFileException e) {
+            throw new InvalidStoreException(path, "fichier absent");
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new InvalidStoreException(path, "ce fichier n'est pas un magasin de documents");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new InvalidStoreException(path, "version de format " + buffer.getInt(4)
+                    + " (attendue : " + FORMAT_VERSION + ")");
+        }
+        if (buffer.getLong(OFFSET_FINGERPRINT) != expectedFingerprint) {
+            throw new InvalidStoreException(path, "le corpus a changé depuis la construction du magasin");
+        }
+        long end = sectionOffset(buffer, SECTION_END);
+        if (end != buffer.capacity()) {
+            throw new InvalidStoreException(path, "fichier tronqué");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position((int) sectionOffset(buffer, SECTION_BLOCK_OFFSETS)).limit((int) end));
+        if (crc.getValue() != buffer.getLong(OFFSET_CHECKSUM)) {
+            throw new InvalidStoreException(path, "somme de contrôle invalide");
+        }
+        return new DocumentStore(buffer);
+    }
+
+    // Écrit le texte des documents du corpus dans un magasin sur disque, puis le projette en mémoire.
+    // Les fichiers sont relus un à un, par blocs : la mémoire d'écriture ne dépend pas de la taille des documents.
+    public static DocumentStore write(CorpusSource corpus, long corpusFingerprint, Path path) throws IOException {
+        Writer writer = Writer.toFile(path, corpusFingerprint);
+        for (CorpusSource.CorpusDocument document : corpus.getDocuments()) {
+            writer.addDocument(document.getName(), document.getPath());
+        }
+        writer.finish();
+        return open(path, corpusFingerprint);
+    }
+
+    // Idem, magasin compressé sur le tas (index construit en mémoire, sans instantané).
+    public static DocumentStore build(CorpusSource corpus) throws IOException {
+        Writer writer = Writer.inMemory();
+        for (CorpusSource.CorpusDocument document : corpus.getDocuments()) {
+            writer.addDocument(document.getName(), document.getPath());
+        }
+        return writer.finish();
+    }
+
+    // Magasin d'un seul document, sur le tas (documents ajoutés après le démarrage).
+    public static DocumentStore of(String name, String text) {
+        Writer writer = Writer.inMemory();
+        try {
+            writer.addDocument(name, text);
+            return writer.finish();
+        } catch (IOException e) {
+            throw new IllegalStateException("Écriture en mémoire du document " + name, e);
+        }
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    // Longueur du texte UTF-8 des documents, avant compression.
+    public long getTextLength() {
+        return textLength;
+    }
+
+    // Taille du magasin : blocs compressés et index.
+    public long getStoredLength() {
+        return buffer.capacity();
+    }
+
+    public long getPassagesRead() {
+        return passagesRead.sum();
+    }
+
+    public long getBytesDecompressed() {
+        return bytesDecompressed.sum();
+    }
+
+    public long getDecompressionNanos() {
+        return decompressionNanos.sum();
+    }
+
+    // Identifiant du document de ce nom dans le magasin, ou -1.
+    public int find(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = documentCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareName(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return nameOrder.get(middle);
+            }
+        }
+        return -1;
+    }
+
+    // Passage des mots de positions [fromWord, toWord) du document doc (bornées à ses mots), avec le texte qui
+    // les sépare ; null si le document n'a pas de mot à partir de fromWord.
+    public Passage passage(int doc, int fromWord, int toWord) throws IOException {
+        int firstCheckpoint = checkpointOffsets.get(doc);
+        int checkpointCount = checkpointOffsets.get(doc + 1) - firstCheckpoint;
+        int from = fromWord / CHECKPOINT_WORDS;
+        if (fromWord < 0 || from >= checkpointCount || toWord <= fromWord) {
+            return null;
+        }
+        long documentStart = documentStarts.get(doc);
+        long documentLength = documentStarts.get(doc + 1) - documentStart;
+        int to = (toWord - 1) / CHECKPOINT_WORDS + 1;
+        long byteFrom = checkpoints.get(firstCheckpoint + from);
+        long byteTo = to < checkpointCount ? checkpoints.get(firstCheckpoint + to) : documentLength;
+        String text = new String(read(documentStart + byteFrom, (int) (byteTo - byteFrom)), StandardCharsets.UTF_8);
+        passagesRead.increment();
+
+        // Mots du texte lu, numérotés à partir du point de reprise (même découpage que CachingStemmer.stemWords)
+        int[] wordStarts = new int[toWord - fromWord];
+        int[] wordEnds = new int[toWord - fromWord];
+        int wordCount = 0;
+        int word = from * CHECKPOINT_WORDS;
+        int start = -1;
+        int i = 0;
+        for (; i <= text.length() && word < toWord; i++) {
+            if (i < text.length() && CachingStemmer.isWordChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                if (word >= fromWord) {
+                    wordStarts[wordCount] = start;
+                    wordEnds[wordCount++] = i;
+                }
+                word++;
+                start = -1;
+            }
+        }
+        if (wordCount == 0) {
+            return null;
+        }
+        boolean documentEnd = byteTo == documentLength;
+        for (; documentEnd && i < text.length(); i++) {
+            documentEnd = !CachingStemmer.isWordChar(text.charAt(i));
+        }
+        return new Passage(text, fromWord, wordCount, wordStarts, wordEnds, fromWord == 0, documentEnd);
+    }
+
+    // Octets [from, from + length) du texte concaténé, décompressés bloc par bloc.
+    private byte[] read(long from, int length) throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = from + copied;
+            int block = (int) (position / BLOCK_SIZE);
+            int offset = (int) (position % BLOCK_SIZE);
+            int count = Math.min(length - copied, BLOCK_SIZE - offset);
+            inflate(block, offset + count);
+            System.arraycopy(BLOCKS.get(), offset, bytes, copied, count);
+            copied += count;
+        }
+        decompressionNanos.add(System.nanoTime() - start);
+        return bytes;
+    }
+
+    // Décompresse les length premiers octets du bloc dans le tampon du thread.
+    private void inflate(int block, int length) throws IOException {
+        Inflater inflater = INFLATERS.get();
+        byte[] output = BLOCKS.get();
+        inflater.reset();
+        inflater.setInput(buffer.duplicate()
+                .position((int) blockOffsets.get(block))
+                .limit((int) blockOffsets.get(block + 1)));
+        int produced = 0;
+        try {
+            while (produced < length) {
+                int inflated = inflater.inflate(output, produced, length - produced);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Bloc " + block + " du magasin de documents tronqué");
+                }
+                produced += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloc " + block + " du magasin de documents corrompu", e);
+        }
+        bytesDecompressed.add(produced);
+    }
+
+    // Compare le nom de rang rank à la clé, octet par octet (non signés).
+    private int compareName(int rank, byte[] key) {
+        int start = nameOffsets.get(rank);
+        int length = nameOffsets.get(rank + 1) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(nameBytes.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static long sectionOffset(ByteBuffer buffer, int section) {
+        return buffer.getLong(OFFSET_SECTIONS + section * Long.BYTES);
+    }
+
+    private static ByteBuffer section(ByteBuffer buffer, int section) {
+        int start = (int) sectionOffset(buffer, section);
+        int end = (int) sectionOffset(buffer, section + 1);
+        return buffer.duplicate().position(start).limit(end).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Passage d'un document : son texte (du début du premier mot à la fin du dernier) et les bornes de ses mots,
+    // de positions firstWord à firstWord + wordCount - 1 ; documentStart / documentEnd indiquent qu'aucun mot ne
+    // le précède / ne le suit dans le document.
+
+    @AllArgsConstructor
+    @Data
+    public static class Passage {
+        private final String text;
+        private final int firstWord;
+        private final int wordCount;
+        private final int[] wordStarts;
+        private final int[] wordEnds;
+        private final boolean documentStart;
+        private final boolean documentEnd;
+    }
+
+    // Écriture séquentielle d'un magasin : les documents sont ajoutés dans l'ordre, leur texte encodé en UTF-8
+    // dans le bloc courant, compressé dès qu'il est plein ; l'index et l'en-tête sont écrits par finish().
+
+    public static final class Writer {
+
+        private final Output output;
+        private final Path path;
+        private final Path temporary;
+        private final long corpusFingerprint;
+        private final long maxSize;
+
+        private final Deflater deflater = new Deflater();
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private byte[] compressed = new byte[BLOCK_SIZE + 1024];
+        private int blockLength;
+        private long position = HEADER_SIZE;
+        private long textLength;
+
+        private final List<String> names = new ArrayList<>();
+        private long[] blockOffsets = new long[16];
+        private int blockCount;
+        private long[] documentStarts = new long[16];
+        private int[] checkpointOffsets = new int[16];
+        private int[] checkpoints = new int[16];
+        private int checkpointCount;
+
+        // Document en cours : nombre de mots, dernier caractère dans un mot, moitié haute d'une paire de
+        // substitution en attente de sa moitié basse
+        private int wordCount;
+        private boolean inWord;
+        private char highSurrogate;
+
+        private Writer(Output output, Path path, Path temporary, long corpusFingerprint, long maxSize) {
+            this.output = output;
+            this.path = path;
+            this.temporary = temporary;
+            this.corpusFingerprint = corpusFingerprint;
+            this.maxSize = maxSize;
+        }
+
+        // Magasin écrit dans un fichier temporaire, renommé par finish() : un magasin partiellement écrit n'est
+        // jamais ouvert.
+        public static Writer toFile(Path path, long corpusFingerprint) throws IOException {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+            return new Writer(new FileOutput(channel), path, temporary, corpusFingerprint, MAX_SIZE);
+        }
+
+        public static Writer inMemory() {
+            return inMemory(MAX_SIZE);
+        }
+
+        // Taille maximale réduite, pour les tests.
+        static Writer inMemory(long maxSize) {
+            return new Writer(new HeapOutput(), null, null, 0L, maxSize);
+        }
+
+        // Ajoute un fichier du corpus, lu par blocs.
+        public void addDocument(String name, Path file) throws IOException {
+            startDocument(name);
+            char[] chunk = new char[8192];
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                int read;
+                while ((read = reader.read(chunk)) >= 0) {
+                    for (int i = 0; i < read; i++) {
+                        append(chunk[i]);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+            endDocument();
+        }
+
+        public void addDocument(String name, String text) throws IOException {
+            startDocument(name);
+            try {
+                for (int i = 0; i < text.length(); i++) {
+                    append(text.charAt(i));
+                }
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+            endDocument();
+        }
+
+        // Écrit l'index et l'en-tête ; retourne le magasin en mémoire (null pour un magasin écrit sur disque,
+        // à ouvrir avec open).
+        public DocumentStore finish() throws IOException {
+            try {
+                if (blockLength > 0) {
+                    flushBlock();
+                }
+                blockOffsets = add(blockOffsets, blockCount, position);
+                documentStarts = add(documentStarts, names.size(), textLength);
+                checkpointOffsets = add(checkpointOffsets, names.size(), checkpointCount);
+
+                // Noms triés par ordre des octets UTF-8 : le rang d'un nom donne son document
+                int documentCount = names.size();
+                byte[][] nameBytes = new byte[documentCount][];
+                Integer[] order = new Integer[documentCount];
+                int nameLength = 0;
+                for (int doc = 0; doc < documentCount; doc++) {
+                    nameBytes[doc] = names.get(doc).getBytes(StandardCharsets.UTF_8);
+                    nameLength += nameBytes[doc].length;
+                    order[doc] = doc;
+                }
+                Arrays.sort(order, Comparator.comparing(doc -> nameBytes[doc], Arrays::compareUnsigned));
+
+                long indexStart = align(position);
+                long[] sections = new long[SECTION_END + 1];
+                sections[SECTION_BLOCK_OFFSETS] = indexStart;
+                sections[SECTION_DOCUMENT_STARTS] = align(sections[SECTION_BLOCK_OFFSETS] + (blockCount + 1L) * Long.BYTES);
+                sections[SECTION_CHECKPOINT_OFFSETS] = align(sections[SECTION_DOCUMENT_STARTS] + (documentCount + 1L) * Long.BYTES);
+                sections[SECTION_CHECKPOINTS] = align(sections[SECTION_CHECKPOINT_OFFSETS] + (documentCount + 1L) * Integer.BYTES);
+                sections[SECTION_NAME_ORDER] = align(sections[SECTION_CHECKPOINTS] + (long) checkpointCount * Integer.BYTES);
+                sections[SECTION_NAME_OFFSETS] = align(sections[SECTION_NAME_ORDER] + (long) documentCount * Integer.BYTES);
+                sections[SECTION_NAME_BYTES] = align(sections[SECTION_NAME_OFFSETS] + (documentCount + 1L) * Integer.BYTES);
+                sections[SECTION_END] = align(sections[SECTION_NAME_BYTES] + nameLength);
+                if (sections[SECTION_END] > maxSize) {
+                    throw new TooLargeException(sections[SECTION_END] + " octets");
+                }
+
+                ByteBuffer index = ByteBuffer.allocate((int) (sections[SECTION_END] - indexStart))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                index.position((int) (sections[SECTION_BLOCK_OFFSETS] - indexStart));
+                for (int b = 0; b <= blockCount; b++) {
+                    index.putLong(blockOffsets[b]);
+                }
+                index.position((int) (sections[SECTION_DOCUMENT_STARTS] - indexStart));
+                for (int doc = 0; doc <= documentCount; doc++) {
+                    index.putLong(documentStarts[doc]);
+                }
+                index.position((int) (sections[SECTION_CHECKPOINT_OFFSETS] - indexStart));
+                for (int doc = 0; doc <= documentCount; doc++) {
+                    index.putInt(checkpointOffsets[doc]);
+                }
+                index.position((int) (sections[SECTION_CHECKPOINTS] - indexStart));
+                for (int i = 0; i < checkpointCount; i++) {
+                    index.putInt(checkpoints[i]);
+                }
+                index.position((int) (sections[SECTION_NAME_ORDER] - indexStart));
+                for (int doc : order) {
+                    index.putInt(doc);
+                }
+                index.position((int) (sections[SECTION_NAME_OFFSETS] - indexStart));
+                int offset = 0;
+                index.putInt(offset);
+                for (int doc : order) {
+                    offset += nameBytes[doc].length;
+                    index.putInt(offset);
+                }
+                index.position((int) (sections[SECTION_NAME_BYTES] - indexStart));
+                for (int doc : order) {
+                    index.put(nameBytes[doc]);
+                }
+                index.clear();
+                CRC32 crc = new CRC32();
+                crc.update(index.duplicate());
+                output.write(index, indexStart);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(corpusFingerprint)
+                        .putLong(crc.getValue())
+                        .putInt(documentCount)
+                        .putInt(blockCount)
+                        .putLong(textLength);
+                for (long section : sections) {
+                    header.putLong(section);
+                }
+                header.clear();
+                output.write(header, 0);
+                return output.close(path, temporary);
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void startDocument(String name) {
+            checkpointOffsets = add(checkpointOffsets, names.size(), checkpointCount);
+            documentStarts = add(documentStarts, names.size(), textLength);
+            names.add(name);
+            wordCount = 0;
+            inWord = false;
+            highSurrogate = 0;
+        }
+
+        private void endDocument() throws IOException {
+            if (highSurrogate != 0) {
+                putCodePoint(0xFFFD);
+                highSurrogate = 0;
+            }
+        }
+
+        // Encode un caractère ; le premier caractère d'un mot sur CHECKPOINT_WORDS devient un point de reprise.
+        // Les mots sont découpés comme par CachingStemmer.stemWords, pour que les positions des mots soient
+        // celles de l'index ; une moitié de paire de substitution isolée est remplacée par U+FFFD.
+        private void append(char c) throws IOException {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    putCodePoint(Character.toCodePoint(high, c));
+                    return;
+                }
+                putCodePoint(0xFFFD);
+            }
+            if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+                inWord = false;
+                return;
+            }
+            boolean word = CachingStemmer.isWordChar(c);
+            if (word && !inWord) {
+                if (wordCount % CHECKPOINT_WORDS == 0) {
+                    long offset = textLength - documentStarts[names.size() - 1];
+                    if (offset > Integer.MAX_VALUE) {
+                        throw new TooLargeException("document " + names.get(names.size() - 1) + " de plus de "
+                                + Integer.MAX_VALUE + " octets");
+                    }
+                    checkpoints = add(checkpoints, checkpointCount++, (int) offset);
+                }
+                wordCount++;
+            }
+            inWord = word;
+            putCodePoint(Character.isLowSurrogate(c) ? 0xFFFD : c);
+        }
+
+        private void putCodePoint(int codePoint) throws IOException {
+            if (codePoint < 0x80) {
+                putByte(codePoint);
+            } else if (codePoint < 0x800) {
+                putByte(0xC0 | (codePoint >> 6));
+                putByte(0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                putByte(0xE0 | (codePoint >> 12));
+                putByte(0x80 | ((codePoint >> 6) & 0x3F));
+                putByte(0x80 | (codePoint & 0x3F));
+            } else {
+                putByte(0xF0 | (codePoint >> 18));
+                putByte(0x80 | ((codePoint >> 12) & 0x3F));
+                putByte(0x80 | ((codePoint >> 6) & 0x3F));
+                putByte(0x80 | (codePoint & 0x3F));
+            }
+        }
+
+        private void putByte(int value) throws IOException {
+            block[blockLength++] = (byte) value;
+            textLength++;
+            if (blockLength == BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        // Compresse le bloc courant à la suite des précédents.
+        private void flushBlock() throws IOException {
+            deflater.reset();
+            deflater.setInput(block, 0, blockLength);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            if (position + length > maxSize) {
+                throw new TooLargeException("plus de " + maxSize + " octets compressés");
+            }
+            blockOffsets = add(blockOffsets, blockCount++, position);
+            output.write(ByteBuffer.wrap(compressed, 0, length), position);
+            position += length;
+            blockLength = 0;
+        }
+
+        private void abort() throws IOException {
+            deflater.end();
+            output.abort(temporary);
+        }
+
+        private static long align(long offset) {
+            return (offset + 7) & ~7L;
+        }
+
+        private static long[] add(long[] values, int size, long value) {
+            long[] grown = size < values.length ? values : Arrays.copyOf(values, values.length * 2);
+            grown[size] = value;
+            return grown;
+        }
+
+        private static int[] add(int[] values, int size, int value) {
+            int[] grown = size < values.length ? values : Arrays.copyOf(values, values.length * 2);
+            grown[size] = value;
+            return grown;
+        }
+    }
+
+    // Destination des octets d'un magasin en cours d'écriture, à des positions absolues.
+
+    private interface Output {
+        void write(ByteBuffer bytes, long position) throws IOException;
+
+        // Termine l'écriture ; retourne le magasin s'il est en mémoire.
+        DocumentStore close(Path path, Path temporary) throws IOException;
+
+        void abort(Path temporary) throws IOException;
+    }
+
+    private static final class FileOutput implements Output {
+
+        private final FileChannel channel;
+
+        FileOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(ByteBuffer bytes, long position) throws IOException {
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+        }
+
+        @Override
+        public DocumentStore close(Path path, Path temporary) throws IOException {
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return null;
+        }
+
+        @Override
+        public void abort(Path temporary) throws IOException {
+            channel.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static final class HeapOutput implements Output {
+
+        private byte[] bytes = new byte[HEADER_SIZE + 1024];
+        private int length;
+
+        @Override
+        public void write(ByteBuffer source, long position) {
+            int end = (int) position + source.remaining();
+            if (end > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(end, bytes.length * 2));
+            }
+            source.get(bytes, (int) position, source.remaining());
+            length = Math.max(length, end);
+        }
+
+        @Override
+        public DocumentStore close(Path path, Path temporary) {
+            return new DocumentStore(ByteBuffer.wrap(Arrays.copyOf(bytes, length)).order(ByteOrder.LITTLE_ENDIAN));
+        }
+
+        @Override
+        public void abort(Path temporary) {
+        }
+    }
+
+    // Magasin trop volumineux pour un seul tampon (voir MAX_SIZE) : les extraits ne peuvent pas en être tirés.
+    public static class TooLargeException extends IOException {
+        public TooLargeException(String size) {
+            super("Magasin de documents trop volumineux pour une seule projection mémoire (" + size
+                    + ") : découper le corpus en plusieurs index");
+        }
+    }
+
+    public static class InvalidStoreException extends IOException {
+        public InvalidStoreException(Path path, String reason) {
+            super("Magasin de documents " + path + " invalide : " + reason);
+        }
+    }
+}
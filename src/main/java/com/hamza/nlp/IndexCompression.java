@@ -0,0 +1,166 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Compression de l'index construit au démarrage (app.index.quantization, app.index.prune-ratio) : poids codés sur
+// 2 ou 1 octet et élagage statique des postings de plus faible poids de chaque document (voir
+// InvertedIndex.compress). L'instantané est écrit depuis l'index compressé et servi tel quel.
+// La compression est mesurée contre l'index exact : empreinte mémoire des deux index, puis pour des requêtes
+// d'échantillon (les termes de plus fort poids de documents tirés au hasard, graine fixe), le recouvrement des
+// top-K cosinus (overlap@K) et l'erreur relative sur le score des documents présents dans les deux top-K.
+
+public class IndexCompression {
+
+    private static final int SAMPLE_QUERIES = 200;
+    private static final int QUERY_TERMS = 3;
+    private static final int TOP_K = 10;
+
+    private final WeightQuantization quantization;
+    private final double pruneRatio;
+
+    public IndexCompression(WeightQuantization quantization, double pruneRatio) {
+        if (pruneRatio < 0.0 || pruneRatio >= 1.0) {
+            throw new IllegalArgumentException("Taux d'élagage invalide : " + pruneRatio + " (attendu : 0 <= r < 1)");
+        }
+        this.quantization = quantization;
+        this.pruneRatio = pruneRatio;
+    }
+
+    public WeightQuantization getQuantization() {
+        return quantization;
+    }
+
+    public double getPruneRatio() {
+        return pruneRatio;
+    }
+
+    // Poids exacts et aucun élagage : l'index construit est servi tel quel.
+    public boolean isEnabled() {
+        return quantization != WeightQuantization.FLOAT32 || pruneRatio > 0.0;
+    }
+
+    public InvertedIndex apply(InvertedIndex exact) {
+        return isEnabled() ? exact.compress(quantization, pruneRatio) : exact;
+    }
+
+    // Compare l'index compressé à l'index exact dont il est issu.
+    public Report evaluate(InvertedIndex exact, InvertedIndex compressed) {
+        long start = System.nanoTime();
+        DocumentSearcher exactSearcher = searcher(exact);
+        DocumentSearcher compressedSearcher = searcher(compressed);
+
+        double overlap = 0.0;
+        double scoreError = 0.0;
+        double maxScoreError = 0.0;
+        int comparedScores = 0;
+        int queries = 0;
+        // Seuil strictement positif : seuls les documents qui partagent un terme avec la requête sont comparés
+        // (un seuil nul compléterait le top-K de documents de score nul, sans erreur relative définie)
+        for (Map<String, Double> query : sampleQueries(exact)) {
+            List<DocumentSearcher.DocumentSearchResult> expected =
+                    exactSearcher.searchDocuments(query, Double.MIN_VALUE, TOP_K);
+            if (expected.isEmpty()) {
+                continue;
+            }
+            Map<String, Double> expectedScores = new HashMap<>();
+            expected.forEach(result -> expectedScores.put(result.getDocumentName(), result.getSimilarityScore()));
+            int found = 0;
+            for (DocumentSearcher.DocumentSearchResult result
+                    : compressedSearcher.searchDocuments(query, Double.MIN_VALUE, TOP_K)) {
+                Double expectedScore = expectedScores.get(result.getDocumentName());
+                if (expectedScore != null) {
+                    found++;
+                    if (expectedScore == 0.0) {
+                        continue;
+                    }
+                    double error = Math.abs(result.getSimilarityScore() - expectedScore) / expectedScore;
+                    scoreError += error;
+                    maxScoreError = Math.max(maxScoreError, error);
+                    comparedScores++;
+                }
+            }
+            overlap += (double) found / expected.size();
+            queries++;
+        }
+
+        long exactBytes = exact.estimateArraysBytes();
+        long compressedBytes = compressed.estimateArraysBytes();
+        long exactPostings = 0;
+        long keptPostings = 0;
+        for (int termId = 0; termId < exact.getTermCount(); termId++) {
+            exactPostings += exact.postingEnd(termId) - exact.postingStart(termId);
+            keptPostings += compressed.postingEnd(termId) - compressed.postingStart(termId);
+        }
+        return new Report(quantization.name(), pruneRatio, exactBytes, compressedBytes,
+                compressedBytes > 0 ? (double) exactBytes / compressedBytes : 0.0, exactPostings, keptPostings,
+                queries, TOP_K, queries > 0 ? overlap / queries : 1.0,
+                comparedScores > 0 ? scoreError / comparedScores : 0.0, maxScoreError,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Chercheur mono-segment sans chaîne d'analyse : les requêtes sont des vecteurs déjà analysés.
+    private static DocumentSearcher searcher(InvertedIndex index) {
+        return new DocumentSearcher(new SegmentedIndex(index, 1, 10, 0.1), null, null, SearchMetrics.disabled());
+    }
+
+    // Requêtes de QUERY_TERMS termes distincts (tf = 1, poids = IDF) : les termes de plus fort poids de documents
+    // tirés au hasard dans l'index exact.
+    private static List<Map<String, Double>> sampleQueries(InvertedIndex exact) {
+        Random random = new Random(42L);
+        List<Map<String, Double>> queries = new ArrayList<>();
+        int documents = exact.getDocumentCount();
+        for (int q = 0; q < SAMPLE_QUERIES && documents > 0; q++) {
+            int docId = random.nextInt(documents);
+            Set<Integer> terms = new HashSet<>();
+            while (terms.size() < QUERY_TERMS) {
+                int best = -1;
+                for (int i = exact.documentTermStart(docId); i < exact.documentTermEnd(docId); i++) {
+                    int termId = exact.documentTermId(i);
+                    if (!terms.contains(termId)
+                            && (best < 0 || exact.documentTermWeight(i) > exact.documentTermWeight(best))) {
+                        best = i;
+                    }
+                }
+                if (best < 0) {
+                    break;
+                }
+                terms.add(exact.documentTermId(best));
+            }
+            Map<String, Double> query = new HashMap<>();
+            for (int termId : terms) {
+                query.put(exact.getTerm(termId), exact.getIdf(termId));
+            }
+            if (!query.isEmpty()) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    @AllArgsConstructor
+    @Data
+    public static class Report {
+        private final String quantization;
+        private final double pruneRatio;
+        private final long exactBytes;
+        private final long compressedBytes;
+        private final double memoryRatio;
+        private final long exactPostings;
+        private final long keptPostings;
+        private final int queries;
+        private final int k;
+        private final double overlapAtK;
+        private final double meanScoreError;
+        private final double maxScoreError;
+        private final long evaluationMillis;
+    }
+}
@@ -0,0 +1,142 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+
+import java.util.BitSet;
+import java.util.function.ToDoubleFunction;
+
+// Segment d'un SegmentedIndex : un SearchIndex immuable, ses documents supprimés (tombstones) et, après un
+// rafraîchissement, ses normes et impacts maximaux recalculés avec l'IDF courant du corpus.
+// Les poids des postings ne sont jamais réécrits : ils restent pondérés par l'IDF du segment (celui du corpus au
+// moment de sa construction), et le chercheur les corrige au moment de la requête par le rapport IDF courant / IDF
+// du segment. Les mutations se font sous le verrou d'écriture du SegmentedIndex.
+
+final class IndexSegment {
+
+    private final SearchIndex index;
+    private final boolean baseShard;
+    private final BitSet deletedDocuments = new BitSet();
+    private int liveDocumentCount;
+    private double[] documentNorms;
+    private double[] maxImpacts;
+    private volatile LengthFactors lengthFactors;
+
+    IndexSegment(SearchIndex index, boolean baseShard) {
+        this.index = index;
+        this.baseShard = baseShard;
+        this.liveDocumentCount = index.getDocumentCount();
+    }
+
+    SearchIndex getIndex() {
+        return index;
+    }
+
+    // Shard de l'index chargé au démarrage (jamais fusionné) plutôt que segment issu des modifications.
+    boolean isBaseShard() {
+        return baseShard;
+    }
+
+    int getLiveDocumentCount() {
+        return liveDocumentCount;
+    }
+
+    boolean isDeleted(int docId) {
+        return deletedDocuments.get(docId);
+    }
+
+    void delete(int docId) {
+        if (!deletedDocuments.get(docId)) {
+            deletedDocuments.set(docId);
+            liveDocumentCount--;
+        }
+    }
+
+    double getDocumentNorm(int docId) {
+        return documentNorms != null ? documentNorms[docId] : index.getDocumentNorm(docId);
+    }
+
+    // Borne de max(poids / norme) sur les documents du segment, cohérente avec getDocumentNorm.
+    double getMaxImpact(int termId) {
+        return maxImpacts != null ? maxImpacts[termId] : index.getMaxImpact(termId);
+    }
+
+    // Facteurs de longueur de BM25 des documents, k1 x (1 - b + b x longueur / longueur moyenne) / longueur
+    // (voir Bm25Scorer), recalculés seulement quand les paramètres ou la longueur moyenne du corpus changent.
+    // Deux recherches concurrentes peuvent les calculer ensemble : le résultat est le même.
+    double[] lengthFactors(double k1, double b, double averageLength) {
+        LengthFactors cached = lengthFactors;
+        if (cached == null || cached.k1 != k1 || cached.b != b || cached.averageLength != averageLength) {
+            double[] factors = new double[index.getDocumentCount()];
+            for (int docId = 0; docId < factors.length; docId++) {
+                int length = index.getDocumentLength(docId);
+                if (length > 0) {
+                    factors[docId] = k1 * (1.0 - b + b * length / averageLength) / length;
+                }
+            }
+            cached = new LengthFactors(k1, b, averageLength, factors);
+            lengthFactors = cached;
+        }
+        return cached.factors;
+    }
+
+    // Rapport entre l'IDF courant d'un terme et l'IDF avec lequel le segment a pondéré ses postings.
+    double idfRatio(int termId, double currentIdf) {
+        double segmentIdf = index.getIdf(termId);
+        return segmentIdf != 0.0 ? currentIdf / segmentIdf : 0.0;
+    }
+
+    // Recalcule les normes des documents vivants avec l'IDF courant, puis les impacts maximaux correspondants.
+    // Les poids élagués d'un index compressé n'ont plus de terme : leur reste de norme est compté tel quel.
+    // Le calcul ne modifie pas le segment (il peut s'exécuter en parallèle des recherches) ; voir apply.
+    Refresh computeRefresh(ToDoubleFunction<String> currentIdf) {
+        double[] ratios = new double[index.getTermCount()];
+        for (int termId = 0; termId < ratios.length; termId++) {
+            ratios[termId] = idfRatio(termId, currentIdf.applyAsDouble(index.getTerm(termId)));
+        }
+
+        double[] norms = new double[index.getDocumentCount()];
+        for (int docId = 0; docId < norms.length; docId++) {
+            if (deletedDocuments.get(docId)) {
+                continue;
+            }
+            double residual = index.getResidualNorm(docId);
+            double sumOfSquares = residual * residual;
+            for (int i = index.documentTermStart(docId); i < index.documentTermEnd(docId); i++) {
+                double weight = index.documentTermWeight(i) * ratios[index.documentTermId(i)];
+                sumOfSquares += weight * weight;
+            }
+            norms[docId] = Math.sqrt(sumOfSquares);
+        }
+
+        double[] impacts = new double[ratios.length];
+        for (int termId = 0; termId < impacts.length; termId++) {
+            int end = index.postingEnd(termId);
+            for (int i = index.postingStart(termId); i < end; i++) {
+                double norm = norms[index.postingDocId(i)];
+                if (norm > 0.0) {
+                    impacts[termId] = Math.max(impacts[termId], index.postingWeight(i) / norm);
+                }
+            }
+        }
+        return new Refresh(norms, impacts);
+    }
+
+    void apply(Refresh refresh) {
+        this.documentNorms = refresh.documentNorms;
+        this.maxImpacts = refresh.maxImpacts;
+    }
+
+    @AllArgsConstructor
+    private static final class LengthFactors {
+        private final double k1;
+        private final double b;
+        private final double averageLength;
+        private final double[] factors;
+    }
+
+    @AllArgsConstructor
+    static final class Refresh {
+        private final double[] documentNorms;
+        private final double[] maxImpacts;
+    }
+}
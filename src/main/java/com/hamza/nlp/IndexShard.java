@@ -0,0 +1,192 @@
+package com.hamza.nlp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shard d'un index : la tranche de documents [firstDocId, endDocId), vue comme un index à part entière.
+// Les postings de chaque terme sont restreints à la tranche par recherche dichotomique dans les postings triés,
+// une seule fois à la découpe (bornes par terme et par shard, partagées entre shards voisins), et les documents
+// sont renumérotés à partir de 0. Le dictionnaire et l'IDF restent ceux de l'index complet :
+// tous les shards partagent l'IDF global, et un même document obtient le même score qu'il soit servi par un
+// shard ou par l'index complet. L'impact maximal d'un terme est celui de l'index complet, une borne valable
+// (mais moins serrée) pour chaque tranche.
+
+final class IndexShard implements SearchIndex {
+
+    private final SearchIndex index;
+    private final int firstDocId;
+    private final int endDocId;
+    // Postings du terme dans la tranche : [starts[termId], ends[termId]) dans les postings de l'index complet
+    private final int[] starts;
+    private final int[] ends;
+
+    private IndexShard(SearchIndex index, int firstDocId, int endDocId, int[] starts, int[] ends) {
+        this.index = index;
+        this.firstDocId = firstDocId;
+        this.endDocId = endDocId;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    // Découpe l'index en shards de tailles égales (à un document près), dans l'ordre des documents.
+    static List<SearchIndex> split(SearchIndex index, int shardCount) {
+        int documentCount = index.getDocumentCount();
+        int shards = Math.max(1, Math.min(shardCount, documentCount));
+        if (shards == 1) {
+            return List.of(index);
+        }
+        int[] firstDocIds = new int[shards + 1];
+        for (int shard = 0; shard <= shards; shard++) {
+            firstDocIds[shard] = (int) ((long) documentCount * shard / shards);
+        }
+        // bounds[shard][termId] : premier posting du terme dans le shard (bounds[shards] = fin des postings)
+        int termCount = index.getTermCount();
+        int[][] bounds = new int[shards + 1][termCount];
+        for (int termId = 0; termId < termCount; termId++) {
+            int posting = index.postingStart(termId);
+            int end = index.postingEnd(termId);
+            bounds[0][termId] = posting;
+            for (int shard = 1; shard < shards; shard++) {
+                posting = index.postingAdvance(posting, end, firstDocIds[shard]);
+                bounds[shard][termId] = posting;
+            }
+            bounds[shards][termId] = end;
+        }
+        List<SearchIndex> result = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            result.add(new IndexShard(index, firstDocIds[shard], firstDocIds[shard + 1], bounds[shard],
+                    bounds[shard + 1]));
+        }
+        return result;
+    }
+
+    @Override
+    public long getGeneration() {
+        return index.getGeneration();
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return endDocId - firstDocId;
+    }
+
+    @Override
+    public String getDocumentName(int docId) {
+        return index.getDocumentName(firstDocId + docId);
+    }
+
+    @Override
+    public double getDocumentNorm(int docId) {
+        return index.getDocumentNorm(firstDocId + docId);
+    }
+
+    @Override
+    public double getResidualNorm(int docId) {
+        return index.getResidualNorm(firstDocId + docId);
+    }
+
+    @Override
+    public int getDocumentLength(int docId) {
+        return index.getDocumentLength(firstDocId + docId);
+    }
+
+    @Override
+    public int getTermCount() {
+        return index.getTermCount();
+    }
+
+    @Override
+    public int getTermId(String term) {
+        return index.getTermId(term);
+    }
+
+    @Override
+    public String getTerm(int termId) {
+        return index.getTerm(termId);
+    }
+
+    @Override
+    public String getSurfaceForm(int termId) {
+        return index.getSurfaceForm(termId);
+    }
+
+    @Override
+    public double getIdf(int termId) {
+        return index.getIdf(termId);
+    }
+
+    @Override
+    public double getMaxImpact(int termId) {
+        return index.getMaxImpact(termId);
+    }
+
+    @Override
+    public int postingStart(int termId) {
+        return starts[termId];
+    }
+
+    @Override
+    public int postingEnd(int termId) {
+        return ends[termId];
+    }
+
+    @Override
+    public int postingDocId(int index) {
+        return this.index.postingDocId(index) - firstDocId;
+    }
+
+    @Override
+    public float postingWeight(int index) {
+        return this.index.postingWeight(index);
+    }
+
+    @Override
+    public int postingAdvance(int index, int end, int docId) {
+        return this.index.postingAdvance(index, end, firstDocId + docId);
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return index.hasPositions();
+    }
+
+    @Override
+    public int[] postingPositions(int index) {
+        return this.index.postingPositions(index);
+    }
+
+    @Override
+    public int documentTermStart(int docId) {
+        return index.documentTermStart(firstDocId + docId);
+    }
+
+    @Override
+    public int documentTermEnd(int docId) {
+        return index.documentTermEnd(firstDocId + docId);
+    }
+
+    @Override
+    public int documentTermId(int index) {
+        return this.index.documentTermId(index);
+    }
+
+    @Override
+    public float documentTermWeight(int index) {
+        return this.index.documentTermWeight(index);
+    }
+
+    @Override
+    public WeightQuantization getQuantization() {
+        return index.getQuantization();
+    }
+
+    @Override
+    public double getPruneRatio() {
+        return index.getPruneRatio();
+    }
+
+    @Override
+    public boolean containsTerm(int docId, int termId) {
+        return index.containsTerm(firstDocId + docId, termId);
+    }
+}
@@ -0,0 +1,403 @@
+package com.hamza.nlp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Format binaire de l'instantané d'index, écrit par une construction hors ligne et relu par MappedIndex.
+//
+// En-tête (HEADER_SIZE octets, little-endian) :
+//   magic, version du format, empreinte du corpus, CRC32 du corps, nombre de documents, nombre de termes,
+//   nombre de postings, codage des poids (rang dans WeightQuantization), taux d'élagage, puis la position de début
+//   de chaque section (et la fin du fichier).
+// Corps (sections alignées sur 8 octets) :
+//   IDF (double[termes]), impacts maximaux (double[termes]), normes (double[documents]),
+//   offsets des postings (int[termes + 1]), documents des postings (int[postings]), poids (float, demi-flottant
+//   ou octet par posting selon le codage),
+//   dictionnaire : offsets (int[termes + 1]) et octets UTF-8 des termes triés par ordre des octets,
+//   noms des documents : offsets (int[documents + 1]) et octets UTF-8,
+//   lignes des documents : offsets (int[documents + 1]), termes (int[postings]) et poids (codés de même),
+//   formes de surface : offsets (int[termes + 1]) et octets UTF-8 (vide lorsque la forme est la racine),
+//   positions des postings : offsets (int[postings + 1]) et octets (voir PositionIndex), vides si l'index n'est
+//   pas positionnel,
+//   longueurs des documents (int[documents]),
+//   fréquences documentaires (int[termes]) et normes des poids élagués (float[documents], vide sans élagage).
+// Dans l'instantané, l'identifiant d'un terme est son rang dans l'ordre trié, ce qui permet une recherche
+// dichotomique directement dans le fichier projeté.
+// Version 2 : ajout des lignes des documents, nécessaires aux mises à jour incrémentales (SegmentedIndex).
+// Version 3 : ajout des formes de surface des termes, affichées par l'autocomplétion (TermSuggester).
+// Version 4 : ajout des positions des postings (requêtes de phrase et de proximité).
+// Version 5 : ajout des longueurs des documents (score BM25).
+// Version 6 : poids codés sur 2 ou 1 octet et postings élagués (IndexCompression), fréquences documentaires.
+
+public final class IndexSnapshot {
+
+    static final int MAGIC = 0x58494654; // "TFIX"
+    static final int FORMAT_VERSION = 6;
+    static final int HEADER_SIZE = 256;
+
+    static final int SECTION_IDF = 0;
+    static final int SECTION_MAX_IMPACTS = 1;
+    static final int SECTION_NORMS = 2;
+    static final int SECTION_POSTING_OFFSETS = 3;
+    static final int SECTION_POSTING_DOCS = 4;
+    static final int SECTION_POSTING_WEIGHTS = 5;
+    static final int SECTION_TERM_OFFSETS = 6;
+    static final int SECTION_TERM_BYTES = 7;
+    static final int SECTION_NAME_OFFSETS = 8;
+    static final int SECTION_NAME_BYTES = 9;
+    static final int SECTION_ROW_OFFSETS = 10;
+    static final int SECTION_ROW_TERMS = 11;
+    static final int SECTION_ROW_WEIGHTS = 12;
+    static final int SECTION_FORM_OFFSETS = 13;
+    static final int SECTION_FORM_BYTES = 14;
+    static final int SECTION_POSITION_OFFSETS = 15;
+    static final int SECTION_POSITION_BYTES = 16;
+    static final int SECTION_DOCUMENT_LENGTHS = 17;
+    static final int SECTION_DOCUMENT_FREQUENCIES = 18;
+    static final int SECTION_RESIDUAL_NORMS = 19;
+    static final int SECTION_END = 20;
+
+    static final int OFFSET_FINGERPRINT = 8;
+    static final int OFFSET_CHECKSUM = 16;
+    static final int OFFSET_DOCUMENT_COUNT = 24;
+    static final int OFFSET_TERM_COUNT = 28;
+    static final int OFFSET_POSTING_COUNT = 32;
+    static final int OFFSET_QUANTIZATION = 40;
+    static final int OFFSET_PRUNE_RATIO = 48;
+    static final int OFFSET_SECTIONS = 56;
+
+    // Taille maximale d'un instantané : MappedIndex le projette en un seul MappedByteBuffer, indexé par un int.
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private IndexSnapshot() {
+    }
+
+    // Écrit l'index dans un fichier temporaire puis le renomme : un instantané partiellement écrit n'est jamais ouvert.
+    public static void write(SearchIndex index, long corpusFingerprint, Path path) throws IOException {
+        int termCount = index.getTermCount();
+        int documentCount = index.getDocumentCount();
+        WeightQuantization quantization = index.getQuantization();
+
+        // Termes triés par ordre des octets UTF-8 : leur rang devient leur identifiant dans l'instantané
+        byte[][] termBytes = new byte[termCount][];
+        Integer[] order = new Integer[termCount];
+        for (int termId = 0; termId < termCount; termId++) {
+            termBytes[termId] = index.getTerm(termId).getBytes(StandardCharsets.UTF_8);
+            order[termId] = termId;
+        }
+        Arrays.sort(order, Comparator.comparing(termId -> termBytes[termId], Arrays::compareUnsigned));
+        int[] rank = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            rank[order[i]] = i;
+        }
+
+        long postingCount = 0;
+        for (int termId = 0; termId < termCount; termId++) {
+            postingCount += index.postingEnd(termId) - index.postingStart(termId);
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            SectionWriter out = new SectionWriter(channel);
+            long[] sections = new long[SECTION_END + 1];
+
+            sections[SECTION_IDF] = out.align();
+            for (int termId : order) {
+                out.putDouble(index.getIdf(termId));
+            }
+            sections[SECTION_MAX_IMPACTS] = out.align();
+            for (int termId : order) {
+                out.putDouble(index.getMaxImpact(termId));
+            }
+            sections[SECTION_NORMS] = out.align();
+            for (int docId = 0; docId < documentCount; docId++) {
+                out.putDouble(index.getDocumentNorm(docId));
+            }
+
+            sections[SECTION_POSTING_OFFSETS] = out.align();
+            int offset = 0;
+            out.putInt(offset);
+            for (int termId : order) {
+                offset += index.postingEnd(termId) - index.postingStart(termId);
+                out.putInt(offset);
+            }
+            sections[SECTION_POSTING_DOCS] = out.align();
+            for (int termId : order) {
+                for (int i = index.postingStart(termId); i < index.postingEnd(termId); i++) {
+                    out.putInt(index.postingDocId(i));
+                }
+            }
+            sections[SECTION_POSTING_WEIGHTS] = out.align();
+            for (int termId : order) {
+                for (int i = index.postingStart(termId); i < index.postingEnd(termId); i++) {
+                    out.putWeight(index.postingWeight(i), quantization);
+                }
+            }
+
+            sections[SECTION_TERM_OFFSETS] = out.align();
+            offset = 0;
+            out.putInt(offset);
+            for (int termId : order) {
+                offset += termBytes[termId].length;
+                out.putInt(offset);
+            }
+            sections[SECTION_TERM_BYTES] = out.align();
+            for (int termId : order) {
+                out.putBytes(termBytes[termId]);
+            }
+
+            byte[][] nameBytes = new byte[documentCount][];
+            for (int docId = 0; docId < documentCount; docId++) {
+                nameBytes[docId] = index.getDocumentName(docId).getBytes(StandardCharsets.UTF_8);
+            }
+            sections[SECTION_NAME_OFFSETS] = out.align();
+            offset = 0;
+            out.putInt(offset);
+            for (byte[] name : nameBytes) {
+                offset += name.length;
+                out.putInt(offset);
+            }
+            sections[SECTION_NAME_BYTES] = out.align();
+            for (byte[] name : nameBytes) {
+                out.putBytes(name);
+            }
+
+            sections[SECTION_ROW_OFFSETS] = out.align();
+            offset = 0;
+            out.putInt(offset);
+            for (int docId = 0; docId < documentCount; docId++) {
+                offset += index.documentTermEnd(docId) - index.documentTermStart(docId);
+                out.putInt(offset);
+            }
+            sections[SECTION_ROW_TERMS] = out.align();
+            for (int docId = 0; docId < documentCount; docId++) {
+                for (int i = index.documentTermStart(docId); i < index.documentTermEnd(docId); i++) {
+                    out.putInt(rank[index.documentTermId(i)]);
+                }
+            }
+            sections[SECTION_ROW_WEIGHTS] = out.align();
+            for (int docId = 0; docId < documentCount; docId++) {
+                for (int i = index.documentTermStart(docId); i < index.documentTermEnd(docId); i++) {
+                    out.putWeight(index.documentTermWeight(i), quantization);
+                }
+            }
+
+            byte[][] formBytes = new byte[termCount][];
+            for (int termId = 0; termId < termCount; termId++) {
+                String form = index.getSurfaceForm(termId);
+                formBytes[termId] = form.equals(index.getTerm(termId))
+                        ? new byte[0] : form.getBytes(StandardCharsets.UTF_8);
+            }
+            sections[SECTION_FORM_OFFSETS] = out.align();
+            offset = 0;
+            out.putInt(offset);
+            for (int termId : order) {
+                offset += formBytes[termId].length;
+                out.putInt(offset);
+            }
+            sections[SECTION_FORM_BYTES] = out.align();
+            for (int termId : order) {
+                out.putBytes(formBytes[termId]);
+            }
+
+            // Positions recodées posting par posting, dans l'ordre des termes de l'instantané
+            boolean positional = index.hasPositions();
+            sections[SECTION_POSITION_OFFSETS] = out.align();
+            byte[] encoded = new byte[64];
+            offset = 0;
+            out.putInt(offset);
+            for (int termId : order) {
+                for (int i = index.postingStart(termId); i < index.postingEnd(termId); i++) {
+                    if (positional) {
+                        int[] positions = index.postingPositions(i);
+                        encoded = ensureCapacity(encoded, 5 * positions.length);
+                        offset += PositionIndex.encode(positions, encoded, 0);
+                    }
+                    out.putInt(offset);
+                }
+            }
+            sections[SECTION_POSITION_BYTES] = out.align();
+            if (positional) {
+                for (int termId : order) {
+                    for (int i = index.postingStart(termId); i < index.postingEnd(termId); i++) {
+                        int[] positions = index.postingPositions(i);
+                        encoded = ensureCapacity(encoded, 5 * positions.length);
+                        out.putBytes(Arrays.copyOf(encoded, PositionIndex.encode(positions, encoded, 0)));
+                    }
+                }
+            }
+            sections[SECTION_DOCUMENT_LENGTHS] = out.align();
+            for (int docId = 0; docId < documentCount; docId++) {
+                out.putInt(index.getDocumentLength(docId));
+            }
+            sections[SECTION_DOCUMENT_FREQUENCIES] = out.align();
+            for (int termId : order) {
+                out.putInt(index.getDocumentFrequency(termId));
+            }
+            sections[SECTION_RESIDUAL_NORMS] = out.align();
+            if (index.getPruneRatio() > 0.0) {
+                for (int docId = 0; docId < documentCount; docId++) {
+                    out.putFloat((float) index.getResidualNorm(docId));
+                }
+            }
+            sections[SECTION_END] = out.align();
+            out.flush();
+
+            if (sections[SECTION_END] > MAX_SIZE) {
+                throw new TooLargeException(sections[SECTION_END]);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(corpusFingerprint)
+                    .putLong(out.checksum())
+                    .putInt(documentCount)
+                    .putInt(termCount)
+                    .putLong(postingCount)
+                    .putInt(quantization.ordinal())
+                    .putInt(0)
+                    .putDouble(index.getPruneRatio());
+            for (long section : sections) {
+                header.putLong(section);
+            }
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int capacity) {
+        return buffer.length >= capacity ? buffer : new byte[Math.max(capacity, buffer.length * 2)];
+    }
+
+    // Empreinte du corpus source (chemins, tailles et dates de modification des fichiers) et de la chaîne d'analyse
+    // qui l'a indexé (noms des filtres, voir TextAnalyzer) : un instantané dont l'empreinte diffère est périmé et
+    // doit être reconstruit.
+    public static long fingerprint(List<Path> sourceFiles, String analysis) throws IOException {
+        long hash = 1125899906842597L;
+        for (Path file : sourceFiles) {
+            hash = mix(hash, file.toAbsolutePath().normalize().toString().hashCode());
+            hash = mix(hash, Files.size(file));
+            hash = mix(hash, Files.getLastModifiedTime(file).toMillis());
+        }
+        hash = mix(hash, analysis.hashCode());
+        return mix(hash, FORMAT_VERSION);
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 31);
+    }
+
+    // Écriture séquentielle par blocs dans le canal (à partir de HEADER_SIZE), avec calcul du CRC32 du corps.
+
+    private static class SectionWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long position = HEADER_SIZE;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long align() throws IOException {
+            while (position % 8 != 0) {
+                putByte((byte) 0);
+            }
+            return position;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            position += Integer.BYTES;
+        }
+
+        void putFloat(float value) throws IOException {
+            ensure(Float.BYTES);
+            buffer.putFloat(value);
+            position += Float.BYTES;
+        }
+
+        // Poids codé selon la quantification de l'index (voir WeightQuantization).
+        void putWeight(float weight, WeightQuantization quantization) throws IOException {
+            switch (quantization) {
+                case FLOAT16 -> putShort(WeightQuantization.toHalf(weight));
+                case INT8 -> putByte(WeightQuantization.toCode(weight));
+                case FLOAT32 -> putFloat(weight);
+            }
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(Short.BYTES);
+            buffer.putShort(value);
+            position += Short.BYTES;
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+            position += Double.BYTES;
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                putByte(b);
+            }
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+            position++;
+        }
+
+        long checksum() {
+            return crc.getValue();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            long target = position - buffer.remaining();
+            while (buffer.hasRemaining()) {
+                target += channel.write(buffer, target);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    // Index trop volumineux pour une seule projection mémoire : l'instantané n'est pas écrit.
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long size) {
+            super("Instantané trop volumineux pour une seule projection mémoire (" + size + " octets, maximum "
+                    + MAX_SIZE + ") : découper le corpus en plusieurs index");
+        }
+    }
+}
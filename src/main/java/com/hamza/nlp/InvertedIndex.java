@@ -0,0 +1,355 @@
+package com.hamza.nlp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Index inversé sur des tableaux primitifs, construit en mémoire à partir du corpus :
+//  - un dictionnaire des termes (stem -> identifiant entier dense) et l'IDF de chaque terme ;
+//  - la matrice TF-IDF des documents au format CSR (une ligne par document) ;
+//  - sa transposée, qui sert de listes de postings (une ligne par terme, documents triés par identifiant) ;
+//  - la norme L2 de chaque document, précalculée à la construction ;
+//  - pour chaque terme, son impact maximal max(poids / norme du document), qui borne sa contribution au cosinus
+//    et permet d'écarter les documents qui ne peuvent pas entrer dans le top-K (MaxScore) ;
+//  - éventuellement, la forme de surface la plus fréquente de chaque terme (autocomplétion) ;
+//  - éventuellement, les positions de chaque posting (requêtes de phrase et de proximité, voir PositionIndex).
+// Un index compressé (compress) code ses poids sur 2 ou 1 octet et peut avoir perdu les postings de plus faible
+// poids de chaque document ; il garde alors les fréquences documentaires et les normes de l'index exact.
+// Les documents sont identifiés par un entier dense attribué dans l'ordre du corpus.
+// Chaque index construit reçoit une génération unique, qui permet aux caches de détecter un changement d'index.
+
+public class InvertedIndex implements SearchIndex {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final long generation = nextGeneration();
+    private final List<String> documentNames;
+    private final TermDictionary dictionary;
+    private final double[] idf;
+    private final CsrMatrix documents;
+    private final CsrMatrix postings;
+    private final double[] documentNorms;
+    private final int[] documentLengths;
+    private final double[] maxImpacts;
+    private final PositionIndex positions;
+    // Index élagué : fréquences documentaires et normes des poids élagués (null sinon)
+    private final int[] documentFrequencies;
+    private final float[] residualNorms;
+    private final WeightQuantization quantization;
+    private final double pruneRatio;
+    private String[] surfaceForms;
+
+    private InvertedIndex(List<String> documentNames, TermDictionary dictionary, double[] idf,
+                          CsrMatrix documents, CsrMatrix postings, double[] documentNorms, int[] documentLengths,
+                          double[] maxImpacts, PositionIndex positions) {
+        this(documentNames, dictionary, idf, documents, postings, documentNorms, documentLengths, maxImpacts,
+                positions, null, null, WeightQuantization.FLOAT32, 0.0);
+    }
+
+    private InvertedIndex(List<String> documentNames, TermDictionary dictionary, double[] idf,
+                          CsrMatrix documents, CsrMatrix postings, double[] documentNorms, int[] documentLengths,
+                          double[] maxImpacts, PositionIndex positions, int[] documentFrequencies,
+                          float[] residualNorms, WeightQuantization quantization, double pruneRatio) {
+        this.documentNames = documentNames;
+        this.dictionary = dictionary;
+        this.idf = idf;
+        this.documents = documents;
+        this.postings = postings;
+        this.documentNorms = documentNorms;
+        this.documentLengths = documentLengths;
+        this.maxImpacts = maxImpacts;
+        this.positions = positions;
+        this.documentFrequencies = documentFrequencies;
+        this.residualNorms = residualNorms;
+        this.quantization = quantization;
+        this.pruneRatio = pruneRatio;
+    }
+
+    // Construit l'index à partir de la matrice TF-IDF des documents et de leurs longueurs (occurrences des racines
+    // indexées) : calcule les normes et transpose la matrice.
+    public static InvertedIndex build(List<String> documentNames, TermDictionary dictionary,
+                                      CsrMatrix documents, double[] idf, int[] documentLengths) {
+        return build(documentNames, dictionary, documents, idf, documentLengths, null);
+    }
+
+    // Idem pour un index positionnel : documentPositions donne les positions de chaque cellule de la matrice des
+    // documents, dans l'ordre des lignes ; elles sont réordonnées dans l'ordre des postings.
+    static InvertedIndex build(List<String> documentNames, TermDictionary dictionary, CsrMatrix documents,
+                               double[] idf, int[] documentLengths, PositionIndex documentPositions) {
+        double[] norms = new double[documents.getRowCount()];
+        for (int docId = 0; docId < norms.length; docId++) {
+            double sumOfSquares = 0.0;
+            for (int i = documents.rowStart(docId); i < documents.rowEnd(docId); i++) {
+                double weight = documents.valueAt(i);
+                sumOfSquares += weight * weight;
+            }
+            norms[docId] = Math.sqrt(sumOfSquares);
+        }
+
+        CsrMatrix postings = documents.transpose();
+        double[] maxImpacts = new double[postings.getRowCount()];
+        for (int termId = 0; termId < maxImpacts.length; termId++) {
+            for (int i = postings.rowStart(termId); i < postings.rowEnd(termId); i++) {
+                double norm = norms[postings.columnAt(i)];
+                if (norm > 0.0) {
+                    maxImpacts[termId] = Math.max(maxImpacts[termId], postings.valueAt(i) / norm);
+                }
+            }
+        }
+        PositionIndex postingPositions = documentPositions != null ? documentPositions.transpose(documents) : null;
+        return new InvertedIndex(Collections.unmodifiableList(documentNames), dictionary, idf,
+                documents, postings, norms, documentLengths, maxImpacts, postingPositions);
+    }
+
+    // Associe à chaque terme sa forme de surface la plus fréquente (null pour les termes sans forme connue).
+    // À appeler avant de publier l'index.
+    InvertedIndex withSurfaceForms(SurfaceForms forms) {
+        String[] termForms = new String[dictionary.size()];
+        for (int termId = 0; termId < termForms.length; termId++) {
+            String form = forms.get(dictionary.getTerm(termId));
+            // La racine elle-même n'a pas besoin d'être stockée une seconde fois
+            termForms[termId] = form != null && !form.equals(dictionary.getTerm(termId)) ? form : null;
+        }
+        this.surfaceForms = termForms;
+        return this;
+    }
+
+    // Index compressé : chaque document ne garde que ses max(1, ⌈(1 - pruneRatio) x n⌉) termes de plus fort poids
+    // (élagage statique centré sur les documents, positions comprises), puis les poids restants sont codés selon
+    // quantization. Les normes, l'IDF, les longueurs et les fréquences documentaires restent celles de l'index
+    // exact : un poids élagué ne compte plus dans le produit scalaire mais toujours dans la norme, et les impacts
+    // maximaux sont recalculés sur les poids codés. Cet index-ci reste inchangé.
+    public InvertedIndex compress(WeightQuantization quantization, double pruneRatio) {
+        if (pruneRatio < 0.0 || pruneRatio >= 1.0) {
+            throw new IllegalArgumentException("Taux d'élagage invalide : " + pruneRatio + " (attendu : 0 <= r < 1)");
+        }
+        if (documents.isQuantized() || residualNorms != null) {
+            throw new IllegalStateException("Index déjà compressé");
+        }
+        CsrMatrix keptDocuments = documents;
+        PositionIndex keptPositions = positions;
+        float[] residuals = null;
+        int[] frequencies = null;
+        if (pruneRatio > 0.0) {
+            boolean[] keep = new boolean[documents.getNonZeroCount()];
+            residuals = new float[documents.getRowCount()];
+            for (int docId = 0; docId < residuals.length; docId++) {
+                residuals[docId] = (float) keepStrongest(docId, pruneRatio, keep);
+            }
+            frequencies = new int[postings.getRowCount()];
+            for (int termId = 0; termId < frequencies.length; termId++) {
+                frequencies[termId] = postings.rowEnd(termId) - postings.rowStart(termId);
+            }
+            keptDocuments = documents.keepCells(keep);
+            if (positions != null) {
+                // Positions rangées dans l'ordre des postings : même élagage, cellule par cellule
+                int[] targets = documents.transposedIndexes();
+                boolean[] keepPostings = new boolean[keep.length];
+                for (int cell = 0; cell < keep.length; cell++) {
+                    keepPostings[targets[cell]] = keep[cell];
+                }
+                keptPositions = positions.keepCells(keepPostings);
+            }
+        }
+
+        CsrMatrix keptPostings = keptDocuments.transpose().quantize(quantization);
+        double[] impacts = new double[keptPostings.getRowCount()];
+        for (int termId = 0; termId < impacts.length; termId++) {
+            for (int i = keptPostings.rowStart(termId); i < keptPostings.rowEnd(termId); i++) {
+                double norm = documentNorms[keptPostings.columnAt(i)];
+                if (norm > 0.0) {
+                    impacts[termId] = Math.max(impacts[termId], keptPostings.valueAt(i) / norm);
+                }
+            }
+        }
+        InvertedIndex compressed = new InvertedIndex(documentNames, dictionary, idf,
+                keptDocuments.quantize(quantization), keptPostings, documentNorms, documentLengths, impacts,
+                keptPositions, frequencies, residuals, quantization, pruneRatio);
+        compressed.surfaceForms = surfaceForms;
+        return compressed;
+    }
+
+    // Marque dans keep les termes gardés du document (les plus forts poids, à égalité le premier terme) et
+    // retourne la norme des poids élagués.
+    private double keepStrongest(int docId, double pruneRatio, boolean[] keep) {
+        int start = documents.rowStart(docId);
+        int length = documents.rowEnd(docId) - start;
+        if (length == 0) {
+            return 0.0;
+        }
+        int kept = Math.max(1, (int) Math.ceil(length * (1.0 - pruneRatio)));
+        // Poids positifs : l'ordre de leurs bits est celui des valeurs ; à égalité, le premier terme d'abord
+        long[] packed = new long[length];
+        for (int i = 0; i < length; i++) {
+            packed[i] = ((long) Float.floatToRawIntBits(documents.valueAt(start + i)) << 32) | (length - 1 - i);
+        }
+        Arrays.sort(packed);
+        double sumOfSquares = 0.0;
+        for (int rank = 0; rank < length; rank++) {
+            int i = start + length - 1 - (int) packed[rank];
+            if (rank >= length - kept) {
+                keep[i] = true;
+            } else {
+                double weight = documents.valueAt(i);
+                sumOfSquares += weight * weight;
+            }
+        }
+        return Math.sqrt(sumOfSquares);
+    }
+
+    // Génération suivante, partagée par toutes les implémentations de SearchIndex.
+    static long nextGeneration() {
+        return GENERATIONS.incrementAndGet();
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public int getTermId(String term) {
+        return dictionary.getId(term);
+    }
+
+    @Override
+    public String getTerm(int termId) {
+        return dictionary.getTerm(termId);
+    }
+
+    @Override
+    public String getSurfaceForm(int termId) {
+        String form = surfaceForms != null ? surfaceForms[termId] : null;
+        return form != null ? form : dictionary.getTerm(termId);
+    }
+
+    @Override
+    public double getIdf(int termId) {
+        return idf[termId];
+    }
+
+    @Override
+    public int getDocumentFrequency(int termId) {
+        return documentFrequencies != null
+                ? documentFrequencies[termId] : postings.rowEnd(termId) - postings.rowStart(termId);
+    }
+
+    @Override
+    public int postingStart(int termId) {
+        return postings.rowStart(termId);
+    }
+
+    @Override
+    public int postingEnd(int termId) {
+        return postings.rowEnd(termId);
+    }
+
+    @Override
+    public int postingDocId(int index) {
+        return postings.columnAt(index);
+    }
+
+    @Override
+    public float postingWeight(int index) {
+        return postings.valueAt(index);
+    }
+
+    @Override
+    public int postingAdvance(int index, int end, int docId) {
+        return postings.lowerBound(index, end, docId);
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return positions != null;
+    }
+
+    @Override
+    public int[] postingPositions(int index) {
+        if (positions == null) {
+            throw new UnsupportedOperationException("Index sans positions");
+        }
+        return positions.get(index);
+    }
+
+    @Override
+    public double getMaxImpact(int termId) {
+        return maxImpacts[termId];
+    }
+
+    @Override
+    public int documentTermStart(int docId) {
+        return documents.rowStart(docId);
+    }
+
+    @Override
+    public int documentTermEnd(int docId) {
+        return documents.rowEnd(docId);
+    }
+
+    @Override
+    public int documentTermId(int index) {
+        return documents.columnAt(index);
+    }
+
+    @Override
+    public float documentTermWeight(int index) {
+        return documents.valueAt(index);
+    }
+
+    @Override
+    public boolean containsTerm(int docId, int termId) {
+        return documents.find(docId, termId) >= 0;
+    }
+
+    @Override
+    public String getDocumentName(int docId) {
+        return documentNames.get(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(int docId) {
+        return documentNorms[docId];
+    }
+
+    @Override
+    public double getResidualNorm(int docId) {
+        return residualNorms != null ? residualNorms[docId] : 0.0;
+    }
+
+    @Override
+    public int getDocumentLength(int docId) {
+        return documentLengths[docId];
+    }
+
+    @Override
+    public WeightQuantization getQuantization() {
+        return quantization;
+    }
+
+    @Override
+    public double getPruneRatio() {
+        return pruneRatio;
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return documentNames.size();
+    }
+
+    @Override
+    public int getTermCount() {
+        return dictionary.size();
+    }
+
+    // Estimation de l'empreinte mémoire des structures primitives de l'index (hors chaînes), en octets.
+    public long estimateArraysBytes() {
+        return dictionary.estimateArraysBytes() + 8L * idf.length + documents.estimateArraysBytes()
+                + postings.estimateArraysBytes() + 8L * documentNorms.length + 4L * documentLengths.length
+                + 8L * maxImpacts.length
+                + (positions != null ? positions.estimateArraysBytes() : 0L)
+                + (documentFrequencies != null ? 4L * documentFrequencies.length : 0L)
+                + (residualNorms != null ? 4L * residualNorms.length : 0L);
+    }
+}
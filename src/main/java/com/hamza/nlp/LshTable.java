@@ -0,0 +1,89 @@
+package com.hamza.nlp;
+
+// Seaux d'une table LSH : table à adressage ouvert clé du seau (valeur d'une bande, bits d'une signature) ->
+// dernier document inséré (identifiant + 1, 0 pour un seau vide). Les documents d'un même seau sont chaînés par
+// l'appelant, qui conserve l'ancienne tête retournée par push (voir NearDuplicateIndex, SimilarDocumentIndex).
+
+final class LshTable {
+
+    private long[] keys = new long[16];
+    private int[] heads = new int[16];
+    private int count;
+
+    static LshTable[] newTables(int count) {
+        LshTable[] tables = new LshTable[count];
+        for (int table = 0; table < count; table++) {
+            tables[table] = new LshTable();
+        }
+        return tables;
+    }
+
+    // Tête du seau de cette clé (0 si le seau est vide).
+    int head(long key) {
+        int mask = keys.length - 1;
+        for (int slot = (int) mix(key) & mask; heads[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return heads[slot];
+            }
+        }
+        return 0;
+    }
+
+    // Place le document en tête de son seau ; retourne l'ancienne tête (0 si le seau était vide).
+    int push(long key, int head) {
+        if (2 * (count + 1) > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (heads[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        int previous = heads[slot];
+        if (previous == 0) {
+            count++;
+            keys[slot] = key;
+        }
+        heads[slot] = head;
+        return previous;
+    }
+
+    // Parcours de tous les seaux : headAt(slot) pour slot de 0 à capacity() - 1 (0 pour une case libre).
+    int capacity() {
+        return heads.length;
+    }
+
+    int headAt(int slot) {
+        return heads[slot];
+    }
+
+    // Hachage d'un terme, identique d'un segment et d'une exécution à l'autre.
+    static long termHash(String term) {
+        return mix(term.hashCode());
+    }
+
+    // Finaliseur de SplitMix64.
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldHeads.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != 0) {
+                int slot = (int) mix(oldKeys[i]) & mask;
+                while (heads[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.hamza.nlp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Index servi directement depuis un instantané binaire (voir IndexSnapshot) projeté en mémoire avec NIO :
+// les postings, l'IDF, les normes et le dictionnaire sont lus dans le fichier projeté, sans être désérialisés
+// sur le tas. Seules les chaînes retournées (noms de documents, termes correspondants) sont décodées à la demande.
+// Les poids sont décodés à la lecture lorsque l'instantané a été écrit depuis un index compressé.
+
+public class MappedIndex implements SearchIndex {
+
+    private final long generation = InvertedIndex.nextGeneration();
+    private final Path path;
+    private final long corpusFingerprint;
+    private final int documentCount;
+    private final int termCount;
+    private final WeightQuantization quantization;
+    private final double pruneRatio;
+
+    private final DoubleBuffer idf;
+    private final DoubleBuffer maxImpacts;
+    private final DoubleBuffer documentNorms;
+    private final IntBuffer postingOffsets;
+    private final IntBuffer postingDocIds;
+    private final QuantizedWeights postingWeights;
+    private final IntBuffer termOffsets;
+    private final ByteBuffer termBytes;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer nameBytes;
+    private final IntBuffer rowOffsets;
+    private final IntBuffer rowTerms;
+    private final QuantizedWeights rowWeights;
+    private final IntBuffer formOffsets;
+    private final ByteBuffer formBytes;
+    private final IntBuffer positionOffsets;
+    private final ByteBuffer positionBytes;
+    private final IntBuffer documentLengths;
+    private final IntBuffer documentFrequencies;
+    private final FloatBuffer residualNorms;
+
+    private MappedIndex(Path path, MappedByteBuffer buffer, WeightQuantization quantization) {
+        this.path = path;
+        this.corpusFingerprint = buffer.getLong(IndexSnapshot.OFFSET_FINGERPRINT);
+        this.documentCount = buffer.getInt(IndexSnapshot.OFFSET_DOCUMENT_COUNT);
+        this.termCount = buffer.getInt(IndexSnapshot.OFFSET_TERM_COUNT);
+        this.quantization = quantization;
+        this.pruneRatio = buffer.getDouble(IndexSnapshot.OFFSET_PRUNE_RATIO);
+
+        this.idf = section(buffer, IndexSnapshot.SECTION_IDF).asDoubleBuffer();
+        this.maxImpacts = section(buffer, IndexSnapshot.SECTION_MAX_IMPACTS).asDoubleBuffer();
+        this.documentNorms = section(buffer, IndexSnapshot.SECTION_NORMS).asDoubleBuffer();
+        this.postingOffsets = section(buffer, IndexSnapshot.SECTION_POSTING_OFFSETS).asIntBuffer();
+        this.postingDocIds = section(buffer, IndexSnapshot.SECTION_POSTING_DOCS).asIntBuffer();
+        this.postingWeights = QuantizedWeights.mapped(section(buffer, IndexSnapshot.SECTION_POSTING_WEIGHTS),
+                quantization);
+        this.termOffsets = section(buffer, IndexSnapshot.SECTION_TERM_OFFSETS).asIntBuffer();
+        this.termBytes = section(buffer, IndexSnapshot.SECTION_TERM_BYTES);
+        this.nameOffsets = section(buffer, IndexSnapshot.SECTION_NAME_OFFSETS).asIntBuffer();
+        this.nameBytes = section(buffer, IndexSnapshot.SECTION_NAME_BYTES);
+        this.rowOffsets = section(buffer, IndexSnapshot.SECTION_ROW_OFFSETS).asIntBuffer();
+        this.rowTerms = section(buffer, IndexSnapshot.SECTION_ROW_TERMS).asIntBuffer();
+        this.rowWeights = QuantizedWeights.mapped(section(buffer, IndexSnapshot.SECTION_ROW_WEIGHTS), quantization);
+        this.formOffsets = section(buffer, IndexSnapshot.SECTION_FORM_OFFSETS).asIntBuffer();
+        this.formBytes = section(buffer, IndexSnapshot.SECTION_FORM_BYTES);
+        this.positionOffsets = section(buffer, IndexSnapshot.SECTION_POSITION_OFFSETS).asIntBuffer();
+        this.positionBytes = section(buffer, IndexSnapshot.SECTION_POSITION_BYTES);
+        this.documentLengths = section(buffer, IndexSnapshot.SECTION_DOCUMENT_LENGTHS).asIntBuffer();
+        this.documentFrequencies = section(buffer, IndexSnapshot.SECTION_DOCUMENT_FREQUENCIES).asIntBuffer();
+        this.residualNorms = section(buffer, IndexSnapshot.SECTION_RESIDUAL_NORMS).asFloatBuffer();
+    }
+
+    // Projette un instantané en mémoire après avoir vérifié son en-tête, sa version, son empreinte et son CRC32.
+    // Lève InvalidSnapshotException si l'instantané est absent, périmé ou corrompu.
+    public static MappedIndex open(Path path, long expectedFingerprint) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < IndexSnapshot.HEADER_SIZE) {
+                throw new InvalidSnapshotException(path, "taille de fichier invalide (" + channel.size() + " octets)");
+            }
+            if (channel.size() > IndexSnapshot.MAX_SIZE) {
+                throw new InvalidSnapshotException(path, "trop volumineux pour une seule projection mémoire ("
+                        + channel.size() + " octets)");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (java.nio.file.NoSuchFileException e) {
+            throw new InvalidSnapshotException(path, "fichier absent");
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt(0) != IndexSnapshot.MAGIC) {
+            throw new InvalidSnapshotException(path, "ce fichier n'est pas un instantané d'index");
+        }
+        if (buffer.getInt(4) != IndexSnapshot.FORMAT_VERSION) {
+            throw new InvalidSnapshotException(path, "version de format " + buffer.getInt(4)
+                    + " (attendue : " + IndexSnapshot.FORMAT_VERSION + ")");
+        }
+        if (buffer.getLong(IndexSnapshot.OFFSET_FINGERPRINT) != expectedFingerprint) {
+            throw new InvalidSnapshotException(path, "le corpus a changé depuis la construction de l'instantané");
+        }
+        long end = sectionOffset(buffer, IndexSnapshot.SECTION_END);
+        if (end != buffer.capacity()) {
+            throw new InvalidSnapshotException(path, "fichier tronqué");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(IndexSnapshot.HEADER_SIZE).limit((int) end));
+        if (crc.getValue() != buffer.getLong(IndexSnapshot.OFFSET_CHECKSUM)) {
+            throw new InvalidSnapshotException(path, "somme de contrôle invalide");
+        }
+        int quantization = buffer.getInt(IndexSnapshot.OFFSET_QUANTIZATION);
+        if (quantization < 0 || quantization >= WeightQuantization.values().length) {
+            throw new InvalidSnapshotException(path, "codage des poids inconnu (" + quantization + ")");
+        }
+        return new MappedIndex(path, buffer, WeightQuantization.values()[quantization]);
+    }
+
+    // Idem, en exigeant aussi que l'instantané ait été compressé avec ces réglages (voir IndexCompression).
+    public static MappedIndex open(Path path, long expectedFingerprint, WeightQuantization quantization,
+                                   double pruneRatio) throws IOException {
+        MappedIndex index = open(path, expectedFingerprint);
+        if (index.quantization != quantization || index.pruneRatio != pruneRatio) {
+            throw new InvalidSnapshotException(path, "compressé en " + index.quantization + " élagué à "
+                    + index.pruneRatio + " (attendu : " + quantization + " élagué à " + pruneRatio + ")");
+        }
+        return index;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getCorpusFingerprint() {
+        return corpusFingerprint;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public String getDocumentName(int docId) {
+        return decode(nameBytes, nameOffsets.get(docId), nameOffsets.get(docId + 1));
+    }
+
+    @Override
+    public double getDocumentNorm(int docId) {
+        return documentNorms.get(docId);
+    }
+
+    @Override
+    public double getResidualNorm(int docId) {
+        return residualNorms.capacity() > 0 ? residualNorms.get(docId) : 0.0;
+    }
+
+    @Override
+    public int getDocumentLength(int docId) {
+        return documentLengths.get(docId);
+    }
+
+    @Override
+    public WeightQuantization getQuantization() {
+        return quantization;
+    }
+
+    @Override
+    public double getPruneRatio() {
+        return pruneRatio;
+    }
+
+    @Override
+    public int getTermCount() {
+        return termCount;
+    }
+
+    // Recherche dichotomique dans le dictionnaire trié, en comparant directement les octets UTF-8.
+    @Override
+    public int getTermId(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareTerm(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getTerm(int termId) {
+        return decode(termBytes, termOffsets.get(termId), termOffsets.get(termId + 1));
+    }
+
+    // Forme vide dans l'instantané : la forme de surface est la racine elle-même.
+    @Override
+    public String getSurfaceForm(int termId) {
+        int start = formOffsets.get(termId);
+        int end = formOffsets.get(termId + 1);
+        return start == end ? getTerm(termId) : decode(formBytes, start, end);
+    }
+
+    @Override
+    public double getIdf(int termId) {
+        return idf.get(termId);
+    }
+
+    @Override
+    public int getDocumentFrequency(int termId) {
+        return documentFrequencies.get(termId);
+    }
+
+    @Override
+    public double getMaxImpact(int termId) {
+        return maxImpacts.get(termId);
+    }
+
+    @Override
+    public int postingStart(int termId) {
+        return postingOffsets.get(termId);
+    }
+
+    @Override
+    public int postingEnd(int termId) {
+        return postingOffsets.get(termId + 1);
+    }
+
+    @Override
+    public int postingDocId(int index) {
+        return postingDocIds.get(index);
+    }
+
+    @Override
+    public float postingWeight(int index) {
+        return postingWeights.get(index);
+    }
+
+    // Section des positions vide : l'instantané a été écrit depuis un index sans positions.
+    @Override
+    public boolean hasPositions() {
+        return positionBytes.capacity() > 0;
+    }
+
+    @Override
+    public int[] postingPositions(int index) {
+        int start = positionOffsets.get(index);
+        byte[] encoded = new byte[positionOffsets.get(index + 1) - start];
+        positionBytes.get(start, encoded);
+        return PositionIndex.decode(encoded, 0, encoded.length);
+    }
+
+    @Override
+    public int documentTermStart(int docId) {
+        return rowOffsets.get(docId);
+    }
+
+    @Override
+    public int documentTermEnd(int docId) {
+        return rowOffsets.get(docId + 1);
+    }
+
+    @Override
+    public int documentTermId(int index) {
+        return rowTerms.get(index);
+    }
+
+    @Override
+    public float documentTermWeight(int index) {
+        return rowWeights.get(index);
+    }
+
+    // Recherche exponentielle puis dichotomique dans les documents triés des postings.
+    @Override
+    public int postingAdvance(int index, int end, int docId) {
+        int step = 1;
+        int low = index;
+        int high = index;
+        while (high < end && postingDocIds.get(high) < docId) {
+            low = high + 1;
+            high = Math.min(end, high + step);
+            step <<= 1;
+        }
+        high = Math.min(high, end - 1);
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (postingDocIds.get(middle) < docId) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private int compareTerm(int termId, byte[] key) {
+        int start = termOffsets.get(termId);
+        int length = termOffsets.get(termId + 1) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(termBytes.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static String decode(ByteBuffer bytes, int start, int end) {
+        byte[] value = new byte[end - start];
+        bytes.get(start, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer section(MappedByteBuffer buffer, int section) {
+        int start = (int) sectionOffset(buffer, section);
+        int end = (int) sectionOffset(buffer, section + 1);
+        return buffer.duplicate().position(start).limit(end).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long sectionOffset(ByteBuffer buffer, int section) {
+        return buffer.getLong(IndexSnapshot.OFFSET_SECTIONS + section * Long.BYTES);
+    }
+
+    // Instantané inutilisable (absent, d'une autre version, périmé ou corrompu) : il faut le reconstruire.
+
+    public static class InvalidSnapshotException extends IOException {
+        public InvalidSnapshotException(Path path, String reason) {
+            super("Instantané d'index " + path + " invalide : " + reason);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+// Détection des quasi-doublons (articles republiés avec de petites retouches) par MinHash et LSH.
+// Un document est représenté par l'ensemble de ses shingles, suites de SHINGLE_STEMS racines indexées consécutives.
+// Sa signature MinHash compte SIGNATURE_SIZE valeurs de 16 bits, calculées en un seul hachage par shingle (one
+// permutation hashing : chaque shingle tombe dans une case dont on garde le minimum, une case vide emprunte la
+// valeur de la case non vide suivante) ; la proportion de valeurs égales entre deux signatures estime la
+// similarité de Jaccard des deux ensembles de shingles.
+// LSH : la signature est découpée en BANDS bandes de ROWS valeurs (64 bits, comparées exactement). Deux documents
+// qui partagent une bande sont candidats ; seuls les candidats sont comparés, et retenus si leur similarité
+// estimée atteint le seuil. Aucune paire n'est comparée en dehors des seaux : le coût croît avec le nombre de
+// documents et la taille des seaux, pas avec le carré du nombre de documents.
+// Les signatures sont calculées depuis les positions de l'index chargé (en mémoire ou projeté depuis
+// l'instantané), puis tenues à jour à chaque ajout, remplacement ou suppression de document. Les documents sans
+// positions ou sans racine indexée n'ont pas de signature et ne sont jamais des doublons.
+
+public class NearDuplicateIndex {
+
+    static final int SHINGLE_STEMS = 3;
+    static final int SIGNATURE_SIZE = 64;
+    static final int ROWS = 4;
+    static final int BANDS = SIGNATURE_SIZE / ROWS;
+    // Facteur de résultats demandés en plus au chercheur quand les doublons sont repliés
+    static final int COLLAPSE_OVERFETCH = 4;
+    // Rapport : chaque document d'un seau est comparé à ce nombre de documents qui le précèdent dans le seau
+    static final int BUCKET_WINDOW = 8;
+
+    private static final long EMPTY_BIN = Long.MAX_VALUE;
+
+    private final double threshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Documents signés : identifiant attribué à l'insertion, nom (null une fois supprimé) et signature
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    private char[] signatures = new char[16 * SIGNATURE_SIZE];
+    private int size;
+    // Seaux de chaque bande : valeur de la bande -> dernier document inséré, chaînés par next (identifiant + 1,
+    // 0 en fin de seau)
+    private LshTable[] tables = LshTable.newTables(BANDS);
+    private int[] next = new int[16 * BANDS];
+
+    public NearDuplicateIndex(double threshold) {
+        this.threshold = threshold;
+    }
+
+    // Signe les documents vivants de l'index, segment par segment (signatures calculées en parallèle).
+    public static NearDuplicateIndex build(SegmentedIndex index, double threshold) {
+        NearDuplicateIndex duplicates = new NearDuplicateIndex(threshold);
+        index.read(() -> {
+            for (IndexSegment segment : index.getSegments()) {
+                SearchIndex segmentIndex = segment.getIndex();
+                if (!segmentIndex.hasPositions()) {
+                    continue;
+                }
+                long[] termHashes = new long[segmentIndex.getTermCount()];
+                for (int termId = 0; termId < termHashes.length; termId++) {
+                    termHashes[termId] = LshTable.termHash(segmentIndex.getTerm(termId));
+                }
+                char[][] segmentSignatures = new char[segmentIndex.getDocumentCount()][];
+                IntStream.range(0, segmentSignatures.length).parallel()
+                        .filter(docId -> !segment.isDeleted(docId))
+                        .forEach(docId -> segmentSignatures[docId] =
+                                signature(stemHashes(segmentIndex, termHashes, docId)));
+                for (int docId = 0; docId < segmentSignatures.length; docId++) {
+                    if (segmentSignatures[docId] != null) {
+                        duplicates.insert(segmentIndex.getDocumentName(docId), segmentSignatures[docId]);
+                    }
+                }
+            }
+            return null;
+        });
+        return duplicates;
+    }
+
+    // Signe un document ajouté, ou remplace la signature du document de même nom.
+    public void add(String name, TermPositions positions) {
+        char[] signature = signature(stemHashes(positions));
+        lock.writeLock().lock();
+        try {
+            delete(name);
+            if (signature != null) {
+                insert(name, signature);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String name) {
+        lock.writeLock().lock();
+        try {
+            delete(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Similarité de Jaccard estimée entre deux documents, ou -1 si l'un d'eux n'a pas de signature.
+    public double similarity(String first, String second) {
+        lock.readLock().lock();
+        try {
+            Integer firstId = ids.get(first);
+            Integer secondId = ids.get(second);
+            return firstId != null && secondId != null ? similarity(firstId, secondId) : -1.0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Quasi-doublons d'un document (candidats de ses seaux dont la similarité atteint le seuil).
+    public List<String> duplicatesOf(String name) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(name);
+            List<String> duplicates = new ArrayList<>();
+            if (id == null) {
+                return duplicates;
+            }
+            boolean[] seen = new boolean[size];
+            seen[id] = true;
+            for (int band = 0; band < BANDS; band++) {
+                for (int other = tables[band].head(bandKey(id, band)); other > 0; other = next[(other - 1) * BANDS + band]) {
+                    int candidate = other - 1;
+                    if (!seen[candidate] && names[candidate] != null) {
+                        seen[candidate] = true;
+                        if (similarity(id, candidate) >= threshold) {
+                            duplicates.add(names[candidate]);
+                        }
+                    }
+                }
+            }
+            return duplicates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Replie les quasi-doublons d'une liste de résultats triée par score : un résultat est gardé s'il n'est le
+    // doublon d'aucun résultat gardé avant lui, sinon son nom est ajouté aux doublons de ce dernier. Les résultats
+    // ne sont comparés qu'aux résultats gardés qui partagent une de leurs bandes.
+    public List<DocumentSearcher.DocumentSearchResult> collapse(List<DocumentSearcher.DocumentSearchResult> results,
+                                                                int maxResults) {
+        List<DocumentSearcher.DocumentSearchResult> kept = new ArrayList<>();
+        List<List<String>> keptDuplicates = new ArrayList<>();
+        List<Integer> keptIds = new ArrayList<>();
+        List<Map<Long, List<Integer>>> keptBands = new ArrayList<>();
+        for (int band = 0; band < BANDS; band++) {
+            keptBands.add(new HashMap<>());
+        }
+        lock.readLock().lock();
+        try {
+            for (DocumentSearcher.DocumentSearchResult result : results) {
+                Integer id = ids.get(result.getDocumentName());
+                int original = id != null ? findOriginal(id, keptIds, keptBands) : -1;
+                if (original >= 0) {
+                    keptDuplicates.get(original).add(result.getDocumentName());
+                    continue;
+                }
+                if (kept.size() == maxResults) {
+                    break;
+                }
+                if (id != null) {
+                    for (int band = 0; band < BANDS; band++) {
+                        keptBands.get(band).computeIfAbsent(bandKey(id, band), key -> new ArrayList<>(1))
+                                .add(kept.size());
+                    }
+                }
+                kept.add(result);
+                keptIds.add(id);
+                keptDuplicates.add(new ArrayList<>());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<DocumentSearcher.DocumentSearchResult> collapsed = new ArrayList<>(kept.size());
+        for (int i = 0; i < kept.size(); i++) {
+            collapsed.add(keptDuplicates.get(i).isEmpty() ? kept.get(i) : kept.get(i).withDuplicates(keptDuplicates.get(i)));
+        }
+        return collapsed;
+    }
+
+    // Rapport des groupes de quasi-doublons (union des paires retenues dans les seaux), les plus grands d'abord.
+    public DuplicateReport report(int maxGroups) {
+        lock.readLock().lock();
+        try {
+            int[] parents = new int[size];
+            for (int id = 0; id < size; id++) {
+                parents[id] = id;
+            }
+            int[] window = new int[BUCKET_WINDOW];
+            for (int band = 0; band < BANDS; band++) {
+                LshTable table = tables[band];
+                for (int slot = 0; slot < table.capacity(); slot++) {
+                    int seen = 0;
+                    for (int other = table.headAt(slot); other > 0; other = next[(other - 1) * BANDS + band]) {
+                        int id = other - 1;
+                        if (names[id] == null) {
+                            continue;
+                        }
+                        for (int w = 0; w < Math.min(seen, BUCKET_WINDOW); w++) {
+                            int previous = window[w];
+                            if (find(parents, id) != find(parents, previous) && similarity(id, previous) >= threshold) {
+                                parents[find(parents, id)] = find(parents, previous);
+                            }
+                        }
+                        window[seen++ % BUCKET_WINDOW] = id;
+                    }
+                }
+            }
+
+            Map<Integer, List<Integer>> groups = new HashMap<>();
+            for (int id = 0; id < size; id++) {
+                if (names[id] != null && find(parents, id) != id) {
+                    groups.computeIfAbsent(find(parents, id), root -> new ArrayList<>()).add(id);
+                }
+            }
+            int duplicateDocuments = 0;
+            List<DuplicateGroup> report = new ArrayList<>(groups.size());
+            for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+                int representative = group.getKey();
+                List<String> documents = new ArrayList<>();
+                documents.add(names[representative]);
+                double minSimilarity = 1.0;
+                for (int id : group.getValue()) {
+                    documents.add(names[id]);
+                    minSimilarity = Math.min(minSimilarity, similarity(representative, id));
+                }
+                duplicateDocuments += group.getValue().size();
+                report.add(new DuplicateGroup(documents, minSimilarity));
+            }
+            report.sort(Comparator.comparingInt((DuplicateGroup group) -> group.getDocuments().size()).reversed()
+                    .thenComparing(group -> group.getDocuments().get(0)));
+            return new DuplicateReport(ids.size(), threshold, report.size(), duplicateDocuments,
+                    report.subList(0, Math.min(maxGroups, report.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Premier résultat gardé dont le document est un quasi-doublon de id (parmi ceux qui partagent une bande).
+    private int findOriginal(int id, List<Integer> keptIds, List<Map<Long, List<Integer>>> keptBands) {
+        int original = -1;
+        for (int band = 0; band < BANDS; band++) {
+            List<Integer> candidates = keptBands.get(band).get(bandKey(id, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if ((original < 0 || candidate < original) && similarity(id, keptIds.get(candidate)) >= threshold) {
+                    original = candidate;
+                }
+            }
+        }
+        return original;
+    }
+
+    // Insère un document signé (sous verrou d'écriture, ou pendant la construction).
+    private void insert(String name, char[] signature) {
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+            signatures = Arrays.copyOf(signatures, signatures.length * 2);
+            next = Arrays.copyOf(next, next.length * 2);
+        }
+        names[id] = name;
+        System.arraycopy(signature, 0, signatures, id * SIGNATURE_SIZE, SIGNATURE_SIZE);
+        ids.put(name, id);
+        for (int band = 0; band < BANDS; band++) {
+            next[id * BANDS + band] = tables[band].push(bandKey(id, band), id + 1);
+        }
+    }
+
+    // Supprime la signature d'un document ; l'index est recompacté quand les documents supprimés, encore
+    // chaînés dans les seaux, deviennent majoritaires.
+    private void delete(String name) {
+        Integer id = ids.remove(name);
+        if (id == null) {
+            return;
+        }
+        names[id] = null;
+        if (size > 1024 && ids.size() < size / 2) {
+            String[] liveNames = names;
+            char[] liveSignatures = signatures;
+            int liveSize = size;
+            names = new String[Math.max(16, ids.size() * 2)];
+            signatures = new char[names.length * SIGNATURE_SIZE];
+            next = new int[names.length * BANDS];
+            tables = LshTable.newTables(BANDS);
+            ids.clear();
+            size = 0;
+            for (int live = 0; live < liveSize; live++) {
+                if (liveNames[live] != null) {
+                    insert(liveNames[live], Arrays.copyOfRange(liveSignatures, live * SIGNATURE_SIZE,
+                            (live + 1) * SIGNATURE_SIZE));
+                }
+            }
+        }
+    }
+
+    private double similarity(int first, int second) {
+        int equal = 0;
+        int firstStart = first * SIGNATURE_SIZE;
+        int secondStart = second * SIGNATURE_SIZE;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (signatures[firstStart + i] == signatures[secondStart + i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    // Les ROWS valeurs de 16 bits d'une bande, juxtaposées en 64 bits.
+    private long bandKey(int id, int band) {
+        int start = id * SIGNATURE_SIZE + band * ROWS;
+        long key = 0;
+        for (int row = 0; row < ROWS; row++) {
+            key = key << 16 | signatures[start + row];
+        }
+        return key;
+    }
+
+    private static int find(int[] parents, int id) {
+        while (parents[id] != id) {
+            parents[id] = parents[parents[id]];
+            id = parents[id];
+        }
+        return id;
+    }
+
+    // Hachages des racines indexées d'un document de l'index, dans l'ordre de leurs positions.
+    private static long[] stemHashes(SearchIndex index, long[] termHashes, int docId) {
+        int start = index.documentTermStart(docId);
+        long[] occurrences = new long[Math.max(16, index.getDocumentLength(docId))];
+        int count = 0;
+        for (int i = start; i < index.documentTermEnd(docId); i++) {
+            int termId = index.documentTermId(i);
+            int posting = index.postingAdvance(index.postingStart(termId), index.postingEnd(termId), docId);
+            for (int position : index.postingPositions(posting)) {
+                if (count == occurrences.length) {
+                    occurrences = Arrays.copyOf(occurrences, count * 2);
+                }
+                occurrences[count++] = (long) position << 32 | (i - start);
+            }
+        }
+        Arrays.sort(occurrences, 0, count);
+        long[] hashes = new long[count];
+        for (int k = 0; k < count; k++) {
+            hashes[k] = termHashes[index.documentTermId(start + (int) occurrences[k])];
+        }
+        return hashes;
+    }
+
+    // Idem pour un document analysé (indexation incrémentale).
+    private static long[] stemHashes(TermPositions positions) {
+        List<String> stems = new ArrayList<>(positions.getStems());
+        int count = 0;
+        for (String stem : stems) {
+            count += positions.get(stem).length;
+        }
+        long[] occurrences = new long[count];
+        count = 0;
+        for (int s = 0; s < stems.size(); s++) {
+            for (int position : positions.get(stems.get(s))) {
+                occurrences[count++] = (long) position << 32 | s;
+            }
+        }
+        Arrays.sort(occurrences);
+        long[] hashes = new long[count];
+        for (int k = 0; k < count; k++) {
+            hashes[k] = LshTable.termHash(stems.get((int) occurrences[k]));
+        }
+        return hashes;
+    }
+
+    // Signature MinHash des shingles d'une suite de racines (null si elle est vide). Un document de moins de
+    // SHINGLE_STEMS racines forme un seul shingle.
+    static char[] signature(long[] stems) {
+        if (stems.length == 0) {
+            return null;
+        }
+        long[] minima = new long[SIGNATURE_SIZE];
+        Arrays.fill(minima, EMPTY_BIN);
+        int shingles = Math.max(1, stems.length - SHINGLE_STEMS + 1);
+        for (int s = 0; s < shingles; s++) {
+            long hash = 0;
+            for (int j = s; j < Math.min(stems.length, s + SHINGLE_STEMS); j++) {
+                hash = (hash + stems[j]) * 0x9E3779B97F4A7C15L;
+            }
+            hash = LshTable.mix(hash);
+            int bin = (int) (hash >>> 58);
+            long value = hash & 0x03FFFFFFFFFFFFFFL;
+            if (value < minima[bin]) {
+                minima[bin] = value;
+            }
+        }
+        // Densification : une case vide prend la valeur de la case non vide suivante, décalée de la distance
+        char[] signature = new char[SIGNATURE_SIZE];
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            int distance = 0;
+            while (minima[(i + distance) % SIGNATURE_SIZE] == EMPTY_BIN) {
+                distance++;
+            }
+            long value = minima[(i + distance) % SIGNATURE_SIZE];
+            signature[i] = (char) (distance == 0 ? value : LshTable.mix(value + distance));
+        }
+        return signature;
+    }
+
+
+    // Rapport des quasi-doublons : documents signés, seuil de similarité, nombre de groupes et de documents en
+    // double (tous sauf le premier de chaque groupe), et les plus grands groupes.
+
+    @AllArgsConstructor
+    @Data
+    public static class DuplicateReport {
+        private final int signedDocuments;
+        private final double threshold;
+        private final int groups;
+        private final int duplicateDocuments;
+        private final List<DuplicateGroup> largestGroups;
+    }
+
+    // Groupe de quasi-doublons, avec la plus faible similarité estimée au premier document du groupe.
+
+    @AllArgsConstructor
+    @Data
+    public static class DuplicateGroup {
+        private final List<String> documents;
+        private final double minSimilarity;
+    }
+}
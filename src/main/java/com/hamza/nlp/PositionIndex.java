@@ -0,0 +1,152 @@
+package com.hamza.nlp;
+
+import java.util.Arrays;
+
+// Positions des postings d'un index positionnel : pour chaque cellule (un terme dans un document), les positions
+// croissantes du terme dans le document, codées par écarts (la première position, puis la différence avec la
+// précédente) en octets variables (7 bits par octet, bit de poids fort = suite). Une position coûte le plus souvent
+// un octet. Les cellules sont stockées bout à bout ; offsets[i] donne le début de la cellule i.
+// Construit dans l'ordre des lignes de la matrice des documents (l'ordre de l'analyse), puis réordonné dans
+// l'ordre des postings (voir transpose) : les positions d'un posting sont lues directement depuis son curseur.
+
+final class PositionIndex {
+
+    private final byte[] bytes;
+    private final int[] offsets;
+
+    PositionIndex(byte[] bytes, int[] offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    int size() {
+        return offsets.length - 1;
+    }
+
+    // Positions de la cellule index.
+    int[] get(int index) {
+        return decode(bytes, offsets[index], offsets[index + 1]);
+    }
+
+    // Réordonne les cellules d'une matrice des documents (ordre des lignes) dans l'ordre de sa transposée
+    // (ordre des postings), voir CsrMatrix.transposedIndexes.
+    PositionIndex transpose(CsrMatrix documents) {
+        int[] targets = documents.transposedIndexes();
+        int[] transposedOffsets = new int[offsets.length];
+        for (int cell = 0; cell < targets.length; cell++) {
+            transposedOffsets[targets[cell] + 1] = offsets[cell + 1] - offsets[cell];
+        }
+        for (int i = 0; i < targets.length; i++) {
+            transposedOffsets[i + 1] += transposedOffsets[i];
+        }
+        byte[] transposedBytes = new byte[bytes.length];
+        for (int cell = 0; cell < targets.length; cell++) {
+            System.arraycopy(bytes, offsets[cell], transposedBytes, transposedOffsets[targets[cell]],
+                    offsets[cell + 1] - offsets[cell]);
+        }
+        return new PositionIndex(transposedBytes, transposedOffsets);
+    }
+
+    // Positions réduites aux cellules i telles que keep[i] (postings élagués, voir InvertedIndex.compress).
+    PositionIndex keepCells(boolean[] keep) {
+        int kept = 0;
+        int length = 0;
+        for (int cell = 0; cell < size(); cell++) {
+            if (keep[cell]) {
+                kept++;
+                length += offsets[cell + 1] - offsets[cell];
+            }
+        }
+        int[] keptOffsets = new int[kept + 1];
+        byte[] keptBytes = new byte[length];
+        int target = 0;
+        for (int cell = 0; cell < size(); cell++) {
+            if (keep[cell]) {
+                int cellLength = offsets[cell + 1] - offsets[cell];
+                System.arraycopy(bytes, offsets[cell], keptBytes, keptOffsets[target], cellLength);
+                keptOffsets[target + 1] = keptOffsets[target] + cellLength;
+                target++;
+            }
+        }
+        return new PositionIndex(keptBytes, keptOffsets);
+    }
+
+    long estimateArraysBytes() {
+        return bytes.length + 4L * offsets.length;
+    }
+
+    // Code des positions croissantes dans bytes à partir de offset (au plus 5 octets par position) ; retourne la
+    // fin du codage.
+    static int encode(int[] positions, byte[] bytes, int offset) {
+        int previous = 0;
+        for (int position : positions) {
+            int delta = position - previous;
+            previous = position;
+            while ((delta & ~0x7F) != 0) {
+                bytes[offset++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes[offset++] = (byte) delta;
+        }
+        return offset;
+    }
+
+    // Décode les positions codées dans bytes[start, end).
+    static int[] decode(byte[] bytes, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] >= 0) {
+                count++;
+            }
+        }
+        int[] positions = new int[count];
+        int position = 0;
+        int value = 0;
+        int shift = 0;
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                position += value;
+                positions[n++] = position;
+                value = 0;
+                shift = 0;
+            } else {
+                shift += 7;
+            }
+        }
+        return positions;
+    }
+
+    // Construit les positions cellule par cellule.
+
+    static final class Builder {
+
+        private byte[] bytes = new byte[256];
+        private int[] offsets = new int[65];
+        private int size;
+
+        // Ajoute une cellule à partir de ses positions croissantes.
+        Builder add(int[] positions) {
+            int length = offsets[size];
+            if (length + 5 * positions.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5 * positions.length));
+            }
+            length = encode(positions, bytes, length);
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[++size] = length;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        PositionIndex build() {
+            return new PositionIndex(Arrays.copyOf(bytes, offsets[size]), Arrays.copyOf(offsets, size + 1));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.hamza.nlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Opérateurs positionnels d'une requête, évalués sur l'index positionnel (voir DocumentSearcher) :
+//  - "قصر الحمراء" (guillemets droits, « » ou “ ”) : phrase exacte, les mots consécutifs et dans cet ordre. Un mot
+//    vide ou sans racine de la phrase n'est pas vérifié, mais garde sa place : l'écart entre les autres mots est exigé ;
+//  - بغداد NEAR/5 العباسيين : les deux mots à au plus 5 mots d'écart, dans n'importe quel ordre. Les opérateurs
+//    s'enchaînent (a NEAR/3 b NEAR/2 c) en contraintes deux à deux.
+// Les opérateurs filtrent les documents ; le classement reste la similarité cosinus de tous les mots de la requête
+// (textOf retire les opérateurs NEAR/k du texte vectorisé). Une requête sans guillemets ni NEAR/ n'est pas analysée.
+
+public final class PositionalQuery {
+
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]+)\"|«([^»]+)»|“([^”]+)”");
+    private static final String NEAR = "NEAR";
+
+    private PositionalQuery() {
+    }
+
+    private static boolean hasOperators(String query) {
+        return query.indexOf('"') >= 0 || query.indexOf('«') >= 0 || query.indexOf('“') >= 0
+                || query.contains(NEAR + "/");
+    }
+
+    // Texte de la requête sans les opérateurs NEAR/k, à vectoriser (les guillemets sont ignorés par la racinisation).
+    public static String textOf(String query) {
+        if (!query.contains(NEAR + "/")) {
+            return query;
+        }
+        StringBuilder text = new StringBuilder(query);
+        List<int[]> operators = nearOperators(blankPhrases(query));
+        for (int i = operators.size() - 1; i >= 0; i--) {
+            int[] operator = operators.get(i);
+            text.replace(operator[2], operator[3], " ");
+        }
+        return text.toString();
+    }
+
+    // Contraintes positionnelles de la requête, analysée par la chaîne de l'index : les racines qu'elle écarte
+    // (mots vides...) ne sont pas vérifiées. Une contrainte sans racine retenue est ignorée.
+    public static List<Constraint> parse(String query, TextAnalyzer analyzer) {
+        if (!hasOperators(query)) {
+            return Collections.emptyList();
+        }
+        List<Constraint> constraints = new ArrayList<>();
+        Matcher phrase = PHRASE.matcher(query);
+        while (phrase.find()) {
+            int group = phrase.group(1) != null ? 1 : phrase.group(2) != null ? 2 : 3;
+            List<String> stems = new ArrayList<>();
+            List<Integer> offsets = new ArrayList<>();
+            int[] wordIndex = {0};
+            analyzer.analyze(phrase.group(group), (word, stem) -> {
+                if (stem != null) {
+                    stems.add(stem);
+                    offsets.add(wordIndex[0]);
+                }
+                wordIndex[0]++;
+            });
+            if (!stems.isEmpty()) {
+                constraints.add(new Constraint(stems.toArray(new String[0]),
+                        offsets.stream().mapToInt(Integer::intValue).toArray(), Constraint.PHRASE));
+            }
+        }
+
+        String rest = blankPhrases(query);
+        for (int[] operator : nearOperators(rest)) {
+            String left = analyzer.stem(rest.substring(operator[0], operator[1]));
+            String right = analyzer.stem(rest.substring(operator[5], operator[6]));
+            if (left != null && right != null) {
+                constraints.add(new Constraint(new String[]{left, right}, new int[]{0, 0}, operator[4]));
+            }
+        }
+        return constraints;
+    }
+
+    // Requête dont le contenu des phrases est remplacé par des espaces (mêmes indices) : un opérateur NEAR ne
+    // prend pas ses opérandes dans une phrase.
+    private static String blankPhrases(String query) {
+        StringBuilder rest = new StringBuilder(query);
+        Matcher phrase = PHRASE.matcher(query);
+        while (phrase.find()) {
+            for (int i = phrase.start(); i < phrase.end(); i++) {
+                rest.setCharAt(i, ' ');
+            }
+        }
+        return rest.toString();
+    }
+
+    // Opérateurs « gauche NEAR/k droite » du texte, découpé en mots comme par CachingStemmer :
+    // {début et fin du mot gauche, début et fin de l'opérateur, k, début et fin du mot droit}.
+    private static List<int[]> nearOperators(String text) {
+        List<int[]> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i < text.length() && CachingStemmer.isWordChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                words.add(new int[]{start, i});
+                start = -1;
+            }
+        }
+
+        List<int[]> operators = new ArrayList<>();
+        for (int w = 0; w + 1 < words.size(); w++) {
+            int[] word = words.get(w);
+            int[] distance = words.get(w + 1);
+            if (!text.startsWith(NEAR, word[0]) || word[1] - word[0] != NEAR.length()
+                    || distance[0] != word[1] + 1 || text.charAt(word[1]) != '/' || !isDistance(text, distance)) {
+                continue;
+            }
+            int maxDistance = Integer.parseInt(text.substring(distance[0], distance[1]));
+            if (w > 0 && w + 2 < words.size()) {
+                int[] left = words.get(w - 1);
+                int[] right = words.get(w + 2);
+                operators.add(new int[]{left[0], left[1], word[0], distance[1], maxDistance, right[0], right[1]});
+            } else {
+                // Opérateur sans opérande : retiré du texte, sans contrainte
+                operators.add(new int[]{word[0], word[0], word[0], distance[1], maxDistance, word[0], word[0]});
+            }
+        }
+        return operators;
+    }
+
+    private static boolean isDistance(String text, int[] word) {
+        if (word[1] - word[0] > 6) {
+            return false;
+        }
+        for (int i = word[0]; i < word[1]; i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Contrainte sur les positions de quelques racines dans un document : phrase (chaque racine à son décalage
+    // depuis la première) ou proximité de deux racines.
+
+    public static final class Constraint {
+
+        static final int PHRASE = -1;
+
+        private final String[] stems;
+        private final int[] offsets;
+        // Écart maximal entre les deux racines d'une proximité, PHRASE pour une phrase
+        private final int maxDistance;
+
+        Constraint(String[] stems, int[] offsets, int maxDistance) {
+            this.stems = stems;
+            this.offsets = offsets;
+            this.maxDistance = maxDistance;
+        }
+
+        public List<String> getStems() {
+            return Arrays.asList(stems);
+        }
+
+        // Les positions croissantes de chaque racine (même ordre que getStems) satisfont-elles la contrainte ?
+        public boolean matches(int[][] positions) {
+            if (maxDistance == PHRASE) {
+                for (int first : positions[0]) {
+                    int origin = first - offsets[0];
+                    boolean phrase = true;
+                    for (int i = 1; i < stems.length && phrase; i++) {
+                        phrase = Arrays.binarySearch(positions[i], origin + offsets[i]) >= 0;
+                    }
+                    if (phrase) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            // Plus petit écart non nul entre deux positions des deux racines : fusion des deux listes triées
+            int[] a = positions[0];
+            int[] b = positions[1];
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                int distance = Math.abs(a[i] - b[j]);
+                if (distance != 0 && distance <= maxDistance) {
+                    return true;
+                }
+                if (a[i] < b[j]) {
+                    i++;
+                } else {
+                    // Égalité : même mot (même racine des deux côtés), à apparier avec l'occurrence suivante
+                    j++;
+                }
+            }
+            return false;
+        }
+
+        // Égalité structurelle (racines, décalages, écart) : deux requêtes de mêmes contraintes partagent une
+        // entrée du cache de résultats.
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Constraint other)) {
+                return false;
+            }
+            return maxDistance == other.maxDistance && Arrays.equals(stems, other.stems)
+                    && Arrays.equals(offsets, other.offsets);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(stems) + Arrays.hashCode(offsets)) + maxDistance;
+        }
+
+        @Override
+        public String toString() {
+            if (maxDistance != PHRASE) {
+                return stems[0] + " " + NEAR + "/" + maxDistance + " " + stems[1];
+            }
+            StringBuilder phrase = new StringBuilder("\"");
+            for (int i = 0; i < stems.length; i++) {
+                phrase.append(i > 0 ? " " : "").append(stems[i]).append('@').append(offsets[i]);
+            }
+            return phrase.append('"').toString();
+        }
+    }
+}
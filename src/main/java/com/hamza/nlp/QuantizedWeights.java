@@ -0,0 +1,160 @@
+package com.hamza.nlp;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+// Poids d'une matrice ou d'un instantané codés selon une WeightQuantization : demi-flottants (short[]) ou niveaux
+// logarithmiques (byte[]) sur le tas, ou les mêmes codages lus directement dans un instantané projeté.
+// get(i) décode le poids de la cellule i ; les codes ne sont jamais modifiés.
+
+abstract class QuantizedWeights {
+
+    abstract float get(int index);
+
+    abstract long estimateBytes();
+
+    // Code des poids sur le tas (FLOAT32 : copie telle quelle).
+    static QuantizedWeights encode(float[] values, WeightQuantization quantization) {
+        return switch (quantization) {
+            case FLOAT16 -> {
+                short[] halves = new short[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    halves[i] = WeightQuantization.toHalf(values[i]);
+                }
+                yield new Halves(halves);
+            }
+            case INT8 -> {
+                byte[] codes = new byte[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    codes[i] = WeightQuantization.toCode(values[i]);
+                }
+                yield new Codes(codes);
+            }
+            case FLOAT32 -> new Floats(values.clone());
+        };
+    }
+
+    // Poids codés lus dans une section d'instantané (little-endian).
+    static QuantizedWeights mapped(ByteBuffer section, WeightQuantization quantization) {
+        return switch (quantization) {
+            case FLOAT16 -> new MappedHalves(section.asShortBuffer());
+            case INT8 -> new MappedCodes(section);
+            case FLOAT32 -> new MappedFloats(section.asFloatBuffer());
+        };
+    }
+
+    private static final class Floats extends QuantizedWeights {
+
+        private final float[] values;
+
+        Floats(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        float get(int index) {
+            return values[index];
+        }
+
+        @Override
+        long estimateBytes() {
+            return 4L * values.length;
+        }
+    }
+
+    private static final class Halves extends QuantizedWeights {
+
+        private final short[] halves;
+
+        Halves(short[] halves) {
+            this.halves = halves;
+        }
+
+        @Override
+        float get(int index) {
+            return WeightQuantization.fromHalf(halves[index]);
+        }
+
+        @Override
+        long estimateBytes() {
+            return 2L * halves.length;
+        }
+    }
+
+    private static final class Codes extends QuantizedWeights {
+
+        private final byte[] codes;
+
+        Codes(byte[] codes) {
+            this.codes = codes;
+        }
+
+        @Override
+        float get(int index) {
+            return WeightQuantization.fromCode(codes[index]);
+        }
+
+        @Override
+        long estimateBytes() {
+            return codes.length;
+        }
+    }
+
+    private static final class MappedFloats extends QuantizedWeights {
+
+        private final FloatBuffer values;
+
+        MappedFloats(FloatBuffer values) {
+            this.values = values;
+        }
+
+        @Override
+        float get(int index) {
+            return values.get(index);
+        }
+
+        @Override
+        long estimateBytes() {
+            return 4L * values.capacity();
+        }
+    }
+
+    private static final class MappedHalves extends QuantizedWeights {
+
+        private final ShortBuffer halves;
+
+        MappedHalves(ShortBuffer halves) {
+            this.halves = halves;
+        }
+
+        @Override
+        float get(int index) {
+            return WeightQuantization.fromHalf(halves.get(index));
+        }
+
+        @Override
+        long estimateBytes() {
+            return 2L * halves.capacity();
+        }
+    }
+
+    private static final class MappedCodes extends QuantizedWeights {
+
+        private final ByteBuffer codes;
+
+        MappedCodes(ByteBuffer codes) {
+            this.codes = codes;
+        }
+
+        @Override
+        float get(int index) {
+            return WeightQuantization.fromCode(codes.get(index));
+        }
+
+        @Override
+        long estimateBytes() {
+            return codes.capacity();
+        }
+    }
+}
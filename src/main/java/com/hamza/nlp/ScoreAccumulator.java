@@ -0,0 +1,41 @@
+package com.hamza.nlp;
+
+// Accumulateur de produits scalaires réutilisable d'une requête à l'autre : un tableau dense indexé par document
+// et la liste des documents touchés. Seules les entrées touchées sont remises à zéro, ce qui évite toute
+// allocation par document visité.
+
+final class ScoreAccumulator {
+
+    private double[] scores = new double[0];
+    private int[] touched = new int[0];
+    private int touchedCount;
+
+    // Prépare l'accumulateur pour un corpus de documentCount documents.
+    void reset(int documentCount) {
+        if (scores.length < documentCount) {
+            scores = new double[documentCount];
+            touched = new int[documentCount];
+        } else {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0.0;
+            }
+        }
+        touchedCount = 0;
+    }
+
+    // Ajoute une contribution au score d'un document. Les poids TF-IDF étant strictement positifs,
+    // un score nul signifie que le document n'a pas encore été touché.
+    void add(int docId, double contribution) {
+        if (contribution == 0.0) {
+            return;
+        }
+        if (scores[docId] == 0.0) {
+            touched[touchedCount++] = docId;
+        }
+        scores[docId] += contribution;
+    }
+
+    double get(int docId) {
+        return scores[docId];
+    }
+}
@@ -0,0 +1,18 @@
+package com.hamza.nlp;
+
+import java.util.Map;
+
+// Fonction de score des recherches (point d'extension du chercheur) : pour chaque segment, la requête est
+// préparée en un SegmentScorer (termes présents, poids, bornes), que DocumentSearcher applique posting par
+// posting quel que soit le parcours (MaxScore, exhaustif, positionnel). Le score d'un document est
+// finish(somme des contributions de ses postings).
+// Implémentations : CosineScorer (similarité cosinus TF-IDF, par défaut) et Bm25Scorer.
+
+public interface Scorer {
+
+    // Nom de la fonction, tel qu'il est choisi par une requête (SearchRequestDto.scorer).
+    String getName();
+
+    // Prépare la requête (vecteur TF-IDF de norme queryNorm) pour un segment, sous le verrou de lecture de l'index.
+    SegmentScorer prepare(Map<String, Double> queryTfIdf, double queryNorm, IndexSegment segment, SegmentedIndex index);
+}
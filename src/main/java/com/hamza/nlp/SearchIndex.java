@@ -0,0 +1,96 @@
+package com.hamza.nlp;
+
+// Vue en lecture seule d'un index de recherche, utilisée par DocumentSearcher pour scorer les requêtes.
+// Deux implémentations : InvertedIndex (tableaux sur le tas) et MappedIndex (instantané binaire projeté en mémoire).
+// Documents et termes sont identifiés par des entiers denses ; les postings d'un terme occupent les positions
+// [postingStart, postingEnd), triées par identifiant de document croissant, et les termes d'un document
+// (lignes de la matrice TF-IDF) les positions [documentTermStart, documentTermEnd).
+
+public interface SearchIndex {
+
+    // Génération unique de l'index, qui permet aux caches de détecter un changement d'index.
+    long getGeneration();
+
+    int getDocumentCount();
+
+    String getDocumentName(int docId);
+
+    double getDocumentNorm(int docId);
+
+    // Norme des poids élagués du document (voir InvertedIndex.compress) : la norme du document est celle de son
+    // vecteur complet, qui est aussi la racine de la somme des carrés de sa ligne et de ce reste.
+    default double getResidualNorm(int docId) {
+        return 0.0;
+    }
+
+    // Longueur d'un document : nombre d'occurrences de ses racines indexées (normalisation de BM25).
+    int getDocumentLength(int docId);
+
+    int getTermCount();
+
+    // Identifiant d'une racine, ou -1 si elle n'apparaît dans aucun document.
+    int getTermId(String term);
+
+    String getTerm(int termId);
+
+    // Forme de surface la plus fréquente du terme dans le corpus (voir SurfaceForms), ou la racine elle-même si
+    // l'index ne la connaît pas.
+    default String getSurfaceForm(int termId) {
+        return getTerm(termId);
+    }
+
+    double getIdf(int termId);
+
+    // Nombre de documents qui contiennent le terme ; celui des postings, sauf dans un index élagué.
+    default int getDocumentFrequency(int termId) {
+        return postingEnd(termId) - postingStart(termId);
+    }
+
+    // Borne supérieure de poids / norme parmi les documents qui contiennent le terme.
+    double getMaxImpact(int termId);
+
+    int postingStart(int termId);
+
+    int postingEnd(int termId);
+
+    int postingDocId(int index);
+
+    float postingWeight(int index);
+
+    // Avance un curseur de postings jusqu'au premier document >= docId (ou end).
+    int postingAdvance(int index, int end, int docId);
+
+    // L'index enregistre-t-il les positions des termes dans les documents (index positionnel) ?
+    default boolean hasPositions() {
+        return false;
+    }
+
+    // Positions croissantes du terme du posting index dans son document : rangs des mots dans le document, mots
+    // vides compris (voir TermPositions). Uniquement si hasPositions().
+    default int[] postingPositions(int index) {
+        throw new UnsupportedOperationException("Index sans positions");
+    }
+
+    int documentTermStart(int docId);
+
+    int documentTermEnd(int docId);
+
+    int documentTermId(int index);
+
+    float documentTermWeight(int index);
+
+    // Codage des poids et part des postings élagués par document (voir IndexCompression).
+    default WeightQuantization getQuantization() {
+        return WeightQuantization.FLOAT32;
+    }
+
+    default double getPruneRatio() {
+        return 0.0;
+    }
+
+    default boolean containsTerm(int docId, int termId) {
+        int end = postingEnd(termId);
+        int index = postingAdvance(postingStart(termId), end, docId);
+        return index < end && postingDocId(index) == docId;
+    }
+}
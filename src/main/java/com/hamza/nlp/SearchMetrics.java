@@ -0,0 +1,98 @@
+package com.hamza.nlp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+// Instrumentation Micrometer du chemin d'une requête : un timer (avec histogramme, pour les percentiles
+// Prometheus) par étape, et des compteurs de requêtes vides, de documents scorés et de résultats retournés.
+// Hors Spring (outils en ligne de commande, benchmarks), disabled() enregistre dans un registre composite vide,
+// dont les mesures ne sont conservées nulle part.
+
+public class SearchMetrics {
+
+    // Étapes d'une recherche, dans l'ordre où elles s'exécutent
+    public enum Stage {
+        STEMMING("stemming"),
+        VECTORISATION("vectorisation"),
+        SCORING("scoring"),
+        TOP_K("top-k"),
+        SNIPPETS("snippets"),
+        MAPPING("mapping");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Timer[] stageTimers = new Timer[Stage.values().length];
+    private final Timer cachedRequests;
+    private final Timer computedRequests;
+    private final Counter emptyQueries;
+    private final Counter candidatesScored;
+    private final DistributionSummary resultCounts;
+
+    public SearchMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("search.stage")
+                    .description("Durée d'une étape de la recherche")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        this.cachedRequests = requestTimer(registry, "hit");
+        this.computedRequests = requestTimer(registry, "miss");
+        this.emptyQueries = Counter.builder("search.queries.empty")
+                .description("Requêtes sans aucun terme valide après racinisation")
+                .register(registry);
+        this.candidatesScored = Counter.builder("search.candidates.scored")
+                .description("Documents dont la similarité a été calculée")
+                .register(registry);
+        this.resultCounts = DistributionSummary.builder("search.results")
+                .description("Nombre de résultats retournés par requête")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public static SearchMetrics disabled() {
+        return new SearchMetrics(new CompositeMeterRegistry());
+    }
+
+    private static Timer requestTimer(MeterRegistry registry, String cache) {
+        return Timer.builder("search.requests")
+                .description("Durée totale d'une recherche, servie par le cache des résultats ou calculée")
+                .tag("cache", cache)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // Enregistre la durée d'une étape commencée à startNanos (System.nanoTime()).
+    public void record(Stage stage, long startNanos) {
+        stageTimers[stage.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Enregistre la durée totale d'une recherche commencée à startNanos et retourne cette durée en nanosecondes.
+    public long recordRequest(boolean cacheHit, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        (cacheHit ? cachedRequests : computedRequests).record(duration, TimeUnit.NANOSECONDS);
+        return duration;
+    }
+
+    public void emptyQuery() {
+        emptyQueries.increment();
+    }
+
+    public void candidatesScored(long count) {
+        candidatesScored.increment(count);
+    }
+
+    public void results(int count) {
+        resultCounts.record(count);
+    }
+}
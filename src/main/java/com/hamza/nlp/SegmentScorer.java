@@ -0,0 +1,43 @@
+package com.hamza.nlp;
+
+// Requête préparée pour un segment par un Scorer : termes de la requête présents dans le segment, triés par
+// borne supérieure croissante (voir DocumentSearcher.collectTopK), avec leur poids et un facteur propre au scorer.
+// La borne d'un terme majore sa contribution au score final de n'importe quel document du segment.
+
+abstract class SegmentScorer {
+
+    int size;
+    final int[] termIds;
+    final double[] weights;
+    final double[] termFactors;
+    final double[] upperBounds;
+
+    SegmentScorer(int capacity) {
+        this.termIds = new int[capacity];
+        this.weights = new double[capacity];
+        this.termFactors = new double[capacity];
+        this.upperBounds = new double[capacity];
+    }
+
+    // Ajoute un terme, par insertion triée sur la borne (les requêtes ont peu de termes).
+    void add(int termId, double weight, double termFactor, double upperBound) {
+        int i = size++;
+        while (i > 0 && upperBounds[i - 1] > upperBound) {
+            termIds[i] = termIds[i - 1];
+            weights[i] = weights[i - 1];
+            termFactors[i] = termFactors[i - 1];
+            upperBounds[i] = upperBounds[i - 1];
+            i--;
+        }
+        termIds[i] = termId;
+        weights[i] = weight;
+        termFactors[i] = termFactor;
+        upperBounds[i] = upperBound;
+    }
+
+    // Contribution au document docId du posting de poids postingWeight du terme d'indice term.
+    abstract double contribution(int term, float postingWeight, int docId);
+
+    // Score final du document docId à partir de la somme des contributions de ses postings.
+    abstract double finish(double sum, int docId);
+}
@@ -0,0 +1,606 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Index de recherche modifiable sans reconstruction complète : une liste de segments immuables (les premiers sont
+// les shards de l'index chargé au démarrage, en mémoire ou projeté depuis l'instantané, voir IndexShard), des
+// suppressions logiques (tombstones) et des fréquences documentaires maintenues de façon incrémentale, communes
+// à tous les segments.
+//  - Ajouter un document construit un petit segment pour lui seul ; remplacer un document supprime l'ancienne
+//    version puis ajoute la nouvelle ; supprimer un document le marque comme supprimé dans son segment.
+//    Chaque opération coûte un temps proportionnel au document, pas au corpus.
+//  - Les fréquences documentaires sont celles de l'index initial corrigées par des écarts par terme ; l'IDF est
+//    recalculé à la volée et appliqué aux postings par le rapport IDF courant / IDF du segment (voir IndexSegment).
+//  - Les normes des documents, elles, dépendent de l'IDF de tous leurs termes : elles sont rafraîchies
+//    paresseusement, dès que le nombre de modifications dépasse une fraction (refreshRatio) du corpus.
+//  - Quand il y a plus de maxSegments segments issus des modifications, les plus petits sont fusionnés (sans
+//    leurs documents supprimés) ; les shards de l'index initial ne sont jamais fusionnés.
+// Les recherches s'exécutent sous le verrou de lecture (voir read), les modifications sous le verrou d'écriture.
+// Chaque modification change la génération de l'index, ce qui invalide le cache des résultats.
+// Dans un déploiement distribué, l'index d'un shard reçoit en plus les statistiques des autres shards (voir
+// setRemoteStatistics) : son IDF est alors celui du corpus complet.
+
+public class SegmentedIndex {
+
+    private final SearchIndex baseIndex;
+    private final int maxSegments;
+    private final double refreshRatio;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<IndexSegment> segments = new ArrayList<>();
+    private final Map<String, int[]> documentFrequencyDeltas = new HashMap<>();
+    private Map<String, DocumentLocation> locations;
+    private int documentCount;
+    // Somme des longueurs des documents vivants (longueur moyenne de BM25)
+    private long totalDocumentLength;
+    private int vocabularySize;
+    private int pendingChanges;
+    private Map<String, Integer> remoteDocumentFrequencies = Map.of();
+    private int remoteDocumentCount;
+    private long remoteDocumentLength;
+    // Formes de surface des termes des documents ajoutés (celles des termes de l'index initial y sont déjà)
+    private final SurfaceForms addedSurfaceForms = new SurfaceForms();
+    private volatile long generation;
+
+    public SegmentedIndex(SearchIndex baseIndex, int shardCount, int maxSegments, double refreshRatio) {
+        this.baseIndex = baseIndex;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.refreshRatio = refreshRatio;
+        for (SearchIndex shard : IndexShard.split(baseIndex, shardCount)) {
+            this.segments.add(new IndexSegment(shard, true));
+        }
+        this.documentCount = baseIndex.getDocumentCount();
+        for (int docId = 0; docId < documentCount; docId++) {
+            this.totalDocumentLength += baseIndex.getDocumentLength(docId);
+        }
+        this.vocabularySize = baseIndex.getTermCount();
+        this.generation = baseIndex.getGeneration();
+    }
+
+    // Exécute une lecture cohérente de l'index (recherche, analyse de requête) sous le verrou de lecture.
+    public <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Segments courants, dans l'ordre ; à n'appeler que depuis read.
+    List<IndexSegment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getDocumentCount() {
+        return read(() -> documentCount);
+    }
+
+    // Nombre de termes présents dans au moins un document vivant.
+    public int getVocabularySize() {
+        return read(() -> vocabularySize);
+    }
+
+    public int getSegmentCount() {
+        return read(segments::size);
+    }
+
+    public int getPendingChanges() {
+        return read(() -> pendingChanges);
+    }
+
+    // Nombre de documents du corpus complet (ce shard et les autres), celui de l'IDF.
+    public int getCorpusDocumentCount() {
+        return read(() -> documentCount + remoteDocumentCount);
+    }
+
+    // Somme des longueurs des documents locaux (hors autres shards).
+    public long getLocalDocumentLength() {
+        return read(() -> totalDocumentLength);
+    }
+
+    public int getDocumentFrequency(String term) {
+        return read(() -> corpusDocumentFrequency(term));
+    }
+
+    // Fréquences documentaires locales (hors autres shards) de tous les termes présents dans l'index.
+    public Map<String, Integer> getLocalDocumentFrequencies() {
+        return read(() -> {
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (int termId = 0; termId < baseIndex.getTermCount(); termId++) {
+                String term = baseIndex.getTerm(termId);
+                int[] delta = documentFrequencyDeltas.isEmpty() ? null : documentFrequencyDeltas.get(term);
+                int documentFrequency = baseIndex.getDocumentFrequency(termId) + (delta != null ? delta[0] : 0);
+                if (documentFrequency > 0) {
+                    frequencies.put(term, documentFrequency);
+                }
+            }
+            for (String term : documentFrequencyDeltas.keySet()) {
+                int documentFrequency = documentFrequency(term);
+                if (documentFrequency > 0) {
+                    frequencies.put(term, documentFrequency);
+                }
+            }
+            return frequencies;
+        });
+    }
+
+    // Parcourt les termes présents dans au moins un document vivant, avec leur forme de surface et leur
+    // fréquence documentaire locale, sous le verrou de lecture (voir TermSuggester).
+    public void forEachTerm(TermVisitor visitor) {
+        read(() -> {
+            for (int termId = 0; termId < baseIndex.getTermCount(); termId++) {
+                String term = baseIndex.getTerm(termId);
+                int[] delta = documentFrequencyDeltas.isEmpty() ? null : documentFrequencyDeltas.get(term);
+                int documentFrequency = baseIndex.getDocumentFrequency(termId) + (delta != null ? delta[0] : 0);
+                if (documentFrequency > 0) {
+                    visitor.visit(term, baseIndex.getSurfaceForm(termId), documentFrequency);
+                }
+            }
+            for (String term : documentFrequencyDeltas.keySet()) {
+                int documentFrequency = documentFrequency(term);
+                if (documentFrequency > 0 && baseIndex.getTermId(term) < 0) {
+                    String form = addedSurfaceForms.get(term);
+                    visitor.visit(term, form != null ? form : term, documentFrequency);
+                }
+            }
+            return null;
+        });
+    }
+
+    // Statistiques des autres shards (nombre de documents, fréquences documentaires et longueur totale des
+    // documents cumulés), transmises par le coordinateur ; elles remplacent les précédentes. Les normes sont
+    // aussitôt recalculées avec le nouvel IDF.
+    public void setRemoteStatistics(int documentCount, Map<String, Integer> documentFrequencies, long documentLength) {
+        lock.writeLock().lock();
+        try {
+            this.remoteDocumentCount = documentCount;
+            this.remoteDocumentLength = documentLength;
+            this.remoteDocumentFrequencies = new HashMap<>(documentFrequencies);
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refresh();
+    }
+
+    public double getIdf(String term) {
+        return read(() -> currentIdf(term));
+    }
+
+    // Ajoute un document (ou remplace celui de même nom) à partir des occurrences de ses racines.
+    // Retourne true si un document existant a été remplacé.
+    public boolean addDocument(String name, Map<String, Long> termCounts) {
+        return addDocument(name, termCounts, null, null, false);
+    }
+
+    // Idem à partir des positions des racines (le segment du document est alors positionnel) et de leurs formes
+    // de surface.
+    public boolean addDocument(String name, TermPositions positions, SurfaceForms surfaceForms) {
+        return addDocument(name, positions.getCounts(), positions, surfaceForms, false);
+    }
+
+    // Ajoute un document seulement si aucun document ne porte ce nom, vérifié et inséré sous le même verrou :
+    // de deux ajouts concurrents du même nom, un seul réussit. Retourne true si le document a été ajouté.
+    public boolean addDocumentIfAbsent(String name, TermPositions positions, SurfaceForms surfaceForms) {
+        return !addDocument(name, positions.getCounts(), positions, surfaceForms, true);
+    }
+
+    // Retourne true si un document de ce nom existait (remplacé, ou laissé tel quel si ifAbsent).
+    private boolean addDocument(String name, Map<String, Long> termCounts, TermPositions positions,
+                                SurfaceForms surfaceForms, boolean ifAbsent) {
+        boolean replaced;
+        lock.writeLock().lock();
+        try {
+            if (ifAbsent && locations().containsKey(name)) {
+                return true;
+            }
+            if (surfaceForms != null) {
+                addedSurfaceForms.addAll(surfaceForms);
+            }
+            replaced = deleteDocument(name);
+            for (String term : termCounts.keySet()) {
+                adjustDocumentFrequency(term, 1);
+            }
+            documentCount++;
+            int documentLength = (int) termCounts.values().stream().mapToLong(Long::longValue).sum();
+            totalDocumentLength += documentLength;
+
+            IndexSegment segment = buildSegment(List.of(name), List.of(TfIdfUtils.computeTF(termCounts)),
+                    new int[]{documentLength}, positions != null ? List.of(positions::get) : null);
+            segments.add(segment);
+            locations.put(name, new DocumentLocation(segment, 0));
+            changed();
+            mergeSmallestSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refreshIfNeeded();
+        return replaced;
+    }
+
+    // Supprime un document ; retourne false s'il n'existe pas.
+    public boolean removeDocument(String name) {
+        boolean removed;
+        lock.writeLock().lock();
+        try {
+            removed = deleteDocument(name);
+            if (removed) {
+                changed();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refreshIfNeeded();
+        return removed;
+    }
+
+    public boolean containsDocument(String name) {
+        lock.writeLock().lock();
+        try {
+            return locations().containsKey(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Vecteurs TF-IDF (à l'IDF courant du corpus) des documents de ces noms, dans l'ordre ; null pour un nom absent.
+    public List<Map<String, Double>> getDocumentVectors(List<String> names) {
+        buildLocations();
+        return read(() -> {
+            List<Map<String, Double>> vectors = new ArrayList<>(names.size());
+            for (String name : names) {
+                DocumentLocation location = locations.get(name);
+                vectors.add(location != null ? documentVector(location.segment, location.docId) : null);
+            }
+            return vectors;
+        });
+    }
+
+    // Rafraîchit les normes de tous les segments avec l'IDF courant, quel que soit le nombre de modifications.
+    // Le calcul se fait sous le verrou de lecture (les recherches continuent) ; il est publié sous le verrou
+    // d'écriture, sauf si une modification est intervenue entre-temps (il sera alors refait plus tard).
+    public boolean refresh() {
+        long observedGeneration;
+        List<IndexSegment> refreshedSegments;
+        List<IndexSegment.Refresh> refreshes = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            observedGeneration = generation;
+            refreshedSegments = new ArrayList<>(segments);
+            for (IndexSegment segment : refreshedSegments) {
+                refreshes.add(segment.computeRefresh(this::currentIdf));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (generation != observedGeneration) {
+                return false;
+            }
+            for (int i = 0; i < refreshedSegments.size(); i++) {
+                refreshedSegments.get(i).apply(refreshes.get(i));
+            }
+            pendingChanges = 0;
+            generation = InvertedIndex.nextGeneration();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void refreshIfNeeded() {
+        boolean due = read(() -> pendingChanges > 0 && pendingChanges >= refreshRatio * Math.max(1, documentCount));
+        if (due) {
+            refresh();
+        }
+    }
+
+    // Fréquence documentaire = celle de l'index initial, corrigée des ajouts et suppressions depuis le démarrage.
+    private int documentFrequency(String term) {
+        int termId = baseIndex.getTermId(term);
+        int baseFrequency = termId >= 0 ? baseIndex.getDocumentFrequency(termId) : 0;
+        int[] delta = documentFrequencyDeltas.get(term);
+        return baseFrequency + (delta != null ? delta[0] : 0);
+    }
+
+    // Fréquence documentaire d'un terme dans le corpus complet ; à n'appeler que sous verrou.
+    int corpusDocumentFrequency(String term) {
+        return documentFrequency(term) + remoteDocumentFrequencies.getOrDefault(term, 0);
+    }
+
+    // Nombre de documents et longueur moyenne des documents du corpus complet ; à n'appeler que sous verrou.
+    int corpusDocumentCount() {
+        return documentCount + remoteDocumentCount;
+    }
+
+    double averageDocumentLength() {
+        int corpusDocuments = documentCount + remoteDocumentCount;
+        return corpusDocuments > 0 ? (double) (totalDocumentLength + remoteDocumentLength) / corpusDocuments : 0.0;
+    }
+
+    // Similarité cosinus entre un vecteur TF-IDF et chacun des documents de ces noms (0 pour un nom absent),
+    // calculée comme CosineScorer : poids des documents ramenés à l'IDF courant, normes précalculées.
+    public double[] cosineSimilarities(Map<String, Double> vector, List<String> names) {
+        double norm = 0.0;
+        for (double weight : vector.values()) {
+            norm += weight * weight;
+        }
+        double vectorNorm = Math.sqrt(norm);
+        buildLocations();
+        return read(() -> {
+            double[] similarities = new double[names.size()];
+            // Termes du vecteur, leurs poids et leur IDF courant, ramenés ensuite à chaque segment rencontré
+            String[] terms = vector.keySet().toArray(new String[0]);
+            double[] weights = new double[terms.length];
+            double[] idfs = new double[terms.length];
+            for (int t = 0; t < terms.length; t++) {
+                weights[t] = vector.get(terms[t]);
+                idfs[t] = currentIdf(terms[t]);
+            }
+            Map<IndexSegment, SegmentVector> segmentVectors = new HashMap<>();
+            for (int n = 0; n < names.size(); n++) {
+                DocumentLocation location = locations.get(names.get(n));
+                if (location == null || vectorNorm == 0.0) {
+                    continue;
+                }
+                IndexSegment segment = location.segment;
+                SearchIndex index = segment.getIndex();
+                SegmentVector segmentVector = segmentVectors.computeIfAbsent(segment,
+                        s -> segmentVector(s, terms, weights, idfs));
+                double dotProduct = 0.0;
+                for (int i = index.documentTermStart(location.docId); i < index.documentTermEnd(location.docId); i++) {
+                    int t = Arrays.binarySearch(segmentVector.termIds, index.documentTermId(i));
+                    if (t >= 0) {
+                        dotProduct += segmentVector.weights[t] * index.documentTermWeight(i);
+                    }
+                }
+                double documentNorm = segment.getDocumentNorm(location.docId);
+                similarities[n] = dotProduct == 0.0 || documentNorm == 0.0 ? 0.0 : dotProduct / (vectorNorm * documentNorm);
+            }
+            return similarities;
+        });
+    }
+
+    // Termes d'un vecteur présents dans un segment, triés par identifiant, et leurs poids multipliés par le rapport
+    // IDF courant / IDF du segment (sous verrou).
+    private static SegmentVector segmentVector(IndexSegment segment, String[] terms, double[] weights, double[] idfs) {
+        long[] sorted = new long[terms.length];
+        int count = 0;
+        for (int t = 0; t < terms.length; t++) {
+            int termId = segment.getIndex().getTermId(terms[t]);
+            if (termId >= 0) {
+                sorted[count++] = (long) termId << 32 | t;
+            }
+        }
+        Arrays.sort(sorted, 0, count);
+        SegmentVector segmentVector = new SegmentVector(new int[count], new double[count]);
+        for (int k = 0; k < count; k++) {
+            int termId = (int) (sorted[k] >>> 32);
+            int t = (int) sorted[k];
+            segmentVector.termIds[k] = termId;
+            segmentVector.weights[k] = weights[t] * segment.idfRatio(termId, idfs[t]);
+        }
+        return segmentVector;
+    }
+
+    // Construit la table nom -> document si elle ne l'est pas encore (elle l'est ensuite sous verrou d'écriture).
+    private void buildLocations() {
+        if (read(() -> locations == null)) {
+            lock.writeLock().lock();
+            try {
+                locations();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Vecteur TF-IDF d'un document d'un segment : poids du segment ramenés à l'IDF courant ; sous verrou.
+    private Map<String, Double> documentVector(IndexSegment segment, int docId) {
+        SearchIndex index = segment.getIndex();
+        Map<String, Double> vector = new HashMap<>();
+        for (int i = index.documentTermStart(docId); i < index.documentTermEnd(docId); i++) {
+            int termId = index.documentTermId(i);
+            String term = index.getTerm(termId);
+            vector.put(term, index.documentTermWeight(i) * segment.idfRatio(termId, currentIdf(term)));
+        }
+        return vector;
+    }
+
+    // IDF courant d'un terme, ou 0 s'il n'apparaît dans aucun document ; à n'appeler que sous verrou.
+    double currentIdf(String term) {
+        int documentFrequency = corpusDocumentFrequency(term);
+        return documentFrequency > 0
+                ? TfIdfUtils.computeIdf(documentCount + remoteDocumentCount, documentFrequency) : 0.0;
+    }
+
+    private void adjustDocumentFrequency(String term, int delta) {
+        int before = documentFrequency(term);
+        int[] adjustment = documentFrequencyDeltas.computeIfAbsent(term, t -> new int[1]);
+        adjustment[0] += delta;
+        if (adjustment[0] == 0) {
+            documentFrequencyDeltas.remove(term);
+        }
+        int after = before + delta;
+        if (before == 0 && after > 0) {
+            vocabularySize++;
+        } else if (before > 0 && after == 0) {
+            vocabularySize--;
+        }
+    }
+
+    // Marque le document comme supprimé et retire ses termes des fréquences documentaires (sous verrou d'écriture).
+    private boolean deleteDocument(String name) {
+        DocumentLocation location = locations().remove(name);
+        if (location == null) {
+            return false;
+        }
+        IndexSegment segment = location.segment;
+        SearchIndex index = segment.getIndex();
+        segment.delete(location.docId);
+        totalDocumentLength -= index.getDocumentLength(location.docId);
+        for (int i = index.documentTermStart(location.docId); i < index.documentTermEnd(location.docId); i++) {
+            adjustDocumentFrequency(index.getTerm(index.documentTermId(i)), -1);
+        }
+        documentCount--;
+        if (segment.getLiveDocumentCount() == 0) {
+            segments.remove(segment);
+        }
+        return true;
+    }
+
+    private void changed() {
+        pendingChanges++;
+        generation = InvertedIndex.nextGeneration();
+    }
+
+    // Nom -> emplacement des documents, construit à la première modification (l'index initial n'en a pas besoin
+    // tant qu'il n'est que lu).
+    private Map<String, DocumentLocation> locations() {
+        if (locations == null) {
+            locations = new HashMap<>();
+            for (IndexSegment segment : segments) {
+                for (int docId = 0; docId < segment.getIndex().getDocumentCount(); docId++) {
+                    if (!segment.isDeleted(docId)) {
+                        locations.put(segment.getIndex().getDocumentName(docId), new DocumentLocation(segment, docId));
+                    }
+                }
+            }
+        }
+        return locations;
+    }
+
+    // Politique de fusion : au-delà de maxSegments segments issus des modifications, la moitié la plus petite
+    // d'entre eux est fusionnée en un seul. Un document n'est ainsi recopié qu'un nombre logarithmique de fois.
+    private void mergeSmallestSegments() {
+        List<IndexSegment> bySize = new ArrayList<>();
+        for (IndexSegment segment : segments) {
+            if (!segment.isBaseShard()) {
+                bySize.add(segment);
+            }
+        }
+        if (bySize.size() <= maxSegments) {
+            return;
+        }
+        bySize.sort(Comparator.comparingInt(IndexSegment::getLiveDocumentCount));
+        List<IndexSegment> merged = bySize.subList(0, Math.max(2, bySize.size() / 2));
+
+        // Documents vivants des segments fusionnés, dans l'ordre des segments ; TF retrouvé en divisant
+        // chaque poids par l'IDF du segment
+        // Positions recopiées depuis les postings des segments fusionnés, s'ils sont tous positionnels
+        Map<String, Map<String, Double>> documents = new LinkedHashMap<>();
+        List<Integer> documentLengths = new ArrayList<>();
+        boolean positional = merged.stream().allMatch(segment -> segment.getIndex().hasPositions());
+        List<Function<String, int[]>> positions = positional ? new ArrayList<>() : null;
+        int position = segments.size();
+        for (int s = 0; s < segments.size(); s++) {
+            IndexSegment segment = segments.get(s);
+            if (!merged.contains(segment)) {
+                continue;
+            }
+            position = Math.min(position, s);
+            SearchIndex index = segment.getIndex();
+            for (int docId = 0; docId < index.getDocumentCount(); docId++) {
+                if (segment.isDeleted(docId)) {
+                    continue;
+                }
+                Map<String, Double> termFrequencies = new LinkedHashMap<>();
+                for (int i = index.documentTermStart(docId); i < index.documentTermEnd(docId); i++) {
+                    int termId = index.documentTermId(i);
+                    termFrequencies.put(index.getTerm(termId), index.documentTermWeight(i) / index.getIdf(termId));
+                }
+                documents.put(index.getDocumentName(docId), termFrequencies);
+                documentLengths.add(index.getDocumentLength(docId));
+                if (positional) {
+                    int document = docId;
+                    positions.add(term -> {
+                        int termId = index.getTermId(term);
+                        return index.postingPositions(index.postingAdvance(index.postingStart(termId),
+                                index.postingEnd(termId), document));
+                    });
+                }
+            }
+        }
+
+        IndexSegment mergedSegment = buildSegment(new ArrayList<>(documents.keySet()),
+                new ArrayList<>(documents.values()), documentLengths.stream().mapToInt(Integer::intValue).toArray(),
+                positions);
+        segments.removeAll(merged);
+        segments.add(position, mergedSegment);
+        for (int docId = 0; docId < mergedSegment.getIndex().getDocumentCount(); docId++) {
+            locations.put(mergedSegment.getIndex().getDocumentName(docId), new DocumentLocation(mergedSegment, docId));
+        }
+    }
+
+    // Construit un segment en mémoire, pondéré par l'IDF courant du corpus. positions donne, pour chaque document,
+    // les positions de ses termes (null pour un segment sans positions).
+    private IndexSegment buildSegment(List<String> names, List<Map<String, Double>> termFrequencies,
+                                      int[] documentLengths, List<Function<String, int[]>> positions) {
+        TermDictionary dictionary = new TermDictionary();
+        CsrMatrix.Builder matrix = new CsrMatrix.Builder();
+        PositionIndex.Builder cellPositions = positions != null ? new PositionIndex.Builder() : null;
+        double[] idf = new double[16];
+        for (int d = 0; d < termFrequencies.size(); d++) {
+            Map<String, Double> document = termFrequencies.get(d);
+            int[] columns = new int[document.size()];
+            float[] weights = new float[document.size()];
+            int length = 0;
+            for (Map.Entry<String, Double> entry : document.entrySet()) {
+                int termId = dictionary.getOrAdd(entry.getKey());
+                if (termId == idf.length) {
+                    idf = Arrays.copyOf(idf, idf.length * 2);
+                }
+                idf[termId] = currentIdf(entry.getKey());
+                columns[length] = termId;
+                weights[length++] = (float) (entry.getValue() * idf[termId]);
+            }
+            matrix.addRow(columns, weights, length);
+            if (cellPositions != null) {
+                // Colonnes triées par addRow : positions dans l'ordre des cellules de la ligne
+                for (int i = 0; i < length; i++) {
+                    cellPositions.add(positions.get(d).apply(dictionary.getTerm(columns[i])));
+                }
+            }
+        }
+        return new IndexSegment(InvertedIndex.build(names, dictionary, matrix.build(dictionary.size()),
+                Arrays.copyOf(idf, dictionary.size()), documentLengths, cellPositions != null ? cellPositions.build() : null), false);
+    }
+
+    // Visiteur des termes de l'index (voir forEachTerm).
+
+    @FunctionalInterface
+    public interface TermVisitor {
+        void visit(String term, String surfaceForm, int documentFrequency);
+    }
+
+    @AllArgsConstructor
+    private static final class SegmentVector {
+        private final int[] termIds;
+        private final double[] weights;
+    }
+
+    @AllArgsConstructor
+    private static final class DocumentLocation {
+        private final IndexSegment segment;
+        private final int docId;
+    }
+}
@@ -0,0 +1,432 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+// Documents similaires à un document ("plus de documents comme celui-ci") : ses plus proches voisins au sens du
+// cosinus entre vecteurs TF-IDF, trouvés sans comparer le document à tout le corpus.
+// Chaque document reçoit une signature SimHash de tables x bitsPerTable bits : le signe de la projection de son
+// vecteur TF-IDF sur autant d'hyperplans aléatoires, dont la composante sur un terme est tirée du hachage du terme
+// (aucune matrice de projection n'est stockée). Deux documents ont le même bit avec une probabilité
+// 1 - angle / pi : la distance de Hamming entre signatures estime l'angle entre les vecteurs.
+// LSH : la signature est découpée en `tables` clés de bitsPerTable bits. Les candidats d'un document sont les
+// documents de ses seaux et, par table, de `probes` seaux voisins (multi-probe : la clé dont on inverse un des bits
+// dont la projection est la plus proche de zéro). Les candidats sont classés par distance de Hamming, puis les
+// `rerank` plus proches sont reclassés par cosinus exact (calculé sur l'index comme par la recherche exacte).
+// Plus de tables, de sondes ou de candidats reclassés augmentent le rappel et la latence ; plus de bits par table
+// réduit la taille des seaux. evaluate() mesure le rappel et les latences contre la recherche exacte (le vecteur
+// du document soumis comme requête au chercheur, cosinus TF-IDF).
+// Les signatures sont calculées depuis l'index chargé au démarrage, puis tenues à jour à chaque ajout,
+// remplacement ou suppression de document ; elles ne suivent pas l'évolution de l'IDF, le reclassement si.
+
+public class SimilarDocumentIndex {
+
+    private static final long PLANE_SEED = 0x9E3779B97F4A7C15L;
+
+    private final SegmentedIndex index;
+    private final DocumentSearcher searcher;
+    private final int tables;
+    private final int bitsPerTable;
+    private final int probes;
+    private final int rerank;
+    // Mots de 64 bits d'une signature
+    private final int words;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Documents signés : identifiant attribué à l'insertion, nom (null une fois supprimé) et signature
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    private long[] signatures;
+    private int size;
+    // Seaux de chaque table : clé -> dernier document inséré, chaînés par next (identifiant + 1, 0 en fin de seau)
+    private LshTable[] buckets;
+    private int[] next;
+
+    public SimilarDocumentIndex(SegmentedIndex index, DocumentSearcher searcher,
+                                int tables, int bitsPerTable, int probes, int rerank) {
+        if (tables < 1 || bitsPerTable < 1 || bitsPerTable > 32 || probes < 0 || probes > bitsPerTable || rerank < 1) {
+            throw new IllegalArgumentException("Paramètres de similarité invalides : tables = " + tables
+                    + ", bits = " + bitsPerTable + ", probes = " + probes + ", rerank = " + rerank
+                    + " (attendus : tables >= 1, 1 <= bits <= 32, 0 <= probes <= bits, rerank >= 1)");
+        }
+        this.index = index;
+        this.searcher = searcher;
+        this.tables = tables;
+        this.bitsPerTable = bitsPerTable;
+        this.probes = probes;
+        this.rerank = rerank;
+        this.words = (tables * bitsPerTable + 63) / 64;
+        this.signatures = new long[16 * words];
+        this.buckets = LshTable.newTables(tables);
+        this.next = new int[16 * tables];
+    }
+
+    // Signe les documents vivants de l'index, segment par segment (signatures calculées en parallèle).
+    public static SimilarDocumentIndex build(SegmentedIndex index, DocumentSearcher searcher,
+                                             int tables, int bitsPerTable, int probes, int rerank) {
+        SimilarDocumentIndex similar = new SimilarDocumentIndex(index, searcher, tables, bitsPerTable, probes, rerank);
+        index.read(() -> {
+            for (IndexSegment segment : index.getSegments()) {
+                SearchIndex segmentIndex = segment.getIndex();
+                long[] termHashes = new long[segmentIndex.getTermCount()];
+                double[] idfRatios = new double[termHashes.length];
+                for (int termId = 0; termId < termHashes.length; termId++) {
+                    String term = segmentIndex.getTerm(termId);
+                    termHashes[termId] = LshTable.termHash(term);
+                    idfRatios[termId] = segment.idfRatio(termId, index.currentIdf(term));
+                }
+                long[][] segmentSignatures = new long[segmentIndex.getDocumentCount()][];
+                IntStream.range(0, segmentSignatures.length).parallel()
+                        .filter(docId -> !segment.isDeleted(docId))
+                        .forEach(docId -> {
+                            double[] projections = new double[similar.tables * similar.bitsPerTable];
+                            for (int i = segmentIndex.documentTermStart(docId); i < segmentIndex.documentTermEnd(docId); i++) {
+                                int termId = segmentIndex.documentTermId(i);
+                                similar.project(projections, termHashes[termId],
+                                        segmentIndex.documentTermWeight(i) * idfRatios[termId]);
+                            }
+                            segmentSignatures[docId] = similar.signature(projections);
+                        });
+                for (int docId = 0; docId < segmentSignatures.length; docId++) {
+                    if (segmentSignatures[docId] != null) {
+                        similar.insert(segmentIndex.getDocumentName(docId), segmentSignatures[docId]);
+                    }
+                }
+            }
+            return null;
+        });
+        return similar;
+    }
+
+    // Signe un document ajouté à l'index (ou remplacé), à partir de son vecteur TF-IDF courant.
+    public void add(String name) {
+        Map<String, Double> vector = index.getDocumentVectors(List.of(name)).get(0);
+        long[] signature = vector != null ? signature(projections(vector)) : null;
+        lock.writeLock().lock();
+        try {
+            delete(name);
+            if (signature != null) {
+                insert(name, signature);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String name) {
+        lock.writeLock().lock();
+        try {
+            delete(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Les `limit` documents les plus similaires à un document, approchés (LSH puis reclassement) ou exacts
+    // (recherche complète) ; null si le document n'est pas indexé.
+    public SimilarDocuments similar(String name, int limit, boolean exact) {
+        long start = System.nanoTime();
+        Map<String, Double> vector = index.getDocumentVectors(List.of(name)).get(0);
+        if (vector == null) {
+            return null;
+        }
+        List<SimilarDocument> results = new ArrayList<>();
+        int candidates;
+        int reranked;
+        if (exact) {
+            // Seuil strictement positif (MaxScore) : comme la recherche approchée, seuls les documents de similarité
+            // non nulle sont retenus, au lieu de compléter la liste par des documents sans terme commun
+            for (DocumentSearcher.DocumentSearchResult result : searcher.searchDocuments(vector,
+                    Collections.emptyList(), CosineScorer.INSTANCE, Double.MIN_VALUE, limit + 1)) {
+                if (!result.getDocumentName().equals(name) && results.size() < limit) {
+                    results.add(new SimilarDocument(result.getDocumentName(), result.getSimilarityScore()));
+                }
+            }
+            candidates = index.getDocumentCount();
+            reranked = 0;
+        } else {
+            double[] projections = projections(vector);
+            Candidates nearest = nearest(name, signature(projections), projections);
+            candidates = nearest.count;
+            reranked = nearest.names.size();
+            double[] similarities = index.cosineSimilarities(vector, nearest.names);
+            for (int i = 0; i < nearest.names.size(); i++) {
+                if (similarities[i] > 0.0) {
+                    results.add(new SimilarDocument(nearest.names.get(i), similarities[i]));
+                }
+            }
+            results.sort(Comparator.comparingDouble(SimilarDocument::getSimilarity).reversed()
+                    .thenComparing(SimilarDocument::getDocumentName));
+            if (results.size() > limit) {
+                results = new ArrayList<>(results.subList(0, limit));
+            }
+        }
+        return new SimilarDocuments(name, exact, candidates, reranked, results,
+                (System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    // Rappel de la recherche approchée contre la recherche exacte, sur `samples` documents tirés au hasard
+    // (graine fixe), et latences moyennes des deux recherches.
+    public SimilarityEvaluation evaluate(int samples, int limit) {
+        List<String> sample = sampleDocuments(samples, 42L);
+        double recall = 0.0;
+        long candidates = 0;
+        double approximateSeconds = 0.0;
+        double exactSeconds = 0.0;
+        int evaluated = 0;
+        for (String name : sample) {
+            SimilarDocuments approximate = similar(name, limit, false);
+            SimilarDocuments exact = similar(name, limit, true);
+            if (approximate == null || exact == null || exact.getResults().isEmpty()) {
+                continue;
+            }
+            Set<String> expected = new HashSet<>();
+            exact.getResults().forEach(result -> expected.add(result.getDocumentName()));
+            long found = approximate.getResults().stream()
+                    .filter(result -> expected.contains(result.getDocumentName())).count();
+            recall += (double) found / expected.size();
+            candidates += approximate.getCandidates();
+            approximateSeconds += approximate.getExecutionTime();
+            exactSeconds += exact.getExecutionTime();
+            evaluated++;
+        }
+        return new SimilarityEvaluation(evaluated, limit, evaluated > 0 ? recall / evaluated : 0.0,
+                evaluated > 0 ? (double) candidates / evaluated : 0.0,
+                evaluated > 0 ? approximateSeconds * 1000.0 / evaluated : 0.0,
+                evaluated > 0 ? exactSeconds * 1000.0 / evaluated : 0.0,
+                tables, bitsPerTable, probes, rerank);
+    }
+
+    // Au plus `count` documents signés distincts, tirés au hasard.
+    private List<String> sampleDocuments(int count, long seed) {
+        lock.readLock().lock();
+        try {
+            List<String> live = new ArrayList<>(ids.keySet());
+            Collections.sort(live);
+            Collections.shuffle(live, new Random(seed));
+            return new ArrayList<>(live.subList(0, Math.min(count, live.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Les `rerank` candidats les plus proches en distance de Hamming.
+    private Candidates nearest(String name, long[] signature, double[] projections) {
+        lock.readLock().lock();
+        try {
+            BitSet seen = new BitSet(size);
+            Integer self = ids.get(name);
+            if (self != null) {
+                seen.set(self);
+            }
+            long[] ranked = new long[16];
+            int count = 0;
+            for (int table = 0; table < tables; table++) {
+                long key = key(signature, 0, table);
+                int[] flips = leastConfidentBits(projections, table);
+                for (int probe = 0; probe <= flips.length; probe++) {
+                    long probeKey = probe == 0 ? key : key ^ (1L << flips[probe - 1]);
+                    for (int other = buckets[table].head(probeKey); other > 0; other = next[(other - 1) * tables + table]) {
+                        int candidate = other - 1;
+                        if (!seen.get(candidate) && names[candidate] != null) {
+                            seen.set(candidate);
+                            if (count == ranked.length) {
+                                ranked = Arrays.copyOf(ranked, count * 2);
+                            }
+                            ranked[count++] = (long) hamming(signature, candidate) << 32 | candidate;
+                        }
+                    }
+                }
+            }
+            Arrays.sort(ranked, 0, count);
+            List<String> nearest = new ArrayList<>(Math.min(count, rerank));
+            for (int i = 0; i < Math.min(count, rerank); i++) {
+                nearest.add(names[(int) ranked[i]]);
+            }
+            return new Candidates(nearest, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bits de la clé d'une table (positions dans la clé) dont la projection est la plus proche de zéro : les
+    // plus susceptibles d'être différents chez un voisin proche.
+    private int[] leastConfidentBits(double[] projections, int table) {
+        Integer[] bits = new Integer[bitsPerTable];
+        for (int bit = 0; bit < bitsPerTable; bit++) {
+            bits[bit] = bit;
+        }
+        int offset = table * bitsPerTable;
+        Arrays.sort(bits, Comparator.comparingDouble(bit -> Math.abs(projections[offset + bit])));
+        int[] flips = new int[probes];
+        for (int probe = 0; probe < probes; probe++) {
+            flips[probe] = bits[probe];
+        }
+        return flips;
+    }
+
+    // Insère un document signé (sous verrou d'écriture, ou pendant la construction).
+    private void insert(String name, long[] signature) {
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+            signatures = Arrays.copyOf(signatures, signatures.length * 2);
+            next = Arrays.copyOf(next, next.length * 2);
+        }
+        names[id] = name;
+        System.arraycopy(signature, 0, signatures, id * words, words);
+        ids.put(name, id);
+        for (int table = 0; table < tables; table++) {
+            next[id * tables + table] = buckets[table].push(key(signatures, id * words, table), id + 1);
+        }
+    }
+
+    // Supprime la signature d'un document ; l'index est recompacté quand les documents supprimés, encore
+    // chaînés dans les seaux, deviennent majoritaires.
+    private void delete(String name) {
+        Integer id = ids.remove(name);
+        if (id == null) {
+            return;
+        }
+        names[id] = null;
+        if (size > 1024 && ids.size() < size / 2) {
+            String[] liveNames = names;
+            long[] liveSignatures = signatures;
+            int liveSize = size;
+            names = new String[Math.max(16, ids.size() * 2)];
+            signatures = new long[names.length * words];
+            next = new int[names.length * tables];
+            buckets = LshTable.newTables(tables);
+            ids.clear();
+            size = 0;
+            for (int live = 0; live < liveSize; live++) {
+                if (liveNames[live] != null) {
+                    insert(liveNames[live], Arrays.copyOfRange(liveSignatures, live * words, (live + 1) * words));
+                }
+            }
+        }
+    }
+
+    private int hamming(long[] signature, int id) {
+        int distance = 0;
+        for (int word = 0; word < words; word++) {
+            distance += Long.bitCount(signature[word] ^ signatures[id * words + word]);
+        }
+        return distance;
+    }
+
+    // Clé d'une table : ses bitsPerTable bits de la signature qui commence à offset.
+    private long key(long[] signature, int offset, int table) {
+        long key = 0;
+        int first = table * bitsPerTable;
+        for (int bit = 0; bit < bitsPerTable; bit++) {
+            int b = first + bit;
+            key |= (signature[offset + (b >>> 6)] >>> (b & 63) & 1L) << bit;
+        }
+        return key;
+    }
+
+    private double[] projections(Map<String, Double> vector) {
+        double[] projections = new double[tables * bitsPerTable];
+        for (Map.Entry<String, Double> entry : vector.entrySet()) {
+            project(projections, LshTable.termHash(entry.getKey()), entry.getValue());
+        }
+        return projections;
+    }
+
+    // Ajoute la contribution d'un terme à chaque projection : +poids ou -poids selon le bit de l'hyperplan,
+    // tiré du hachage du terme (choisi par indexation plutôt que par branchement, imprévisible).
+    private void project(double[] projections, long termHash, double weight) {
+        double[] signedWeights = {-weight, weight};
+        for (int word = 0; word < words; word++) {
+            long signs = LshTable.mix(termHash + word * PLANE_SEED);
+            int bits = Math.min(64, projections.length - word * 64);
+            for (int bit = 0; bit < bits; bit++) {
+                projections[word * 64 + bit] += signedWeights[(int) (signs >>> bit) & 1];
+            }
+        }
+    }
+
+    // Signature : un bit par projection positive (null pour un vecteur nul).
+    private long[] signature(double[] projections) {
+        long[] signature = new long[words];
+        boolean empty = true;
+        for (int b = 0; b < projections.length; b++) {
+            if (projections[b] != 0.0) {
+                empty = false;
+            }
+            if (projections[b] > 0.0) {
+                signature[b >>> 6] |= 1L << (b & 63);
+            }
+        }
+        return empty ? null : signature;
+    }
+
+    private static final class Candidates {
+
+        private final List<String> names;
+        private final int count;
+
+        private Candidates(List<String> names, int count) {
+            this.names = names;
+            this.count = count;
+        }
+    }
+
+    @AllArgsConstructor
+    @Data
+    public static class SimilarDocuments {
+        private final String document;
+        private final boolean exact;
+        // Documents comparés : candidats des seaux (approché) ou corpus entier (exact)
+        private final int candidates;
+        private final int reranked;
+        private final List<SimilarDocument> results;
+        private final double executionTime;
+    }
+
+    @AllArgsConstructor
+    @Data
+    public static class SimilarDocument {
+        private final String documentName;
+        private final double similarity;
+    }
+
+    @AllArgsConstructor
+    @Data
+    public static class SimilarityEvaluation {
+        private final int samples;
+        private final int limit;
+        private final double recall;
+        private final double averageCandidates;
+        private final double approximateMillis;
+        private final double exactMillis;
+        private final int tables;
+        private final int bitsPerTable;
+        private final int probes;
+        private final int rerank;
+    }
+}
@@ -0,0 +1,187 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Extraits des résultats d'une recherche : une fenêtre de snippetWords mots du document, choisie là où les mots
+// correspondants sont les plus denses, lue dans le magasin compressé (DocumentStore) ; les mots correspondants sont
+// entourés de <mark>. Les extraits ne sont construits que pour les résultats finaux (après le top-K).
+// Le magasin du corpus est en lecture seule : les documents ajoutés ou remplacés après le démarrage sont gardés
+// chacun dans un petit magasin en mémoire, les documents supprimés y sont marqués absents.
+
+@Slf4j
+public class SnippetGenerator {
+
+    private final DocumentStore baseStore;
+    private final int snippetWords;
+    private final TextAnalyzer analyzer;
+    // Nom -> magasin du document modifié depuis le démarrage (vide : document supprimé)
+    private final Map<String, Optional<DocumentStore>> changes = new ConcurrentHashMap<>();
+
+    public SnippetGenerator(DocumentStore baseStore, int snippetWords, TextAnalyzer analyzer) {
+        this.baseStore = baseStore;
+        this.snippetWords = snippetWords;
+        this.analyzer = analyzer;
+    }
+
+    // Extrait HTML du document d'un résultat, ou null si le document n'est pas dans le magasin.
+    public String snippet(DocumentSearcher.DocumentSearchResult result) {
+        Optional<DocumentStore> changed = changes.get(result.getDocumentName());
+        DocumentStore store = changed != null ? changed.orElse(null) : baseStore;
+        int doc = store != null ? store.find(result.getDocumentName()) : -1;
+        if (doc < 0) {
+            return null;
+        }
+        int[] matchPositions = result.getMatchPositions();
+        int fromWord = matchPositions != null ? windowStart(matchPositions) : 0;
+        try {
+            DocumentStore.Passage passage = store.passage(doc, fromWord, fromWord + snippetWords);
+            return passage != null ? highlight(passage, matchPositions, new HashSet<>(result.getMatchingTerms())) : null;
+        } catch (IOException e) {
+            log.warn("⚠️  Extrait du document {} illisible : {}", result.getDocumentName(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Document ajouté ou remplacé : son texte est compressé dans un magasin à part.
+    public void put(String name, String text) {
+        changes.put(name, Optional.of(DocumentStore.of(name, text)));
+    }
+
+    public void remove(String name) {
+        changes.put(name, Optional.empty());
+    }
+
+    // Taille du magasin (corpus et documents modifiés) et coût des décompressions depuis le démarrage.
+    public StoreStatistics getStatistics() {
+        long documents = baseStore.getDocumentCount();
+        long textBytes = baseStore.getTextLength();
+        long storedBytes = baseStore.getStoredLength();
+        long passages = baseStore.getPassagesRead();
+        long bytesDecompressed = baseStore.getBytesDecompressed();
+        long nanos = baseStore.getDecompressionNanos();
+        for (Optional<DocumentStore> changed : changes.values()) {
+            if (changed.isPresent()) {
+                DocumentStore store = changed.get();
+                documents++;
+                textBytes += store.getTextLength();
+                storedBytes += store.getStoredLength();
+                passages += store.getPassagesRead();
+                bytesDecompressed += store.getBytesDecompressed();
+                nanos += store.getDecompressionNanos();
+            }
+        }
+        return new StoreStatistics(documents, textBytes, storedBytes,
+                storedBytes > 0 ? (double) textBytes / storedBytes : 0.0,
+                passages, bytesDecompressed, passages > 0 ? nanos / 1000.0 / passages : 0.0);
+    }
+
+    // Début de la fenêtre de snippetWords mots qui contient le plus de positions correspondantes (fenêtre
+    // glissante sur les positions triées), centrée sur les positions qu'elle contient.
+    private int windowStart(int[] matchPositions) {
+        if (matchPositions.length == 0) {
+            return 0;
+        }
+        int bestFirst = 0;
+        int bestLast = 0;
+        int last = 0;
+        for (int first = 0; first < matchPositions.length; first++) {
+            while (last + 1 < matchPositions.length && matchPositions[last + 1] < matchPositions[first] + snippetWords) {
+                last++;
+            }
+            if (last - first > bestLast - bestFirst) {
+                bestFirst = first;
+                bestLast = last;
+            }
+        }
+        int center = (matchPositions[bestFirst] + matchPositions[bestLast]) / 2;
+        return Math.max(0, center - snippetWords / 2);
+    }
+
+    // Texte HTML du passage : échappé, blancs réduits à une espace, mots correspondants entre <mark>. Un mot
+    // correspond s'il est à l'une des positions (index positionnel), sinon si sa racine est un terme correspondant.
+    private String highlight(DocumentStore.Passage passage, int[] matchPositions, Set<String> matchingTerms) {
+        String text = passage.getText();
+        StringBuilder html = new StringBuilder();
+        if (!passage.isDocumentStart()) {
+            html.append("… ");
+        }
+        for (int w = 0; w < passage.getWordCount(); w++) {
+            if (w > 0) {
+                appendSeparator(html, text, passage.getWordEnds()[w - 1], passage.getWordStarts()[w]);
+            }
+            String word = text.substring(passage.getWordStarts()[w], passage.getWordEnds()[w]);
+            boolean match = matchPositions != null
+                    ? Arrays.binarySearch(matchPositions, passage.getFirstWord() + w) >= 0
+                    : matchingTerms.contains(analyzer.stem(word));
+            if (match) {
+                html.append("<mark>");
+                appendEscaped(html, word);
+                html.append("</mark>");
+            } else {
+                appendEscaped(html, word);
+            }
+        }
+        if (!passage.isDocumentEnd()) {
+            html.append(" …");
+        }
+        return html.toString();
+    }
+
+    private static void appendSeparator(StringBuilder html, String text, int from, int to) {
+        boolean space = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && html.charAt(html.length() - 1) != ' ') {
+                    html.append(' ');
+                }
+                space = false;
+                appendEscaped(html, c);
+            }
+        }
+        if (space) {
+            html.append(' ');
+        }
+    }
+
+    private static void appendEscaped(StringBuilder html, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            appendEscaped(html, text.charAt(i));
+        }
+    }
+
+    private static void appendEscaped(StringBuilder html, char c) {
+        switch (c) {
+            case '<' -> html.append("&lt;");
+            case '>' -> html.append("&gt;");
+            case '&' -> html.append("&amp;");
+            case '"' -> html.append("&quot;");
+            case '\'' -> html.append("&#39;");
+            default -> html.append(c);
+        }
+    }
+
+    @AllArgsConstructor
+    @Data
+    public static class StoreStatistics {
+        private final long documents;
+        private final long textBytes;
+        private final long storedBytes;
+        private final double compressionRatio;
+        private final long passagesRead;
+        private final long bytesDecompressed;
+        private final double averageDecompressionMicros;
+    }
+}
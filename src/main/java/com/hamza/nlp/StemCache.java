@@ -0,0 +1,128 @@
+package com.hamza.nlp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Cache borné et concurrent mot -> racine (stem), placé devant le stemmer SAFAR.
+// Le cache est découpé en segments LRU indépendants (un verrou par segment) ; la racinisation d'un mot absent
+// se fait hors verrou. Les compteurs de succès, d'échecs et d'évictions servent à dimensionner le cache.
+
+public class StemCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // maxSize = nombre maximal de mots en cache (0 désactive le cache).
+    public StemCache(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        int segmentCapacity = (this.maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    // Retourne la racine du mot, en la calculant avec le loader si elle n'est pas en cache.
+    public String get(String word, Function<String, String> loader) {
+        if (maxSize == 0) {
+            misses.increment();
+            return loader.apply(word);
+        }
+
+        Segment segment = segments[segmentIndex(word)];
+        String stem;
+        synchronized (segment) {
+            stem = segment.get(word);
+        }
+        if (stem != null) {
+            hits.increment();
+            return stem;
+        }
+
+        misses.increment();
+        stem = loader.apply(word);
+        synchronized (segment) {
+            segment.put(word, stem);
+        }
+        return stem;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public StemCacheStatistics getStatistics() {
+        return new StemCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size(), maxSize);
+    }
+
+    static int segmentIndex(String word) {
+        int h = word.hashCode();
+        return (h ^ (h >>> 16)) & (SEGMENT_COUNT - 1);
+    }
+
+    // Segment LRU : LinkedHashMap en ordre d'accès qui évince l'entrée la plus ancienne au-delà de sa capacité.
+
+    private class Segment extends LinkedHashMap<String, String> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(Math.min(capacity, 1024) * 4 / 3 + 1, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @AllArgsConstructor
+    @Data
+    public static class StemCacheStatistics {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final int maxSize;
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cache racines: %d/%d mots, succès %.1f%%, %d évictions",
+                    size, maxSize, getHitRate() * 100, evictions);
+        }
+    }
+}
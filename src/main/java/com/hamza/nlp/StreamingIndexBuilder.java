@@ -0,0 +1,99 @@
+package com.hamza.nlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Construction de l'index en flux : les occurrences de chaque document analysé sont converties aussitôt en une
+// ligne de la matrice (identifiants de termes et nombres d'occurrences) et les fréquences documentaires sont
+// comptées au passage. Aucune carte d'occurrences n'est conservée : la mémoire de construction se limite au
+// dictionnaire et aux tableaux primitifs de la matrice. Les poids TF-IDF sont appliqués par build(), une fois
+// l'IDF connu.
+// Les documents ajoutés avec leurs positions (TermPositions) forment un index positionnel : les positions de
+// chaque cellule sont codées aussitôt (voir PositionIndex). Un seul document ajouté sans positions suffit à
+// construire un index sans positions.
+
+public class StreamingIndexBuilder {
+
+    private final TermDictionary dictionary = new TermDictionary();
+    private final CsrMatrix.Builder rows = new CsrMatrix.Builder();
+    private final List<String> documentNames = new ArrayList<>();
+    private int[] documentFrequencies = new int[16];
+    private int[] columns = new int[16];
+    private float[] counts = new float[16];
+    private PositionIndex.Builder positions = new PositionIndex.Builder();
+
+    // Ajoute un document à partir des occurrences de ses racines (appelé dans l'ordre du corpus).
+    public void addDocument(String name, Map<String, Long> termCounts) {
+        positions = null;
+        addRow(name, termCounts);
+    }
+
+    // Ajoute un document à partir des positions de ses racines (appelé dans l'ordre du corpus).
+    public void addDocument(String name, TermPositions termPositions) {
+        int length = addRow(name, termPositions.getCounts());
+        if (positions != null) {
+            // Colonnes de la ligne triées par addRow : positions dans l'ordre des cellules de la matrice
+            for (int i = 0; i < length; i++) {
+                positions.add(termPositions.get(dictionary.getTerm(columns[i])));
+            }
+        }
+    }
+
+    // Ajoute la ligne du document ; retourne sa longueur (ses colonnes restent triées dans columns).
+    private int addRow(String name, Map<String, Long> termCounts) {
+        if (termCounts.size() > columns.length) {
+            columns = new int[termCounts.size()];
+            counts = new float[termCounts.size()];
+        }
+        int length = 0;
+        for (Map.Entry<String, Long> entry : termCounts.entrySet()) {
+            int termId = dictionary.getOrAdd(entry.getKey());
+            if (termId >= documentFrequencies.length) {
+                documentFrequencies = Arrays.copyOf(documentFrequencies, documentFrequencies.length * 2);
+            }
+            documentFrequencies[termId]++;
+            columns[length] = termId;
+            counts[length++] = entry.getValue();
+        }
+        rows.addRow(columns, counts, length);
+        documentNames.add(name);
+        return length;
+    }
+
+    public int getDocumentCount() {
+        return documentNames.size();
+    }
+
+    // Calcule l'IDF de chaque terme, remplace les occurrences par les poids TF-IDF et construit l'index inversé.
+    public InvertedIndex build() {
+        int documentCount = documentNames.size();
+        double[] idf = new double[dictionary.size()];
+        for (int termId = 0; termId < idf.length; termId++) {
+            idf[termId] = TfIdfUtils.computeIdf(documentCount, documentFrequencies[termId]);
+        }
+
+        CsrMatrix occurrences = rows.build(dictionary.size());
+        float[] weights = new float[occurrences.getNonZeroCount()];
+        int[] documentLengths = new int[documentCount];
+        for (int docId = 0; docId < documentCount; docId++) {
+            double total = 0.0;
+            for (int i = occurrences.rowStart(docId); i < occurrences.rowEnd(docId); i++) {
+                total += occurrences.valueAt(i);
+            }
+            documentLengths[docId] = (int) total;
+            for (int i = occurrences.rowStart(docId); i < occurrences.rowEnd(docId); i++) {
+                double count = occurrences.valueAt(i);
+                weights[i] = (float) (count / total * idf[occurrences.columnAt(i)]);
+            }
+        }
+        return InvertedIndex.build(documentNames, dictionary, occurrences.withValues(weights), idf, documentLengths,
+                positions != null && documentCount > 0 ? positions.build() : null);
+    }
+
+    // Idem, en associant à chaque terme sa forme de surface la plus fréquente (comptée pendant l'analyse).
+    public InvertedIndex build(SurfaceForms surfaceForms) {
+        return build().withSurfaceForms(surfaceForms);
+    }
+}
@@ -0,0 +1,58 @@
+package com.hamza.nlp;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Autocomplétion qui suit les générations de l'index modifiable : la structure de préfixes (TermSuggester) est
+// construite à la première suggestion, puis reconstruite en arrière-plan dès que l'index a changé (ajout,
+// suppression, rafraîchissement). Pendant une reconstruction, la structure précédente continue de répondre ;
+// une seule reconstruction à la fois.
+
+public class SuggestionIndex {
+
+    private final SegmentedIndex index;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile TermSuggester suggester;
+
+    public SuggestionIndex(SegmentedIndex index) {
+        this.index = index;
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        return current().suggest(prefix, limit);
+    }
+
+    // Termes les plus fréquents du vocabulaire, avec la même fraîcheur que les suggestions.
+    public List<DocumentSearchUtils.TermStatistics> topTerms(int limit) {
+        return current().topTerms(limit);
+    }
+
+    // Structure courante ; déclenche une reconstruction si elle a été construite sur une génération périmée.
+    TermSuggester current() {
+        TermSuggester current = suggester;
+        if (current == null) {
+            return buildFirst();
+        }
+        if (current.getGeneration() != index.getGeneration() && rebuilding.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    suggester = TermSuggester.build(index);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+        return current;
+    }
+
+    private synchronized TermSuggester buildFirst() {
+        if (suggester == null) {
+            long start = System.nanoTime();
+            suggester = TermSuggester.build(index);
+            System.out.println("🔤 Autocomplétion construite: " + suggester.getKeyCount() + " clés en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return suggester;
+    }
+}
@@ -0,0 +1,95 @@
+package com.hamza.nlp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Forme de surface la plus fréquente de chaque racine (le mot tel qu'il apparaît dans le texte), affichée par
+// l'autocomplétion à la place de la racine. Chaque racine garde au plus MAX_FORMS compteurs (algorithme
+// Space-Saving pondéré) : une forme absente prend la place du plus petit compteur et hérite de son compte. Tant
+// qu'une racine a au plus MAX_FORMS formes distinctes, les comptes sont exacts ; au-delà, la forme retenue est
+// la plus fréquente dès que son avance sur la suivante dépasse le plus petit compteur. À compte égal, la forme la
+// plus petite (ordre des chaînes) l'emporte. Non synchronisé : chaque document est compté dans sa propre
+// instance, puis fusionné dans l'ordre du corpus (voir CorpusSource.analyze).
+
+public class SurfaceForms {
+
+    // Compteurs par racine : assez pour les variantes courantes d'une racine (article, pronoms suffixes...)
+    static final int MAX_FORMS = 8;
+
+    private final Map<String, Counters> counters = new HashMap<>();
+
+    // Compte weight occurrences de la forme form pour la racine stem.
+    public void add(String stem, String form, long weight) {
+        counters.computeIfAbsent(stem, s -> new Counters()).add(form, weight);
+    }
+
+    // Fusionne les compteurs d'une autre instance (par exemple ceux d'un document).
+    public void addAll(SurfaceForms other) {
+        other.counters.forEach((stem, forms) -> {
+            Counters target = counters.computeIfAbsent(stem, s -> new Counters());
+            for (int i = 0; i < forms.size; i++) {
+                target.add(forms.forms[i], forms.counts[i]);
+            }
+        });
+    }
+
+    // Forme de surface retenue pour la racine, ou null si la racine n'a jamais été vue.
+    public String get(String stem) {
+        Counters forms = counters.get(stem);
+        return forms != null ? forms.best() : null;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    // Compteurs d'une racine, agrandis à la demande : la plupart des racines n'ont qu'une ou deux formes.
+    private static final class Counters {
+        private String[] forms = new String[1];
+        private long[] counts = new long[1];
+        private int size;
+
+        void add(String form, long weight) {
+            for (int i = 0; i < size; i++) {
+                if (forms[i].equals(form)) {
+                    counts[i] += weight;
+                    return;
+                }
+            }
+            if (size < MAX_FORMS) {
+                if (size == forms.length) {
+                    forms = Arrays.copyOf(forms, Math.min(2 * size, MAX_FORMS));
+                    counts = Arrays.copyOf(counts, forms.length);
+                }
+                forms[size] = form;
+                counts[size++] = weight;
+                return;
+            }
+            int smallest = 0;
+            for (int i = 1; i < size; i++) {
+                if (better(i, smallest) == smallest) {
+                    smallest = i;
+                }
+            }
+            forms[smallest] = form;
+            counts[smallest] += weight;
+        }
+
+        String best() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                best = better(i, best);
+            }
+            return forms[best];
+        }
+
+        // Compteur qui passe devant l'autre : le plus grand compte, puis la plus petite forme.
+        private int better(int a, int b) {
+            if (counts[a] != counts[b]) {
+                return counts[a] > counts[b] ? a : b;
+            }
+            return forms[a].compareTo(forms[b]) < 0 ? a : b;
+        }
+    }
+}
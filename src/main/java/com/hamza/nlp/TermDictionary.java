@@ -0,0 +1,97 @@
+package com.hamza.nlp;
+
+import java.util.Arrays;
+
+// Dictionnaire des termes : associe chaque racine (stem) à un identifiant entier dense (0, 1, 2, ...).
+// Table de hachage à adressage ouvert sur des tableaux primitifs : aucune entrée de Map ni Integer boxé par terme.
+
+public class TermDictionary {
+
+    private static final int NOT_FOUND = -1;
+
+    private String[] terms;
+    private int[] slots;      // identifiant + 1 (0 = case vide)
+    private int size;
+
+    public TermDictionary() {
+        this(16);
+    }
+
+    public TermDictionary(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.terms = new String[Math.max(4, expectedSize)];
+        this.slots = new int[capacity];
+    }
+
+    // Retourne l'identifiant du terme, ou -1 s'il est inconnu.
+    public int getId(String term) {
+        int mask = slots.length - 1;
+        for (int slot = hash(term) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (terms[id].equals(term)) {
+                return id;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    // Retourne l'identifiant du terme en l'ajoutant au dictionnaire s'il est nouveau.
+    public int getOrAdd(String term) {
+        int mask = slots.length - 1;
+        int slot = hash(term) & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (terms[id].equals(term)) {
+                return id;
+            }
+        }
+
+        int id = size++;
+        if (id == terms.length) {
+            terms = Arrays.copyOf(terms, terms.length * 2);
+        }
+        terms[id] = term;
+        slots[slot] = id + 1;
+
+        // Facteur de charge maximal de 0,5
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    public String getTerm(int id) {
+        return terms[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String term) {
+        return getId(term) != NOT_FOUND;
+    }
+
+    // Estimation de l'empreinte mémoire des tableaux du dictionnaire (hors chaînes), en octets.
+    public long estimateArraysBytes() {
+        return 4L * slots.length + 4L * terms.length;
+    }
+
+    private void rehash(int capacity) {
+        int[] newSlots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(terms[id]) & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = id + 1;
+        }
+        slots = newSlots;
+    }
+
+    private static int hash(String term) {
+        int h = term.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,57 @@
+package com.hamza.nlp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Positions des racines d'un document pendant son analyse : la position d'un mot est son rang parmi tous les mots
+// du document (mots vides et mots sans racine compris), ce qui préserve les écarts entre les mots d'une phrase.
+// Les positions de chaque racine sont croissantes ; leur nombre est le nombre d'occurrences de la racine.
+// Un document lu par blocs reste numéroté de façon continue : le compteur de mots est conservé d'un bloc à l'autre.
+
+public class TermPositions {
+
+    // Racine -> positions, la première case du tableau contenant leur nombre
+    private final Map<String, int[]> positions = new HashMap<>();
+    private int wordCount;
+
+    // Mot sans racine valide : il occupe une position, sans être indexé.
+    public void skipWord() {
+        wordCount++;
+    }
+
+    // Mot de racine stem, à la position suivante.
+    public void addWord(String stem) {
+        int[] stemPositions = positions.get(stem);
+        if (stemPositions == null) {
+            stemPositions = new int[4];
+            positions.put(stem, stemPositions);
+        } else if (stemPositions[0] + 1 == stemPositions.length) {
+            stemPositions = Arrays.copyOf(stemPositions, stemPositions.length * 2);
+            positions.put(stem, stemPositions);
+        }
+        stemPositions[++stemPositions[0]] = wordCount++;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public Set<String> getStems() {
+        return positions.keySet();
+    }
+
+    // Positions croissantes de la racine dans le document (tableau vide si elle n'y apparaît pas).
+    public int[] get(String stem) {
+        int[] stemPositions = positions.get(stem);
+        return stemPositions != null ? Arrays.copyOfRange(stemPositions, 1, 1 + stemPositions[0]) : new int[0];
+    }
+
+    // Occurrences de chaque racine, comme TfIdfProcessor.analyzeDocument.
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        positions.forEach((stem, stemPositions) -> counts.put(stem, (long) stemPositions[0]));
+        return counts;
+    }
+}
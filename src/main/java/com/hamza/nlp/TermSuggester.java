@@ -0,0 +1,283 @@
+package com.hamza.nlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Autocomplétion sur le vocabulaire de l'index : structure de préfixes immuable, construite à partir des termes
+// vivants (voir SegmentedIndex.forEachTerm).
+//  - Chaque terme est accessible par deux clés normalisées (voir normalize) : sa forme de surface la plus fréquente
+//    et sa racine. Les clés sont triées et concaténées dans un seul tableau de caractères : les clés qui commencent
+//    par un préfixe forment un intervalle contigu, trouvé par deux recherches dichotomiques.
+//  - Un arbre de segments (tableau d'entiers) donne la clé de plus forte fréquence documentaire de n'importe quel
+//    intervalle ; les K meilleures suggestions sont extraites au mieux d'abord, en découpant l'intervalle autour
+//    de chaque meilleure clé. Une recherche coûte O((longueur du préfixe + K) x log(clés)), quel que soit le
+//    nombre de clés qui commencent par le préfixe.
+// Aucune chaîne n'est conservée par terme : quelques tableaux primitifs, soit une vingtaine d'octets par clé plus
+// ses caractères. La suggestion affichée est la forme de surface, à défaut la racine.
+
+public final class TermSuggester {
+
+    private final long generation;
+    private final char[] keyChars;
+    private final int[] keyOffsets;
+    private final int[] keyTerms;
+    private final char[] formChars;
+    private final int[] formOffsets;
+    private final int[] documentFrequencies;
+    private final int[] bestKeys;
+    private final int leafOffset;
+
+    private TermSuggester(long generation, char[] keyChars, int[] keyOffsets, int[] keyTerms, char[] formChars,
+                          int[] formOffsets, int[] documentFrequencies) {
+        this.generation = generation;
+        this.keyChars = keyChars;
+        this.keyOffsets = keyOffsets;
+        this.keyTerms = keyTerms;
+        this.formChars = formChars;
+        this.formOffsets = formOffsets;
+        this.documentFrequencies = documentFrequencies;
+
+        // Arbre de segments implicite : feuilles [leafOffset, leafOffset + clés), chaque nœud garde la meilleure clé
+        int keyCount = keyTerms.length;
+        this.leafOffset = Math.max(1, keyCount);
+        this.bestKeys = new int[2 * leafOffset];
+        Arrays.fill(bestKeys, -1);
+        for (int key = 0; key < keyCount; key++) {
+            bestKeys[leafOffset + key] = key;
+        }
+        for (int node = leafOffset - 1; node > 0; node--) {
+            bestKeys[node] = better(bestKeys[2 * node], bestKeys[2 * node + 1]);
+        }
+    }
+
+    // Construit la structure à partir des termes vivants de l'index.
+    public static TermSuggester build(SegmentedIndex index) {
+        long generation = index.getGeneration();
+        List<String> keys = new ArrayList<>();
+        IntList keyTerms = new IntList();
+        StringBuilder forms = new StringBuilder();
+        IntList formOffsets = new IntList();
+        IntList documentFrequencies = new IntList();
+        formOffsets.add(0);
+
+        index.forEachTerm((term, surfaceForm, documentFrequency) -> {
+            int termIndex = documentFrequencies.size();
+            documentFrequencies.add(documentFrequency);
+            forms.append(surfaceForm);
+            formOffsets.add(forms.length());
+
+            String formKey = normalize(surfaceForm);
+            String stemKey = normalize(term);
+            keys.add(formKey);
+            keyTerms.add(termIndex);
+            if (!stemKey.equals(formKey)) {
+                keys.add(stemKey);
+                keyTerms.add(termIndex);
+            }
+        });
+
+        // Clés triées (ordre des caractères UTF-16, celui de comparePrefix)
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+
+        int totalChars = 0;
+        for (String key : keys) {
+            totalChars += key.length();
+        }
+        char[] keyChars = new char[totalChars];
+        int[] keyOffsets = new int[order.length + 1];
+        int[] sortedTerms = new int[order.length];
+        int position = 0;
+        for (int i = 0; i < order.length; i++) {
+            String key = keys.get(order[i]);
+            key.getChars(0, key.length(), keyChars, position);
+            position += key.length();
+            keyOffsets[i + 1] = position;
+            sortedTerms[i] = keyTerms.get(order[i]);
+        }
+
+        char[] formChars = new char[forms.length()];
+        forms.getChars(0, forms.length(), formChars, 0);
+        return new TermSuggester(generation, keyChars, keyOffsets, sortedTerms, formChars,
+                formOffsets.toArray(), documentFrequencies.toArray());
+    }
+
+    // Génération de l'index sur laquelle la structure a été construite.
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getKeyCount() {
+        return keyTerms.length;
+    }
+
+    // Les limit termes de plus forte fréquence documentaire dont une clé commence par le préfixe (normalisé),
+    // du plus fréquent au moins fréquent ; chaque forme n'est proposée qu'une fois.
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        List<String> suggestions = new ArrayList<>();
+        if (key.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        for (int term : bestTerms(lowerBound(key, false), lowerBound(key, true), limit)) {
+            suggestions.add(form(term));
+        }
+        return suggestions;
+    }
+
+    // Les limit termes de plus forte fréquence documentaire de tout le vocabulaire, avec leur fréquence.
+    public List<DocumentSearchUtils.TermStatistics> topTerms(int limit) {
+        List<DocumentSearchUtils.TermStatistics> terms = new ArrayList<>();
+        for (int term : bestTerms(0, keyTerms.length, limit)) {
+            terms.add(new DocumentSearchUtils.TermStatistics(form(term), documentFrequencies[term]));
+        }
+        return terms;
+    }
+
+    // Termes des clés de l'intervalle [from, to), de la plus forte fréquence documentaire à la plus faible,
+    // jusqu'à limit formes distinctes.
+    private List<Integer> bestTerms(int from, int to, int limit) {
+        List<Integer> terms = new ArrayList<>();
+        if (from >= to || limit <= 0) {
+            return terms;
+        }
+
+        // Intervalles [from, to) candidats, ordonnés par leur meilleure clé
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1);
+        ranges.add(new int[]{from, to, bestKey(from, to)});
+        Set<Integer> seenTerms = new HashSet<>();
+        Set<String> seenForms = new HashSet<>();
+        while (!ranges.isEmpty() && terms.size() < limit) {
+            int[] range = ranges.poll();
+            int best = range[2];
+            if (best > range[0]) {
+                ranges.add(new int[]{range[0], best, bestKey(range[0], best)});
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[]{best + 1, range[1], bestKey(best + 1, range[1])});
+            }
+            int term = keyTerms[best];
+            if (seenTerms.add(term) && seenForms.add(form(term))) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private String form(int term) {
+        return new String(formChars, formOffsets[term], formOffsets[term + 1] - formOffsets[term]);
+    }
+
+    // Clé de recherche : sans diacritiques (harakat, tatweel), alif hamzé ramené à l'alif nu, en minuscules.
+    // Les utilisateurs tapent rarement les voyelles courtes ni la hamza : « الاندلس » doit trouver « الأندلس ».
+    static String normalize(String text) {
+        StringBuilder key = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == 'ـ') {
+                continue;
+            }
+            if (c == 'آ' || c == 'أ' || c == 'إ') {
+                c = 'ا';
+            }
+            key.append(c);
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Première clé >= préfixe (after = false), ou première clé qui suit toutes celles qui commencent par le
+    // préfixe (after = true).
+    private int lowerBound(String prefix, boolean after) {
+        int low = 0;
+        int high = keyTerms.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparePrefix(middle, prefix);
+            if (comparison < 0 || (after && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Compare la clé, tronquée à la longueur du préfixe, au préfixe : 0 si elle commence par le préfixe.
+    // Une clé plus courte que le préfixe qui en est elle-même un préfixe le précède.
+    private int comparePrefix(int key, String prefix) {
+        int start = keyOffsets[key];
+        int length = keyOffsets[key + 1] - start;
+        int common = Math.min(length, prefix.length());
+        for (int i = 0; i < common; i++) {
+            int comparison = Character.compare(keyChars[start + i], prefix.charAt(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return length < prefix.length() ? -1 : 0;
+    }
+
+    // Meilleure clé de l'intervalle [from, to), par remontée dans l'arbre de segments.
+    private int bestKey(int from, int to) {
+        int best = -1;
+        for (int low = from + leafOffset, high = to + leafOffset; low < high; low >>>= 1, high >>>= 1) {
+            if ((low & 1) == 1) {
+                best = better(best, bestKeys[low++]);
+            }
+            if ((high & 1) == 1) {
+                best = better(best, bestKeys[--high]);
+            }
+        }
+        return best;
+    }
+
+    // Clé de plus forte fréquence documentaire ; à égalité, la première dans l'ordre alphabétique.
+    private int better(int keyA, int keyB) {
+        if (keyA < 0) {
+            return keyB;
+        }
+        if (keyB < 0) {
+            return keyA;
+        }
+        int frequencyA = documentFrequencies[keyTerms[keyA]];
+        int frequencyB = documentFrequencies[keyTerms[keyB]];
+        if (frequencyA != frequencyB) {
+            return frequencyA > frequencyB ? keyA : keyB;
+        }
+        return Math.min(keyA, keyB);
+    }
+
+    // Liste d'entiers extensible, sans boxing, pour la construction.
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
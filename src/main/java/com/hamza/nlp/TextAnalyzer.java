@@ -0,0 +1,127 @@
+package com.hamza.nlp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// Chaîne d'analyse partagée par l'indexation et les requêtes : découpage en mots (comme CachingStemmer),
+// normalisations des filtres sur un tampon par thread, racinisation à travers le cache, puis filtres des racines
+// (mots vides, nombres...). Une seule instance est construite au démarrage (app.analysis.filters) et passée à
+// l'indexation, à la recherche et aux extraits : les deux côtés ne peuvent pas diverger.
+// Un mot que les filtres ne modifient pas n'est pas recopié ; aucun filtre n'utilise d'expression régulière.
+
+public final class TextAnalyzer {
+
+    private static final int INITIAL_BUFFER = 64;
+
+    private final CachingStemmer stemmer;
+    private final TokenFilter[] filters;
+    // Un filtre au moins normalise les mots (sinon ils sont racinisés tels quels, sans copie)
+    private final boolean normalizes;
+    private final String description;
+    private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[INITIAL_BUFFER]);
+
+    private TextAnalyzer(CachingStemmer stemmer, List<TokenFilter> filters, boolean normalizes, String description) {
+        this.stemmer = stemmer;
+        this.filters = filters.toArray(new TokenFilter[0]);
+        this.normalizes = normalizes;
+        this.description = description;
+    }
+
+    // Chaîne désignée par les noms de ses filtres (voir ArabicFilters.chain).
+    public static TextAnalyzer of(CachingStemmer stemmer, Set<String> stopWords, String filterNames) {
+        List<TokenFilter> filters = ArabicFilters.chain(filterNames, stopWords);
+        List<String> names = new ArrayList<>();
+        for (String name : filterNames.split(",")) {
+            if (!name.isBlank()) {
+                names.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        boolean normalizes = filters.contains(ArabicFilters.DIACRITICS) || filters.contains(ArabicFilters.LETTERS);
+        return new TextAnalyzer(stemmer, filters, normalizes, String.join(",", names));
+    }
+
+    // Transmet chaque mot du texte et sa racine au consommateur, dans l'ordre du texte ; la racine est null si le
+    // mot n'en a pas ou si un filtre l'écarte (le mot garde alors sa position).
+    public void analyze(String text, BiConsumer<String, String> consumer) {
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && CachingStemmer.isWordChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                String word = text.substring(start, i);
+                consumer.accept(word, stem(word));
+                start = -1;
+            }
+        }
+    }
+
+    // Racine indexée d'un mot, ou null s'il n'en a pas ou si un filtre l'écarte.
+    public String stem(String word) {
+        String key = normalizes ? normalize(word) : word;
+        if (key == null) {
+            return null;
+        }
+        String stem = stemmer.stemWord(key);
+        return accepts(stem) ? stem : null;
+    }
+
+    // La racine est-elle indexée ? Les racines vides ou d'une seule lettre ne le sont jamais.
+    public boolean accepts(String stem) {
+        if (stem == null || stem.length() < 2 || stem.isBlank()) {
+            return false;
+        }
+        for (TokenFilter filter : filters) {
+            if (!filter.accept(stem)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public CachingStemmer getStemmer() {
+        return stemmer;
+    }
+
+    // Noms des filtres de la chaîne, dans l'ordre (entre dans l'empreinte de l'instantané).
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return description.isEmpty() ? "(aucun filtre)" : description;
+    }
+
+    // Mot normalisé par les filtres : le mot lui-même s'il est inchangé, null s'il ne reste rien.
+    private String normalize(String word) {
+        char[] buffer = buffers.get();
+        if (buffer.length < word.length()) {
+            buffer = new char[Math.max(word.length(), buffer.length * 2)];
+            buffers.set(buffer);
+        }
+        word.getChars(0, word.length(), buffer, 0);
+        int length = word.length();
+        for (TokenFilter filter : filters) {
+            length = filter.normalize(buffer, length);
+            if (length == 0) {
+                return null;
+            }
+        }
+        if (length == word.length()) {
+            int i = 0;
+            while (i < length && buffer[i] == word.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return word;
+            }
+        }
+        return new String(buffer, 0, length);
+    }
+}
@@ -3,10 +3,13 @@ package com.hamza.nlp;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @NoArgsConstructor
 public class TfIdfUtils {
@@ -22,18 +25,66 @@ public class TfIdfUtils {
     }
 
     public static Map<String, Double> computeIDF(Map<String, Map<String, Long>> allDocs) {
-        Map<String, Double> idf = new LinkedHashMap<>();
-        double totalDocs = allDocs.size();
-        Set<String> allTerms = allDocs.values().stream().flatMap(m -> m.keySet().stream()).collect(Collectors.toSet());
+        return idfFromDocumentFrequencies(computeDocumentFrequencies(allDocs.values()), allDocs.size());
+    }
+
+    // Variante partitionnée pour les grands corpus : les fréquences documentaires de chaque partition sont
+    // accumulées en parallèle, puis fusionnées dans des cartes propres à chaque sous-tâche (collect, sans
+    // modifier les résultats partiels). Les valeurs IDF sont identiques à celles de computeIDF.
+
+    public static Map<String, Double> computeIDF(Map<String, Map<String, Long>> allDocs, int partitions) {
+        List<Map<String, Long>> documents = new ArrayList<>(allDocs.values());
+        int partitionCount = Math.max(1, Math.min(partitions, documents.size()));
+        if (partitionCount == 1) {
+            return computeIDF(allDocs);
+        }
 
-        for (String term : allTerms) {
-            long docsWithTerm = allDocs.values().stream().filter(m -> m.containsKey(term)).count();
-            // Formule IDF (avec lissage +1 pour éviter la division par zéro si un terme n'est nulle part)
-            idf.put(term, Math.log(totalDocs / (1.0 + docsWithTerm)) + 1.0); // +1.0 Lissage Additif
+        int partitionSize = (documents.size() + partitionCount - 1) / partitionCount;
+        Map<String, int[]> documentFrequencies = IntStream.range(0, partitionCount)
+                .parallel()
+                .mapToObj(p -> computeDocumentFrequencies(documents.subList(
+                        Math.min(p * partitionSize, documents.size()),
+                        Math.min((p + 1) * partitionSize, documents.size()))))
+                .collect(HashMap::new, TfIdfUtils::mergeDocumentFrequencies, TfIdfUtils::mergeDocumentFrequencies);
+        return idfFromDocumentFrequencies(documentFrequencies, documents.size());
+    }
+
+    // Fréquence documentaire de chaque terme (nombre de documents qui le contiennent), en une seule passe sur
+    // les cartes d'occurrences. Les compteurs sont des int[1] mutables pour éviter un Long boxé par incrément.
+
+    public static Map<String, int[]> computeDocumentFrequencies(Collection<Map<String, Long>> documents) {
+        Map<String, int[]> documentFrequencies = new HashMap<>();
+        for (Map<String, Long> freqMap : documents) {
+            for (String term : freqMap.keySet()) {
+                documentFrequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+            }
+        }
+        return documentFrequencies;
+    }
+
+    // Ajoute les fréquences de source à target (compteurs de source non partagés : source reste inchangée).
+    private static void mergeDocumentFrequencies(Map<String, int[]> target, Map<String, int[]> source) {
+        for (var e : source.entrySet()) {
+            target.computeIfAbsent(e.getKey(), t -> new int[1])[0] += e.getValue()[0];
+        }
+    }
+
+    private static Map<String, Double> idfFromDocumentFrequencies(Map<String, int[]> documentFrequencies, int documentCount) {
+        Map<String, Double> idf = new LinkedHashMap<>();
+        for (var e : documentFrequencies.entrySet()) {
+            idf.put(e.getKey(), computeIdf(documentCount, e.getValue()[0]));
         }
         return idf;
     }
 
+    // IDF d'un terme présent dans documentFrequency des documentCount documents du corpus.
+    public static double computeIdf(int documentCount, int documentFrequency) {
+        double totalDocs = documentCount;
+        long docsWithTerm = documentFrequency;
+        // Formule IDF (avec lissage +1 pour éviter la division par zéro si un terme n'est nulle part)
+        return Math.log(totalDocs / (1.0 + docsWithTerm)) + 1.0; // +1.0 Lissage Additif
+    }
+
     // Calcule le score TF-IDF final pour tous les documents et tous les termes.
 
     public static Map<String, Map<String, Double>> computeTfIdf(Map<String, Map<String, Double>> tfMap, Map<String, Double> idfMap) {
@@ -58,4 +109,62 @@ public class TfIdfUtils {
         return tfidfMap;
     }
 
+    // Calcule directement la matrice TF-IDF au format CSR (document x terme), sans Map imbriquée ni Double boxé.
+    // Chaque racine rencontrée est enregistrée dans le dictionnaire, qui fournit l'identifiant de sa colonne.
+
+    public static CsrMatrix computeTfIdfMatrix(Map<String, Map<String, Long>> occurrenceMap,
+                                               Map<String, Double> idfMap,
+                                               TermDictionary dictionary) {
+        CsrMatrix.Builder builder = new CsrMatrix.Builder();
+        int[] columns = new int[16];
+        float[] weights = new float[16];
+
+        for (Map<String, Long> freqMap : occurrenceMap.values()) {
+            if (freqMap.size() > columns.length) {
+                columns = new int[freqMap.size()];
+                weights = new float[freqMap.size()];
+            }
+            double total = freqMap.values().stream().mapToLong(Long::longValue).sum();
+            int length = 0;
+            if (total > 0) {
+                for (var e : freqMap.entrySet()) {
+                    columns[length] = dictionary.getOrAdd(e.getKey());
+                    weights[length++] = (float) (e.getValue() / total * idfMap.getOrDefault(e.getKey(), 0.0));
+                }
+            }
+            builder.addRow(columns, weights, length);
+        }
+        return builder.build(dictionary.size());
+    }
+
+    // Convertit la table IDF en tableau indexé par identifiant de terme.
+
+    public static double[] toIdfArray(Map<String, Double> idfMap, TermDictionary dictionary) {
+        double[] idf = new double[dictionary.size()];
+        for (int termId = 0; termId < idf.length; termId++) {
+            idf[termId] = idfMap.getOrDefault(dictionary.getTerm(termId), 0.0);
+        }
+        return idf;
+    }
+
+    // Calcule la norme euclidienne (L2) d'un vecteur TF-IDF.
+
+    public static double computeNorm(Map<String, Double> vector) {
+        double sumOfSquares = 0.0;
+        for (double weight : vector.values()) {
+            sumOfSquares += weight * weight;
+        }
+        return Math.sqrt(sumOfSquares);
+    }
+
+    // Calcule une fois pour toutes la norme de chaque document de la matrice TF-IDF (elle ne change plus après computeTfIdf).
+
+    public static Map<String, Double> computeNorms(Map<String, Map<String, Double>> tfidfMatrix) {
+        Map<String, Double> norms = new LinkedHashMap<>();
+        for (var entry : tfidfMatrix.entrySet()) {
+            norms.put(entry.getKey(), computeNorm(entry.getValue()));
+        }
+        return norms;
+    }
+
 }
@@ -0,0 +1,18 @@
+package com.hamza.nlp;
+
+// Filtre d'une chaîne d'analyse (voir TextAnalyzer) : il normalise les mots avant la racinisation, écarte des
+// racines de l'index, ou les deux. Les filtres ne doivent ni allouer ni utiliser d'expressions régulières : ils
+// sont appelés pour chaque mot du corpus et des requêtes. Voir ArabicFilters pour les filtres disponibles.
+
+public interface TokenFilter {
+
+    // Normalise sur place le mot word[0, length) et retourne sa nouvelle longueur (0 : plus rien à raciniser).
+    default int normalize(char[] word, int length) {
+        return length;
+    }
+
+    // La racine doit-elle être indexée ?
+    default boolean accept(String stem) {
+        return true;
+    }
+}
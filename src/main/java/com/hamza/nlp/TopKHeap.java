@@ -0,0 +1,117 @@
+package com.hamza.nlp;
+
+// Tas binaire borné qui conserve les K meilleurs documents (score décroissant, puis identifiant croissant).
+// La racine est le moins bon document retenu : c'est le score à battre pour entrer dans le top-K.
+// Les identifiants sont des long, pour pouvoir combiner un numéro de segment et un document du segment.
+
+final class TopKHeap {
+
+    private final int capacity;
+    private final long[] docIds;
+    private final double[] scores;
+    private int size;
+
+    TopKHeap(int capacity) {
+        this.capacity = capacity;
+        this.docIds = new long[capacity];
+        this.scores = new double[capacity];
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Score du moins bon document retenu (valide uniquement si le tas n'est pas vide).
+    double minScore() {
+        return scores[0];
+    }
+
+    // Propose un document ; retourne true s'il entre dans le top-K.
+    boolean offer(long docId, double score) {
+        if (capacity == 0) {
+            return false;
+        }
+        if (size < capacity) {
+            docIds[size] = docId;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (!isWorse(docIds[0], scores[0], docId, score)) {
+            return false;
+        }
+        docIds[0] = docId;
+        scores[0] = score;
+        siftDown(0);
+        return true;
+    }
+
+    // Fusionne un autre tas (top-K d'un shard) dans celui-ci.
+    void offerAll(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.docIds[i], other.scores[i]);
+        }
+    }
+
+    // Vide le tas et retourne les identifiants du meilleur au moins bon ; les scores sont écrits dans sortedScores.
+    long[] drainSorted(double[] sortedScores) {
+        long[] sortedDocIds = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sortedDocIds[i] = docIds[0];
+            sortedScores[i] = scores[0];
+            size--;
+            docIds[0] = docIds[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return sortedDocIds;
+    }
+
+    // Le document (docA, scoreA) est-il moins bon que (docB, scoreB) ?
+    private static boolean isWorse(long docA, double scoreA, long docB, double scoreB) {
+        return scoreA < scoreB || (scoreA == scoreB && docA > docB);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isWorse(docIds[index], scores[index], docIds[parent], scores[parent])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && isWorse(docIds[right], scores[right], docIds[left], scores[left])) {
+                worst = right;
+            }
+            if (!isWorse(docIds[worst], scores[worst], docIds[index], scores[index])) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long docId = docIds[i];
+        docIds[i] = docIds[j];
+        docIds[j] = docId;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
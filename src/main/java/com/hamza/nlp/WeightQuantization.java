@@ -0,0 +1,122 @@
+package com.hamza.nlp;
+
+import java.util.Locale;
+
+// Codage des poids TF-IDF de l'index chargé (postings et lignes des documents), choisi par app.index.quantization :
+//  - FLOAT32 : flottants 32 bits, poids exacts ;
+//  - FLOAT16 : demi-flottants IEEE 754 (2 octets), erreur relative au plus 2^-11 ;
+//  - INT8 : un octet par poids, sur une échelle logarithmique fixe de 255 niveaux entre 2^-24 et 2^8 (0 code un
+//    poids nul), soit une erreur relative au plus de 4,5 %. L'échelle ne dépend pas de l'index : un poids décodé
+//    se recode à l'identique (instantané, shards).
+// Les poids sont positifs ou nuls (tf / longueur x IDF lissé) ; l'erreur relative ne dépend pas de leur grandeur,
+// ce qui préserve l'ordre des contributions au cosinus comme à BM25.
+
+public enum WeightQuantization {
+
+    FLOAT32(4), FLOAT16(2), INT8(1);
+
+    private static final int MIN_EXPONENT = -24;
+    private static final int MAX_EXPONENT = 8;
+    // Niveaux de poids non nuls du codage INT8, par octave
+    private static final double LEVELS_PER_OCTAVE = 254.0 / (MAX_EXPONENT - MIN_EXPONENT);
+    private static final float[] INT8_WEIGHTS = new float[256];
+
+    static {
+        for (int code = 1; code < 256; code++) {
+            INT8_WEIGHTS[code] = (float) Math.pow(2.0, MIN_EXPONENT + (code - 1) / LEVELS_PER_OCTAVE);
+        }
+    }
+
+    private final int bytesPerWeight;
+
+    WeightQuantization(int bytesPerWeight) {
+        this.bytesPerWeight = bytesPerWeight;
+    }
+
+    public int getBytesPerWeight() {
+        return bytesPerWeight;
+    }
+
+    // Codage désigné par son nom, sans tenir compte de la casse (valeur de app.index.quantization).
+    public static WeightQuantization of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Quantification des poids inconnue : " + name
+                    + " (attendue : float32, float16 ou int8)");
+        }
+    }
+
+    // Poids tel que l'index le restitue une fois codé.
+    public float round(float weight) {
+        return switch (this) {
+            case FLOAT32 -> weight;
+            case FLOAT16 -> fromHalf(toHalf(weight));
+            case INT8 -> fromCode(toCode(weight));
+        };
+    }
+
+    // Demi-flottant IEEE 754 le plus proche (arrondi au pair), infini au-delà de 65504.
+    static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int magnitude = bits & 0x7FFFFFFF;
+        if (magnitude > 0x7F800000) {
+            return (short) (sign | 0x7E00);
+        }
+        if (magnitude >= 0x477FF000) {
+            return (short) (sign | 0x7C00);
+        }
+        if (magnitude < 0x33000000) {
+            return (short) sign;
+        }
+        int half;
+        int remainder;
+        int halfway;
+        if (magnitude < 0x38800000) {
+            // Sous-normal : mantisse complète décalée vers la précision 2^-24 du demi-flottant
+            int shift = 126 - (magnitude >>> 23);
+            int mantissa = (magnitude & 0x7FFFFF) | 0x800000;
+            half = mantissa >>> shift;
+            remainder = mantissa & ((1 << shift) - 1);
+            halfway = 1 << (shift - 1);
+        } else {
+            // Normal : exposant rebiaisé (127 -> 15) et mantisse tronquée à 10 bits
+            half = (magnitude - 0x38000000) >>> 13;
+            remainder = magnitude & 0x1FFF;
+            halfway = 0x1000;
+        }
+        if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    static float fromHalf(short half) {
+        int bits = half & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        if (exponent == 0) {
+            float value = mantissa * 0x1p-24f;
+            return sign != 0 ? -value : value;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
+    // Niveau logarithmique le plus proche (0 pour un poids nul ou négatif, bornes de l'échelle au-delà).
+    static byte toCode(float weight) {
+        if (!(weight > 0.0f)) {
+            return 0;
+        }
+        double level = (Math.log(weight) / Math.log(2.0) - MIN_EXPONENT) * LEVELS_PER_OCTAVE;
+        return (byte) (1 + Math.max(0, Math.min(254, Math.round(level))));
+    }
+
+    static float fromCode(byte code) {
+        return INT8_WEIGHTS[code & 0xFF];
+    }
+}
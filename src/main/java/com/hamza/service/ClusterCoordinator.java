@@ -0,0 +1,266 @@
+package com.hamza.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamza.dto.SearchRequestDto;
+import com.hamza.dto.SearchResponseDto;
+import com.hamza.dto.ShardStatisticsDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Coordinateur d'un déploiement distribué (app.cluster.role=coordinator) : chaque shard est une instance de
+// l'application qui sert une partie du corpus (app.cluster.role=shard), et le coordinateur ne charge aucun index.
+// - IDF global : le coordinateur agrège les nombres de documents et fréquences documentaires des shards, puis
+//   renvoie à chacun la somme de celles des autres ; chaque shard score alors avec l'IDF du corpus complet, et
+//   un document obtient le même score que dans un index unique. La synchronisation a lieu à la première
+//   recherche, puis en arrière-plan dès qu'elle date de plus de app.cluster.sync-interval-seconds.
+// - Recherche : la requête est envoyée en parallèle à tous les shards, chacun retourne son top-K local, et le
+//   coordinateur fusionne ces listes (score décroissant, puis ordre des shards). Un shard qui échoue ou ne
+//   répond pas dans app.cluster.timeout-ms est ignoré, et la réponse est marquée partielle.
+// - Authentification : chaque appel à l'API interne des shards porte le secret partagé app.cluster.secret.
+
+@Service
+@ConditionalOnProperty(name = "app.cluster.role", havingValue = "coordinator")
+public class ClusterCoordinator {
+
+    // En-tête du secret partagé, vérifié par l'API interne des shards (ShardController)
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private final List<String> shardUrls;
+    private final String secret;
+    private final Duration timeout;
+    private final long syncIntervalMillis;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final AtomicBoolean synchronizing = new AtomicBoolean();
+    private volatile ClusterStatus status;
+
+    public ClusterCoordinator(@Value("${app.cluster.shards:}") String shards,
+                              @Value("${app.cluster.timeout-ms:2000}") long timeoutMillis,
+                              @Value("${app.cluster.sync-interval-seconds:60}") long syncIntervalSeconds,
+                              @Value("${app.cluster.secret:}") String secret,
+                              ObjectMapper objectMapper) {
+        this.shardUrls = Arrays.stream(shards.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> url.endsWith("/") ? url.substring(0, url.length() - 1) : url)
+                .toList();
+        if (shardUrls.isEmpty()) {
+            throw new IllegalStateException("app.cluster.shards doit lister les URL des shards du coordinateur");
+        }
+        if (secret.isBlank()) {
+            throw new IllegalStateException("app.cluster.secret doit être défini sur les shards et le coordinateur");
+        }
+        this.secret = secret;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.syncIntervalMillis = TimeUnit.SECONDS.toMillis(syncIntervalSeconds);
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        System.out.println("🌐 Coordinateur de " + shardUrls.size() + " shard(s): " + shardUrls);
+    }
+
+    // Recherche répartie : top-K de chaque shard fusionnés en un top-K global.
+    public SearchResponseDto search(SearchRequestDto request) {
+        long startTime = System.currentTimeMillis();
+        synchronizeIfNeeded();
+
+        List<CompletableFuture<SearchResponseDto>> responses = new ArrayList<>(shardUrls.size());
+        for (String shardUrl : shardUrls) {
+            responses.add(send(shardUrl + "/internal/shard/search", "POST", request, SearchResponseDto.class));
+        }
+
+        // Concaténées dans l'ordre des shards : le tri stable départage les scores égaux par shard
+        List<SearchResponseDto.DocumentResult> results = new ArrayList<>();
+        List<String> failedShards = new ArrayList<>();
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            try {
+                SearchResponseDto response = responses.get(shard).join();
+                if (!response.isSuccess()) {
+                    throw new IllegalStateException(response.getMessage());
+                }
+                results.addAll(response.getResults());
+            } catch (RuntimeException e) {
+                System.out.println("⚠️  Shard " + shardUrls.get(shard) + " ignoré: " + rootMessage(e));
+                failedShards.add(shardUrls.get(shard));
+            }
+        }
+        if (failedShards.size() == shardUrls.size()) {
+            return SearchResponseDto.error(request.getQuery(), "Aucun shard n'a répondu");
+        }
+        results.sort(Comparator.comparingDouble(SearchResponseDto.DocumentResult::getSimilarityScore).reversed());
+        if (results.size() > request.getMaxResults()) {
+            results = new ArrayList<>(results.subList(0, request.getMaxResults()));
+        }
+
+        double executionTime = (System.currentTimeMillis() - startTime) / 1000.0;
+        SearchResponseDto response = new SearchResponseDto(request.getQuery(), results, executionTime);
+        response.setPartial(!failedShards.isEmpty());
+        response.setFailedShards(failedShards);
+        return response;
+    }
+
+    // Agrège les statistiques d'IDF des shards et renvoie à chacun celles des autres.
+    // Un shard injoignable est exclu du corpus jusqu'à la synchronisation suivante.
+    public synchronized ClusterStatus synchronize() {
+        List<CompletableFuture<ShardStatisticsDto>> requests = new ArrayList<>(shardUrls.size());
+        for (String shardUrl : shardUrls) {
+            requests.add(send(shardUrl + "/internal/shard/statistics", "GET", null, ShardStatisticsDto.class));
+        }
+
+        ShardStatisticsDto[] statistics = new ShardStatisticsDto[shardUrls.size()];
+        List<ShardStatus> shards = new ArrayList<>(shardUrls.size());
+        int corpusDocumentCount = 0;
+        long corpusDocumentLength = 0;
+        Map<String, Integer> corpusFrequencies = new HashMap<>();
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            try {
+                statistics[shard] = requests.get(shard).join();
+                corpusDocumentCount += statistics[shard].getDocumentCount();
+                corpusDocumentLength += statistics[shard].getDocumentLength();
+                statistics[shard].getDocumentFrequencies().forEach((term, df) -> corpusFrequencies.merge(term, df, Integer::sum));
+            } catch (RuntimeException e) {
+                System.out.println("⚠️  Statistiques du shard " + shardUrls.get(shard) + " indisponibles: " + rootMessage(e));
+            }
+        }
+
+        // Statistiques distantes d'un shard = corpus complet - ses propres statistiques
+        List<CompletableFuture<Void>> updates = new ArrayList<>(shardUrls.size());
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            if (statistics[shard] == null) {
+                updates.add(null);
+                continue;
+            }
+            Map<String, Integer> local = statistics[shard].getDocumentFrequencies();
+            Map<String, Integer> remote = new HashMap<>();
+            corpusFrequencies.forEach((term, df) -> {
+                int remoteDf = df - local.getOrDefault(term, 0);
+                if (remoteDf > 0) {
+                    remote.put(term, remoteDf);
+                }
+            });
+            ShardStatisticsDto remoteStatistics = new ShardStatisticsDto(
+                    corpusDocumentCount - statistics[shard].getDocumentCount(), remote,
+                    corpusDocumentLength - statistics[shard].getDocumentLength());
+            updates.add(send(shardUrls.get(shard) + "/internal/shard/statistics", "PUT", remoteStatistics, Void.class));
+        }
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            boolean updated = false;
+            if (updates.get(shard) != null) {
+                try {
+                    updates.get(shard).join();
+                    updated = true;
+                } catch (RuntimeException e) {
+                    System.out.println("⚠️  Shard " + shardUrls.get(shard) + " non synchronisé: " + rootMessage(e));
+                }
+            }
+            shards.add(new ShardStatus(shardUrls.get(shard),
+                    statistics[shard] != null ? statistics[shard].getDocumentCount() : 0, updated));
+        }
+
+        status = new ClusterStatus(shards, corpusDocumentCount, corpusFrequencies.size(), System.currentTimeMillis());
+        System.out.println("🔄 IDF global synchronisé: " + corpusDocumentCount + " documents, "
+                + corpusFrequencies.size() + " termes");
+        return status;
+    }
+
+    // État de la dernière synchronisation (null avant la première).
+    public ClusterStatus getStatus() {
+        return status;
+    }
+
+    // Première recherche : synchronisation bloquante. Ensuite, une statistique périmée est resynchronisée en
+    // arrière-plan pendant que les recherches continuent avec l'IDF précédent.
+    private void synchronizeIfNeeded() {
+        ClusterStatus current = status;
+        if (current == null) {
+            synchronize();
+        } else if (System.currentTimeMillis() - current.getSynchronizedAt() >= syncIntervalMillis
+                && synchronizing.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    synchronize();
+                } finally {
+                    synchronizing.set(false);
+                }
+            });
+        }
+    }
+
+    // Requête JSON asynchrone vers un shard, en échec au-delà du délai ou pour une réponse autre que 2xx.
+    private <T> CompletableFuture<T> send(String url, String method, Object body, Class<T> responseType) {
+        HttpRequest.BodyPublisher publisher;
+        try {
+            publisher = body != null
+                    ? HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body))
+                    : HttpRequest.BodyPublishers.noBody();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header(SECRET_HEADER, secret)
+                .method(method, publisher)
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                    if (responseType == Void.class || response.body().isEmpty()) {
+                        return null;
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), responseType);
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException("Réponse invalide: " + e.getOriginalMessage(), e);
+                    }
+                });
+    }
+
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    // État du cluster après une synchronisation : shards, taille du corpus complet et date (ms epoch).
+
+    @AllArgsConstructor
+    @Data
+    public static class ClusterStatus {
+        private final List<ShardStatus> shards;
+        private final int totalDocuments;
+        private final int totalUniqueTerms;
+        private final long synchronizedAt;
+    }
+
+    @AllArgsConstructor
+    @Data
+    public static class ShardStatus {
+        private final String url;
+        private final int documents;
+        private final boolean synchronizedIdf;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hamza.service;
+
+import com.hamza.config.LocalIndexNode;
+import com.hamza.dto.DocumentRequestDto;
+import com.hamza.nlp.DocumentSearchUtils;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+// Service pour modifier l'index sans reconstruction : ajout, remplacement et suppression de documents.
+// Le cache des résultats n'a pas à être vidé ici : chaque modification change la génération de l'index.
+
+@Service
+@LocalIndexNode
+@AllArgsConstructor
+public class DocumentIndexService {
+
+    private final DocumentSearchUtils.SearchEngine searchEngine;
+
+    // Ajoute un nouveau document ; retourne false si un document de ce nom existe déjà.
+    public boolean addDocument(DocumentRequestDto request) {
+        return searchEngine.addDocumentIfAbsent(request.getName(), request.getContent());
+    }
+
+    // Remplace un document, ou l'ajoute s'il n'existe pas ; retourne true s'il a été remplacé.
+    public boolean replaceDocument(String name, DocumentRequestDto request) {
+        return searchEngine.addDocument(name, request.getContent());
+    }
+
+    public boolean removeDocument(String name) {
+        return searchEngine.removeDocument(name);
+    }
+
+    public DocumentSearchUtils.IndexStatus refreshIndex() {
+        searchEngine.refreshIndex();
+        return searchEngine.getIndexStatus();
+    }
+
+    public DocumentSearchUtils.IndexStatus getIndexStatus() {
+        return searchEngine.getIndexStatus();
+    }
+}
@@ -1,46 +1,75 @@
 package com.hamza.service;
 
+import com.hamza.config.LocalIndexNode;
+import com.hamza.dto.BatchSearchResponseDto;
 import com.hamza.dto.SearchRequestDto;
 import com.hamza.dto.SearchResponseDto;
 import com.hamza.nlp.DocumentSearchUtils;
 import com.hamza.nlp.DocumentSearcher;
+import com.hamza.nlp.IndexCompression;
+import com.hamza.nlp.NearDuplicateIndex;
+import com.hamza.nlp.PositionalQuery;
+import com.hamza.nlp.Scorer;
+import com.hamza.nlp.SearchMetrics;
+import com.hamza.nlp.SimilarDocumentIndex;
+import com.hamza.nlp.SnippetGenerator;
+import com.hamza.nlp.StemCache;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 // Service pour gérer les opérations de recherche de documents.
 
 @Service
+@LocalIndexNode
 @AllArgsConstructor
 public class DocumentSearchService {
 
+    // Nombre maximal de suggestions renvoyées pour une saisie
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final DocumentSearchUtils.SearchEngine searchEngine;
+    private final SearchResultCache resultCache;
 
     // Effectue une recherche de documents basée sur la requête.
     public SearchResponseDto searchDocuments(SearchRequestDto request) {
         try {
-            long startTime = System.currentTimeMillis();
-            
-            // Effectuer la recherche
-            List<DocumentSearcher.DocumentSearchResult> searchResults = searchEngine.search(
-                    request.getQuery(), 
-                    request.getThreshold(), 
-                    request.getMaxResults()
-            );
+            long startTime = System.nanoTime();
+            SearchMetrics metrics = searchEngine.getMetrics();
             
-            // Convertir les résultats en DTOs
-            List<SearchResponseDto.DocumentResult> documentResults = searchResults.stream()
-                    .map(result -> new SearchResponseDto.DocumentResult(
-                            result.getDocumentName(),
-                            result.getSimilarityScore(),
-                            result.getMatchingTerms()
-                    ))
-                    .collect(Collectors.toList());
+            // Analyser la requête : la clé du cache est son vecteur de racines (et ses contraintes positionnelles),
+            // pas la chaîne brute
+            Map<String, Double> queryVector = searchEngine.analyzeQuery(request.getQuery());
+            List<PositionalQuery.Constraint> constraints = searchEngine.analyzeConstraints(request.getQuery());
+            Scorer scorer = searchEngine.getScorer(request.getScorer());
+            SearchResultCache.QueryKey cacheKey = SearchResultCache.QueryKey.of(queryVector, constraints, scorer,
+                    request.getThreshold(), request.getMaxResults(), request.isCollapseDuplicates());
+            long indexGeneration = searchEngine.getIndexGeneration();
+
+            List<SearchResponseDto.DocumentResult> documentResults = resultCache.get(cacheKey, indexGeneration);
+            boolean cacheHit = documentResults != null;
+            if (!cacheHit) {
+                // Effectuer la recherche
+                List<DocumentSearcher.DocumentSearchResult> searchResults = searchEngine.search(
+                        queryVector, 
+                        constraints,
+                        scorer,
+                        request.getThreshold(), 
+                        fetchSize(request)
+                );
+                searchResults = collapseDuplicates(request, searchResults);
+                
+                // Convertir les résultats en DTOs
+                documentResults = toDocumentResults(searchResults, metrics);
+                resultCache.put(cacheKey, indexGeneration, documentResults);
+            }
             
-            long endTime = System.currentTimeMillis();
-            double executionTime = (endTime - startTime) / 1000.0;
+            double executionTime = metrics.recordRequest(cacheHit, startTime) / 1e9;
             
             return new SearchResponseDto(request.getQuery(), documentResults, executionTime);
             
@@ -50,10 +79,152 @@ public class DocumentSearchService {
         }
     }
 
-    
+
+    // Recherche groupée : les requêtes absentes du cache sont scorées ensemble par le moteur, en une seule
+    // traversée des postings ; les réponses sont retournées dans l'ordre des requêtes.
+    public BatchSearchResponseDto searchBatch(List<SearchRequestDto> requests) {
+        long startTime = System.nanoTime();
+        SearchMetrics metrics = searchEngine.getMetrics();
+        List<SearchResponseDto> responses = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        try {
+            long indexGeneration = searchEngine.getIndexGeneration();
+            List<Integer> misses = new ArrayList<>();
+            List<Map<String, Double>> missVectors = new ArrayList<>();
+            List<List<PositionalQuery.Constraint>> missConstraints = new ArrayList<>();
+            List<Scorer> missScorers = new ArrayList<>();
+            List<SearchResultCache.QueryKey> missKeys = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                SearchRequestDto request = requests.get(i);
+                long queryStart = System.nanoTime();
+                Map<String, Double> queryVector = searchEngine.analyzeQuery(request.getQuery());
+                List<PositionalQuery.Constraint> constraints = searchEngine.analyzeConstraints(request.getQuery());
+                Scorer scorer = searchEngine.getScorer(request.getScorer());
+                SearchResultCache.QueryKey cacheKey = SearchResultCache.QueryKey.of(queryVector, constraints, scorer,
+                        request.getThreshold(), request.getMaxResults(), request.isCollapseDuplicates());
+                List<SearchResponseDto.DocumentResult> cached = resultCache.get(cacheKey, indexGeneration);
+                if (cached != null) {
+                    double executionTime = metrics.recordRequest(true, queryStart) / 1e9;
+                    responses.set(i, new SearchResponseDto(request.getQuery(), cached, executionTime));
+                } else {
+                    misses.add(i);
+                    missVectors.add(queryVector);
+                    missConstraints.add(constraints);
+                    missScorers.add(scorer);
+                    missKeys.add(cacheKey);
+                }
+            }
+
+            if (!misses.isEmpty()) {
+                long searchStart = System.nanoTime();
+                double[] thresholds = new double[misses.size()];
+                int[] maxResults = new int[misses.size()];
+                for (int m = 0; m < misses.size(); m++) {
+                    thresholds[m] = requests.get(misses.get(m)).getThreshold();
+                    maxResults[m] = fetchSize(requests.get(misses.get(m)));
+                }
+                List<List<DocumentSearcher.DocumentSearchResult>> searchResults =
+                        searchEngine.search(missVectors, missConstraints, missScorers, thresholds, maxResults);
+                // Le lot est scoré d'un seul tenant : chaque requête se voit attribuer la durée du lot
+                double executionTime = (System.nanoTime() - searchStart) / 1e9;
+                for (int m = 0; m < misses.size(); m++) {
+                    List<SearchResponseDto.DocumentResult> documentResults = toDocumentResults(
+                            collapseDuplicates(requests.get(misses.get(m)), searchResults.get(m)), metrics);
+                    resultCache.put(missKeys.get(m), indexGeneration, documentResults);
+                    responses.set(misses.get(m),
+                            new SearchResponseDto(requests.get(misses.get(m)).getQuery(), documentResults, executionTime));
+                }
+            }
+        } catch (Exception e) {
+            for (int i = 0; i < requests.size(); i++) {
+                if (responses.get(i) == null) {
+                    responses.set(i, SearchResponseDto.error(requests.get(i).getQuery(),
+                            "Erreur lors de la recherche: " + e.getMessage()));
+                }
+            }
+        }
+        return new BatchSearchResponseDto(responses, (System.nanoTime() - startTime) / 1e9);
+    }
+
+    // Nombre de résultats demandés au moteur : davantage quand les quasi-doublons sont repliés, pour qu'il en
+    // reste maxResults après le repli.
+    private int fetchSize(SearchRequestDto request) {
+        return request.isCollapseDuplicates()
+                ? searchEngine.duplicateFetchSize(request.getMaxResults()) : request.getMaxResults();
+    }
+
+    private List<DocumentSearcher.DocumentSearchResult> collapseDuplicates(
+            SearchRequestDto request, List<DocumentSearcher.DocumentSearchResult> searchResults) {
+        return request.isCollapseDuplicates()
+                ? searchEngine.collapseDuplicates(searchResults, request.getMaxResults()) : searchResults;
+    }
+
+    private List<SearchResponseDto.DocumentResult> toDocumentResults(
+            List<DocumentSearcher.DocumentSearchResult> searchResults, SearchMetrics metrics) {
+        // Extraits des seuls résultats finaux, lus dans le magasin de documents
+        long snippetsStart = System.nanoTime();
+        List<String> snippets = searchResults.stream()
+                .map(searchEngine::snippet)
+                .collect(Collectors.toList());
+        metrics.record(SearchMetrics.Stage.SNIPPETS, snippetsStart);
+
+        long mappingStart = System.nanoTime();
+        List<SearchResponseDto.DocumentResult> documentResults = new ArrayList<>(searchResults.size());
+        for (int i = 0; i < searchResults.size(); i++) {
+            DocumentSearcher.DocumentSearchResult result = searchResults.get(i);
+            documentResults.add(new SearchResponseDto.DocumentResult(
+                    result.getDocumentName(),
+                    result.getSimilarityScore(),
+                    result.getMatchingTerms(),
+                    snippets.get(i),
+                    result.getDuplicates()
+            ));
+        }
+        metrics.record(SearchMetrics.Stage.MAPPING, mappingStart);
+        return documentResults;
+    }
 
     public DocumentSearchUtils.SearchStatistics getSearchStatistics() {
         return searchEngine.getStatistics();
     }
 
+    public DocumentSearchUtils.SearchStatistics getSearchStatistics(int topTerms) {
+        return searchEngine.getStatistics(topTerms);
+    }
+
+    public SearchResultCache.CacheStatistics getResultCacheStatistics() {
+        return resultCache.getStatistics();
+    }
+
+    public StemCache.StemCacheStatistics getStemCacheStatistics() {
+        return searchEngine.getStemCacheStatistics();
+    }
+
+    public NearDuplicateIndex.DuplicateReport getDuplicateReport(int maxGroups) {
+        return searchEngine.getDuplicateReport(maxGroups);
+    }
+
+    public SimilarDocumentIndex.SimilarDocuments getSimilarDocuments(String name, int limit, boolean exact) {
+        return searchEngine.similarDocuments(name, limit, exact);
+    }
+
+    public SimilarDocumentIndex.SimilarityEvaluation evaluateSimilarDocuments(int samples, int limit) {
+        return searchEngine.evaluateSimilarDocuments(samples, limit);
+    }
+
+    public IndexCompression.Report getCompressionReport() {
+        return searchEngine.getCompressionReport();
+    }
+
+    public SnippetGenerator.StoreStatistics getDocumentStoreStatistics() {
+        return searchEngine.getDocumentStoreStatistics();
+    }
+
+    // Suggestions d'autocomplétion tirées du vocabulaire de l'index, classées par fréquence documentaire.
+    public List<String> getSuggestions(String input, int limit) {
+        if (input == null || input.isBlank()) {
+            return Collections.emptyList();
+        }
+        return searchEngine.suggest(input, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
 }
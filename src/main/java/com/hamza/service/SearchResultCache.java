@@ -0,0 +1,167 @@
+package com.hamza.service;
+
+import com.hamza.dto.SearchResponseDto;
+import com.hamza.nlp.PositionalQuery;
+import com.hamza.nlp.Scorer;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cache des résultats de recherche (SearchResponseDto.DocumentResult), borné en taille (LRU) et en durée de vie (TTL).
+// La clé est le vecteur de racines normalisé de la requête (et non la chaîne brute) avec le seuil et le nombre
+// de résultats : deux formulations qui donnent les mêmes racines partagent la même entrée.
+// Le cache est vidé automatiquement dès qu'une génération d'index plus récente apparaît (les générations sont
+// croissantes). Une lecture ou une écriture portant sur une génération plus ancienne que celle du cache (requête
+// commencée avant une mise à jour de l'index) est ignorée, sans vider le cache.
+
+public class SearchResultCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<QueryKey, CachedResults> entries;
+    private long indexGeneration = -1;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // maxSize = 0 désactive le cache ; ttlSeconds <= 0 désactive l'expiration.
+    public SearchResultCache(int maxSize, long ttlSeconds) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlNanos = ttlSeconds > 0 ? ttlSeconds * 1_000_000_000L : Long.MAX_VALUE;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QueryKey, CachedResults> eldest) {
+                if (size() > SearchResultCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static SearchResultCache disabled() {
+        return new SearchResultCache(0, 0);
+    }
+
+    // Résultats en cache pour cette clé et cette génération d'index, ou null.
+    public List<SearchResponseDto.DocumentResult> get(QueryKey key, long currentGeneration) {
+        if (maxSize == 0) {
+            return null;
+        }
+        synchronized (entries) {
+            if (!advanceGeneration(currentGeneration)) {
+                misses.increment();
+                return null;
+            }
+            CachedResults cached = entries.get(key);
+            if (cached != null && System.nanoTime() - cached.getCreatedAt() > ttlNanos) {
+                entries.remove(key);
+                expirations.increment();
+                cached = null;
+            }
+            if (cached == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return cached.getResults();
+        }
+    }
+
+    public void put(QueryKey key, long currentGeneration, List<SearchResponseDto.DocumentResult> results) {
+        if (maxSize == 0) {
+            return;
+        }
+        synchronized (entries) {
+            if (advanceGeneration(currentGeneration)) {
+                entries.put(key, new CachedResults(List.copyOf(results), System.nanoTime()));
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public CacheStatistics getStatistics() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStatistics(maxSize > 0, size, maxSize, hits.sum(), misses.sum(),
+                evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    // Passe à la génération currentGeneration si elle est plus récente (le cache est alors vidé) ; retourne false
+    // si elle est plus ancienne que celle du cache.
+    private boolean advanceGeneration(long currentGeneration) {
+        if (currentGeneration < indexGeneration) {
+            return false;
+        }
+        if (currentGeneration > indexGeneration) {
+            if (!entries.isEmpty()) {
+                invalidations.increment();
+            }
+            entries.clear();
+            indexGeneration = currentGeneration;
+        }
+        return true;
+    }
+
+    // Clé de cache : racines de la requête avec leur poids TF-IDF, contraintes positionnelles (phrases, NEAR, dans
+    // l'ordre de la requête), nom de la fonction de score, repli des quasi-doublons, seuil et nombre maximal de
+    // résultats.
+
+    @Data
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class QueryKey {
+        private final Map<String, Double> terms;
+        private final List<PositionalQuery.Constraint> constraints;
+        private final String scorer;
+        private final boolean collapseDuplicates;
+        private final double threshold;
+        private final int maxResults;
+
+        public static QueryKey of(Map<String, Double> queryVector, List<PositionalQuery.Constraint> constraints,
+                                  Scorer scorer, double threshold, int maxResults, boolean collapseDuplicates) {
+            return new QueryKey(Map.copyOf(queryVector), List.copyOf(constraints), scorer.getName(),
+                    collapseDuplicates, threshold, maxResults);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CachedResults {
+        private final List<SearchResponseDto.DocumentResult> results;
+        private final long createdAt;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CacheStatistics {
+        private final boolean enabled;
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+}
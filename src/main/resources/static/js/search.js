@@ -29,31 +29,33 @@ $(document).ready(function() {
         $('form').submit();
     });
     
-    // Real-time search suggestions (basic implementation)
-    var suggestions = [
-        'بغداد عاصمة الخلافة العباسية',
-        'الإمبراطورية العثمانية والفتح',
-        'العلوم والفلسفة الإسلامية',
-        'دمشق والأمويين',
-        'الأندلس والمسجد الكبير',
-        'الحروب والجيوش',
-        'السياسة والحكم',
-        'التجارة والاقتصاد',
-        'الثقافة والحضارة'
-    ];
+    // Real-time search suggestions from the index vocabulary (/api/suggestions), shown in a <datalist>
+    var suggestionList = $('<datalist id="query-suggestions"></datalist>');
+    $('#query').attr('list', 'query-suggestions').after(suggestionList);
+    var suggestionTimer = null;
+    var suggestionRequest = null;
     
-    // Simple autocomplete
     $('#query').on('input', function() {
-        var input = $(this).val().toLowerCase();
-        var matches = suggestions.filter(function(suggestion) {
-            return suggestion.toLowerCase().includes(input);
-        });
-        
-        // You can implement a dropdown here if needed
-        // For now, we'll just show suggestions in console for development
-        if (input.length > 2 && matches.length > 0) {
-            console.log('Suggestions:', matches.slice(0, 3));
+        var input = $(this).val();
+        clearTimeout(suggestionTimer);
+        if (input.trim().length < 2) {
+            suggestionList.empty();
+            return;
         }
+        
+        // Debounce: only query the server once typing pauses
+        suggestionTimer = setTimeout(function() {
+            if (suggestionRequest) {
+                suggestionRequest.abort();
+            }
+            suggestionRequest = $.getJSON('/api/suggestions', { term: input, limit: 8 })
+                .done(function(suggestions) {
+                    suggestionList.empty();
+                    suggestions.forEach(function(suggestion) {
+                        suggestionList.append($('<option>').attr('value', suggestion));
+                    });
+                });
+        }, 150);
     });
     
     // Keyboard shortcuts
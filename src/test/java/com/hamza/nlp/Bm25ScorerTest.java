@@ -0,0 +1,99 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+// BM25 : scores de la recherche (exhaustive, MaxScore, plusieurs shards) égaux à la formule calculée directement
+// sur les textes du corpus.
+
+class Bm25ScorerTest {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Test
+    void scoresMatchFormula() {
+        TestCorpus corpus = new TestCorpus(400, 300, 19);
+        InvertedIndex index = corpus.buildIndex();
+        List<Map<String, Integer>> termFrequencies = corpus.getTexts().stream().map(Bm25ScorerTest::count).toList();
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        double averageLength = 0.0;
+        for (Map<String, Integer> frequencies : termFrequencies) {
+            frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+            averageLength += length(frequencies) / (double) termFrequencies.size();
+        }
+
+        Scorer scorer = new Bm25Scorer(K1, B);
+        for (int shards : new int[]{1, 3}) {
+            DocumentSearcher searcher = corpus.createSearcher(index, shards);
+            for (int q = 0; q < 30; q++) {
+                Map<String, Double> query = searcher.processQuery(corpus.nextText(1 + q % 4));
+                Map<String, Double> expected = new HashMap<>();
+                for (int d = 0; d < termFrequencies.size(); d++) {
+                    Map<String, Integer> frequencies = termFrequencies.get(d);
+                    double score = 0.0;
+                    for (String term : query.keySet()) {
+                        int tf = frequencies.getOrDefault(term, 0);
+                        if (tf == 0) {
+                            continue;
+                        }
+                        int df = documentFrequencies.get(term);
+                        double idf = Math.log(1.0 + (termFrequencies.size() - df + 0.5) / (df + 0.5));
+                        double k = K1 * (1.0 - B + B * length(frequencies) / averageLength);
+                        score += idf * tf * (K1 + 1.0) / (tf + k);
+                    }
+                    if (score > 0.0) {
+                        expected.put("doc" + (d + 1), score);
+                    }
+                }
+
+                // Seuil 0 : parcours exhaustif, tous les documents classés
+                List<DocumentSearcher.DocumentSearchResult> all = searcher.searchDocuments(query, List.of(), scorer,
+                        0.0, Integer.MAX_VALUE);
+                assertThat(all).hasSize(termFrequencies.size());
+                assertThat(all.stream().filter(r -> r.getSimilarityScore() > 0.0)).hasSize(expected.size());
+                for (DocumentSearcher.DocumentSearchResult result : all.subList(0, expected.size())) {
+                    assertThat(result.getSimilarityScore())
+                            .isCloseTo(expected.get(result.getDocumentName()), withinPercentage(1e-4));
+                }
+                // MaxScore (seuil > 0) garde les mêmes meilleurs documents
+                List<DocumentSearcher.DocumentSearchResult> top = searcher.searchDocuments(query, List.of(), scorer,
+                        1.0, 5);
+                List<DocumentSearcher.DocumentSearchResult> best = all.stream()
+                        .filter(r -> r.getSimilarityScore() >= 1.0).limit(5).toList();
+                assertThat(top).extracting(DocumentSearcher.DocumentSearchResult::getDocumentName)
+                        .isEqualTo(best.stream().map(DocumentSearcher.DocumentSearchResult::getDocumentName).toList());
+                for (int i = 0; i < top.size(); i++) {
+                    assertThat(top.get(i).getSimilarityScore())
+                            .isCloseTo(best.get(i).getSimilarityScore(), within(1e-9));
+                }
+            }
+        }
+    }
+
+    @Test
+    void invalidParametersAreRejected() {
+        assertThatThrownBy(() -> new Bm25Scorer(-0.1, 0.75)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Bm25Scorer(1.2, 1.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<String, Integer> count(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String word : text.split(" ")) {
+            frequencies.merge(word, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private static int length(Map<String, Integer> frequencies) {
+        return frequencies.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
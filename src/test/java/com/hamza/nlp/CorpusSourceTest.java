@@ -0,0 +1,96 @@
+package com.hamza.nlp;
+
+import com.hamza.TfIdfProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Analyse parallèle du corpus : mêmes documents, dans le même ordre et avec les mêmes racines que l'analyse
+// séquentielle et que l'analyse du texte entier en mémoire.
+
+class CorpusSourceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void parallelAnalysisMatchesSequential() throws IOException {
+        TestCorpus corpus = new TestCorpus(40, 400, 8);
+        List<String> texts = writeCorpus(corpus);
+        CorpusSource source = CorpusSource.scan(directory, "**.txt");
+
+        List<String> sequentialNames = new ArrayList<>();
+        List<Map<String, Long>> sequential = new ArrayList<>();
+        source.analyze(corpus.getAnalyzer(), 1, (name, counts) -> {
+            sequentialNames.add(name);
+            sequential.add(counts);
+        });
+        for (int run = 0; run < 3; run++) {
+            List<String> parallelNames = new ArrayList<>();
+            List<Map<String, Long>> parallel = new ArrayList<>();
+            source.analyze(corpus.getAnalyzer(), 4, (name, counts) -> {
+                parallelNames.add(name);
+                parallel.add(counts);
+            });
+            assertThat(parallelNames).isEqualTo(sequentialNames);
+            assertThat(parallel).isEqualTo(sequential);
+        }
+
+        for (int d = 0; d < texts.size(); d++) {
+            assertThat(sequentialNames.get(d)).isEqualTo(String.format("d%03d.txt", d));
+            assertThat(sequential.get(d)).isEqualTo(TfIdfProcessor.analyzeDocument(texts.get(d),
+                    corpus.getAnalyzer()));
+        }
+    }
+
+    // Positions continues d'un bloc de lecture à l'autre, et mêmes formes de surface, quel que soit le nombre de
+    // threads.
+    @Test
+    void parallelPositionalAnalysisMatchesSequential() throws IOException {
+        TestCorpus corpus = new TestCorpus(20, 300, 12);
+        List<String> texts = writeCorpus(corpus);
+        CorpusSource source = CorpusSource.scan(directory, "**.txt");
+
+        SurfaceForms sequentialForms = new SurfaceForms();
+        List<TermPositions> sequential = new ArrayList<>();
+        source.analyze(corpus.getAnalyzer(), 1, sequentialForms, (name, positions) -> sequential.add(positions));
+        SurfaceForms parallelForms = new SurfaceForms();
+        List<TermPositions> parallel = new ArrayList<>();
+        source.analyze(corpus.getAnalyzer(), 4, parallelForms, (name, positions) -> parallel.add(positions));
+
+        assertThat(parallel).hasSize(texts.size());
+        for (int d = 0; d < texts.size(); d++) {
+            TermPositions expected = new TermPositions();
+            TfIdfProcessor.analyzeDocument(texts.get(d), corpus.getAnalyzer(), expected, new SurfaceForms());
+            for (TermPositions actual : List.of(sequential.get(d), parallel.get(d))) {
+                assertThat(actual.getWordCount()).isEqualTo(expected.getWordCount());
+                assertThat(actual.getStems()).isEqualTo(expected.getStems());
+                for (String stem : expected.getStems()) {
+                    assertThat(actual.get(stem)).containsExactly(expected.get(stem));
+                }
+            }
+        }
+        for (String stem : sequential.get(0).getStems()) {
+            assertThat(parallelForms.get(stem)).isEqualTo(sequentialForms.get(stem));
+        }
+    }
+
+    // Un document sur huit dépasse un bloc de lecture (CorpusSource.CHUNK_CHARS).
+    private List<String> writeCorpus(TestCorpus corpus) throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (int d = 0; d < corpus.getTexts().size(); d++) {
+            String text = d % 8 == 0 ? corpus.nextText(CorpusSource.CHUNK_CHARS / 4) : corpus.getTexts().get(d);
+            texts.add(text);
+            Files.writeString(directory.resolve(String.format("d%03d.txt", d)), text);
+        }
+        return texts;
+    }
+}
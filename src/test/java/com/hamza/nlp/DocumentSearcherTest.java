@@ -0,0 +1,94 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Recherche : MaxScore (seuil > 0) et recherche groupée contre le parcours exhaustif.
+
+class DocumentSearcherTest {
+
+    private static final double[] THRESHOLDS = {0.01, 0.05, 0.2};
+    private static final int[] MAX_RESULTS = {1, 5, 50};
+
+    // MaxScore écarte des documents sans calculer leur score : ses résultats doivent être ceux du parcours
+    // exhaustif (seuil 0, tous les documents classés) filtrés par le seuil, dans le même ordre.
+    @Test
+    void maxScoreMatchesExhaustiveSearch() {
+        TestCorpus corpus = new TestCorpus(3000, 2000, 42);
+        InvertedIndex index = corpus.buildIndex();
+        for (int shardCount : new int[]{1, 3}) {
+            DocumentSearcher searcher = corpus.createSearcher(index, shardCount);
+            for (int q = 0; q < 100; q++) {
+                String query = corpus.nextText(1 + q % 4);
+                Map<String, Double> queryTfIdf = searcher.processQuery(query);
+                List<DocumentSearcher.DocumentSearchResult> all =
+                        searcher.searchDocuments(queryTfIdf, 0.0, index.getDocumentCount());
+                assertThat(all).hasSize(index.getDocumentCount());
+                for (double threshold : THRESHOLDS) {
+                    for (int maxResults : MAX_RESULTS) {
+                        assertSameResults(searcher.searchDocuments(queryTfIdf, threshold, maxResults),
+                                expected(all, threshold, maxResults));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void batchSearchMatchesSingleSearches() {
+        TestCorpus corpus = new TestCorpus(2000, 1500, 7);
+        DocumentSearcher searcher = corpus.createSearcher(corpus.buildIndex(), 2);
+        List<Map<String, Double>> queries = new ArrayList<>();
+        double[] thresholds = new double[40];
+        int[] maxResults = new int[40];
+        for (int q = 0; q < thresholds.length; q++) {
+            queries.add(searcher.processQuery(corpus.nextText(1 + q % 5)));
+            thresholds[q] = THRESHOLDS[q % THRESHOLDS.length];
+            maxResults[q] = MAX_RESULTS[q % MAX_RESULTS.length];
+        }
+        List<List<DocumentSearcher.DocumentSearchResult>> batch =
+                searcher.searchDocuments(queries, thresholds, maxResults);
+        for (int q = 0; q < queries.size(); q++) {
+            assertSameResults(batch.get(q), searcher.searchDocuments(queries.get(q), thresholds[q], maxResults[q]));
+        }
+    }
+
+    // Aucun résultat demandé : le top-K de capacité nulle ne doit pas être lu.
+    @Test
+    void zeroMaxResultsReturnsNothing() {
+        TestCorpus corpus = new TestCorpus(500, 300, 3);
+        DocumentSearcher searcher = corpus.createSearcher(corpus.buildIndex(), 1);
+        Map<String, Double> query = searcher.processQuery(corpus.nextText(3));
+
+        assertThat(searcher.searchDocuments(query, 0.01, 0)).isEmpty();
+        assertThat(searcher.searchDocuments(query, 0.0, 0)).isEmpty();
+        assertThat(searcher.searchDocuments(List.of(query, query), new double[]{0.01, 0.01}, new int[]{0, 3}))
+                .satisfiesExactly(
+                        results -> assertThat(results).isEmpty(),
+                        results -> assertThat(results).hasSize(3));
+    }
+
+    private static List<DocumentSearcher.DocumentSearchResult> expected(
+            List<DocumentSearcher.DocumentSearchResult> all, double threshold, int maxResults) {
+        return all.stream().filter(result -> result.getSimilarityScore() >= threshold).limit(maxResults).toList();
+    }
+
+    private static void assertSameResults(List<DocumentSearcher.DocumentSearchResult> actual,
+                                          List<DocumentSearcher.DocumentSearchResult> expected) {
+        assertThat(names(actual)).isEqualTo(names(expected));
+        for (int i = 0; i < actual.size(); i++) {
+            assertThat(actual.get(i).getSimilarityScore())
+                    .isCloseTo(expected.get(i).getSimilarityScore(), within(1e-9));
+        }
+    }
+
+    private static List<String> names(List<DocumentSearcher.DocumentSearchResult> results) {
+        return results.stream().map(DocumentSearcher.DocumentSearchResult::getDocumentName).toList();
+    }
+}
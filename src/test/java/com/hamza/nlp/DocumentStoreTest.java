@@ -0,0 +1,107 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Magasin compressé du texte des documents : passages relus à l'identique depuis le fichier projeté, limite d'une
+// projection mémoire, et extraits surlignés.
+
+class DocumentStoreTest {
+
+    private static final long FINGERPRINT = 0x5EED_0001L;
+
+    @TempDir
+    Path directory;
+
+    // Documents de plusieurs blocs et points de reprise, lus par passages à des positions quelconques.
+    @Test
+    void passagesMatchDocumentWords() throws IOException {
+        TestCorpus corpus = new TestCorpus(0, 500, 3);
+        List<String> texts = List.of(corpus.nextText(5_000), corpus.nextText(1), corpus.nextText(40),
+                corpus.nextText(3_000));
+        Path path = directory.resolve("index.snap.docs");
+        DocumentStore.Writer writer = DocumentStore.Writer.toFile(path, FINGERPRINT);
+        for (int d = 0; d < texts.size(); d++) {
+            writer.addDocument("doc" + (d + 1), texts.get(d));
+        }
+        writer.finish();
+        DocumentStore store = DocumentStore.open(path, FINGERPRINT);
+
+        assertThat(store.getDocumentCount()).isEqualTo(texts.size());
+        assertThat(store.find("absent")).isNegative();
+        Random random = new Random(7);
+        for (int d = 0; d < texts.size(); d++) {
+            int doc = store.find("doc" + (d + 1));
+            String[] words = texts.get(d).split(" ");
+            for (int i = 0; i < 30; i++) {
+                int from = random.nextInt(words.length);
+                int to = from + 1 + random.nextInt(50);
+                DocumentStore.Passage passage = store.passage(doc, from, to);
+                List<String> read = IntStream.range(0, passage.getWordCount())
+                        .mapToObj(w -> passage.getText()
+                                .substring(passage.getWordStarts()[w], passage.getWordEnds()[w]))
+                        .toList();
+                assertThat(read).containsExactly(Arrays.copyOfRange(words, from, Math.min(to, words.length)));
+                assertThat(passage.isDocumentStart()).isEqualTo(from == 0);
+                assertThat(passage.isDocumentEnd()).isEqualTo(to >= words.length);
+            }
+            assertThat(store.passage(doc, words.length, words.length + 5)).isNull();
+        }
+    }
+
+    @Test
+    void oversizedStoreIsRefused() throws IOException {
+        DocumentStore.Writer writer = DocumentStore.Writer.inMemory(16 * 1024);
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.append(Integer.toHexString(random.nextInt())).append(' ');
+        }
+        assertThatThrownBy(() -> writer.addDocument("doc1", text.toString()))
+                .isInstanceOf(DocumentStore.TooLargeException.class);
+
+        // Un fichier plus grand qu'une projection mémoire est invalide, et donc reconstruit
+        Path path = directory.resolve("index.snap.docs");
+        DocumentStore.Writer small = DocumentStore.Writer.toFile(path, FINGERPRINT);
+        small.addDocument("doc1", "alpha beta");
+        small.finish();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(DocumentStore.MAX_SIZE + 1);
+        }
+        assertThatThrownBy(() -> DocumentStore.open(path, FINGERPRINT))
+                .isInstanceOf(DocumentStore.InvalidStoreException.class)
+                .hasMessageContaining("trop volumineux");
+    }
+
+    // Fenêtre centrée sur les positions correspondantes, mots correspondants entre <mark>, texte échappé.
+    @Test
+    void snippetHighlightsMatchPositions() {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < 100; w++) {
+            text.append("w").append(w).append(w == 60 ? " < " : w % 10 == 9 ? "\n\n" : " ");
+        }
+        SnippetGenerator snippets = new SnippetGenerator(DocumentStore.of("doc1", text.toString()), 6,
+                new TestCorpus().getAnalyzer());
+
+        String snippet = snippets.snippet(new DocumentSearcher.DocumentSearchResult("doc1", 1.0,
+                List.of("w59", "w61"), new int[]{59, 61}, null));
+        assertThat(snippet).isEqualTo("… w57 w58 <mark>w59</mark> w60 &lt; <mark>w61</mark> w62 …");
+        assertThat(snippets.snippet(new DocumentSearcher.DocumentSearchResult("doc1", 1.0, List.of("w1"),
+                null, null))).isEqualTo("w0 <mark>w1</mark> w2 w3 w4 w5 …");
+
+        snippets.remove("doc1");
+        assertThat(snippets.snippet(new DocumentSearcher.DocumentSearchResult("doc1", 1.0, List.of("w1"),
+                null, null))).isNull();
+    }
+}
@@ -0,0 +1,50 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Découpe d'un index en shards : postings de chaque tranche, et mêmes résultats qu'avec un seul shard.
+
+class IndexShardTest {
+
+    @Test
+    void shardsPartitionThePostings() {
+        InvertedIndex index = new TestCorpus(1000, 800, 13).buildIndex();
+        List<SearchIndex> shards = IndexShard.split(index, 7);
+
+        assertThat(shards).hasSize(7);
+        assertThat(shards.stream().mapToInt(SearchIndex::getDocumentCount).sum()).isEqualTo(index.getDocumentCount());
+        for (int termId = 0; termId < index.getTermCount(); termId++) {
+            int posting = index.postingStart(termId);
+            int firstDocId = 0;
+            for (SearchIndex shard : shards) {
+                assertThat(shard.postingStart(termId)).isEqualTo(posting);
+                for (int i = shard.postingStart(termId); i < shard.postingEnd(termId); i++) {
+                    assertThat(firstDocId + shard.postingDocId(i)).isEqualTo(index.postingDocId(posting++));
+                    assertThat(shard.postingDocId(i)).isBetween(0, shard.getDocumentCount() - 1);
+                }
+                firstDocId += shard.getDocumentCount();
+            }
+            assertThat(posting).isEqualTo(index.postingEnd(termId));
+        }
+    }
+
+    @Test
+    void shardedSearchMatchesSingleShard() {
+        TestCorpus corpus = new TestCorpus(1500, 1000, 17);
+        InvertedIndex index = corpus.buildIndex();
+        DocumentSearcher single = corpus.createSearcher(index, 1);
+        DocumentSearcher sharded = corpus.createSearcher(index, 5);
+        for (int q = 0; q < 50; q++) {
+            Map<String, Double> query = single.processQuery(corpus.nextText(1 + q % 4));
+            for (double threshold : new double[]{0.0, 0.05}) {
+                assertThat(sharded.searchDocuments(query, threshold, 10))
+                        .isEqualTo(single.searchDocuments(query, threshold, 10));
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Instantané d'index : relecture fidèle de l'index écrit, et refus d'un fichier périmé ou corrompu.
+
+class IndexSnapshotTest {
+
+    private static final long FINGERPRINT = 0x1234_5678_9ABCL;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeThenOpenRoundTrip() throws IOException {
+        TestCorpus corpus = new TestCorpus(800, 600, 5);
+        InvertedIndex index = corpus.buildIndex();
+        Path path = directory.resolve("index.bin");
+        IndexSnapshot.write(index, FINGERPRINT, path);
+
+        MappedIndex mapped = MappedIndex.open(path, FINGERPRINT);
+        assertThat(mapped.getCorpusFingerprint()).isEqualTo(FINGERPRINT);
+        assertThat(mapped.getDocumentCount()).isEqualTo(index.getDocumentCount());
+        assertThat(mapped.getTermCount()).isEqualTo(index.getTermCount());
+        assertThat(mapped.hasPositions()).isTrue();
+        for (int docId = 0; docId < index.getDocumentCount(); docId++) {
+            assertThat(mapped.getDocumentName(docId)).isEqualTo(index.getDocumentName(docId));
+            assertThat(mapped.getDocumentNorm(docId)).isEqualTo(index.getDocumentNorm(docId));
+            assertThat(mapped.getDocumentLength(docId)).isEqualTo(index.getDocumentLength(docId));
+        }
+        for (int termId = 0; termId < index.getTermCount(); termId++) {
+            String term = index.getTerm(termId);
+            int mappedId = mapped.getTermId(term);
+            assertThat(mappedId).isNotNegative();
+            assertThat(mapped.getIdf(mappedId)).isEqualTo(index.getIdf(termId));
+            assertThat(mapped.getSurfaceForm(mappedId)).isEqualTo(index.getSurfaceForm(termId));
+            int start = index.postingStart(termId);
+            int mappedStart = mapped.postingStart(mappedId);
+            assertThat(mapped.postingEnd(mappedId) - mappedStart).isEqualTo(index.postingEnd(termId) - start);
+            for (int i = 0; i < index.postingEnd(termId) - start; i++) {
+                assertThat(mapped.postingDocId(mappedStart + i)).isEqualTo(index.postingDocId(start + i));
+                assertThat(mapped.postingWeight(mappedStart + i)).isEqualTo(index.postingWeight(start + i));
+                assertThat(mapped.postingPositions(mappedStart + i)).containsExactly(index.postingPositions(start + i));
+            }
+        }
+
+        // Mêmes résultats de recherche, positionnelle comprise
+        DocumentSearcher searcher = corpus.createSearcher(index, 1);
+        DocumentSearcher mappedSearcher = corpus.createSearcher(mapped, 1);
+        for (int q = 0; q < 20; q++) {
+            String first = corpus.nextWord();
+            for (String query : List.of(corpus.nextText(3), "\"" + first + " " + corpus.nextWord() + "\"")) {
+                Map<String, Double> queryTfIdf = searcher.processQuery(query);
+                assertThat(mappedSearcher.searchDocuments(query, 0.01, 10))
+                        .isEqualTo(searcher.searchDocuments(query, 0.01, 10));
+                assertThat(mappedSearcher.processQuery(query)).isEqualTo(queryTfIdf);
+            }
+        }
+    }
+
+    @Test
+    void corruptBodyIsRejected() throws IOException {
+        Path path = directory.resolve("index.bin");
+        IndexSnapshot.write(new TestCorpus(200, 300, 9).buildIndex(), FINGERPRINT, path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long offset = IndexSnapshot.HEADER_SIZE + (file.length() - IndexSnapshot.HEADER_SIZE) / 2;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0x01);
+        }
+
+        assertThatThrownBy(() -> MappedIndex.open(path, FINGERPRINT))
+                .isInstanceOf(MappedIndex.InvalidSnapshotException.class)
+                .hasMessageContaining("somme de contrôle");
+    }
+
+    @Test
+    void staleOrTruncatedSnapshotIsRejected() throws IOException {
+        Path path = directory.resolve("index.bin");
+        IndexSnapshot.write(new TestCorpus(200, 300, 9).buildIndex(), FINGERPRINT, path);
+
+        assertThatThrownBy(() -> MappedIndex.open(path, FINGERPRINT + 1))
+                .isInstanceOf(MappedIndex.InvalidSnapshotException.class)
+                .hasMessageContaining("le corpus a changé");
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - 8);
+        }
+        assertThatThrownBy(() -> MappedIndex.open(path, FINGERPRINT))
+                .isInstanceOf(MappedIndex.InvalidSnapshotException.class)
+                .hasMessageContaining("tronqué");
+        assertThatThrownBy(() -> MappedIndex.open(directory.resolve("absent.bin"), FINGERPRINT))
+                .isInstanceOf(MappedIndex.InvalidSnapshotException.class);
+    }
+
+    // Un fichier qui dépasse une projection mémoire est refusé comme invalide (et donc reconstruit), sans être lu.
+    @Test
+    void oversizedSnapshotIsRejected() throws IOException {
+        Path path = directory.resolve("index.bin");
+        IndexSnapshot.write(new TestCorpus(50, 100, 9).buildIndex(), FINGERPRINT, path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(IndexSnapshot.MAX_SIZE + 1);
+        }
+
+        assertThatThrownBy(() -> MappedIndex.open(path, FINGERPRINT))
+                .isInstanceOf(MappedIndex.InvalidSnapshotException.class)
+                .hasMessageContaining("trop volumineux");
+    }
+}
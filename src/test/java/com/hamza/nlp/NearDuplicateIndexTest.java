@@ -0,0 +1,103 @@
+package com.hamza.nlp;
+
+import com.hamza.TfIdfProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Quasi-doublons (MinHash/LSH) : copies retouchées détectées, documents sans rapport écartés, repli des doublons
+// dans les résultats et mise à jour à l'ajout et à la suppression.
+
+class NearDuplicateIndexTest {
+
+    private static final double THRESHOLD = 0.8;
+
+    // doc1..doc100 sans rapport entre eux ; doc101 et doc102 sont des copies de doc1 et doc2 où un mot sur 100
+    // est changé.
+    private final TestCorpus source = new TestCorpus(100, 5_000, 29);
+    private final List<String> texts = new ArrayList<>();
+
+    NearDuplicateIndexTest() {
+        for (int d = 0; d < 100; d++) {
+            texts.add(source.nextText(100));
+        }
+        texts.add(edit(texts.get(0), 50));
+        texts.add(edit(texts.get(1), 10));
+    }
+
+    @Test
+    void editedCopiesAreDuplicates() {
+        TestCorpus corpus = new TestCorpus(texts.toArray(new String[0]));
+        NearDuplicateIndex duplicates = NearDuplicateIndex.build(new SegmentedIndex(corpus.buildIndex(), 2, 10, 0.1),
+                THRESHOLD);
+
+        assertThat(duplicates.getDocumentCount()).isEqualTo(texts.size());
+        assertThat(duplicates.similarity("doc1", "doc101")).isGreaterThanOrEqualTo(THRESHOLD);
+        assertThat(duplicates.duplicatesOf("doc1")).containsExactly("doc101");
+        assertThat(duplicates.duplicatesOf("doc102")).containsExactly("doc2");
+        assertThat(duplicates.duplicatesOf("doc3")).isEmpty();
+        assertThat(duplicates.similarity("doc3", "doc4")).isLessThan(0.2);
+        assertThat(duplicates.similarity("doc3", "absent")).isEqualTo(-1.0);
+
+        NearDuplicateIndex.DuplicateReport report = duplicates.report(10);
+        assertThat(report.getGroups()).isEqualTo(2);
+        assertThat(report.getDuplicateDocuments()).isEqualTo(2);
+        assertThat(report.getLargestGroups()).extracting(group -> Set.copyOf(group.getDocuments()))
+                .containsExactlyInAnyOrder(Set.of("doc1", "doc101"), Set.of("doc2", "doc102"));
+    }
+
+    // Le doublon est replié sous le premier résultat de son groupe ; le nombre de résultats gardés est borné.
+    @Test
+    void collapseFoldsDuplicatesUnderFirstResult() {
+        TestCorpus corpus = new TestCorpus(texts.toArray(new String[0]));
+        NearDuplicateIndex duplicates = NearDuplicateIndex.build(new SegmentedIndex(corpus.buildIndex(), 1, 10, 0.1),
+                THRESHOLD);
+        List<DocumentSearcher.DocumentSearchResult> results = List.of(result("doc101", 0.9), result("doc3", 0.8),
+                result("doc1", 0.7), result("doc4", 0.6), result("doc5", 0.5));
+
+        List<DocumentSearcher.DocumentSearchResult> collapsed = duplicates.collapse(results, 3);
+        assertThat(collapsed).extracting(DocumentSearcher.DocumentSearchResult::getDocumentName)
+                .containsExactly("doc101", "doc3", "doc4");
+        assertThat(collapsed.get(0).getDuplicates()).containsExactly("doc1");
+        assertThat(collapsed.get(1).getDuplicates()).isNull();
+    }
+
+    @Test
+    void addedAndRemovedDocumentsAreTracked() {
+        TestCorpus corpus = new TestCorpus(texts.subList(0, 100).toArray(new String[0]));
+        NearDuplicateIndex duplicates = NearDuplicateIndex.build(new SegmentedIndex(corpus.buildIndex(), 1, 10, 0.1),
+                THRESHOLD);
+        assertThat(duplicates.duplicatesOf("doc1")).isEmpty();
+
+        duplicates.add("copy", positions(corpus, texts.get(100)));
+        assertThat(duplicates.duplicatesOf("doc1")).containsExactly("copy");
+
+        // Remplacé par un texte sans rapport, puis supprimé
+        duplicates.add("copy", positions(corpus, source.nextText(100)));
+        assertThat(duplicates.duplicatesOf("doc1")).isEmpty();
+        duplicates.add("copy", positions(corpus, texts.get(100)));
+        duplicates.remove("copy");
+        assertThat(duplicates.duplicatesOf("doc1")).isEmpty();
+        assertThat(duplicates.getDocumentCount()).isEqualTo(100);
+    }
+
+    private String edit(String text, int word) {
+        String[] words = text.split(" ");
+        words[word] = "edited";
+        return String.join(" ", words);
+    }
+
+    private static TermPositions positions(TestCorpus corpus, String text) {
+        TermPositions positions = new TermPositions();
+        TfIdfProcessor.analyzeDocument(text, corpus.getAnalyzer(), positions, new SurfaceForms());
+        return positions;
+    }
+
+    private static DocumentSearcher.DocumentSearchResult result(String name, double score) {
+        return new DocumentSearcher.DocumentSearchResult(name, score, List.of(), null, null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Codage des positions par écarts en octets variables, et contraintes de phrase et de proximité, seules puis
+// appliquées par la recherche.
+
+class PositionIndexTest {
+
+    // Écarts aux limites des octets variables (7, 14, 21 et 28 bits) et au-delà.
+    @Test
+    void encodeDecodeRoundTrip() {
+        int[] deltas = {0, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, 268_435_455, 268_435_456, 1_500_000_000};
+        int[] sizes = {1, 1, 2, 2, 3, 3, 4, 4, 5, 5};
+        int[] positions = new int[deltas.length];
+        int expectedLength = 0;
+        for (int i = 0; i < deltas.length; i++) {
+            positions[i] = (i > 0 ? positions[i - 1] : 0) + deltas[i];
+            expectedLength += sizes[i];
+        }
+        byte[] bytes = new byte[5 * positions.length + 3];
+        int end = PositionIndex.encode(positions, bytes, 3);
+
+        assertThat(end - 3).isEqualTo(expectedLength);
+        assertThat(PositionIndex.decode(bytes, 3, end)).containsExactly(positions);
+    }
+
+    @Test
+    void builderKeepsCellsApart() {
+        Random random = new Random(11);
+        int[][] cells = new int[200][];
+        PositionIndex.Builder builder = new PositionIndex.Builder();
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = new int[random.nextInt(20)];
+            int position = 0;
+            for (int i = 0; i < cells[cell].length; i++) {
+                position += 1 + random.nextInt(i % 3 == 0 ? 100_000 : 50);
+                cells[cell][i] = position;
+            }
+            builder.add(cells[cell]);
+        }
+        PositionIndex index = builder.build();
+
+        assertThat(index.size()).isEqualTo(cells.length);
+        for (int cell = 0; cell < cells.length; cell++) {
+            assertThat(index.get(cell)).containsExactly(cells[cell]);
+        }
+    }
+
+    // Les mots écartés par la chaîne d'analyse (une seule lettre) gardent leur place dans la phrase.
+    @Test
+    void phraseMatchesConsecutiveStems() {
+        PositionalQuery.Constraint phrase = single("\"alpha x beta\"");
+
+        assertThat(phrase.getStems()).containsExactly("alpha", "beta");
+        assertThat(phrase.matches(new int[][]{{3, 10}, {12}})).isTrue();
+        assertThat(phrase.matches(new int[][]{{3, 10}, {11}})).isFalse();
+        assertThat(phrase.matches(new int[][]{{12}, {10}})).isFalse();
+    }
+
+    @Test
+    void proximityIgnoresOrderAndSameWord() {
+        PositionalQuery.Constraint near = single("alpha NEAR/2 beta");
+
+        assertThat(near.matches(new int[][]{{5}, {7}})).isTrue();
+        assertThat(near.matches(new int[][]{{7}, {5}})).isTrue();
+        assertThat(near.matches(new int[][]{{5}, {8}})).isFalse();
+        assertThat(near.matches(new int[][]{{1, 20}, {4, 30}})).isFalse();
+
+        // Même racine des deux côtés : une occurrence ne se rapproche pas d'elle-même
+        PositionalQuery.Constraint repeated = single("alpha NEAR/2 alpha");
+        assertThat(repeated.matches(new int[][]{{5, 9}, {5, 9}})).isFalse();
+        assertThat(repeated.matches(new int[][]{{5, 6}, {5, 6}})).isTrue();
+    }
+
+    @Test
+    void nearOperatorIsRemovedFromQueryText() {
+        assertThat(PositionalQuery.textOf("alpha NEAR/3 beta gamma")).isEqualTo("alpha   beta gamma");
+        assertThat(PositionalQuery.parse("alpha beta", new TestCorpus().getAnalyzer())).isEmpty();
+    }
+
+    @Test
+    void searchAppliesPhraseAndProximity() {
+        TestCorpus corpus = new TestCorpus(
+                "alpha beta gamma delta",
+                "beta alpha gamma",
+                "alpha x y z beta",
+                "gamma delta alpha");
+        DocumentSearcher searcher = corpus.createSearcher(corpus.buildIndex(), 1);
+
+        assertThat(names(searcher.searchDocuments("\"alpha beta\"", 0.001, 10))).containsExactly("doc1");
+        assertThat(names(searcher.searchDocuments("\"alpha z beta\"", 0.001, 10))).isEmpty();
+        assertThat(names(searcher.searchDocuments("\"gamma delta\"", 0.001, 10)))
+                .containsExactlyInAnyOrder("doc1", "doc4");
+        assertThat(names(searcher.searchDocuments("alpha NEAR/1 beta", 0.001, 10)))
+                .containsExactlyInAnyOrder("doc1", "doc2");
+        assertThat(names(searcher.searchDocuments("alpha NEAR/4 beta", 0.001, 10)))
+                .containsExactlyInAnyOrder("doc1", "doc2", "doc3");
+    }
+
+    private static List<String> names(List<DocumentSearcher.DocumentSearchResult> results) {
+        return results.stream().map(DocumentSearcher.DocumentSearchResult::getDocumentName).toList();
+    }
+
+    private static PositionalQuery.Constraint single(String query) {
+        List<PositionalQuery.Constraint> constraints = PositionalQuery.parse(query, new TestCorpus().getAnalyzer());
+        assertThat(constraints).hasSize(1);
+        return constraints.get(0);
+    }
+}
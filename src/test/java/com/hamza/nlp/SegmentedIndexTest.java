@@ -0,0 +1,110 @@
+package com.hamza.nlp;
+
+import com.hamza.TfIdfProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Indexation incrémentale : après ajouts, remplacements, suppressions et rafraîchissement, l'index segmenté
+// donne les scores d'un index reconstruit à partir des mêmes documents.
+
+class SegmentedIndexTest {
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        TestCorpus corpus = new TestCorpus(600, 500, 21);
+        Map<String, String> documents = new LinkedHashMap<>();
+        for (int d = 0; d < corpus.getTexts().size(); d++) {
+            documents.put("doc" + (d + 1), corpus.getTexts().get(d));
+        }
+        SegmentedIndex index = new SegmentedIndex(corpus.buildIndex(), 3, 4, 0.1);
+
+        for (int i = 0; i < 150; i++) {
+            String name = switch (i % 3) {
+                case 0 -> "new" + i;
+                case 1 -> "doc" + (1 + i * 7 % 600);
+                default -> null;
+            };
+            if (name == null) {
+                String removed = "doc" + (1 + i * 11 % 600);
+                assertThat(index.removeDocument(removed)).isEqualTo(documents.remove(removed) != null);
+                continue;
+            }
+            String text = corpus.nextText(20 + i % 30);
+            assertThat(add(index, corpus, name, text)).isEqualTo(documents.put(name, text) != null);
+        }
+        index.refresh();
+
+        TestCorpus rebuilt = new TestCorpus(documents.values().toArray(new String[0]));
+        List<String> names = new ArrayList<>(documents.keySet());
+        DocumentSearcher incremental = new DocumentSearcher(index, corpus.getAnalyzer(), null,
+                SearchMetrics.disabled());
+        DocumentSearcher reference = rebuilt.createSearcher(rebuilt.buildIndex(), 1);
+        assertThat(index.getDocumentCount()).isEqualTo(documents.size());
+        for (int q = 0; q < 40; q++) {
+            String query = corpus.nextText(1 + q % 4);
+            Map<String, Double> expected = new HashMap<>();
+            for (DocumentSearcher.DocumentSearchResult result : reference.searchDocuments(query, 0.02, 1000)) {
+                expected.put(names.get(Integer.parseInt(result.getDocumentName().substring(3)) - 1),
+                        result.getSimilarityScore());
+            }
+            List<DocumentSearcher.DocumentSearchResult> actual = incremental.searchDocuments(query, 0.02, 1000);
+            assertThat(actual).hasSize(expected.size());
+            for (DocumentSearcher.DocumentSearchResult result : actual) {
+                assertThat(result.getSimilarityScore())
+                        .isCloseTo(expected.get(result.getDocumentName()), within(1e-6));
+            }
+        }
+    }
+
+    // De plusieurs ajouts concurrents du même nom, un seul réussit.
+    @Test
+    void concurrentAddIfAbsentAddsOnce() throws Exception {
+        TestCorpus corpus = new TestCorpus(100, 200, 4);
+        SegmentedIndex index = new SegmentedIndex(corpus.buildIndex(), 1, 10, 0.1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                String name = "concurrent" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> adds = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    TermPositions positions = new TermPositions();
+                    TfIdfProcessor.analyzeDocument(corpus.nextText(15), corpus.getAnalyzer(), positions,
+                            new SurfaceForms());
+                    adds.add(executor.submit(() -> {
+                        start.await();
+                        return index.addDocumentIfAbsent(name, positions, new SurfaceForms());
+                    }));
+                }
+                start.countDown();
+                int added = 0;
+                for (Future<Boolean> add : adds) {
+                    added += add.get() ? 1 : 0;
+                }
+                assertThat(added).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(index.getDocumentCount()).isEqualTo(120);
+    }
+
+    private static boolean add(SegmentedIndex index, TestCorpus corpus, String name, String text) {
+        TermPositions positions = new TermPositions();
+        SurfaceForms surfaceForms = new SurfaceForms();
+        TfIdfProcessor.analyzeDocument(text, corpus.getAnalyzer(), positions, surfaceForms);
+        return index.addDocument(name, positions, surfaceForms);
+    }
+}
@@ -0,0 +1,116 @@
+package com.hamza.nlp;
+
+import com.hamza.TfIdfProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+// Documents similaires (SimHash/LSH) : résultats approchés proches de la recherche exacte, cosinus exacts sur les
+// candidats reclassés, mise à jour à l'ajout et à la suppression, et paramètres validés.
+
+class SimilarDocumentIndexTest {
+
+    private static final int LIMIT = 5;
+    private static final int TOPICS = 30;
+    private static final int DOCUMENTS_PER_TOPIC = 10;
+
+    private final TestCorpus corpus = new TestCorpus(topicalTexts());
+    private final SegmentedIndex index = new SegmentedIndex(corpus.buildIndex(), 2, 10, 0.1);
+    private final DocumentSearcher searcher = new DocumentSearcher(index, corpus.getAnalyzer(), null,
+            SearchMetrics.disabled());
+
+    @Test
+    void approximateResultsMatchExactSearch() {
+        SimilarDocumentIndex similar = SimilarDocumentIndex.build(index, searcher, 24, 8, 2, 100);
+        assertThat(similar.getDocumentCount()).isEqualTo(TOPICS * DOCUMENTS_PER_TOPIC);
+
+        SimilarDocumentIndex.SimilarDocuments exact = similar.similar("doc1", LIMIT, true);
+        SimilarDocumentIndex.SimilarDocuments approximate = similar.similar("doc1", LIMIT, false);
+        assertThat(exact.getResults()).hasSize(LIMIT);
+        assertThat(approximate.getResults()).hasSizeLessThanOrEqualTo(LIMIT)
+                .extracting(SimilarDocumentIndex.SimilarDocument::getDocumentName).doesNotContain("doc1");
+        assertThat(approximate.getReranked()).isLessThanOrEqualTo(approximate.getCandidates());
+        // Les candidats reclassés portent leur cosinus exact, le même que celui de la recherche exacte
+        for (SimilarDocumentIndex.SimilarDocument result : approximate.getResults()) {
+            exact.getResults().stream().filter(other -> other.getDocumentName().equals(result.getDocumentName()))
+                    .forEach(other -> assertThat(result.getSimilarity())
+                            .isCloseTo(other.getSimilarity(), within(1e-9)));
+        }
+        assertThat(similar.similar("absent", LIMIT, false)).isNull();
+
+        SimilarDocumentIndex.SimilarityEvaluation evaluation = similar.evaluate(50, LIMIT);
+        assertThat(evaluation.getSamples()).isEqualTo(50);
+        assertThat(evaluation.getRecall()).isGreaterThan(0.8);
+        assertThat(evaluation.getAverageCandidates()).isLessThan(TOPICS * DOCUMENTS_PER_TOPIC / 2.0);
+    }
+
+    // Une copie retouchée ajoutée après la construction est le document le plus similaire à l'original, puis
+    // disparaît des résultats une fois supprimée.
+    @Test
+    void addedAndRemovedDocumentsAreTracked() {
+        SimilarDocumentIndex similar = SimilarDocumentIndex.build(index, searcher, 24, 8, 2, 100);
+        String[] words = corpus.getTexts().get(0).split(" ");
+        words[0] = "edited";
+        index.addDocument("copy", positions(String.join(" ", words)), new SurfaceForms());
+        similar.add("copy");
+        assertThat(similar.getDocumentCount()).isEqualTo(TOPICS * DOCUMENTS_PER_TOPIC + 1);
+        assertThat(names(similar.similar("doc1", LIMIT, false))).first().isEqualTo("copy");
+        assertThat(names(similar.similar("doc1", LIMIT, true))).first().isEqualTo("copy");
+
+        index.removeDocument("copy");
+        similar.remove("copy");
+        assertThat(similar.getDocumentCount()).isEqualTo(TOPICS * DOCUMENTS_PER_TOPIC);
+        assertThat(names(similar.similar("doc1", LIMIT, false))).doesNotContain("copy");
+        assertThat(similar.similar("copy", LIMIT, false)).isNull();
+    }
+
+    @Test
+    void invalidParametersAreRejected() {
+        assertThatThrownBy(() -> new SimilarDocumentIndex(index, searcher, 0, 12, 4, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SimilarDocumentIndex(index, searcher, 24, 33, 4, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SimilarDocumentIndex(index, searcher, 24, 12, 13, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SimilarDocumentIndex(index, searcher, 24, 12, 4, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Documents regroupés par thème (doc1..doc10 : thème 0...) : trois mots sur quatre sont tirés du vocabulaire
+    // propre au thème, les autres du vocabulaire commun. Les plus proches voisins d'un document sont ceux de son
+    // thème, nettement plus similaires que les autres, comme dans un corpus réel.
+    private static String[] topicalTexts() {
+        TestCorpus common = new TestCorpus(0, 2_000, 31);
+        Random random = new Random(31);
+        List<String> texts = new ArrayList<>();
+        for (int topic = 0; topic < TOPICS; topic++) {
+            for (int d = 0; d < DOCUMENTS_PER_TOPIC; d++) {
+                StringBuilder text = new StringBuilder();
+                for (int w = 0; w < 80; w++) {
+                    text.append(w > 0 ? " " : "").append(random.nextInt(4) > 0
+                            ? "t" + topic + "w" + random.nextInt(40) : common.nextWord());
+                }
+                texts.add(text.toString());
+            }
+        }
+        return texts.toArray(new String[0]);
+    }
+
+    private TermPositions positions(String text) {
+        TermPositions positions = new TermPositions();
+        TfIdfProcessor.analyzeDocument(text, corpus.getAnalyzer(), positions, new SurfaceForms());
+        return positions;
+    }
+
+    private static List<String> names(SimilarDocumentIndex.SimilarDocuments documents) {
+        List<String> names = new ArrayList<>();
+        documents.getResults().forEach(result -> names.add(result.getDocumentName()));
+        return names;
+    }
+}
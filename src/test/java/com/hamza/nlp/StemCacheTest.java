@@ -0,0 +1,78 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Cache mot -> racine : un seul appel au stemmer par mot en cache, éviction LRU par segment, taille bornée, et
+// mots sans racine mis en cache comme les autres.
+
+class StemCacheTest {
+
+    @Test
+    void cachedWordIsStemmedOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingStemmer stemmer = CachingStemmer.withAnalyser(() -> word -> {
+            calls.incrementAndGet();
+            return word.startsWith("x") ? null : word.substring(0, 2);
+        }, new StemCache(100));
+
+        assertThat(stemmer.stemWords("alpha beta alpha, xyz alpha xyz")).containsExactly("al", "be", "al", null,
+                "al", null);
+        assertThat(calls).hasValue(3);
+        StemCache.StemCacheStatistics statistics = stemmer.getCache().getStatistics();
+        assertThat(statistics.getHits()).isEqualTo(3);
+        assertThat(statistics.getMisses()).isEqualTo(3);
+        assertThat(statistics.getSize()).isEqualTo(3);
+        assertThat(statistics.getHitRate()).isEqualTo(0.5);
+    }
+
+    // 32 mots au plus, soit 2 par segment : le mot le moins récemment lu de son segment est évincé.
+    @Test
+    void leastRecentlyUsedWordIsEvicted() {
+        StemCache cache = new StemCache(32);
+        List<String> words = wordsOfSegment(StemCache.segmentIndex("w0"), 3);
+        AtomicInteger calls = new AtomicInteger();
+        for (String word : words.subList(0, 2)) {
+            cache.get(word, w -> "stem-" + calls.incrementAndGet());
+        }
+        cache.get(words.get(0), w -> "stem-" + calls.incrementAndGet());
+        cache.get(words.get(2), w -> "stem-" + calls.incrementAndGet());
+
+        assertThat(cache.get(words.get(0), w -> "reloaded")).isEqualTo("stem-1");
+        assertThat(cache.get(words.get(1), w -> "reloaded")).isEqualTo("reloaded");
+        assertThat(cache.getStatistics().getEvictions()).isEqualTo(2);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.get("w" + i, w -> w);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(32);
+        StemCache.StemCacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getEvictions()).isEqualTo(statistics.getMisses() - statistics.getSize());
+    }
+
+    @Test
+    void disabledCacheAlwaysStems() {
+        StemCache cache = new StemCache(0);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.get("alpha", w -> "al" + calls.incrementAndGet())).isEqualTo("al" + (i + 1));
+        }
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getStatistics().getMisses()).isEqualTo(3);
+    }
+
+    private static List<String> wordsOfSegment(int segment, int count) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; words.size() < count; i++) {
+            if (StemCache.segmentIndex("w" + i) == segment) {
+                words.add("w" + i);
+            }
+        }
+        return words;
+    }
+}
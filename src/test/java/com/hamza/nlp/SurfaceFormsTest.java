@@ -0,0 +1,82 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Formes de surface : forme la plus fréquente de chaque racine, avec ou sans forme majoritaire, comptée en une
+// seule instance ou fusionnée document par document.
+
+class SurfaceFormsTest {
+
+    // Aucune forme n'est majoritaire (3 sur 9) : un vote majoritaire retiendrait la dernière forme vue.
+    @Test
+    void mostFrequentFormWithoutMajority() {
+        SurfaceForms forms = new SurfaceForms();
+        for (String form : List.of("alpha", "alpha", "alpha", "alphas", "alphas", "alphae", "alphae", "alphai",
+                "alphai")) {
+            forms.add("alph", form, 1);
+        }
+        assertThat(forms.get("alph")).isEqualTo("alpha");
+        assertThat(forms.get("beta")).isNull();
+
+        // À compte égal, la plus petite forme
+        forms.add("gamm", "gammas", 2);
+        forms.add("gamm", "gamma", 2);
+        assertThat(forms.get("gamm")).isEqualTo("gamma");
+    }
+
+    // Jusqu'à MAX_FORMS formes par racine, les comptes sont exacts, qu'ils soient ajoutés un à un ou fusionnés.
+    @Test
+    void exactCountsUpToMaxForms() {
+        Random random = new Random(3);
+        SurfaceForms direct = new SurfaceForms();
+        SurfaceForms merged = new SurfaceForms();
+        Map<String, Map<String, Long>> expected = new HashMap<>();
+        for (int document = 0; document < 200; document++) {
+            SurfaceForms documentForms = new SurfaceForms();
+            for (int i = 0; i < 30; i++) {
+                String stem = "s" + random.nextInt(20);
+                String form = stem + "-" + random.nextInt(SurfaceForms.MAX_FORMS);
+                long weight = 1 + random.nextInt(3);
+                direct.add(stem, form, weight);
+                documentForms.add(stem, form, weight);
+                expected.computeIfAbsent(stem, s -> new HashMap<>()).merge(form, weight, Long::sum);
+            }
+            merged.addAll(documentForms);
+        }
+
+        assertThat(direct.size()).isEqualTo(expected.size());
+        expected.forEach((stem, counts) -> {
+            String best = counts.entrySet().stream()
+                    .max(Map.Entry.<String, Long>comparingByValue()
+                            .thenComparing(Map.Entry.comparingByKey((a, b) -> b.compareTo(a))))
+                    .orElseThrow().getKey();
+            assertThat(direct.get(stem)).isEqualTo(best);
+            assertThat(merged.get(stem)).isEqualTo(best);
+        });
+    }
+
+    // Au-delà de MAX_FORMS formes, une forme nettement plus fréquente reste retenue malgré une longue traîne.
+    @Test
+    void frequentFormSurvivesManyRareForms() {
+        SurfaceForms forms = new SurfaceForms();
+        List<String> stream = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            stream.add("rare" + i);
+            if (i % 4 == 0) {
+                stream.add("common");
+            }
+        }
+        for (String form : stream) {
+            forms.add("stem", form, 1);
+        }
+        assertThat(forms.get("stem")).isEqualTo("common");
+    }
+}
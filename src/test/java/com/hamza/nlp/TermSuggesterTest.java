@@ -0,0 +1,54 @@
+package com.hamza.nlp;
+
+import com.hamza.TfIdfProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Autocomplétion : termes classés par fréquence documentaire, affichés par leur forme de surface la plus fréquente,
+// trouvés par le préfixe de leur forme ou de leur racine, sans tenir compte des diacritiques ni de la hamza.
+
+class TermSuggesterTest {
+
+    // Racine : les quatre premiers caractères du mot
+    private final TextAnalyzer analyzer = TextAnalyzer.of(CachingStemmer.withAnalyser(
+            () -> word -> word.length() > 4 ? word.substring(0, 4) : word, new StemCache(1_000)), Set.of(), "");
+
+    @Test
+    void suggestionsAreRankedByDocumentFrequency() {
+        TermSuggester suggester = TermSuggester.build(index(
+                "alphabet beta",
+                "alphabet alphas beta",
+                "alphas alphas alphabet beta",
+                "alpine beta",
+                "alpine alto",
+                "beta الأندلس"));
+
+        // « alph » : 3 documents, forme la plus fréquente « alphabet » (3 occurrences contre 3 : la plus petite)
+        assertThat(suggester.suggest("al", 5)).containsExactly("alphabet", "alpine", "alto");
+        assertThat(suggester.suggest("AL", 1)).containsExactly("alphabet");
+        // Le préfixe d'une racine trouve aussi le terme
+        assertThat(suggester.suggest("alph", 5)).containsExactly("alphabet");
+        assertThat(suggester.suggest("alpi", 5)).containsExactly("alpine");
+        assertThat(suggester.suggest("x", 5)).isEmpty();
+        assertThat(suggester.suggest("الاندلس", 5)).containsExactly("الأندلس");
+
+        List<DocumentSearchUtils.TermStatistics> top = suggester.topTerms(2);
+        assertThat(top).extracting(DocumentSearchUtils.TermStatistics::getTerm).containsExactly("beta", "alphabet");
+        assertThat(top).extracting(DocumentSearchUtils.TermStatistics::getDocumentFrequency).containsExactly(5, 3);
+    }
+
+    private SegmentedIndex index(String... texts) {
+        StreamingIndexBuilder builder = new StreamingIndexBuilder();
+        SurfaceForms surfaceForms = new SurfaceForms();
+        for (int d = 0; d < texts.length; d++) {
+            TermPositions positions = new TermPositions();
+            TfIdfProcessor.analyzeDocument(texts[d], analyzer, positions, surfaceForms);
+            builder.addDocument("doc" + (d + 1), positions);
+        }
+        return new SegmentedIndex(builder.build(surfaceForms), 1, 10, 0.1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hamza.nlp;
+
+import com.hamza.TfIdfProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Corpus synthétique des tests : mots "w0", "w1"... tirés selon une loi proche de Zipf (quelques mots très
+// fréquents, une longue traîne), racinisés tels quels pour ne pas dépendre du jar SAFAR. Génération déterministe.
+
+final class TestCorpus {
+
+    private final List<String> texts = new ArrayList<>();
+    private final Random random;
+    private final int vocabularySize;
+    private final TextAnalyzer analyzer = TextAnalyzer.of(
+            CachingStemmer.withAnalyser(() -> word -> word, new StemCache(10_000)), Set.of(), "");
+
+    TestCorpus(int documentCount, int vocabularySize, long seed) {
+        this.random = new Random(seed);
+        this.vocabularySize = vocabularySize;
+        for (int d = 0; d < documentCount; d++) {
+            texts.add(nextText(10 + random.nextInt(60)));
+        }
+    }
+
+    // Corpus de textes donnés.
+    TestCorpus(String... texts) {
+        this(0, 1, 0);
+        this.texts.addAll(List.of(texts));
+    }
+
+    // Texte de wordCount mots.
+    String nextText(int wordCount) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < wordCount; w++) {
+            text.append(w > 0 ? " " : "").append(nextWord());
+        }
+        return text.toString();
+    }
+
+    String nextWord() {
+        double u = random.nextDouble();
+        return "w" + (int) (vocabularySize * u * u * u);
+    }
+
+    List<String> getTexts() {
+        return texts;
+    }
+
+    TextAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    // Index positionnel du corpus (documents "doc1", "doc2"...), comme l'indexation au démarrage.
+    InvertedIndex buildIndex() {
+        StreamingIndexBuilder builder = new StreamingIndexBuilder();
+        SurfaceForms surfaceForms = new SurfaceForms();
+        for (int d = 0; d < texts.size(); d++) {
+            TermPositions positions = new TermPositions();
+            TfIdfProcessor.analyzeDocument(texts.get(d), analyzer, positions, surfaceForms);
+            builder.addDocument("doc" + (d + 1), positions);
+        }
+        return builder.build(surfaceForms);
+    }
+
+    DocumentSearcher createSearcher(SearchIndex index, int shardCount) {
+        return new DocumentSearcher(new SegmentedIndex(index, shardCount, 10, 0.1), analyzer, null,
+                SearchMetrics.disabled());
+    }
+}
@@ -0,0 +1,52 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Chaîne d'analyse : normalisations des mots et des mots vides, quel que soit l'ordre des filtres.
+
+class TextAnalyzerTest {
+
+    private static final Set<String> STOP_WORDS = Set.of("إلى", "عَلى");
+
+    private static TextAnalyzer analyzer(String filters) {
+        return TextAnalyzer.of(CachingStemmer.withAnalyser(() -> word -> word, new StemCache(100)), STOP_WORDS,
+                filters);
+    }
+
+    @Test
+    void normalizesWordsBeforeStemming() {
+        TextAnalyzer analyzer = analyzer("diacritics,letters");
+
+        assertThat(analyzer.stem("مَدْرَسَةٌ")).isEqualTo("مدرسه");
+        assertThat(analyzer.stem("أحمد")).isEqualTo("احمد");
+        assertThat(analyzer.stem("ـــ")).isNull();
+    }
+
+    // Les mots vides sont normalisés par toutes les normalisations, même placées après stop-words.
+    @Test
+    void stopWordsFollowEveryNormalization() {
+        for (String filters : new String[]{"diacritics,letters,stop-words", "stop-words,diacritics,letters",
+                "letters,stop-words,diacritics"}) {
+            TextAnalyzer analyzer = analyzer(filters);
+
+            assertThat(analyzer.stem("الى")).as(filters).isNull();
+            assertThat(analyzer.stem("إِلَى")).as(filters).isNull();
+            assertThat(analyzer.stem("على")).as(filters).isNull();
+            assertThat(analyzer.stem("علم")).as(filters).isEqualTo("علم");
+        }
+    }
+
+    @Test
+    void defaultChainKeepsWordsAndDropsNumbers() {
+        TextAnalyzer analyzer = analyzer(ArabicFilters.DEFAULT_CHAIN);
+
+        assertThat(analyzer.stem("إلى")).isNull();
+        assertThat(analyzer.stem("الى")).isEqualTo("الى");
+        assertThat(analyzer.stem("١٢٣")).isNull();
+        assertThat(analyzer.stem("2024")).isNull();
+    }
+}
@@ -0,0 +1,124 @@
+package com.hamza.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Codage des poids : erreur relative bornée des demi-flottants et des niveaux logarithmiques, codes stables au
+// recodage, élagage des postings de plus faible poids et recouvrement des résultats de l'index compressé.
+
+class WeightQuantizationTest {
+
+    @Test
+    void halfFloatRoundTripIsWithinHalfUlp() {
+        Random random = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            // Poids normaux du demi-flottant, de 2^-14 à 2^15
+            float weight = (float) Math.pow(2.0, -14 + 29 * random.nextDouble());
+            float decoded = WeightQuantization.FLOAT16.round(weight);
+            assertThat((double) Math.abs(decoded - weight) / weight).isLessThanOrEqualTo(0x1p-11);
+        }
+        // Chaque demi-flottant fini se recode à l'identique
+        for (int half = 0; half < 0x7C00; half++) {
+            assertThat(WeightQuantization.toHalf(WeightQuantization.fromHalf((short) half))).isEqualTo((short) half);
+        }
+        assertThat(WeightQuantization.FLOAT16.round(0.0f)).isZero();
+        assertThat(WeightQuantization.FLOAT16.round(1e-9f)).isZero();
+        assertThat(WeightQuantization.FLOAT16.round(1e6f)).isInfinite();
+        // Arrondi au pair : 1 + 2^-11 est à mi-chemin entre 1 et 1 + 2^-10
+        assertThat(WeightQuantization.FLOAT16.round(1.0f + 0x1p-11f)).isEqualTo(1.0f);
+        assertThat(WeightQuantization.FLOAT16.round(1.0f + 3 * 0x1p-11f)).isEqualTo(1.0f + 0x1p-9f);
+    }
+
+    @Test
+    void int8RoundTripIsWithinLogStep() {
+        Random random = new Random(6);
+        for (int i = 0; i < 100_000; i++) {
+            float weight = (float) Math.pow(2.0, -24 + 32 * random.nextDouble());
+            float decoded = WeightQuantization.INT8.round(weight);
+            assertThat((double) Math.abs(decoded - weight) / weight).isLessThanOrEqualTo(0.045);
+        }
+        for (int code = 0; code < 256; code++) {
+            assertThat(WeightQuantization.toCode(WeightQuantization.fromCode((byte) code))).isEqualTo((byte) code);
+        }
+        assertThat(WeightQuantization.INT8.round(0.0f)).isZero();
+        assertThat(WeightQuantization.INT8.round(-1.0f)).isZero();
+        // Bornes de l'échelle au-delà
+        assertThat(WeightQuantization.INT8.round(1e-12f)).isEqualTo(0x1p-24f);
+        assertThat(WeightQuantization.INT8.round(1e6f)).isEqualTo(256.0f);
+    }
+
+    @Test
+    void encodedWeightsDecodeAsRounded() {
+        Random random = new Random(7);
+        float[] values = new float[1_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 10 == 0 ? 0.0f : random.nextFloat() * 20.0f;
+        }
+        for (WeightQuantization quantization : WeightQuantization.values()) {
+            QuantizedWeights weights = QuantizedWeights.encode(values, quantization);
+            assertThat(weights.estimateBytes()).isGreaterThanOrEqualTo((long) quantization.getBytesPerWeight()
+                    * values.length);
+            for (int i = 0; i < values.length; i++) {
+                assertThat(weights.get(i)).isEqualTo(quantization.round(values[i]));
+            }
+        }
+        assertThat(WeightQuantization.of(" Float16 ")).isEqualTo(WeightQuantization.FLOAT16);
+        assertThatThrownBy(() -> WeightQuantization.of("int4")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Chaque document garde ses max(1, ⌈(1 - r) x n⌉) termes de plus fort poids, codés ; les top-10 de l'index
+    // compressé recouvrent largement ceux de l'index exact pour une empreinte moindre.
+    @Test
+    void prunedIndexKeepsStrongestPostings() {
+        InvertedIndex exact = new TestCorpus(500, 3_000, 8).buildIndex();
+        double pruneRatio = 0.3;
+        InvertedIndex compressed = exact.compress(WeightQuantization.INT8, pruneRatio);
+
+        assertThat(compressed.getQuantization()).isEqualTo(WeightQuantization.INT8);
+        for (int docId = 0; docId < exact.getDocumentCount(); docId++) {
+            int terms = exact.documentTermEnd(docId) - exact.documentTermStart(docId);
+            int kept = compressed.documentTermEnd(docId) - compressed.documentTermStart(docId);
+            assertThat(kept).isEqualTo(Math.max(1, (int) Math.ceil((1 - pruneRatio) * terms)));
+
+            Map<Integer, Float> weights = new HashMap<>();
+            for (int i = exact.documentTermStart(docId); i < exact.documentTermEnd(docId); i++) {
+                weights.put(exact.documentTermId(i), exact.documentTermWeight(i));
+            }
+            float weakestKept = Float.MAX_VALUE;
+            for (int i = compressed.documentTermStart(docId); i < compressed.documentTermEnd(docId); i++) {
+                float weight = weights.remove(compressed.documentTermId(i));
+                assertThat(compressed.documentTermWeight(i)).isEqualTo(WeightQuantization.INT8.round(weight));
+                weakestKept = Math.min(weakestKept, weight);
+            }
+            for (float pruned : weights.values()) {
+                assertThat(pruned).isLessThanOrEqualTo(weakestKept);
+            }
+        }
+        assertThatThrownBy(() -> compressed.compress(WeightQuantization.INT8, 0.0))
+                .isInstanceOf(IllegalStateException.class);
+
+        IndexCompression compression = new IndexCompression(WeightQuantization.INT8, pruneRatio);
+        IndexCompression.Report report = compression.evaluate(exact, compressed);
+        assertThat(report.getCompressedBytes()).isLessThan(report.getExactBytes());
+        assertThat(report.getKeptPostings()).isLessThan(report.getExactPostings());
+        assertThat(report.getOverlapAtK()).isGreaterThan(0.8);
+        assertThat(report.getMeanScoreError()).isLessThan(0.1);
+    }
+
+    @Test
+    void exactCompressionServesIndexAsIs() {
+        InvertedIndex exact = new TestCorpus(50, 500, 9).buildIndex();
+        IndexCompression compression = new IndexCompression(WeightQuantization.FLOAT32, 0.0);
+        assertThat(compression.isEnabled()).isFalse();
+        assertThat(compression.apply(exact)).isSameAs(exact);
+        assertThat(new IndexCompression(WeightQuantization.FLOAT16, 0.0).apply(exact)).isNotSameAs(exact);
+        assertThatThrownBy(() -> new IndexCompression(WeightQuantization.INT8, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,167 @@
+package com.hamza.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamza.controller.ShardController;
+import com.hamza.dto.SearchRequestDto;
+import com.hamza.dto.SearchResponseDto;
+import com.hamza.dto.ShardStatisticsDto;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Coordinateur du cluster contre des shards simulés (serveurs HTTP locaux) : fusion des top-K, shards en échec,
+// IDF global renvoyé à chaque shard sans ses propres statistiques, et secret partagé.
+
+class ClusterCoordinatorTest {
+
+    private static final String SECRET = "secret-du-cluster";
+
+    // Configuré comme celui de Spring Boot : les propriétés inconnues (formattedScore) sont ignorées
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<FakeShard> shards = new ArrayList<>();
+
+    @AfterEach
+    void stopShards() {
+        shards.forEach(shard -> shard.server.stop(0));
+    }
+
+    // Les listes des shards sont fusionnées par score décroissant et tronquées ; un shard en erreur est ignoré et
+    // la réponse marquée partielle.
+    @Test
+    void searchMergesShardResults() throws IOException {
+        FakeShard first = shard(statistics(2, Map.of("a", 2)), result("doc1", 0.9), result("doc2", 0.3));
+        FakeShard second = shard(statistics(3, Map.of("a", 1)), result("doc3", 0.5), result("doc4", 0.4));
+        FakeShard failing = shard(null);
+        ClusterCoordinator coordinator = coordinator(first, second, failing);
+
+        SearchResponseDto response = coordinator.search(new SearchRequestDto("a", 0.01, 3));
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getResults()).extracting(SearchResponseDto.DocumentResult::getDocumentName)
+                .containsExactly("doc1", "doc3", "doc4");
+        assertThat(response.getPartial()).isTrue();
+        assertThat(response.getFailedShards()).containsExactly(failing.url());
+        assertThat(first.secrets).isNotEmpty().allMatch(SECRET::equals);
+
+        assertThat(coordinator(failing).search(new SearchRequestDto("a")).isSuccess()).isFalse();
+    }
+
+    // Chaque shard reçoit les statistiques du corpus complet moins les siennes ; un shard injoignable est exclu.
+    @Test
+    void synchronizeSendsOtherShardsStatistics() throws IOException {
+        FakeShard first = shard(statistics(2, Map.of("a", 2, "b", 1)));
+        FakeShard second = shard(statistics(3, Map.of("a", 1, "c", 3)));
+        FakeShard failing = shard(null);
+
+        ClusterCoordinator.ClusterStatus status = coordinator(first, second, failing).synchronize();
+        assertThat(status.getTotalDocuments()).isEqualTo(5);
+        assertThat(status.getTotalUniqueTerms()).isEqualTo(3);
+        assertThat(status.getShards()).extracting(ClusterCoordinator.ShardStatus::isSynchronizedIdf)
+                .containsExactly(true, true, false);
+
+        ShardStatisticsDto firstRemote = first.received.get(0);
+        assertThat(firstRemote.getDocumentCount()).isEqualTo(3);
+        assertThat(firstRemote.getDocumentFrequencies()).isEqualTo(Map.of("a", 1, "c", 3));
+        assertThat(firstRemote.getDocumentLength()).isEqualTo(300);
+        ShardStatisticsDto secondRemote = second.received.get(0);
+        assertThat(secondRemote.getDocumentCount()).isEqualTo(2);
+        assertThat(secondRemote.getDocumentFrequencies()).isEqualTo(Map.of("a", 2, "b", 1));
+    }
+
+    @Test
+    void secretIsRequired() {
+        assertThatThrownBy(() -> new ClusterCoordinator("http://localhost:1", 500, 60, " ", objectMapper))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new ClusterCoordinator(" , ", 500, 60, SECRET, objectMapper))
+                .isInstanceOf(IllegalStateException.class);
+
+        ShardController shard = new ShardController(null, null, SECRET);
+        shard.authenticate(SECRET);
+        for (String provided : new String[]{null, "", SECRET + "x"}) {
+            assertThatThrownBy(() -> shard.authenticate(provided))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED));
+        }
+    }
+
+    private ClusterCoordinator coordinator(FakeShard... cluster) {
+        List<String> urls = new ArrayList<>();
+        for (FakeShard shard : cluster) {
+            urls.add(shard.url() + "/");
+        }
+        return new ClusterCoordinator(String.join(", ", urls), 2_000, 60, SECRET, objectMapper);
+    }
+
+    // Shard simulé : statistiques et résultats fixes, HTTP 500 sur tout appel si statistics est null.
+    private FakeShard shard(ShardStatisticsDto statistics, SearchResponseDto.DocumentResult... results)
+            throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        FakeShard shard = new FakeShard(server);
+        server.createContext("/internal/shard/", exchange -> {
+            shard.secrets.add(exchange.getRequestHeaders().getFirst(ClusterCoordinator.SECRET_HEADER));
+            byte[] request = exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            String body = "";
+            int code = 200;
+            if (statistics == null) {
+                code = 500;
+            } else if (path.endsWith("/search")) {
+                body = objectMapper.writeValueAsString(new SearchResponseDto("a", List.of(results), 0.0));
+            } else if (exchange.getRequestMethod().equals("PUT")) {
+                shard.received.add(objectMapper.readValue(request, ShardStatisticsDto.class));
+            } else {
+                body = objectMapper.writeValueAsString(statistics);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, bytes.length > 0 ? bytes.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        shards.add(shard);
+        return shard;
+    }
+
+    private static ShardStatisticsDto statistics(int documents, Map<String, Integer> frequencies) {
+        return new ShardStatisticsDto(documents, frequencies, 100L * documents);
+    }
+
+    private static SearchResponseDto.DocumentResult result(String name, double score) {
+        SearchResponseDto.DocumentResult result = new SearchResponseDto.DocumentResult();
+        result.setDocumentName(name);
+        result.setSimilarityScore(score);
+        result.setMatchingTerms(List.of("a"));
+        return result;
+    }
+
+    private static final class FakeShard {
+        private final HttpServer server;
+        private final List<String> secrets = new CopyOnWriteArrayList<>();
+        private final List<ShardStatisticsDto> received = new CopyOnWriteArrayList<>();
+
+        FakeShard(HttpServer server) {
+            this.server = server;
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+    }
+}
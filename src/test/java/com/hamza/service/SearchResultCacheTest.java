@@ -0,0 +1,96 @@
+package com.hamza.service;
+
+import com.hamza.nlp.Bm25Scorer;
+import com.hamza.nlp.CachingStemmer;
+import com.hamza.nlp.CosineScorer;
+import com.hamza.nlp.PositionalQuery;
+import com.hamza.nlp.StemCache;
+import com.hamza.nlp.TextAnalyzer;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Clés du cache de résultats, et invalidation par génération d'index.
+
+class SearchResultCacheTest {
+
+    private static final SearchResultCache.QueryKey FIRST = key(Map.of("a", 1.0), List.of());
+    private static final SearchResultCache.QueryKey SECOND = key(Map.of("b", 1.0), List.of());
+
+    // Même vecteur dans un autre ordre : même clé ; chaque option de la requête sépare les entrées.
+    @Test
+    void keysSeparateEveryQueryOption() {
+        TextAnalyzer analyzer = TextAnalyzer.of(CachingStemmer.withAnalyser(() -> word -> word, new StemCache(100)),
+                Set.of(), "");
+        Map<String, Double> vector = new LinkedHashMap<>();
+        vector.put("b", 0.5);
+        vector.put("a", 1.0);
+        List<PositionalQuery.Constraint> phrase = PositionalQuery.parse("\"alpha beta\"", analyzer);
+        SearchResultCache.QueryKey key = key(Map.of("a", 1.0, "b", 0.5), phrase);
+
+        assertThat(key(vector, PositionalQuery.parse("\"alpha beta\"", analyzer))).isEqualTo(key)
+                .hasSameHashCodeAs(key);
+        assertThat(List.of(
+                key(vector, List.of()),
+                key(vector, PositionalQuery.parse("\"beta alpha\"", analyzer)),
+                key(vector, PositionalQuery.parse("alpha NEAR/1 beta", analyzer)),
+                SearchResultCache.QueryKey.of(vector, phrase, new Bm25Scorer(1.2, 0.75), 0.01, 5, false),
+                SearchResultCache.QueryKey.of(vector, phrase, CosineScorer.INSTANCE, 0.01, 5, true),
+                SearchResultCache.QueryKey.of(vector, phrase, CosineScorer.INSTANCE, 0.02, 5, false),
+                SearchResultCache.QueryKey.of(vector, phrase, CosineScorer.INSTANCE, 0.01, 6, false)))
+                .doesNotContain(key)
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    void newerGenerationClearsEntries() {
+        SearchResultCache cache = new SearchResultCache(10, 0);
+        cache.put(FIRST, 1, List.of());
+
+        assertThat(cache.get(FIRST, 1)).isNotNull();
+        assertThat(cache.get(FIRST, 2)).isNull();
+        assertThat(cache.getStatistics().getInvalidations()).isEqualTo(1);
+    }
+
+    // Une recherche commencée avant une mise à jour se termine après : son résultat est écarté, et les entrées
+    // déjà en cache pour la nouvelle génération sont conservées.
+    @Test
+    void lateWriteFromOlderGenerationIsDropped() {
+        SearchResultCache cache = new SearchResultCache(10, 0);
+        cache.put(FIRST, 2, List.of());
+        cache.put(SECOND, 1, List.of());
+
+        assertThat(cache.get(FIRST, 2)).isNotNull();
+        assertThat(cache.get(SECOND, 2)).isNull();
+        assertThat(cache.getStatistics().getSize()).isEqualTo(1);
+        assertThat(cache.getStatistics().getInvalidations()).isZero();
+    }
+
+    @Test
+    void readFromOlderGenerationMissesWithoutClearing() {
+        SearchResultCache cache = new SearchResultCache(10, 0);
+        cache.put(FIRST, 2, List.of());
+
+        assertThat(cache.get(FIRST, 1)).isNull();
+        assertThat(cache.get(FIRST, 2)).isNotNull();
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        SearchResultCache cache = SearchResultCache.disabled();
+        cache.put(FIRST, 1, List.of());
+
+        assertThat(cache.get(FIRST, 1)).isNull();
+        assertThat(cache.getStatistics().isEnabled()).isFalse();
+    }
+
+    private static SearchResultCache.QueryKey key(Map<String, Double> vector,
+                                                  List<PositionalQuery.Constraint> constraints) {
+        return SearchResultCache.QueryKey.of(vector, constraints, CosineScorer.INSTANCE, 0.01, 5, false);
+    }
+}